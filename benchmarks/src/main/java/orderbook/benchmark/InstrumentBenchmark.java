@@ -0,0 +1,90 @@
+package orderbook.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.service.InstrumentServiceLayerImpl;
+import orderbook.service.OrderBookFactoryMemoryImpl;
+import orderbook.service.OrderBookServiceLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching across many instruments with a varying number of matching workers. Each operation adds
+ * a crossing pair of orders to every symbol's book and sweeps it, then waits for all the books.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InstrumentBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int workers;
+
+    @Param({"256"})
+    private int symbols;
+
+    private Path directory;
+    private TradeDaoMappedImpl tradeDao;
+    private InstrumentServiceLayerImpl service;
+    private String[] symbolNames;
+    private final long price = PriceTicks.toTicks(new BigDecimal("100"));
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("instrumentBenchmark");
+        tradeDao = new TradeDaoMappedImpl(directory.resolve("trades.dat").toString());
+        service = new InstrumentServiceLayerImpl(new OrderBookFactoryMemoryImpl(tradeDao), workers);
+        symbolNames = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            symbolNames[i] = "S" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException, IOException {
+        service.close();
+        tradeDao.close();
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public int matchAcrossSymbols() {
+        CompletableFuture<?>[] sweeps = new CompletableFuture<?>[symbols];
+        for (int i = 0; i < symbols; i++) {
+            String symbol = symbolNames[i];
+            BuyOrder buy = new BuyOrder(symbol, Order.nextGlobalId(), price, 10);
+            SellOrder sell = new SellOrder(symbol, Order.nextGlobalId(), price, 10);
+            service.submit(symbol, book -> book.addBuyOrder(buy));
+            service.submit(symbol, book -> book.addSellOrder(sell));
+            sweeps[i] = service.submit(symbol, OrderBookServiceLayer::matchAllOrders);
+        }
+        CompletableFuture.allOf(sweeps).join();
+        return sweeps.length;
+    }
+}
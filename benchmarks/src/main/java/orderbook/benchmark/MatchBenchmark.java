@@ -0,0 +1,91 @@
+package orderbook.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.Trade;
+import orderbook.exceptions.NoMatchException;
+import orderbook.exceptions.PersistenceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching against a resting book. Before each invocation crossing orders are added inside the
+ * spread with equal total quantity on both sides, so every invocation trades them away completely
+ * and leaves the resting book as it was.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MatchBenchmark {
+
+    /** The number of crossing orders added to each side before every matchAllOrders invocation. */
+    private static final int CROSSING_ORDERS = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    private int depth;
+
+    @Param({"file", "memory", "journal", "groupCommit", "offHeap"})
+    private String dao;
+
+    private OrderBookFixture fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, PersistenceException {
+        fixture = new OrderBookFixture(dao, dao.equals("file") ? "file" : "mapped", depth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @State(Scope.Thread)
+    public static class CrossingOrder {
+
+        @Setup(Level.Invocation)
+        public void cross(MatchBenchmark benchmark) throws PersistenceException {
+            benchmark.addCrossingOrders(1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CrossingOrders {
+
+        @Setup(Level.Invocation)
+        public void cross(MatchBenchmark benchmark) throws PersistenceException {
+            benchmark.addCrossingOrders(CROSSING_ORDERS);
+        }
+    }
+
+    @Benchmark
+    public Trade match(CrossingOrder crossing) throws NoMatchException, PersistenceException {
+        return fixture.getService().match();
+    }
+
+    @Benchmark
+    public int matchAllOrders(CrossingOrders crossing) throws NoMatchException, PersistenceException {
+        return fixture.getService().matchAllOrders();
+    }
+
+    private void addCrossingOrders(int count) throws PersistenceException {
+        for (int i = 0; i < count; i++) {
+            int quantity = 20 + i % 30;
+            fixture.getService().addBuyOrder(fixture.crossingBuyOrder(quantity));
+            fixture.getService().addSellOrder(fixture.crossingSellOrder(quantity));
+        }
+    }
+}
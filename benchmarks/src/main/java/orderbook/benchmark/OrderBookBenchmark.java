@@ -0,0 +1,78 @@
+package orderbook.benchmark;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.OrderStats;
+import orderbook.dto.SellOrder;
+import orderbook.exceptions.PersistenceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adding orders to, and reading statistics and depth from, a resting book that is never crossed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class OrderBookBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int depth;
+
+    @Param({"file", "memory", "journal", "groupCommit", "offHeap"})
+    private String dao;
+
+    private OrderBookFixture fixture;
+
+    @Setup
+    public void setUp() throws IOException, PersistenceException {
+        fixture = new OrderBookFixture(dao, dao.equals("file") ? "file" : "mapped", depth);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public BuyOrder addBuyOrder() throws PersistenceException {
+        return fixture.getService().addBuyOrder(fixture.restingBuyOrder());
+    }
+
+    @Benchmark
+    public SellOrder addSellOrder() throws PersistenceException {
+        return fixture.getService().addSellOrder(fixture.restingSellOrder());
+    }
+
+    @Benchmark
+    public List<BigDecimal> getStats() throws PersistenceException {
+        return fixture.getService().getStats(fixture.getService().getOrderBook());
+    }
+
+    @Benchmark
+    public List<OrderStats> getOrderStats() throws PersistenceException {
+        return fixture.getService().getOrderStats();
+    }
+
+    @Benchmark
+    public List<List<DepthLevel>> getDepth() throws PersistenceException {
+        return fixture.getService().getDepth(10);
+    }
+}
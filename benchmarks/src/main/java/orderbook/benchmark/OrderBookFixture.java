@@ -0,0 +1,248 @@
+package orderbook.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import orderbook.dao.BuyOrderDao;
+import orderbook.dao.BuyOrderDaoFileImpl;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.BuyOrderDaoOffHeapImpl;
+import orderbook.dao.JournalSyncPolicy;
+import orderbook.dao.OffHeapOrderStore;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.OrderBookJournal;
+import orderbook.dao.SellOrderDao;
+import orderbook.dao.SellOrderDaoFileImpl;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.SellOrderDaoOffHeapImpl;
+import orderbook.dao.TradeDao;
+import orderbook.dao.TradeDaoFileImpl;
+import orderbook.dao.TradeDaoJournalImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import orderbook.service.OrderBookServiceLayer;
+import orderbook.service.OrderBookServiceLayerImpl;
+
+/**
+ * Builds a service layer over one of the DAO implementations, in its own scratch directory, with
+ * a resting book of a given depth. The resting bids sit between 189 and 190 and the asks between
+ * 191 and 192, so the book is not crossed until a benchmark adds orders inside the spread.
+ *
+ * The order DAO implementations are:
+ * file: the text file DAOs the application started with.
+ * memory: the resident book without a journal.
+ * journal: the resident book journaling every mutation, and its trades, synced every 64 events.
+ * groupCommit: the resident book with its journal group-committed, as the application is configured.
+ * offHeap: the book held in direct memory, without a journal.
+ *
+ * The trade DAO implementations are:
+ * file: the trades.txt text file.
+ * mapped: the memory-mapped trade log.
+ */
+class OrderBookFixture {
+
+    static final long SPREAD_MID = PriceTicks.toTicks(BigDecimal.valueOf(190.5));
+    private static final int LEVELS_PER_SIDE = 1000;
+
+    private final Path directory;
+    private final OrderBookJournal journal;
+    private final BuyOrderDao buyOrderDao;
+    private final SellOrderDao sellOrderDao;
+    private final TradeDao tradeDao;
+    private final OrderBookServiceLayer service;
+    private TradeDaoMappedImpl tradeHistoryLog;
+    private final Random random = new Random(42);
+
+    OrderBookFixture(String dao, String tradeDaoName, int depth) throws IOException, PersistenceException {
+        directory = Files.createTempDirectory("orderBookBenchmark");
+        List<Order> buyOrders = restingOrders(depth / 2, true);
+        List<Order> sellOrders = restingOrders(depth - depth / 2, false);
+        TradeDao tradeHistory = newTradeDao(tradeDaoName);
+
+        switch (dao) {
+            case "file":
+                journal = null;
+                writeOrderFile("buyOrderFile.txt", buyOrders);
+                writeOrderFile("sellOrderFile.txt", sellOrders);
+                buyOrderDao = new BuyOrderDaoFileImpl(file("buyOrderFile.txt"));
+                sellOrderDao = new SellOrderDaoFileImpl(file("sellOrderFile.txt"));
+                tradeDao = tradeHistory;
+                break;
+            case "memory":
+            case "journal":
+            case "groupCommit":
+                if (dao.equals("journal")) {
+                    journal = new OrderBookJournal(file("orderBookJournal.dat"), JournalSyncPolicy.EVERY_N_EVENTS, 64);
+                }
+                else if (dao.equals("groupCommit")) {
+                    journal = new OrderBookJournal(file("orderBookJournal.dat"), JournalSyncPolicy.GROUP_COMMIT, 2, 1024);
+                }
+                else {
+                    journal = null;
+                }
+                OrderBookEngine engine = new OrderBookEngine(journal);
+                // The resting book is loaded straight into the engine so that only the benchmarked
+                // operations are journaled.
+                buyOrders.forEach(engine.getBids()::add);
+                sellOrders.forEach(engine.getAsks()::add);
+                buyOrderDao = new BuyOrderDaoMemoryImpl(engine);
+                sellOrderDao = new SellOrderDaoMemoryImpl(engine);
+                tradeDao = journal == null ? tradeHistory : new TradeDaoJournalImpl(journal, tradeHistory);
+                break;
+            case "offHeap":
+                journal = null;
+                OffHeapOrderStore bids = new OffHeapOrderStore(true);
+                OffHeapOrderStore asks = new OffHeapOrderStore(false);
+                buyOrders.forEach(bids::add);
+                sellOrders.forEach(asks::add);
+                buyOrderDao = new BuyOrderDaoOffHeapImpl(bids);
+                sellOrderDao = new SellOrderDaoOffHeapImpl(asks);
+                tradeDao = tradeHistory;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown DAO implementation: " + dao);
+        }
+        OrderBookServiceLayerImpl bookService = new OrderBookServiceLayerImpl(buyOrderDao, sellOrderDao, tradeDao);
+        bookService.setJournal(journal);
+        service = bookService;
+        Order.setGlobalId(depth + 1);
+    }
+
+    OrderBookServiceLayer getService() {
+        return service;
+    }
+
+    TradeDao getTradeDao() {
+        return tradeDao;
+    }
+
+    /**
+     * @return a buy order priced inside the spread, at or above every order from crossingSellOrder.
+     */
+    BuyOrder crossingBuyOrder(int quantity) {
+        return new BuyOrder(nextId(), SPREAD_MID + random.nextInt(100), quantity);
+    }
+
+    /**
+     * @return a sell order priced inside the spread, at or below every order from crossingBuyOrder.
+     */
+    SellOrder crossingSellOrder(int quantity) {
+        return new SellOrder(nextId(), SPREAD_MID - random.nextInt(100), quantity);
+    }
+
+    /**
+     * @return a buy order priced among the resting bids.
+     */
+    BuyOrder restingBuyOrder() {
+        return new BuyOrder(nextId(), bidPrice(random.nextInt(LEVELS_PER_SIDE)), quantity());
+    }
+
+    /**
+     * @return a sell order priced among the resting asks.
+     */
+    SellOrder restingSellOrder() {
+        return new SellOrder(nextId(), askPrice(random.nextInt(LEVELS_PER_SIDE)), quantity());
+    }
+
+    /**
+     * Appends a trade history of the given length to the trade file in one write.
+     */
+    void addTradeHistory(int count) throws PersistenceException {
+        List<Trade> trades = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            Trade trade = new Trade(quantity(), SPREAD_MID + random.nextInt(100));
+            trade.setTradeId(i);
+            trades.add(trade);
+        }
+        tradeDao.addTrades(trades);
+        Trade.setGlobalId(count + 1);
+    }
+
+    void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        if (tradeHistoryLog != null) {
+            tradeHistoryLog.close();
+        }
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(directory);
+    }
+
+    private TradeDao newTradeDao(String name) throws IOException {
+        switch (name) {
+            case "file":
+                Files.createFile(directory.resolve("trades.txt"));
+                return new TradeDaoFileImpl(file("trades.txt"));
+            case "mapped":
+                tradeHistoryLog = new TradeDaoMappedImpl(file("trades.dat"));
+                return tradeHistoryLog;
+            default:
+                throw new IllegalArgumentException("Unknown trade DAO implementation: " + name);
+        }
+    }
+
+    private List<Order> restingOrders(int count, boolean bid) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = bid ? i + 1 : count + i + 1;
+            int level = random.nextInt(LEVELS_PER_SIDE);
+            orders.add(bid ? new BuyOrder(id, bidPrice(level), quantity()) : new SellOrder(id, askPrice(level), quantity()));
+        }
+        return orders;
+    }
+
+    private long bidPrice(int level) {
+        return SPREAD_MID - PriceTicks.toTicks(BigDecimal.valueOf(0.5 + level / 1000.0));
+    }
+
+    private long askPrice(int level) {
+        return SPREAD_MID + PriceTicks.toTicks(BigDecimal.valueOf(0.5 + level / 1000.0));
+    }
+
+    private int nextId() {
+        int id = Order.getGlobalId();
+        Order.setGlobalId(id + 1);
+        return id;
+    }
+
+    private int quantity() {
+        return random.nextInt(30) + 20;
+    }
+
+    /**
+     * Writes a side of the book in the file DAOs' format, highest price first, instead of adding
+     * the orders one at a time and rewriting the file after each.
+     */
+    private void writeOrderFile(String name, List<Order> orders) throws IOException {
+        List<Order> sorted = new ArrayList<>(orders);
+        sorted.sort(Comparator.comparingLong(Order::getPriceTicks).reversed());
+        try (BufferedWriter out = Files.newBufferedWriter(directory.resolve(name))) {
+            for (Order order : sorted) {
+                out.write(order.getId() + "::" + order.getPrice().toPlainString() + "::" + order.getQuantity());
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * @return the path of a file in the fixture's scratch directory, deleted on close.
+     */
+    String file(String name) {
+        return directory.resolve(name).toString();
+    }
+}
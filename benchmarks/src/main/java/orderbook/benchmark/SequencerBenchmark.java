@@ -0,0 +1,84 @@
+package orderbook.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.service.OrderBookServiceLayerImpl;
+import orderbook.service.OrderSequencer;
+import orderbook.service.WaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Order submission through the ring-buffer sequencer by several producer threads at once, with
+ * each wait strategy. Each operation submits a crossing pair of orders and a sweep, so the book
+ * the matcher thread works on stays small.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+public class SequencerBenchmark {
+
+    @Param({"BUSY_SPIN", "YIELD", "PARK"})
+    private WaitStrategy waitStrategy;
+
+    @Param({"65536"})
+    private int capacity;
+
+    private Path directory;
+    private TradeDaoMappedImpl tradeDao;
+    private OrderSequencer sequencer;
+    private final long price = PriceTicks.toTicks(new BigDecimal("190.5"));
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sequencerBenchmark");
+        tradeDao = new TradeDaoMappedImpl(directory.resolve("trades.dat").toString());
+        OrderBookEngine engine = new OrderBookEngine();
+        sequencer = new OrderSequencer(new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), tradeDao), capacity, waitStrategy);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException, IOException {
+        sequencer.close();
+        tradeDao.close();
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public long submit() {
+        sequencer.submitBuyOrder(new BuyOrder(Order.nextGlobalId(), price, 10));
+        sequencer.submitSellOrder(new SellOrder(Order.nextGlobalId(), price, 10));
+        return sequencer.submitMatchAllOrders();
+    }
+}
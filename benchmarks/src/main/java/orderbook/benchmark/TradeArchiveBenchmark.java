@@ -0,0 +1,72 @@
+package orderbook.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import orderbook.dao.TradeArchive;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The traded volume of a history, summed from a scan of the quantity column of its archive and
+ * from loading the whole history out of the trade DAO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TradeArchiveBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int depth;
+
+    @Param({"file", "mapped"})
+    private String dao;
+
+    private OrderBookFixture fixture;
+    private TradeArchive archive;
+
+    @Setup
+    public void setUp() throws IOException, PersistenceException {
+        fixture = new OrderBookFixture("memory", dao, 0);
+        fixture.addTradeHistory(depth);
+        archive = new TradeArchive(fixture.file("trades.archive"));
+        // The history was executed in the current hour, which closes within the next one.
+        archive.archive(fixture.getTradeDao(), LocalDateTime.now().plusHours(1));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public long scanArchivedVolume() throws PersistenceException {
+        long[] volume = new long[1];
+        archive.scan(TradeArchive.Column.QUANTITY, quantity -> volume[0] += quantity);
+        return volume[0];
+    }
+
+    @Benchmark
+    public long loadHistoryVolume() throws PersistenceException {
+        long volume = 0;
+        for (Trade trade : fixture.getTradeDao().getTrades()) {
+            volume += trade.getQuantity();
+        }
+        return volume;
+    }
+}
@@ -0,0 +1,63 @@
+package orderbook.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a single trade, and the whole history, from a trade history as long as the book depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TradeHistoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int depth;
+
+    @Param({"file", "mapped"})
+    private String dao;
+
+    private OrderBookFixture fixture;
+    private int nextTradeId;
+
+    @Setup
+    public void setUp() throws IOException, PersistenceException {
+        fixture = new OrderBookFixture("memory", dao, 0);
+        fixture.addTradeHistory(depth);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fixture.close();
+    }
+
+    @Benchmark
+    public Trade getTrade() throws PersistenceException {
+        // Walks the whole history so no one position in the file is favoured.
+        nextTradeId = nextTradeId % depth + 1;
+        return fixture.getService().getTrade(nextTradeId);
+    }
+
+    @Benchmark
+    public List<Trade> getTrades() throws PersistenceException {
+        return fixture.getService().getTrades();
+    }
+}
@@ -3,7 +3,6 @@ package orderbook;
 import orderbook.controller.OrderBookController;
 import orderbook.dto.BuyOrder;
 import orderbook.dto.SellOrder;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 import orderbook.exceptions.PersistenceException;
 
@@ -11,10 +10,11 @@ public class App {
     
     public static void main(String[] args) throws PersistenceException {
 
-        ApplicationContext ctx = new ClassPathXmlApplicationContext("applicationContext.xml");
+        ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext("applicationContext.xml");
         OrderBookController controller = ctx.getBean("controller", OrderBookController.class);      
 
         controller.run();
+        ctx.close();    // Snapshots the book and closes the journal.
     }
     
 }
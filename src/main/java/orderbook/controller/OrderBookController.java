@@ -1,8 +1,11 @@
 package orderbook.controller;
 
 
+import java.math.BigDecimal;
 import java.util.List;
+import orderbook.dto.CandleInterval;
 import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
 import orderbook.dto.Trade;
 import orderbook.exceptions.NoMatchException;
 import orderbook.exceptions.PersistenceException;
@@ -12,6 +15,9 @@ import orderbook.service.OrderBookServiceLayer;
 
 public class OrderBookController {
 
+    private static final int DEPTH_LEVELS = 10;
+    private static final int CANDLES = 20;
+
     private OrderBookServiceLayer service;
     private OrderBookView view;
 
@@ -46,7 +52,12 @@ public class OrderBookController {
                         case 4 -> processMatchAllOrders();      // Menu option "Match all orders"
                         case 5 -> processViewTrade();           // Menu option "View a trade"
                         case 6 -> processViewAllTrades();       // Menu option "View all trades"
-                        case 7 -> exitProcess = true;           // Menu option "Exit"
+                        case 7 -> processCancelOrder();         // Menu option "Cancel an order"
+                        case 8 -> processAmendOrder();          // Menu option "Amend an order"
+                        case 9 -> processViewDepth();           // Menu option "View market depth"
+                        case 10 -> processViewLatency();        // Menu option "View latency statistics"
+                        case 11 -> processViewCandles();        // Menu option "View candles"
+                        case 12 -> exitProcess = true;          // Menu option "Exit"
                         default -> processUnknown();
                     } // End of switch block
                 } // End of try block
@@ -68,9 +79,25 @@ public class OrderBookController {
         view.displayOrderBook(service.getOrderBook());
     }
     
+    private void processViewDepth() throws PersistenceException {
+        view.displayViewDepthBanner();
+        view.displayDepth(service.getDepth(DEPTH_LEVELS));
+    }
+    
+    private void processViewLatency() {
+        view.displayViewLatencyBanner();
+        view.displayLatencyStats(service.getLatencyStats());
+    }
+    
+    private void processViewCandles() {
+        view.displayViewCandlesBanner();
+        CandleInterval interval = view.candleIntervalPrompt();
+        view.displayCandles(service.getCandles(Order.DEFAULT_SYMBOL, interval, CANDLES));
+    }
+    
     private void processDisplayStats()throws PersistenceException  {
         view.displayStatsBanner();
-        view.displayStats(service.getStats(service.getOrderBook()));
+        view.displayStats(service.getOrderStats());
     }
     
     private void processMatchOrder() throws NoMatchException, PersistenceException {
@@ -94,6 +121,28 @@ public class OrderBookController {
         view.displayAllTrades(service.getTrades());
     }
     
+    private void processCancelOrder() throws PersistenceException {
+        view.displayCancelOrderBanner();
+        view.displayCancelOrderResult(service.cancelOrder(view.orderIdPrompt()));
+    }
+    
+    private void processAmendOrder() throws PersistenceException {
+        view.displayAmendOrderBanner();
+        int id = view.orderIdPrompt();
+        BigDecimal price = view.amendPricePrompt();
+        if (!PriceTicks.isOnTick(price)) {
+            view.displayErrorMessage("The price must be a multiple of the tick size " + PriceTicks.getTickSize());
+            return;
+        }
+        long priceTicks = PriceTicks.toTicksExact(price);
+        try {
+            view.displayAmendOrderResult(service.amendOrder(id, priceTicks, view.amendQuantityPrompt()));
+        }
+        catch (IllegalArgumentException e) {
+            processException(e);
+        }
+    }
+    
     private void processUnknown() {
        view.displayUnknownCommandBanner();
     }
@@ -2,17 +2,66 @@ package orderbook.dao;
 
 import java.util.List;
 import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
 import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
 import orderbook.exceptions.PersistenceException;
 
 public interface BuyOrderDao {
     
     boolean addBuyOrder(BuyOrder buyOrder)throws PersistenceException;
     
+    /**
+     * Adds many buy orders at once, as addBuyOrder does one.
+     */
+    void addBuyOrders(List<Order> buyOrders) throws PersistenceException;
+    
     List<Order> getAllBuyOrders()throws PersistenceException;
     
+    Order getBestBuyOrder() throws PersistenceException;
+    
+    /**
+     * @return the buy quantity an incoming order with the given limit price can trade against,
+     * counted only until the wanted quantity is reached.
+     */
+    long getAvailableBuyQuantity(long limitPriceTicks, long quantity) throws PersistenceException;
+    
+    /**
+     * @return the buy orders an incoming order with the given limit price trades against, in
+     * price-time priority, up to the order that fills the wanted quantity.
+     */
+    List<Order> getCrossingBuyOrders(long limitPriceTicks, long quantity) throws PersistenceException;
+    
+    /**
+     * @return the aggregated buy levels, best price first, up to the given number of levels.
+     */
+    List<DepthLevel> getBuyDepth(int levels) throws PersistenceException;
+    
+    OrderStats getBuyOrderStats() throws PersistenceException;
+    
     void removeBuyOrder(Order buyOrder)throws PersistenceException;
     
+    /**
+     * @return the resting buy order with the given id, or null if there is none.
+     */
+    Order getBuyOrder(int id) throws PersistenceException;
+    
+    /**
+     * Removes the resting buy order with the given id.
+     * @return the cancelled order, or null if there is none with the id.
+     */
+    Order cancelBuyOrder(int id) throws PersistenceException;
+    
+    /**
+     * Changes the price and quantity of the resting buy order with the given id. A reduction in
+     * quantity at the same price keeps the order's time priority; any other change requeues it at the
+     * back of its new price level.
+     * @return the amended order, or null if there is none with the id.
+     */
+    Order amendBuyOrder(int id, long priceTicks, int quantity) throws PersistenceException;
+    
+    void fillBuyOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity) throws PersistenceException;
+    
     int getLastBuyOrderId() throws PersistenceException;
             
 }
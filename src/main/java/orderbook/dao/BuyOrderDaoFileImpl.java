@@ -8,20 +8,33 @@ import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
 import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
 import orderbook.exceptions.PersistenceException;
+import orderbook.jfr.DaoIoEvent;
 
 public class BuyOrderDaoFileImpl implements BuyOrderDao {
     
-    private final String BUY_ORDER_FILE = "buyOrderFile.txt";
+    private final String BUY_ORDER_FILE;
     private final String DELIMITER = "::";
     
     private List<Order> buyOrders = new ArrayList<>();
+
+    public BuyOrderDaoFileImpl() {
+        this("buyOrderFile.txt");
+    }
+
+    public BuyOrderDaoFileImpl(String buyOrderFile) {
+        BUY_ORDER_FILE = buyOrderFile;
+    }
     
-    Comparator<Order> compareByPrice = (Order o1, Order o2) -> o1.getPrice().compareTo(o2.getPrice());
+    Comparator<Order> compareByPrice = (Order o1, Order o2) -> Long.compare(o1.getPriceTicks(), o2.getPriceTicks());
 
     
     @Override
@@ -34,6 +47,18 @@ public class BuyOrderDaoFileImpl implements BuyOrderDao {
         return addBuyOrder;
     }
 
+    /**
+     * Adds the orders with a single load, sort and rewrite of the order file.
+     */
+    @Override
+    public void addBuyOrders(List<Order> newBuyOrders) throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        buyOrders.addAll(newBuyOrders);
+        buyOrders.sort(compareByPrice.reversed());
+        writeBuyOrders();
+    }
+
     @Override
     public List<Order> getAllBuyOrders()throws PersistenceException {
         buyOrders.clear();
@@ -41,6 +66,70 @@ public class BuyOrderDaoFileImpl implements BuyOrderDao {
         return (ArrayList)(buyOrders);
     }
     
+    @Override
+    public Order getBestBuyOrder() throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        // The file is kept sorted highest price first.
+        return buyOrders.isEmpty() ? null : buyOrders.get(0);
+    }
+    
+    @Override
+    public long getAvailableBuyQuantity(long limitPriceTicks, long quantity) throws PersistenceException {
+        long available = 0;
+        for (Order buyOrder : getCrossingBuyOrders(limitPriceTicks, quantity)) {
+            available += buyOrder.getQuantity();
+        }
+        return available;
+    }
+    
+    @Override
+    public List<Order> getCrossingBuyOrders(long limitPriceTicks, long quantity) throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        // The file is kept sorted highest price first, so the crossing orders come first.
+        List<Order> crossingOrders = new ArrayList<>();
+        long collected = 0;
+        for (Order buyOrder : buyOrders) {
+            if (collected >= quantity || buyOrder.getPriceTicks() < limitPriceTicks) {
+                break;
+            }
+            crossingOrders.add(buyOrder);
+            collected += buyOrder.getQuantity();
+        }
+        return crossingOrders;
+    }
+    
+    /**
+     * Aggregates the orders of the file into price levels in one pass over the sorted orders.
+     */
+    @Override
+    public List<DepthLevel> getBuyDepth(int levels) throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        List<Order> bestFirst = buyOrders;
+        List<DepthLevel> depth = new ArrayList<>();
+        int index = 0;
+        while (index < bestFirst.size() && depth.size() < levels) {
+            long price = bestFirst.get(index).getPriceTicks();
+            long quantity = 0;
+            int orderCount = 0;
+            for (; index < bestFirst.size() && bestFirst.get(index).getPriceTicks() == price; index++) {
+                quantity += bestFirst.get(index).getQuantity();
+                orderCount++;
+            }
+            depth.add(new DepthLevel(price, quantity, orderCount));
+        }
+        return depth;
+    }
+    
+    @Override
+    public OrderStats getBuyOrderStats() throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        return OrderStats.of(buyOrders);
+    }
+    
     @Override
     public void removeBuyOrder(Order buyOrder)throws PersistenceException {
         buyOrders.clear();
@@ -49,6 +138,70 @@ public class BuyOrderDaoFileImpl implements BuyOrderDao {
         writeBuyOrders();
     }  
     
+    @Override
+    public Order getBuyOrder(int id) throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        return findBuyOrder(id);
+    }
+    
+    @Override
+    public Order cancelBuyOrder(int id) throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        Order buyOrder = findBuyOrder(id);
+        if (buyOrder != null) {
+            buyOrders.remove(buyOrder);
+            writeBuyOrders();
+        }
+        return buyOrder;
+    }
+    
+    /**
+     * Requeues the order behind the orders at its new price unless only its quantity goes down;
+     * the sort is stable, so an order appended to the list sorts after the orders of equal price.
+     */
+    @Override
+    public Order amendBuyOrder(int id, long priceTicks, int quantity) throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        Order buyOrder = findBuyOrder(id);
+        if (buyOrder == null) {
+            return null;
+        }
+        if (priceTicks != buyOrder.getPriceTicks() || quantity > buyOrder.getQuantity()) {
+            buyOrders.remove(buyOrder);
+            buyOrders.add(buyOrder);
+        }
+        buyOrder.setPriceTicks(priceTicks);
+        buyOrder.setQuantity(quantity);
+        buyOrders.sort(compareByPrice.reversed());
+        writeBuyOrders();
+        return buyOrder;
+    }
+    
+    /**
+     * Removes every filled order and reduces the partially filled order, if any, with a single
+     * load and a single rewrite of the file.
+     */
+    @Override
+    public void fillBuyOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity)
+            throws PersistenceException {
+        buyOrders.clear();
+        loadBuyOrders();
+        Set<Order> filled = new HashSet<>(filledOrders);
+        buyOrders.removeIf(filled::contains);
+        if (partialOrder != null) {
+            for (Order buyOrder : buyOrders) {
+                if (buyOrder.equals(partialOrder)) {
+                    buyOrder.setQuantity(remainingQuantity);
+                    break;
+                }
+            }
+        }
+        writeBuyOrders();
+    }
+    
     public int getLastBuyOrderId() throws PersistenceException {
         loadBuyOrders();
         return buyOrders.stream()
@@ -56,14 +209,28 @@ public class BuyOrderDaoFileImpl implements BuyOrderDao {
                         .reduce(0, Integer::max);
     }
     
+    private Order findBuyOrder(int id) {
+        for (Order buyOrder : buyOrders) {
+            if (buyOrder.getId() == id) {
+                return buyOrder;
+            }
+        }
+        return null;
+    }
+    
     private String marshallBuyOrder(Order buyOrder) {
         String buyOrderString = buyOrder.getId() + DELIMITER;
-        buyOrderString += buyOrder.getPrice() + DELIMITER;
+        buyOrderString += buyOrder.getPrice().toPlainString() + DELIMITER;
         buyOrderString += buyOrder.getQuantity();
+        // The symbol is only written for other instruments, so files of the default book keep their format.
+        if (!buyOrder.getSymbol().equals(Order.DEFAULT_SYMBOL)) {
+            buyOrderString += DELIMITER + buyOrder.getSymbol();
+        }
         return buyOrderString;
     }
     
     private void writeBuyOrders() throws PersistenceException {
+        DaoIoEvent event = DaoIoEvent.start(getClass(), DaoIoEvent.WRITE, BUY_ORDER_FILE);
         PrintWriter out;
         // Handles the event that the INVENTORY_FILE does not exist.
         try {
@@ -83,6 +250,9 @@ public class BuyOrderDaoFileImpl implements BuyOrderDao {
             out.flush();                            // Ensures the line has been written to the file.
         }
         out.close(); 
+        if (event != null) {
+            event.record(buyOrders.size());
+        }
     }
     
     private BuyOrder unmarshallBuyOrder(String buyOrderString) {
@@ -93,10 +263,14 @@ public class BuyOrderDaoFileImpl implements BuyOrderDao {
         int quantity = Integer.parseInt(buyOrderArray[2]);
         
         BuyOrder newBuyOrder = new BuyOrder(id, price, quantity);
+        if (buyOrderArray.length > 3) {
+            newBuyOrder.setSymbol(buyOrderArray[3]);
+        }
         return newBuyOrder;
     }
 
     private void loadBuyOrders() throws PersistenceException {
+        DaoIoEvent event = DaoIoEvent.start(getClass(), DaoIoEvent.LOAD, BUY_ORDER_FILE);
         Scanner scanner;
         
         try {
@@ -120,6 +294,9 @@ public class BuyOrderDaoFileImpl implements BuyOrderDao {
             buyOrders.add(currentBuyOrder);        
         }
         scanner.close();
+        if (event != null) {
+            event.record(buyOrders.size());
+        }
     }
     
 }
@@ -0,0 +1,201 @@
+package orderbook.dao;
+
+import java.util.List;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.exceptions.PersistenceException;
+
+public class BuyOrderDaoMemoryImpl implements BuyOrderDao {
+
+    private final OrderBookEngine engine;
+    private final OrderBookSide bids;
+    private final OrderBookJournal journal;
+
+    public BuyOrderDaoMemoryImpl(OrderBookEngine engine) {
+        this.engine = engine;
+        this.bids = engine.getBids();
+        this.journal = engine.getJournal();
+    }
+
+    @Override
+    public boolean addBuyOrder(BuyOrder buyOrder) throws PersistenceException {
+        synchronized (engine) {
+            if (!bids.add(buyOrder)) {
+                return false;
+            }
+            if (journal != null) {
+                journal.appendAdd(OrderBookJournal.BUY, buyOrder);
+            }
+            engine.publishDepth();
+            return true;
+        }
+    }
+
+    /**
+     * Adds the orders whose ids are not already resting in one hold of the engine's lock, publishing
+     * the depth once.
+     */
+    @Override
+    public void addBuyOrders(List<Order> buyOrders) throws PersistenceException {
+        synchronized (engine) {
+            for (Order buyOrder : buyOrders) {
+                if (bids.add(buyOrder) && journal != null) {
+                    journal.appendAdd(OrderBookJournal.BUY, buyOrder);
+                }
+            }
+            engine.publishDepth();
+        }
+    }
+
+    /**
+     * @return a copy of the buy side, highest price first and in time priority within a price.
+     */
+    @Override
+    public List<Order> getAllBuyOrders() throws PersistenceException {
+        synchronized (engine) {
+            return bids.getOrders();
+        }
+    }
+
+    @Override
+    public Order getBestBuyOrder() throws PersistenceException {
+        synchronized (engine) {
+            return bids.getBest();
+        }
+    }
+
+    @Override
+    public long getAvailableBuyQuantity(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (engine) {
+            return bids.getAvailableQuantity(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<Order> getCrossingBuyOrders(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (engine) {
+            return bids.getCrossingOrders(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<DepthLevel> getBuyDepth(int levels) throws PersistenceException {
+        synchronized (engine) {
+            return bids.getDepth(levels);
+        }
+    }
+
+    @Override
+    public OrderStats getBuyOrderStats() throws PersistenceException {
+        synchronized (engine) {
+            return bids.getStats();
+        }
+    }
+
+    @Override
+    public void removeBuyOrder(Order buyOrder) throws PersistenceException {
+        synchronized (engine) {
+            Order removed = bids.remove(buyOrder);
+            if (removed != null && journal != null) {
+                journal.appendRemove(OrderBookJournal.BUY, removed);
+            }
+            engine.publishDepth();
+        }
+    }
+
+    @Override
+    public Order getBuyOrder(int id) throws PersistenceException {
+        synchronized (engine) {
+            return bids.get(id);
+        }
+    }
+
+    @Override
+    public Order cancelBuyOrder(int id) throws PersistenceException {
+        synchronized (engine) {
+            Order removed = bids.remove(id);
+            if (removed != null && journal != null) {
+                journal.appendRemove(OrderBookJournal.BUY, removed);
+            }
+            engine.publishDepth();
+            return removed;
+        }
+    }
+
+    /**
+     * Reduces the order in place if only its quantity goes down, and otherwise removes it and adds
+     * it again at its new price, journalled as a remove and an add.
+     */
+    @Override
+    public Order amendBuyOrder(int id, long priceTicks, int quantity) throws PersistenceException {
+        synchronized (engine) {
+            Order order = bids.get(id);
+            if (order == null) {
+                return null;
+            }
+            if (priceTicks == order.getPriceTicks() && quantity <= order.getQuantity()) {
+                int previousQuantity = bids.updateQuantity(order, quantity);
+                if (journal != null) {
+                    journal.appendReduce(OrderBookJournal.BUY, order, previousQuantity, quantity);
+                }
+                engine.publishDepth();
+                return order;
+            }
+            bids.remove(id);
+            if (journal != null) {
+                journal.appendRemove(OrderBookJournal.BUY, order);
+            }
+            order.setPriceTicks(priceTicks);
+            order.setQuantity(quantity);
+            bids.add(order);
+            if (journal != null) {
+                journal.appendAdd(OrderBookJournal.BUY, order);
+            }
+            engine.publishDepth();
+            return order;
+        }
+    }
+
+    /**
+     * Applies the result of a sweep: every filled order is removed and the partially filled order,
+     * if any, is reduced in place. The journal events are written as one batch.
+     */
+    @Override
+    public void fillBuyOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity)
+            throws PersistenceException {
+        synchronized (engine) {
+            if (journal != null) {
+                journal.beginBatch();
+            }
+            try {
+                for (Order filledOrder : filledOrders) {
+                    Order removed = bids.remove(filledOrder);
+                    if (removed != null && journal != null) {
+                        journal.appendRemove(OrderBookJournal.BUY, removed);
+                    }
+                }
+                if (partialOrder != null) {
+                    int previousQuantity = bids.updateQuantity(partialOrder, remainingQuantity);
+                    if (previousQuantity >= 0 && journal != null) {
+                        journal.appendReduce(OrderBookJournal.BUY, partialOrder, previousQuantity, remainingQuantity);
+                    }
+                }
+            }
+            finally {
+                if (journal != null) {
+                    journal.endBatch();
+                }
+            }
+            engine.publishDepth();
+        }
+    }
+
+    @Override
+    public int getLastBuyOrderId() throws PersistenceException {
+        synchronized (engine) {
+            return bids.getLastOrderId();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package orderbook.dao;
+
+import java.util.List;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * The buy side of a book held off the heap in an OffHeapOrderStore, for books too large to keep
+ * as Order objects. The book is neither journalled nor snapshotted. The orders returned are copies
+ * of the store's records.
+ */
+public class BuyOrderDaoOffHeapImpl implements BuyOrderDao {
+
+    private final OffHeapOrderStore bids;
+
+    public BuyOrderDaoOffHeapImpl(OffHeapOrderStore bids) {
+        if (!bids.isBid()) {
+            throw new IllegalArgumentException("The buy order DAO needs a bid store");
+        }
+        this.bids = bids;
+    }
+
+    /**
+     * @return false if an order with the same id is already resting, in which case the order is
+     * not added.
+     */
+    @Override
+    public boolean addBuyOrder(BuyOrder buyOrder) throws PersistenceException {
+        synchronized (bids) {
+            return add(buyOrder);
+        }
+    }
+
+    /**
+     * Adds the orders whose ids are not already resting.
+     */
+    @Override
+    public void addBuyOrders(List<Order> buyOrders) throws PersistenceException {
+        synchronized (bids) {
+            for (Order buyOrder : buyOrders) {
+                add(buyOrder);
+            }
+        }
+    }
+
+    @Override
+    public List<Order> getAllBuyOrders() throws PersistenceException {
+        synchronized (bids) {
+            return bids.getOrders();
+        }
+    }
+
+    @Override
+    public Order getBestBuyOrder() throws PersistenceException {
+        synchronized (bids) {
+            return bids.getBest();
+        }
+    }
+
+    @Override
+    public long getAvailableBuyQuantity(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (bids) {
+            return bids.getAvailableQuantity(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<Order> getCrossingBuyOrders(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (bids) {
+            return bids.getCrossingOrders(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<DepthLevel> getBuyDepth(int levels) throws PersistenceException {
+        synchronized (bids) {
+            return bids.getDepth(levels);
+        }
+    }
+
+    @Override
+    public OrderStats getBuyOrderStats() throws PersistenceException {
+        synchronized (bids) {
+            return bids.getStats();
+        }
+    }
+
+    @Override
+    public void removeBuyOrder(Order buyOrder) throws PersistenceException {
+        synchronized (bids) {
+            bids.remove(buyOrder);
+        }
+    }
+
+    @Override
+    public Order getBuyOrder(int id) throws PersistenceException {
+        synchronized (bids) {
+            return bids.get(id);
+        }
+    }
+
+    @Override
+    public Order cancelBuyOrder(int id) throws PersistenceException {
+        synchronized (bids) {
+            return bids.remove(id);
+        }
+    }
+
+    /**
+     * Reduces the order in place if only its quantity goes down, and otherwise removes it and adds
+     * it again at its new price.
+     */
+    @Override
+    public Order amendBuyOrder(int id, long priceTicks, int quantity) throws PersistenceException {
+        synchronized (bids) {
+            Order order = bids.get(id);
+            if (order == null) {
+                return null;
+            }
+            if (priceTicks != order.getPriceTicks() || quantity > order.getQuantity()) {
+                bids.remove(id);
+                order.setPriceTicks(priceTicks);
+                order.setQuantity(quantity);
+                add(order);
+                return order;
+            }
+            bids.updateQuantity(id, quantity);
+            order.setQuantity(quantity);
+            return order;
+        }
+    }
+
+    /**
+     * Applies the result of a sweep: every filled order is removed and the partially filled order,
+     * if any, is reduced in place, the given order reduced along with it.
+     */
+    @Override
+    public void fillBuyOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity)
+            throws PersistenceException {
+        synchronized (bids) {
+            for (Order filledOrder : filledOrders) {
+                bids.remove(filledOrder);
+            }
+            if (partialOrder != null && bids.updateQuantity(partialOrder.getId(), remainingQuantity) >= 0) {
+                partialOrder.setQuantity(remainingQuantity);
+            }
+        }
+    }
+
+    @Override
+    public int getLastBuyOrderId() throws PersistenceException {
+        synchronized (bids) {
+            return bids.getLastOrderId();
+        }
+    }
+
+    private boolean add(Order buyOrder) throws PersistenceException {
+        try {
+            return bids.add(buyOrder);
+        }
+        catch (IllegalStateException e) {
+            throw new PersistenceException("Could not add the buy order " + buyOrder.getId(), e);
+        }
+    }
+}
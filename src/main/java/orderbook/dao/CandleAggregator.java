@@ -0,0 +1,165 @@
+package orderbook.dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import orderbook.dto.Candle;
+import orderbook.dto.CandleInterval;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Open, high, low, close, volume and trade count candles of every symbol at every CandleInterval,
+ * updated trade by trade as they are recorded, so that charts never recompute them from the trade
+ * history.
+ *
+ * The candles of each symbol and interval are kept in a ring of getCapacity() slots of primitive
+ * arrays, the slot of a candle being its number of intervals since the epoch modulo the capacity,
+ * so adding a trade neither allocates nor shifts anything once its symbol has been seen. A trade
+ * executed out of time order updates the candle it belongs to, as long as that candle is still in
+ * the ring. Intervals without trades have no candle.
+ *
+ * The candles live in memory; rebuild() recomputes them from the trade history on start-up, which
+ * streams only the trades recent enough to still be in a ring.
+ */
+public class CandleAggregator {
+
+    private static final CandleInterval[] INTERVALS = CandleInterval.values();
+
+    private final Map<String, CandleSeries[]> series = new HashMap<>();
+
+    /**
+     * Adds the trade to the candles of its symbol.
+     */
+    public synchronized void add(Trade trade) {
+        CandleSeries[] symbolSeries = series.get(trade.getSymbol());
+        if (symbolSeries == null) {
+            symbolSeries = new CandleSeries[INTERVALS.length];
+            for (CandleInterval interval : INTERVALS) {
+                symbolSeries[interval.ordinal()] = new CandleSeries(interval);
+            }
+            series.put(trade.getSymbol(), symbolSeries);
+        }
+        for (CandleSeries candles : symbolSeries) {
+            candles.add(trade.getExecutionNanos(), trade.getPriceTicks(), trade.getQuantity());
+        }
+    }
+
+    /**
+     * @return up to count of the latest candles of the symbol, oldest first.
+     */
+    public synchronized List<Candle> getCandles(String symbol, CandleInterval interval, int count) {
+        CandleSeries[] symbolSeries = series.get(symbol);
+        if (symbolSeries == null) {
+            return new ArrayList<>();
+        }
+        return symbolSeries[interval.ordinal()].getCandles(symbol, count);
+    }
+
+    /**
+     * Replaces the candles with those of the trades in the trade history recent enough to be kept.
+     */
+    public void rebuild(TradeDao tradeHistory) throws PersistenceException {
+        long longest = 0;
+        for (CandleInterval interval : INTERVALS) {
+            longest = Math.max(longest, interval.getNanos() * interval.getCapacity());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (this) {
+            series.clear();
+            // The window reaches a day ahead in case the history was written by a clock running fast.
+            tradeHistory.forEachTrade(now.minusNanos(longest), now.plusDays(1), this::add);
+        }
+    }
+
+    /**
+     * The ring of the latest candles of one symbol at one interval.
+     */
+    private static final class CandleSeries {
+
+        private static final long NONE = Long.MIN_VALUE;
+
+        private final CandleInterval interval;
+        private final long[] openTimes;     // The start of each slot's interval, or NONE.
+        private final long[] firstTradeTimes;
+        private final long[] lastTradeTimes;
+        private final long[] opens;
+        private final long[] highs;
+        private final long[] lows;
+        private final long[] closes;
+        private final long[] volumes;
+        private final int[] tradeCounts;
+        private long latest = NONE;         // The start of the latest candle.
+
+        CandleSeries(CandleInterval interval) {
+            this.interval = interval;
+            int capacity = interval.getCapacity();
+            openTimes = new long[capacity];
+            Arrays.fill(openTimes, NONE);
+            firstTradeTimes = new long[capacity];
+            lastTradeTimes = new long[capacity];
+            opens = new long[capacity];
+            highs = new long[capacity];
+            lows = new long[capacity];
+            closes = new long[capacity];
+            volumes = new long[capacity];
+            tradeCounts = new int[capacity];
+        }
+
+        void add(long time, long price, int quantity) {
+            long number = Math.floorDiv(time, interval.getNanos());
+            long openTime = number * interval.getNanos();
+            if (latest != NONE && openTime <= latest - (long) interval.getCapacity() * interval.getNanos()) {
+                return;     // Its candle has already left the ring.
+            }
+            int slot = (int) Math.floorMod(number, (long) interval.getCapacity());
+            if (openTimes[slot] != openTime) {
+                openTimes[slot] = openTime;
+                firstTradeTimes[slot] = time;
+                lastTradeTimes[slot] = time;
+                opens[slot] = price;
+                highs[slot] = price;
+                lows[slot] = price;
+                closes[slot] = price;
+                volumes[slot] = quantity;
+                tradeCounts[slot] = 1;
+            }
+            else {
+                if (time < firstTradeTimes[slot]) {
+                    firstTradeTimes[slot] = time;
+                    opens[slot] = price;
+                }
+                if (time >= lastTradeTimes[slot]) {
+                    lastTradeTimes[slot] = time;
+                    closes[slot] = price;
+                }
+                highs[slot] = Math.max(highs[slot], price);
+                lows[slot] = Math.min(lows[slot], price);
+                volumes[slot] += quantity;
+                tradeCounts[slot]++;
+            }
+            latest = Math.max(latest, openTime);
+        }
+
+        List<Candle> getCandles(String symbol, int count) {
+            List<Candle> candles = new ArrayList<>();
+            if (latest == NONE) {
+                return candles;
+            }
+            for (int i = 0; i < interval.getCapacity() && candles.size() < count; i++) {
+                long openTime = latest - i * interval.getNanos();
+                int slot = (int) Math.floorMod(Math.floorDiv(openTime, interval.getNanos()), (long) interval.getCapacity());
+                if (openTimes[slot] == openTime) {
+                    candles.add(new Candle(symbol, interval, openTime, opens[slot], highs[slot], lows[slot], closes[slot],
+                            volumes[slot], tradeCounts[slot]));
+                }
+            }
+            Collections.reverse(candles);
+            return candles;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package orderbook.dao;
+
+import java.util.List;
+import orderbook.dto.DepthUpdate;
+
+/**
+ * Receives the price levels of a book that changed, after each change made through its DAOs.
+ * Applying every update in turn to the depth returned by getDepth keeps a copy of the book's
+ * depth current without reading the book again.
+ */
+@FunctionalInterface
+public interface DepthListener {
+
+    /**
+     * Called while the engine's monitor is held, so implementations must return quickly, typically
+     * by handing the updates to another thread.
+     * @param symbol the instrument of the book.
+     * @param updates the changed levels, buy side first; each level appears at most once.
+     */
+    void onDepthUpdate(String symbol, List<DepthUpdate> updates);
+}
@@ -0,0 +1,18 @@
+package orderbook.dao;
+
+/**
+ * How often the order book journal forces its appended events to disk.
+ */
+public enum JournalSyncPolicy {
+    /** Fsync after every event: nothing acknowledged is lost, at the cost of one fsync per mutation. */
+    EVERY_EVENT,
+    /** Fsync once every N events. */
+    EVERY_N_EVENTS,
+    /** Fsync from a background thread every T milliseconds. */
+    INTERVAL,
+    /**
+     * Hand events to a background writer through a bounded queue; the writer appends and fsyncs them
+     * in groups of up to a maximum number of events, no later than T milliseconds after the first.
+     */
+    GROUP_COMMIT
+}
@@ -0,0 +1,617 @@
+package orderbook.dao;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.SellOrder;
+
+/**
+ * One side of an order book whose resting orders are kept outside the Java heap, for books of
+ * millions of orders. Ordered and queried like OrderBookSide, but a resting order is a fixed-width
+ * record in a direct memory segment rather than an Order object and its queue node, so the size of
+ * the book adds next to nothing to the heap the garbage collector has to trace.
+ *
+ * A record holds the order's id, quantity, price in ticks, entry time and the slots of its
+ * neighbours in the queue of its price level. Records are allocated from segments of
+ * SEGMENT_RECORDS slots, a new segment being added when every slot is in use; the slots of removed
+ * orders are chained into a free list through their next links and reused before any new slot.
+ * Segments are never given back, so the off-heap memory of a side is that of its largest book.
+ *
+ * The index of orders by id is an open-addressing hash table in direct memory too, probed and
+ * compacted as OrderIdIndex is. It is a single buffer kept at most half full, so a side holds up to
+ * 2^26 orders, and an order whose id is already resting is refused rather than shadowing it.
+ *
+ * Only the price levels live on the heap, one small object per price, so the heap grows with the
+ * number of prices rather than orders. Adding, filling and removing orders allocate nothing on the
+ * heap unless they open a level.
+ *
+ * Orders are read out as new BuyOrder or SellOrder copies of their records, so changing a
+ * returned order does not change the book. Callers synchronize.
+ */
+public class OffHeapOrderStore {
+
+    static final int SEGMENT_RECORDS = 1 << 16;
+    private static final int RECORD_SIZE = 40;
+    private static final int ID = 0;
+    private static final int QUANTITY = 4;
+    private static final int PRICE = 8;
+    private static final int ENTRY_TIME = 16;
+    private static final int PREVIOUS = 24;
+    private static final int NEXT = 28;
+    private static final int LEVEL = 32;
+    private static final int NONE = -1;
+
+    private final boolean bid;
+    private final String symbol;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final TreeMap<Long, Level> levels;
+    private final SlotIndex slotsById = new SlotIndex();
+    private Level[] levelsByNumber = new Level[64];
+    private int levelNumbers;
+    private Level freeLevels;
+    private int freeSlots = NONE;
+    private int nextSlot;       // The slots below it have been handed out.
+    private Level bestLevel;
+    private int orderCount;
+    private int lastOrderId;
+    private long totalQuantity;
+    private long priceSum;
+    private long notionalHigh;      // The notional, the sum of price times quantity, as a 128-bit integer.
+    private long notionalLow;
+
+    /**
+     * @param bid true for the buy side, ordered highest price first; false for the sell side,
+     * ordered lowest price first.
+     */
+    public OffHeapOrderStore(boolean bid) {
+        this(bid, Order.DEFAULT_SYMBOL);
+    }
+
+    /**
+     * @param symbol the symbol of the orders read out of the store.
+     */
+    public OffHeapOrderStore(boolean bid, String symbol) {
+        this.bid = bid;
+        this.symbol = symbol;
+        Comparator<Long> priceOrder = bid ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        this.levels = new TreeMap<>(priceOrder);
+    }
+
+    public boolean isBid() {
+        return bid;
+    }
+
+    /**
+     * Copies an order into a record at the back of its price level, creating the level if required.
+     * @return false, leaving the side unchanged, if an order with the same id is already resting.
+     * @throws IllegalStateException if the side already holds as many orders as its index can.
+     */
+    public boolean add(Order order) {
+        if (slotsById.get(order.getId()) != NONE) {
+            return false;
+        }
+        if (slotsById.isFull()) {
+            throw new IllegalStateException("The order id index is full at " + orderCount + " orders");
+        }
+        long price = order.getPriceTicks();
+        Level level = levels.get(price);
+        if (level == null) {
+            level = newLevel(price);
+            levels.put(price, level);
+            if (bestLevel == null || isBetter(price, bestLevel.price)) {
+                bestLevel = level;
+            }
+        }
+        int slot = allocate();
+        ByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        segment.putInt(offset + ID, order.getId());
+        segment.putInt(offset + QUANTITY, order.getQuantity());
+        segment.putLong(offset + PRICE, price);
+        segment.putLong(offset + ENTRY_TIME, System.nanoTime());
+        segment.putInt(offset + PREVIOUS, level.tail);
+        segment.putInt(offset + NEXT, NONE);
+        segment.putInt(offset + LEVEL, level.number);
+        if (level.tail == NONE) {
+            level.head = slot;
+        }
+        else {
+            putInt(level.tail, NEXT, slot);
+        }
+        level.tail = slot;
+        level.orderCount++;
+        level.totalQuantity += order.getQuantity();
+        slotsById.put(order.getId(), slot);
+        orderCount++;
+        lastOrderId = Math.max(lastOrderId, order.getId());
+        totalQuantity += order.getQuantity();
+        priceSum += price;
+        addNotional(price, order.getQuantity());
+        return true;
+    }
+
+    /**
+     * Removes the resting order with the id of the given order, if it rests at the same price.
+     * @return a copy of the removed order, or null if the order was not resting on this side.
+     */
+    public Order remove(Order order) {
+        int slot = slotsById.get(order.getId());
+        if (slot == NONE || getLong(slot, PRICE) != order.getPriceTicks()) {
+            return null;
+        }
+        slotsById.remove(order.getId());
+        Order removed = toOrder(slot);
+        release(slot);
+        return removed;
+    }
+
+    /**
+     * Removes the resting order with the given id in O(1).
+     * @return a copy of the removed order, or null if no order with the id is resting on this side.
+     */
+    public Order remove(int id) {
+        int slot = slotsById.remove(id);
+        if (slot == NONE) {
+            return null;
+        }
+        Order removed = toOrder(slot);
+        release(slot);
+        return removed;
+    }
+
+    /**
+     * @return a copy of the resting order with the given id, or null if there is none on this side.
+     */
+    public Order get(int id) {
+        int slot = slotsById.get(id);
+        return slot == NONE ? null : toOrder(slot);
+    }
+
+    /**
+     * @return the System.nanoTime() at which the order with the given id was added, or -1 if it is
+     * not resting on this side.
+     */
+    public long getEntryTime(int id) {
+        int slot = slotsById.get(id);
+        return slot == NONE ? -1 : getLong(slot, ENTRY_TIME);
+    }
+
+    /**
+     * Changes the quantity of a resting order without altering its time priority.
+     * @return the quantity of the order before the update, or -1 if the order was not found.
+     */
+    public int updateQuantity(int id, int quantity) {
+        int slot = slotsById.get(id);
+        if (slot == NONE) {
+            return -1;
+        }
+        int previousQuantity = getInt(slot, QUANTITY);
+        long price = getLong(slot, PRICE);
+        putInt(slot, QUANTITY, quantity);
+        levelsByNumber[getInt(slot, LEVEL)].totalQuantity += quantity - previousQuantity;
+        totalQuantity += quantity - previousQuantity;
+        addNotional(price, quantity - previousQuantity);
+        return previousQuantity;
+    }
+
+    /**
+     * @return a copy of the order with price-time priority on this side, or null if the side is empty.
+     */
+    public Order getBest() {
+        return bestLevel == null ? null : toOrder(bestLevel.head);
+    }
+
+    /**
+     * @return copies of every resting order, best price first and in time priority within a price.
+     */
+    public List<Order> getOrders() {
+        List<Order> orders = new ArrayList<>(orderCount);
+        for (Level level : levels.values()) {
+            for (int slot = level.head; slot != NONE; slot = getInt(slot, NEXT)) {
+                orders.add(toOrder(slot));
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Sums the resting quantity an incoming order with the given limit price could trade against,
+     * level by level, as OrderBookSide.getAvailableQuantity does.
+     */
+    public long getAvailableQuantity(long limitPrice, long quantity) {
+        long available = 0;
+        for (Level level : levels.values()) {
+            if (available >= quantity || isBetter(limitPrice, level.price)) {
+                break;
+            }
+            available += level.totalQuantity;
+        }
+        return available;
+    }
+
+    /**
+     * Copies the resting orders an incoming order with the given limit price trades against, in
+     * price-time priority, up to the order that brings them to the wanted quantity.
+     */
+    public List<Order> getCrossingOrders(long limitPrice, long quantity) {
+        List<Order> orders = new ArrayList<>();
+        long collected = 0;
+        for (Level level : levels.values()) {
+            if (isBetter(limitPrice, level.price)) {
+                break;
+            }
+            for (int slot = level.head; slot != NONE; slot = getInt(slot, NEXT)) {
+                if (collected >= quantity) {
+                    return orders;
+                }
+                orders.add(toOrder(slot));
+                collected += getInt(slot, QUANTITY);
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * @return the aggregated quantity and order count of up to the given number of levels, best
+     * price first.
+     */
+    public List<DepthLevel> getDepth(int maxLevels) {
+        List<DepthLevel> depth = new ArrayList<>(Math.min(maxLevels, levels.size()));
+        for (Level level : levels.values()) {
+            if (depth.size() == maxLevels) {
+                break;
+            }
+            depth.add(new DepthLevel(level.price, level.totalQuantity, level.orderCount));
+        }
+        return depth;
+    }
+
+    /**
+     * @return the statistics of the orders resting on this side, from the running totals.
+     */
+    public OrderStats getStats() {
+        if (levels.isEmpty()) {
+            return new OrderStats(0, 0, 0, 0, 0, BigInteger.ZERO);
+        }
+        long best = levels.firstKey();
+        long worst = levels.lastKey();
+        BigInteger low = BigInteger.valueOf(notionalLow & Long.MAX_VALUE);
+        if (notionalLow < 0) {
+            low = low.setBit(Long.SIZE - 1);
+        }
+        BigInteger notional = BigInteger.valueOf(notionalHigh).shiftLeft(Long.SIZE).add(low);
+        return new OrderStats(orderCount, totalQuantity, priceSum, Math.min(best, worst), Math.max(best, worst), notional);
+    }
+
+    public int size() {
+        return orderCount;
+    }
+
+    public boolean isEmpty() {
+        return orderCount == 0;
+    }
+
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * @return the highest order id ever added to this side.
+     */
+    public int getLastOrderId() {
+        return lastOrderId;
+    }
+
+    /**
+     * @return the bytes of direct memory held by the records and the index.
+     */
+    public long getOffHeapBytes() {
+        return (long) segments.size() * SEGMENT_RECORDS * RECORD_SIZE + slotsById.getBytes();
+    }
+
+    /**
+     * Empties the side, keeping its segments for the orders added next.
+     */
+    public void clear() {
+        for (Level level : levels.values()) {
+            level.nextFree = freeLevels;
+            freeLevels = level;
+        }
+        levels.clear();
+        slotsById.clear();
+        freeSlots = NONE;
+        nextSlot = 0;
+        bestLevel = null;
+        orderCount = 0;
+        lastOrderId = 0;
+        totalQuantity = 0;
+        priceSum = 0;
+        notionalHigh = 0;
+        notionalLow = 0;
+    }
+
+    /**
+     * @return true if the first price has priority over the second on this side.
+     */
+    public boolean isBetter(long price, long otherPrice) {
+        return bid ? price > otherPrice : price < otherPrice;
+    }
+
+    /**
+     * Unlinks a record that is no longer indexed from its level, updates the running totals and
+     * frees its slot.
+     */
+    private void release(int slot) {
+        Level level = levelsByNumber[getInt(slot, LEVEL)];
+        int previous = getInt(slot, PREVIOUS);
+        int next = getInt(slot, NEXT);
+        if (previous == NONE) {
+            level.head = next;
+        }
+        else {
+            putInt(previous, NEXT, next);
+        }
+        if (next == NONE) {
+            level.tail = previous;
+        }
+        else {
+            putInt(next, PREVIOUS, previous);
+        }
+        int quantity = getInt(slot, QUANTITY);
+        long price = getLong(slot, PRICE);
+        level.orderCount--;
+        level.totalQuantity -= quantity;
+        orderCount--;
+        totalQuantity -= quantity;
+        priceSum -= price;
+        addNotional(price, -quantity);
+        putInt(slot, NEXT, freeSlots);
+        freeSlots = slot;
+        if (level.orderCount == 0) {
+            removeLevel(level);
+        }
+    }
+
+    private void removeLevel(Level level) {
+        if (level == bestLevel) {
+            // Looked up by the map's own key objects, as boxing the price would allocate.
+            levels.remove(levels.firstKey());
+            bestLevel = levels.isEmpty() ? null : levels.get(levels.firstKey());
+        }
+        else {
+            levels.remove(level.price);
+        }
+        level.nextFree = freeLevels;
+        freeLevels = level;
+    }
+
+    /**
+     * @return an empty level at the given price, reusing a removed one if there is any.
+     */
+    private Level newLevel(long price) {
+        Level level = freeLevels;
+        if (level != null) {
+            freeLevels = level.nextFree;
+            level.nextFree = null;
+        }
+        else {
+            if (levelNumbers == levelsByNumber.length) {
+                levelsByNumber = Arrays.copyOf(levelsByNumber, levelNumbers * 2);
+            }
+            level = new Level(levelNumbers);
+            levelsByNumber[levelNumbers++] = level;
+        }
+        level.price = price;
+        level.head = NONE;
+        level.tail = NONE;
+        level.orderCount = 0;
+        level.totalQuantity = 0;
+        return level;
+    }
+
+    /**
+     * @return a free slot, taken off the free list, or else the next unused slot, adding a segment
+     * when the last one is full.
+     */
+    private int allocate() {
+        if (freeSlots != NONE) {
+            int slot = freeSlots;
+            freeSlots = getInt(slot, NEXT);
+            return slot;
+        }
+        if (nextSlot == segments.size() * SEGMENT_RECORDS) {
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_SIZE).order(ByteOrder.nativeOrder()));
+        }
+        return nextSlot++;
+    }
+
+    private Order toOrder(int slot) {
+        ByteBuffer segment = segment(slot);
+        int offset = offset(slot);
+        int id = segment.getInt(offset + ID);
+        long price = segment.getLong(offset + PRICE);
+        int quantity = segment.getInt(offset + QUANTITY);
+        return bid ? new BuyOrder(symbol, id, price, quantity) : new SellOrder(symbol, id, price, quantity);
+    }
+
+    /**
+     * Adds price times quantity, which may be negative, to the 128-bit notional.
+     */
+    private void addNotional(long price, long quantity) {
+        long low = notionalLow + price * quantity;
+        long carry = Long.compareUnsigned(low, notionalLow) < 0 ? 1 : 0;
+        notionalHigh += Math.multiplyHigh(price, quantity) + carry;
+        notionalLow = low;
+    }
+
+    private ByteBuffer segment(int slot) {
+        return segments.get(slot / SEGMENT_RECORDS);
+    }
+
+    private static int offset(int slot) {
+        return (slot % SEGMENT_RECORDS) * RECORD_SIZE;
+    }
+
+    private int getInt(int slot, int field) {
+        return segment(slot).getInt(offset(slot) + field);
+    }
+
+    private void putInt(int slot, int field, int value) {
+        segment(slot).putInt(offset(slot) + field, value);
+    }
+
+    private long getLong(int slot, int field) {
+        return segment(slot).getLong(offset(slot) + field);
+    }
+
+    /**
+     * A price level: the first and last slots of its queue and its aggregates. Levels are
+     * numbered, so a record refers to its level by number, and reused once emptied.
+     */
+    private static final class Level {
+
+        private final int number;
+        private long price;
+        private int head;
+        private int tail;
+        private int orderCount;
+        private long totalQuantity;
+        private Level nextFree;
+
+        Level(int number) {
+            this.number = number;
+        }
+    }
+
+    /**
+     * The index from order ids to record slots: linear probing with backward-shift removal, as in
+     * OrderIdIndex, over entries of an id and its slot plus one, zero marking an empty entry.
+     */
+    private static final class SlotIndex {
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int ENTRY_SIZE = 8;
+        private static final int MAX_CAPACITY = 1 << 27;    // Entries addressable by one buffer.
+
+        private ByteBuffer entries;
+        private int mask;
+        private int size;
+
+        SlotIndex() {
+            clear();
+        }
+
+        int get(int id) {
+            for (int entry = entry(id); slotAt(entry) != NONE; entry = (entry + 1) & mask) {
+                if (idAt(entry) == id) {
+                    return slotAt(entry);
+                }
+            }
+            return NONE;
+        }
+
+        /**
+         * @return true if no further id can be indexed, the table being at its maximum capacity
+         * and load.
+         */
+        boolean isFull() {
+            return mask + 1 == MAX_CAPACITY && size >= MAX_CAPACITY / 2;
+        }
+
+        /**
+         * Indexes a slot by its order's id, replacing any slot already indexed under the id. The
+         * index must not be full.
+         */
+        void put(int id, int slot) {
+            int entry = entry(id);
+            while (slotAt(entry) != NONE) {
+                if (idAt(entry) == id) {
+                    set(entry, id, slot);
+                    return;
+                }
+                entry = (entry + 1) & mask;
+            }
+            set(entry, id, slot);
+            if (++size > (mask + 1) / 2 && mask + 1 < MAX_CAPACITY) {
+                resize((mask + 1) * 2);
+            }
+        }
+
+        /**
+         * @return the slot that was indexed under the id, or NONE if there was none.
+         */
+        int remove(int id) {
+            int entry = entry(id);
+            while (slotAt(entry) != NONE && idAt(entry) != id) {
+                entry = (entry + 1) & mask;
+            }
+            int removed = slotAt(entry);
+            if (removed == NONE) {
+                return NONE;
+            }
+            // Moves back every later entry of the run that may not sit after the emptied entry.
+            int empty = entry;
+            for (entry = (entry + 1) & mask; slotAt(entry) != NONE; entry = (entry + 1) & mask) {
+                int home = entry(idAt(entry));
+                if (((entry - home) & mask) >= ((entry - empty) & mask)) {
+                    set(empty, idAt(entry), slotAt(entry));
+                    empty = entry;
+                }
+            }
+            set(empty, 0, NONE);
+            size--;
+            return removed;
+        }
+
+        long getBytes() {
+            return entries.capacity();
+        }
+
+        void clear() {
+            entries = ByteBuffer.allocateDirect(INITIAL_CAPACITY * ENTRY_SIZE).order(ByteOrder.nativeOrder());
+            mask = INITIAL_CAPACITY - 1;
+            size = 0;
+        }
+
+        private int idAt(int entry) {
+            return entries.getInt(entry * ENTRY_SIZE);
+        }
+
+        private int slotAt(int entry) {
+            return entries.getInt(entry * ENTRY_SIZE + 4) - 1;
+        }
+
+        private void set(int entry, int id, int slot) {
+            entries.putInt(entry * ENTRY_SIZE, id);
+            entries.putInt(entry * ENTRY_SIZE + 4, slot + 1);
+        }
+
+        private int entry(int id) {
+            int hash = id * 0x9E3779B9;     // Sequential ids are spread over the table.
+            return (hash ^ hash >>> 16) & mask;
+        }
+
+        private void resize(int capacity) {
+            ByteBuffer oldEntries = entries;
+            int oldCapacity = mask + 1;
+            entries = ByteBuffer.allocateDirect(capacity * ENTRY_SIZE).order(ByteOrder.nativeOrder());
+            mask = capacity - 1;
+            size = 0;
+            for (int entry = 0; entry < oldCapacity; entry++) {
+                int slot = oldEntries.getInt(entry * ENTRY_SIZE + 4) - 1;
+                if (slot != NONE) {
+                    put(oldEntries.getInt(entry * ENTRY_SIZE), slot);
+                }
+            }
+        }
+    }
+}
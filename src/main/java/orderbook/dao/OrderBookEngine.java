@@ -0,0 +1,149 @@
+package orderbook.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import orderbook.dto.DepthUpdate;
+import orderbook.dto.Order;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * The resident order book, holding the buy and sell sides in memory. A single engine is shared by
+ * BuyOrderDaoMemoryImpl and SellOrderDaoMemoryImpl so that both DAOs see the same book.
+ *
+ * When constructed with a journal, every mutation made through the DAOs is appended to it and
+ * recover() rebuilds the book from it on start-up. The DAOs mutate the book while holding the
+ * engine's monitor, so a snapshot taken under the same monitor sees both sides at one journal
+ * sequence.
+ *
+ * Each engine holds the book of one instrument; orders read back from its journal or snapshot are
+ * given the engine's symbol.
+ *
+ * Depth listeners are sent the price levels changed by each DAO operation once it completes. The
+ * sides only record their changed levels while at least one listener is registered.
+ */
+public class OrderBookEngine {
+
+    private final OrderBookSide bids = new OrderBookSide(true);
+    private final OrderBookSide asks = new OrderBookSide(false);
+    private final OrderBookJournal journal;
+    private final String symbol;
+    private final List<DepthListener> depthListeners = new CopyOnWriteArrayList<>();
+
+    public OrderBookEngine() {
+        this(null);
+    }
+
+    public OrderBookEngine(OrderBookJournal journal) {
+        this(Order.DEFAULT_SYMBOL, journal);
+    }
+
+    public OrderBookEngine(String symbol, OrderBookJournal journal) {
+        this.symbol = symbol;
+        this.journal = journal;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public OrderBookSide getBids() {
+        return bids;
+    }
+
+    public OrderBookSide getAsks() {
+        return asks;
+    }
+
+    /**
+     * @return the journal the book's mutations are appended to, or null if the book is not durable.
+     */
+    public OrderBookJournal getJournal() {
+        return journal;
+    }
+
+    public synchronized void addDepthListener(DepthListener listener) {
+        if (depthListeners.isEmpty()) {
+            bids.setTrackChanges(true);
+            asks.setTrackChanges(true);
+        }
+        depthListeners.add(listener);
+    }
+
+    public synchronized void removeDepthListener(DepthListener listener) {
+        depthListeners.remove(listener);
+        if (depthListeners.isEmpty()) {
+            bids.setTrackChanges(false);
+            asks.setTrackChanges(false);
+        }
+    }
+
+    /**
+     * Sends the levels changed since the last call to the depth listeners, if there are any. The
+     * DAOs call this at the end of every operation that changes the book.
+     */
+    public synchronized void publishDepth() {
+        if (depthListeners.isEmpty()) {
+            return;
+        }
+        List<DepthUpdate> updates = new ArrayList<>(bids.drainChanges());
+        updates.addAll(asks.drainChanges());
+        if (updates.isEmpty()) {
+            return;
+        }
+        updates = Collections.unmodifiableList(updates);
+        for (DepthListener listener : depthListeners) {
+            listener.onDepthUpdate(symbol, updates);
+        }
+    }
+
+    /**
+     * Rebuilds both sides of the book by replaying the journal from the start.
+     * @return the number of journal events replayed.
+     */
+    public long recover() throws PersistenceException {
+        clear();
+        return replayJournal(0);
+    }
+
+    /**
+     * Applies the journal events written after the given sequence on top of the current book,
+     * typically one just loaded from a snapshot taken at that sequence.
+     * @param afterSequence the journal sequence the current book already reflects.
+     * @return the number of journal events replayed.
+     */
+    public synchronized long replayJournal(long afterSequence) throws PersistenceException {
+        if (journal == null) {
+            return 0;
+        }
+        return journal.replay(new OrderBookJournal.Listener() {
+            @Override
+            public void onAdd(long sequence, byte side, Order order) {
+                order.setSymbol(symbol);
+                getSide(side).add(order);
+            }
+
+            @Override
+            public void onReduce(long sequence, byte side, Order order, int quantity) {
+                order.setSymbol(symbol);
+                getSide(side).updateQuantity(order, quantity);
+            }
+
+            @Override
+            public void onRemove(long sequence, byte side, Order order) {
+                order.setSymbol(symbol);
+                getSide(side).remove(order);
+            }
+        }, afterSequence);
+    }
+
+    public synchronized void clear() {
+        bids.clear();
+        asks.clear();
+    }
+
+    public OrderBookSide getSide(byte side) {
+        return side == OrderBookJournal.BUY ? bids : asks;
+    }
+}
@@ -0,0 +1,811 @@
+package orderbook.dao;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Sequential, append-only journal of order book events. Every add, reduce, remove and trade is
+ * written as one small binary record, so a mutation costs a single append rather than a rewrite
+ * of the whole order file. Replaying the journal from the start rebuilds the book.
+ *
+ * When a snapshot of the book is taken the journal is rolled: the current file is archived under
+ * the name journalFile.lastSequence and a new file is started, so recovery only has to replay the
+ * events written after the snapshot.
+ *
+ * Each record is laid out as [int body length][byte type][long sequence][payload], with prices
+ * written as a long number of ticks. Every journal file starts with a record of the tick size it
+ * was written with, of sequence 0, and a file written with another tick size than the current one
+ * is refused rather than replayed at the wrong scale.
+ *
+ * With the GROUP_COMMIT sync policy the appending thread only encodes its records into a bounded
+ * in-memory queue, and a writer thread appends and fsyncs the queued records in groups, so matching
+ * is not held up by the disk unless the queue is full. The durable sequence is the watermark up to
+ * which events are known to be on disk, and awaitDurable() waits for it to reach a given event.
+ */
+public class OrderBookJournal {
+
+    public static final byte BUY = 'B';
+    public static final byte SELL = 'S';
+
+    private static final byte ADD = 1;
+    private static final byte REDUCE = 2;
+    private static final byte REMOVE = 3;
+    private static final byte TRADE = 4;
+    private static final byte TICK_SIZE = 5;
+
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int MAX_RECORD_SIZE = 256;
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+    private static final int QUEUE_SIZE = 1024 * 1024;
+    private static final int DEFAULT_MAX_BATCH_EVENTS = 4096;
+
+    /**
+     * Receives the events read back by replay(). Every method defaults to doing nothing so a
+     * listener only implements the events it is interested in.
+     */
+    public interface Listener {
+
+        default void onAdd(long sequence, byte side, Order order) {}
+
+        default void onReduce(long sequence, byte side, Order order, int quantity) {}
+
+        default void onRemove(long sequence, byte side, Order order) {}
+
+        default void onTrade(long sequence, Trade trade) {}
+    }
+
+    private final Path journalFile;
+    private final JournalSyncPolicy syncPolicy;
+    private final long syncEvery;
+    private final int maxBatchEvents;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_RECORD_SIZE);
+    private final ByteBuffer batchBuffer = ByteBuffer.allocateDirect(BATCH_BUFFER_SIZE);
+
+    // The group commit queue. The writer thread only ever takes queueLock, never the journal's own
+    // lock, while appenders take queueLock inside the journal's lock.
+    private final Object queueLock = new Object();
+    private ByteBuffer queue;           // Records waiting for the writer.
+    private ByteBuffer committing;      // The records the writer is appending.
+    private long queuedEvents;
+    private long queuedSequence;
+    private long firstQueuedNanos;
+    private boolean commitRequested;
+    private boolean commitInProgress;
+    private boolean writerRunning;
+    private boolean writerStopped;
+    private IOException writerFailure;
+    private Thread writerThread;
+    private volatile long durableSequence;
+
+    private FileChannel channel;
+    private ScheduledExecutorService syncThread;
+    private IOException syncFailure;    // A failed background sync of the INTERVAL policy.
+    private long sequence;
+    private long firstEventPosition;    // After the tick size record of the current file.
+    private long unsyncedEvents;
+    private long replayedEvents;
+    private int batchDepth;
+    private int batchEvents;
+
+    /**
+     * @param journalFile the file the journal is appended to.
+     * @param syncPolicy when appended events are forced to disk.
+     * @param syncEvery the number of events for EVERY_N_EVENTS, the milliseconds between syncs for
+     * INTERVAL, or the most milliseconds an event waits for others to join its commit for
+     * GROUP_COMMIT; ignored for EVERY_EVENT.
+     * @param maxBatchEvents the most events written by one group commit; ignored by the other policies.
+     */
+    public OrderBookJournal(String journalFile, JournalSyncPolicy syncPolicy, long syncEvery, int maxBatchEvents) {
+        if (syncPolicy == JournalSyncPolicy.GROUP_COMMIT ? syncEvery < 0
+                : syncPolicy != JournalSyncPolicy.EVERY_EVENT && syncEvery <= 0) {
+            throw new IllegalArgumentException("syncEvery is out of range for " + syncPolicy);
+        }
+        if (maxBatchEvents <= 0) {
+            throw new IllegalArgumentException("maxBatchEvents must be positive");
+        }
+        this.journalFile = Paths.get(journalFile);
+        this.syncPolicy = syncPolicy;
+        this.syncEvery = syncEvery;
+        this.maxBatchEvents = maxBatchEvents;
+    }
+
+    public OrderBookJournal(String journalFile, JournalSyncPolicy syncPolicy, long syncEvery) {
+        this(journalFile, syncPolicy, syncEvery, DEFAULT_MAX_BATCH_EVENTS);
+    }
+
+    public OrderBookJournal(String journalFile) {
+        this(journalFile, JournalSyncPolicy.EVERY_EVENT, 0);
+    }
+
+    /**
+     * @return the sequence number of the last event appended or replayed.
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the sequence number up to which every event is known to have been forced to disk.
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * Waits until the event with the given sequence number, and every event before it, has been
+     * forced to disk. With a policy other than GROUP_COMMIT the journal is synced straight away if
+     * required.
+     * @param sequence the sequence number of the event, as returned by getSequence() after it was appended.
+     * @param timeoutMillis the most milliseconds to wait.
+     * @return true if the event is durable, false if the wait timed out.
+     */
+    public boolean awaitDurable(long sequence, long timeoutMillis) throws PersistenceException, InterruptedException {
+        if (syncPolicy != JournalSyncPolicy.GROUP_COMMIT) {
+            if (durableSequence < sequence) {
+                try {
+                    sync();
+                }
+                catch (IOException e) {
+                    throw new PersistenceException("Could not sync the order book journal", e);
+                }
+            }
+            return durableSequence >= sequence;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (queueLock) {
+            while (durableSequence < sequence) {
+                checkWriter();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(queueLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    public void appendAdd(byte side, Order order) throws PersistenceException {
+        appendOrderEvent(ADD, side, order.getId(), order.getPriceTicks(), order.getQuantity(), order.getQuantity());
+    }
+
+    /**
+     * @param order the resting order whose quantity was changed.
+     * @param previousQuantity the quantity of the order before the change.
+     * @param quantity the new quantity of the order.
+     */
+    public void appendReduce(byte side, Order order, int previousQuantity, int quantity) throws PersistenceException {
+        appendOrderEvent(REDUCE, side, order.getId(), order.getPriceTicks(), previousQuantity, quantity);
+    }
+
+    public void appendRemove(byte side, Order order) throws PersistenceException {
+        appendOrderEvent(REMOVE, side, order.getId(), order.getPriceTicks(), order.getQuantity(), order.getQuantity());
+    }
+
+    public synchronized void appendTrade(Trade trade) throws PersistenceException {
+        startRecord(TRADE);
+        buffer.putInt(trade.getTradeId());
+        buffer.putLong(trade.getExecutionEpochSecond());
+        buffer.putInt(trade.getExecutionNano());
+        buffer.putInt(trade.getQuantity());
+        buffer.putLong(trade.getPriceTicks());
+        putSymbol(trade.getSymbol());
+        finishRecord();
+    }
+
+    private synchronized void appendOrderEvent(byte type, byte side, int id, long price, int orderQuantity,
+            int quantity) throws PersistenceException {
+        startRecord(type);
+        buffer.put(side);
+        buffer.putInt(id);
+        buffer.putLong(price);
+        buffer.putInt(orderQuantity);
+        buffer.putInt(quantity);
+        finishRecord();
+    }
+
+    private void putSymbol(String symbol) {
+        byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        buffer.put((byte) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getSymbol(ByteBuffer record) {
+        byte[] bytes = new byte[record.get() & 0xFF];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void startRecord(byte type) throws PersistenceException {
+        open();
+        buffer.clear();
+        buffer.position(HEADER_SIZE);
+        buffer.put(type);
+        buffer.putLong(++sequence);
+    }
+
+    private void finishRecord() throws PersistenceException {
+        buffer.putInt(0, buffer.position() - HEADER_SIZE);
+        buffer.flip();
+        if (batchDepth > 0) {
+            if (batchBuffer.remaining() < buffer.remaining()) {
+                flushBatch();
+            }
+            batchBuffer.put(buffer);
+            batchEvents++;
+            return;
+        }
+        write(buffer, 1);
+    }
+
+    /**
+     * Starts collecting appended events in memory so that a group of related mutations, such as
+     * the fills of a whole match-all sweep, is written with one append and at most one fsync.
+     * Batches nest; the events are written when the outermost batch ends.
+     */
+    public synchronized void beginBatch() throws PersistenceException {
+        open();
+        batchDepth++;
+    }
+
+    public synchronized void endBatch() throws PersistenceException {
+        if (batchDepth > 0 && --batchDepth == 0) {
+            flushBatch();
+        }
+    }
+
+    private void flushBatch() throws PersistenceException {
+        batchBuffer.flip();
+        if (batchBuffer.hasRemaining()) {
+            write(batchBuffer, batchEvents);
+        }
+        batchBuffer.clear();
+        batchEvents = 0;
+    }
+
+    private void write(ByteBuffer data, int events) throws PersistenceException {
+        if (syncPolicy == JournalSyncPolicy.GROUP_COMMIT) {
+            enqueue(data, events);
+            return;
+        }
+        try {
+            checkSync();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            unsyncedEvents += events;
+            if (syncPolicy == JournalSyncPolicy.EVERY_EVENT
+                    || (syncPolicy == JournalSyncPolicy.EVERY_N_EVENTS && unsyncedEvents >= syncEvery)) {
+                sync();
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not append to the order book journal", e);
+        }
+    }
+
+    /**
+     * Forces every appended event to disk.
+     * @throws IOException if this or an earlier background sync failed. A failed sync may have
+     * lost appended events even though a later one succeeds, so the failure is reported until the
+     * journal is closed.
+     */
+    public synchronized void sync() throws IOException {
+        if (syncPolicy == JournalSyncPolicy.GROUP_COMMIT) {
+            try {
+                drain();
+            }
+            catch (PersistenceException e) {
+                throw new IOException(e.getMessage(), e.getCause());
+            }
+            return;
+        }
+        checkSync();
+        if (channel != null && unsyncedEvents > 0) {
+            channel.force(false);
+            unsyncedEvents = 0;
+        }
+        durableSequence = sequence;
+    }
+
+    private void checkSync() throws IOException {
+        if (syncFailure != null) {
+            throw new IOException("An earlier sync of the order book journal failed", syncFailure);
+        }
+    }
+
+    /**
+     * Hands encoded records to the writer thread, waiting only while the queue is too full for them.
+     */
+    private void enqueue(ByteBuffer data, int events) throws PersistenceException {
+        synchronized (queueLock) {
+            while (queue.remaining() < data.remaining()) {
+                requestCommit();
+            }
+            checkWriter();
+            if (queuedEvents == 0) {
+                firstQueuedNanos = System.nanoTime();
+                queueLock.notifyAll();      // Starts the writer's wait for the group to fill.
+            }
+            queue.put(data);
+            queuedEvents += events;
+            queuedSequence = sequence;
+            if (queuedEvents >= maxBatchEvents) {
+                queueLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits until every queued record has been committed.
+     */
+    private void drain() throws PersistenceException {
+        synchronized (queueLock) {
+            while (queuedEvents > 0 || commitInProgress) {
+                requestCommit();
+            }
+            if (writerFailure != null) {
+                throw new PersistenceException("Could not append to the order book journal", writerFailure);
+            }
+        }
+    }
+
+    /**
+     * Asks the writer to commit the queue without waiting for it to fill, and waits for the writer
+     * to make progress. Called holding queueLock.
+     */
+    private void requestCommit() throws PersistenceException {
+        checkWriter();
+        commitRequested = true;
+        queueLock.notifyAll();
+        try {
+            queueLock.wait();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Interrupted while waiting for the order book journal", e);
+        }
+    }
+
+    private void checkWriter() throws PersistenceException {
+        if (writerFailure != null) {
+            throw new PersistenceException("Could not append to the order book journal", writerFailure);
+        }
+        if (writerStopped) {
+            throw new PersistenceException("The order book journal writer has stopped");
+        }
+    }
+
+    /**
+     * The writer thread: waits until the queue holds maxBatchEvents events, its oldest event has
+     * waited syncEvery milliseconds or a commit is requested, then swaps the queue for the empty
+     * buffer and appends and forces the swapped out records outside the lock.
+     */
+    private void runWriter() {
+        long maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(syncEvery);
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            FileChannel file;
+            synchronized (queueLock) {
+                while (true) {
+                    if (queuedEvents > 0) {
+                        long waited = System.nanoTime() - firstQueuedNanos;
+                        if (commitRequested || !writerRunning || queuedEvents >= maxBatchEvents
+                                || waited >= maxLatencyNanos) {
+                            break;
+                        }
+                        waitForQueue(maxLatencyNanos - waited);
+                    }
+                    else if (!writerRunning) {
+                        writerStopped = true;
+                        queueLock.notifyAll();
+                        return;
+                    }
+                    else {
+                        commitRequested = false;
+                        waitForQueue(0);
+                    }
+                }
+                batch = queue;
+                queue = committing;
+                committing = batch;
+                batchSequence = queuedSequence;
+                queuedEvents = 0;
+                commitRequested = false;
+                commitInProgress = true;
+                file = channel;
+            }
+            IOException failure = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    file.write(batch);
+                }
+                file.force(false);
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+            batch.clear();
+            synchronized (queueLock) {
+                commitInProgress = false;
+                if (failure == null) {
+                    durableSequence = batchSequence;
+                }
+                else {
+                    // Nothing after a failed commit can be written in order, so the writer stops.
+                    writerFailure = failure;
+                    writerRunning = false;
+                    writerStopped = true;
+                }
+                queueLock.notifyAll();
+                if (failure != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void waitForQueue(long nanos) {
+        try {
+            if (nanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(queueLock, nanos);
+            }
+            else {
+                queueLock.wait();
+            }
+        }
+        catch (InterruptedException e) {
+            writerRunning = false;      // Commits what is queued, then stops.
+        }
+    }
+
+    /**
+     * Reads every complete record from the start of the journal, in sequence order. A record cut
+     * short by a crash is truncated away so that later appends follow the last complete event.
+     * @param listener receives each event read back.
+     * @return the number of events replayed.
+     */
+    public synchronized long replay(Listener listener) throws PersistenceException {
+        return replay(listener, 0);
+    }
+
+    /**
+     * Reads every complete record after the given sequence, first from the archived journal files
+     * still on disk and then from the current file. Archives that end at or before the sequence
+     * are skipped without being read.
+     * @param listener receives each event read back.
+     * @param afterSequence the sequence of the last event already applied, typically by a snapshot.
+     * @return the number of events replayed.
+     */
+    public synchronized long replay(Listener listener, long afterSequence) throws PersistenceException {
+        open();
+        if (syncPolicy == JournalSyncPolicy.GROUP_COMMIT) {
+            drain();
+        }
+        sequence = Math.max(sequence, afterSequence);
+        replayedEvents = 0;
+        ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE);
+        try {
+            for (Path archive : getArchives()) {
+                if (getArchiveSequence(archive) > afterSequence) {
+                    try (FileChannel archived = FileChannel.open(archive, StandardOpenOption.READ)) {
+                        readRecords(archived, archive, record, listener, afterSequence);
+                    }
+                }
+            }
+            long position = readRecords(channel, journalFile, record, listener, afterSequence);
+            if (position < channel.size()) {
+                channel.truncate(position);
+            }
+            channel.position(position);
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not replay the order book journal", e);
+        }
+        durableSequence = sequence;     // Whatever was read back is already on disk.
+        return replayedEvents;
+    }
+
+    /**
+     * @return the position after the last complete record in the file.
+     */
+    private long readRecords(FileChannel file, Path path, ByteBuffer record, Listener listener, long afterSequence)
+            throws IOException, PersistenceException {
+        long position = Math.max(checkTickSize(file, path), 0);
+        long size = file.size();
+        while (position + HEADER_SIZE <= size) {
+            record.clear().limit(HEADER_SIZE);
+            file.read(record, position);
+            int length = record.getInt(0);
+            if (length <= 0 || length > MAX_RECORD_SIZE - HEADER_SIZE || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            record.clear().limit(length);
+            file.read(record, position + HEADER_SIZE);
+            record.flip();
+            readRecord(record, listener, afterSequence);
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private void readRecord(ByteBuffer record, Listener listener, long afterSequence) {
+        byte type = record.get();
+        long recordSequence = record.getLong();
+        if (recordSequence <= afterSequence) {
+            return;
+        }
+        sequence = recordSequence;
+        replayedEvents++;
+        if (type == TRADE) {
+            Trade trade = new Trade();
+            trade.setTradeId(record.getInt());
+            long epochSecond = record.getLong();
+            trade.setExecutionTime(LocalDateTime.ofEpochSecond(epochSecond, record.getInt(), ZoneOffset.UTC));
+            trade.setQuantity(record.getInt());
+            trade.setPriceTicks(record.getLong());
+            if (record.hasRemaining()) {
+                trade.setSymbol(getSymbol(record));     // Trade records written before symbols have none.
+            }
+            listener.onTrade(sequence, trade);
+            return;
+        }
+        byte side = record.get();
+        int id = record.getInt();
+        long price = record.getLong();
+        int orderQuantity = record.getInt();
+        int quantity = record.getInt();
+        Order order = side == BUY ? new BuyOrder(id, price, orderQuantity) : new SellOrder(id, price, orderQuantity);
+        switch (type) {
+            case ADD -> listener.onAdd(sequence, side, order);
+            case REDUCE -> listener.onReduce(sequence, side, order, quantity);
+            case REMOVE -> listener.onRemove(sequence, side, order);
+            default -> throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    /**
+     * Closes the current journal file as an archive named after the last sequence it holds, and
+     * starts a new, empty journal file for the events that follow.
+     * @return the sequence of the last event in the archived file.
+     */
+    public synchronized long roll() throws PersistenceException {
+        open();
+        flushBatch();
+        if (syncPolicy == JournalSyncPolicy.GROUP_COMMIT) {
+            drain();
+        }
+        try {
+            channel.force(false);
+            unsyncedEvents = 0;
+            if (channel.size() > firstEventPosition) {
+                channel.close();
+                channel = null;
+                Files.move(journalFile, getArchivePath(sequence), StandardCopyOption.REPLACE_EXISTING);
+                openChannel();
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not roll the order book journal", e);
+        }
+        return sequence;
+    }
+
+    /**
+     * Deletes the archived journal files whose events are all at or before the given sequence,
+     * once a snapshot covering them is safely on disk.
+     * @param upToSequence the journal sequence covered by the snapshot.
+     */
+    public synchronized void deleteArchives(long upToSequence) throws PersistenceException {
+        try {
+            for (Path archive : getArchives()) {
+                if (getArchiveSequence(archive) <= upToSequence) {
+                    Files.delete(archive);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not delete archived journal files", e);
+        }
+    }
+
+    private Path getArchivePath(long lastSequence) {
+        return journalFile.resolveSibling(journalFile.getFileName() + "." + lastSequence);
+    }
+
+    private long getArchiveSequence(Path archive) {
+        String name = archive.getFileName().toString();
+        return Long.parseLong(name.substring(journalFile.getFileName().toString().length() + 1));
+    }
+
+    /**
+     * @return the archived journal files, oldest first.
+     */
+    private List<Path> getArchives() throws IOException {
+        String prefix = journalFile.getFileName() + ".";
+        List<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(journalFile.toAbsolutePath().getParent(),
+                prefix + "*")) {
+            for (Path file : files) {
+                if (file.getFileName().toString().substring(prefix.length()).matches("\\d+")) {
+                    archives.add(file);
+                }
+            }
+        }
+        archives.sort(Comparator.comparingLong(this::getArchiveSequence));
+        return archives;
+    }
+
+    private void open() throws PersistenceException {
+        if (channel != null) {
+            return;
+        }
+        try {
+            openChannel();
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not open the order book journal", e);
+        }
+        if (syncPolicy == JournalSyncPolicy.INTERVAL) {
+            syncThread = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncThread.scheduleAtFixedRate(() -> {
+                synchronized (this) {
+                    if (syncFailure == null) {
+                        try {
+                            sync();
+                        }
+                        catch (IOException e) {
+                            syncFailure = e;    // Reported by the next append, sync or close.
+                        }
+                    }
+                }
+            }, syncEvery, syncEvery, TimeUnit.MILLISECONDS);
+        }
+        if (syncPolicy == JournalSyncPolicy.GROUP_COMMIT) {
+            queue = ByteBuffer.allocateDirect(QUEUE_SIZE);
+            committing = ByteBuffer.allocateDirect(QUEUE_SIZE);
+            writerFailure = null;
+            writerRunning = true;
+            writerStopped = false;
+            writerThread = new Thread(this::runWriter, "journal-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    private void openChannel() throws IOException, PersistenceException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            firstEventPosition = checkTickSize(channel, journalFile);
+        }
+        catch (PersistenceException e) {
+            channel.close();
+            channel = null;
+            throw e;
+        }
+        if (firstEventPosition < 0) {
+            // A new file, or one whose tick size record was cut short by a crash.
+            channel.truncate(0);
+            byte[] tickSize = PriceTicks.getTickSize().toPlainString().getBytes(StandardCharsets.US_ASCII);
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + 1 + Long.BYTES + 1 + tickSize.length);
+            record.putInt(record.capacity() - HEADER_SIZE).put(TICK_SIZE).putLong(0);
+            record.put((byte) tickSize.length).put(tickSize).flip();
+            while (record.hasRemaining()) {
+                channel.write(record, record.position());
+            }
+            firstEventPosition = record.capacity();
+        }
+        channel.position(channel.size());
+    }
+
+    /**
+     * Checks the tick size record at the start of a journal file against the current tick size.
+     * @return the position after the tick size record; 0 if the file starts with an event, having
+     * been written before tick sizes were recorded; or -1 if it has no complete first record.
+     * @throws PersistenceException if the file was written with another tick size.
+     */
+    private static long checkTickSize(FileChannel file, Path path) throws IOException, PersistenceException {
+        ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE);
+        record.limit(HEADER_SIZE);
+        file.read(record, 0);
+        int length = record.getInt(0);
+        if (file.size() < HEADER_SIZE || length <= 0 || length > MAX_RECORD_SIZE - HEADER_SIZE
+                || HEADER_SIZE + length > file.size()) {
+            return -1;
+        }
+        record.clear().limit(length);
+        file.read(record, HEADER_SIZE);
+        record.flip();
+        if (record.get() != TICK_SIZE) {
+            return 0;
+        }
+        record.getLong();
+        BigDecimal tickSize = new BigDecimal(getSymbol(record));
+        if (tickSize.compareTo(PriceTicks.getTickSize()) != 0) {
+            throw new PersistenceException("The order book journal " + path + " was written with a tick size of "
+                    + tickSize + " but the tick size is " + PriceTicks.getTickSize());
+        }
+        return HEADER_SIZE + length;
+    }
+
+    public synchronized void close() throws IOException {
+        if (syncThread != null) {
+            syncThread.shutdown();
+            syncThread = null;
+        }
+        IOException failure = syncFailure;
+        syncFailure = null;
+        if (writerThread != null) {
+            try {
+                flushBatch();
+                drain();
+            }
+            catch (PersistenceException e) {
+                failure = new IOException(e.getMessage(), e.getCause());
+            }
+            stopWriter();
+        }
+        if (channel != null) {
+            if (failure == null) {
+                batchBuffer.flip();
+                while (batchBuffer.hasRemaining()) {
+                    channel.write(batchBuffer);
+                    unsyncedEvents++;
+                }
+                batchBuffer.clear();
+                batchEvents = 0;
+                sync();
+            }
+            channel.close();
+            channel = null;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void stopWriter() throws IOException {
+        synchronized (queueLock) {
+            writerRunning = false;
+            queueLock.notifyAll();
+        }
+        try {
+            writerThread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while stopping the order book journal writer", e);
+        }
+        writerThread = null;
+    }
+}
@@ -0,0 +1,401 @@
+package orderbook.dao;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.DepthUpdate;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+
+/**
+ * One side of the resident order book. Price levels are kept in a sorted map ordered best price
+ * first (highest for bids, lowest for asks), so inserting an order costs O(log levels) and the
+ * best level is always cached for O(1) access.
+ *
+ * Every resting order is also indexed by its id, pointing at its node in the queue of its price
+ * level, so an order is found, removed or reduced in O(1) without searching its level. An order
+ * whose id is already resting on the side is refused. The nodes of removed orders are kept for reuse, so that
+ * neither filling nor removing an order allocates, and adding one only does when it opens a level.
+ *
+ * The side also keeps running totals of its orders' quantities, prices and notional value, updated
+ * on every add, fill and remove, so its statistics never require walking the book.
+ *
+ * Each price level keeps its own total quantity and order count, so the top levels of the depth
+ * are read without visiting their orders. While change tracking is on, the side also records which
+ * levels have changed since the changes were last drained, for incremental depth updates.
+ */
+public class OrderBookSide {
+
+    private final boolean bid;
+    private final TreeMap<Long, PriceLevel> levels;
+    private final OrderIdIndex ordersById = new OrderIdIndex();
+    private PriceLevel.Node freeNodes;
+    private PriceLevel bestLevel;
+    private int orderCount;
+    private int lastOrderId;
+    private long totalQuantity;
+    private long priceSum;
+    private long notionalHigh;      // The notional, the sum of price times quantity, as a 128-bit integer.
+    private long notionalLow;
+    private Map<Long, PriceLevel> changedLevels;    // null unless changes are tracked
+
+    /**
+     * @param bid true for the buy side, ordered highest price first; false for the sell side,
+     * ordered lowest price first.
+     */
+    public OrderBookSide(boolean bid) {
+        this.bid = bid;
+        Comparator<Long> priceOrder = bid ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        this.levels = new TreeMap<>(priceOrder);
+    }
+
+    /**
+     * Queues an order at the back of its price level, creating the level if required.
+     * @param order the order to be added.
+     * @return false, leaving the side unchanged, if an order with the same id is already resting.
+     */
+    public boolean add(Order order) {
+        if (ordersById.get(order.getId()) != null) {
+            return false;
+        }
+        PriceLevel level = levels.get(order.getPriceTicks());
+        if (level == null) {
+            level = new PriceLevel(order.getPriceTicks());
+            levels.put(order.getPriceTicks(), level);
+            if (bestLevel == null || isBetter(level.getPrice(), bestLevel.getPrice())) {
+                bestLevel = level;
+            }
+        }
+        PriceLevel.Node node = freeNodes;
+        if (node != null) {
+            freeNodes = node.take();
+        }
+        ordersById.put(order.getId(), level.add(order, node));
+        changed(level);
+        orderCount++;
+        lastOrderId = Math.max(lastOrderId, order.getId());
+        totalQuantity += order.getQuantity();
+        priceSum += order.getPriceTicks();
+        addNotional(order.getPriceTicks(), order.getQuantity());
+        return true;
+    }
+
+    /**
+     * Removes an order from its price level, dropping the level once it is empty.
+     * @param order the order to be removed.
+     * @return the removed order, or null if the order was not resting on this side.
+     */
+    public Order remove(Order order) {
+        PriceLevel.Node node = find(order);
+        if (node != null) {
+            return remove(node);
+        }
+        // Not the indexed order with this id; only possible if ids have been reused.
+        PriceLevel level = levels.get(order.getPriceTicks());
+        Order removed = level == null ? null : level.remove(order);
+        if (removed != null) {
+            removed(level, removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the resting order with the given id in O(1).
+     * @return the removed order, or null if no order with the id is resting on this side.
+     */
+    public Order remove(int id) {
+        PriceLevel.Node node = ordersById.get(id);
+        return node == null ? null : remove(node);
+    }
+
+    /**
+     * @return the resting order with the given id, or null if there is none on this side.
+     */
+    public Order get(int id) {
+        PriceLevel.Node node = ordersById.get(id);
+        return node == null ? null : node.order;
+    }
+
+    /**
+     * Changes the quantity of a resting order without altering its time priority.
+     * @param order the resting order.
+     * @param quantity the new quantity.
+     * @return the quantity of the order before the update, or -1 if the order was not found.
+     */
+    public int updateQuantity(Order order, int quantity) {
+        PriceLevel.Node node = find(order);
+        Order queued = null;
+        PriceLevel level;
+        if (node != null) {
+            queued = node.order;
+            level = node.level;
+        }
+        else {
+            level = levels.get(order.getPriceTicks());
+            if (level == null) {
+                return -1;
+            }
+            // Not the indexed order with this id; only possible if ids have been reused.
+            for (Order candidate : level.getOrders()) {
+                if (candidate.equals(order)) {
+                    queued = candidate;
+                    break;
+                }
+            }
+            if (queued == null) {
+                return -1;
+            }
+        }
+        int previousQuantity = queued.getQuantity();
+        level.updateQuantity(queued, quantity);
+        changed(level);
+        totalQuantity += quantity - previousQuantity;
+        addNotional(queued.getPriceTicks(), quantity - previousQuantity);
+        return previousQuantity;
+    }
+
+    /**
+     * @return the order with price-time priority on this side, or null if the side is empty.
+     */
+    public Order getBest() {
+        return bestLevel == null ? null : bestLevel.peek();
+    }
+
+    public PriceLevel getBestLevel() {
+        return bestLevel;
+    }
+
+    /**
+     * @return every resting order, best price first and in time priority within a price.
+     */
+    public List<Order> getOrders() {
+        List<Order> orders = new ArrayList<>(orderCount);
+        for (PriceLevel level : levels.values()) {
+            for (Order order : level.getOrders()) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Sums the resting quantity an incoming order with the given limit price could trade against,
+     * from the aggregate quantity of each crossing level rather than its orders, and stops as soon
+     * as the wanted quantity is reached.
+     * @param limitPrice the limit price of the incoming order, in ticks.
+     * @param quantity the quantity the incoming order wants.
+     * @return the available quantity, at most the wanted quantity unless one level holds more.
+     */
+    public long getAvailableQuantity(long limitPrice, long quantity) {
+        long available = 0;
+        for (PriceLevel level : levels.values()) {
+            if (available >= quantity || !crosses(level.getPrice(), limitPrice)) {
+                break;
+            }
+            available += level.getTotalQuantity();
+        }
+        return available;
+    }
+
+    /**
+     * Collects the resting orders an incoming order with the given limit price trades against, in
+     * price-time priority. Only the crossing levels are visited, and the walk stops at the order that
+     * brings the collected quantity up to the wanted quantity.
+     * @param limitPrice the limit price of the incoming order, in ticks.
+     * @param quantity the quantity the incoming order wants.
+     */
+    public List<Order> getCrossingOrders(long limitPrice, long quantity) {
+        List<Order> orders = new ArrayList<>();
+        long collected = 0;
+        for (PriceLevel level : levels.values()) {
+            if (!crosses(level.getPrice(), limitPrice)) {
+                break;
+            }
+            for (Order order : level.getOrders()) {
+                if (collected >= quantity) {
+                    return orders;
+                }
+                orders.add(order);
+                collected += order.getQuantity();
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * @return true if an incoming order of the opposite side with the given limit price trades
+     * against an order resting at price on this side.
+     */
+    public boolean crosses(long price, long limitPrice) {
+        return !isBetter(limitPrice, price);
+    }
+
+    /**
+     * @return the aggregated quantity and order count of up to the given number of levels, best
+     * price first.
+     */
+    public List<DepthLevel> getDepth(int maxLevels) {
+        List<DepthLevel> depth = new ArrayList<>(Math.min(maxLevels, levels.size()));
+        for (PriceLevel level : levels.values()) {
+            if (depth.size() == maxLevels) {
+                break;
+            }
+            depth.add(new DepthLevel(level.getPrice(), level.getTotalQuantity(), level.getOrderCount()));
+        }
+        return depth;
+    }
+
+    /**
+     * Turns the recording of changed levels on or off; turning it off discards any recorded changes.
+     */
+    public void setTrackChanges(boolean trackChanges) {
+        changedLevels = trackChanges ? new LinkedHashMap<>() : null;
+    }
+
+    /**
+     * @return the current state of every level changed since the last call, in the order they were
+     * first changed, or an empty list if changes are not tracked.
+     */
+    public List<DepthUpdate> drainChanges() {
+        if (changedLevels == null || changedLevels.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<DepthUpdate> updates = new ArrayList<>(changedLevels.size());
+        for (PriceLevel level : changedLevels.values()) {
+            updates.add(new DepthUpdate(bid, level.getPrice(), level.getTotalQuantity(), level.getOrderCount()));
+        }
+        changedLevels.clear();
+        return updates;
+    }
+
+    public int size() {
+        return orderCount;
+    }
+
+    public boolean isEmpty() {
+        return orderCount == 0;
+    }
+
+    /**
+     * @return the statistics of the orders resting on this side, from the running totals.
+     */
+    public OrderStats getStats() {
+        if (levels.isEmpty()) {
+            return new OrderStats(0, 0, 0, 0, 0, BigInteger.ZERO);
+        }
+        long best = levels.firstKey();
+        long worst = levels.lastKey();
+        BigInteger low = BigInteger.valueOf(notionalLow & Long.MAX_VALUE);
+        if (notionalLow < 0) {
+            low = low.setBit(Long.SIZE - 1);
+        }
+        BigInteger notional = BigInteger.valueOf(notionalHigh).shiftLeft(Long.SIZE).add(low);
+        return new OrderStats(orderCount, totalQuantity, priceSum, Math.min(best, worst), Math.max(best, worst), notional);
+    }
+
+    public int getLevelCount() {
+        return levels.size();
+    }
+
+    /**
+     * @return the highest order id ever added to this side.
+     */
+    public int getLastOrderId() {
+        return lastOrderId;
+    }
+
+    public void setLastOrderId(int lastOrderId) {
+        this.lastOrderId = lastOrderId;
+    }
+
+    public void clear() {
+        for (PriceLevel level : levels.values()) {
+            changed(new PriceLevel(level.getPrice()));     // Reported as emptied.
+        }
+        levels.clear();
+        ordersById.clear();
+        bestLevel = null;
+        orderCount = 0;
+        lastOrderId = 0;
+        totalQuantity = 0;
+        priceSum = 0;
+        notionalHigh = 0;
+        notionalLow = 0;
+    }
+
+    /**
+     * @return true if the first price has priority over the second on this side.
+     */
+    public boolean isBetter(long price, long otherPrice) {
+        return bid ? price > otherPrice : price < otherPrice;
+    }
+
+    /**
+     * Adds price times quantity, which may be negative, to the 128-bit notional.
+     */
+    private void addNotional(long price, long quantity) {
+        // The product is a signed 128-bit value; the low words add as unsigned with a carry into the high word.
+        long low = notionalLow + price * quantity;
+        long carry = Long.compareUnsigned(low, notionalLow) < 0 ? 1 : 0;
+        notionalHigh += Math.multiplyHigh(price, quantity) + carry;
+        notionalLow = low;
+    }
+
+    /**
+     * @return the node of the indexed order equal to the given one, or null if there is none.
+     */
+    private PriceLevel.Node find(Order order) {
+        PriceLevel.Node node = ordersById.get(order.getId());
+        return node != null && node.order.equals(order) ? node : null;
+    }
+
+    /**
+     * Removes an indexed order and keeps its node for reuse.
+     * @return the removed order.
+     */
+    private Order remove(PriceLevel.Node node) {
+        Order order = node.order;
+        PriceLevel level = node.level;
+        ordersById.remove(order.getId());
+        level.remove(node);
+        freeNodes = node.free(freeNodes);
+        removed(level, order);
+        return order;
+    }
+
+    /**
+     * Updates the running totals for an order that has left the given level.
+     */
+    private void removed(PriceLevel level, Order order) {
+        changed(level);
+        orderCount--;
+        totalQuantity -= order.getQuantity();
+        priceSum -= order.getPriceTicks();
+        addNotional(order.getPriceTicks(), -order.getQuantity());
+        if (level.isEmpty()) {
+            removeLevel(level);
+        }
+    }
+
+    private void changed(PriceLevel level) {
+        if (changedLevels != null) {
+            changedLevels.put(level.getPrice(), level);
+        }
+    }
+
+    private void removeLevel(PriceLevel level) {
+        if (level == bestLevel) {
+            // Looked up by the map's own key objects, as boxing the price would allocate.
+            levels.remove(levels.firstKey());
+            bestLevel = levels.isEmpty() ? null : levels.get(levels.firstKey());
+        }
+        else {
+            levels.remove(level.getPrice());
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package orderbook.dao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Periodically writes a compact binary snapshot of both sides of the book, together with the
+ * order-id and trade-id sequences, so that start-up only has to load the snapshot and replay the
+ * journal events written after it.
+ *
+ * The book is copied while holding the engine's monitor and the journal is rolled at the same
+ * moment; encoding and writing the copy then happens on a background thread. Once the snapshot is
+ * on disk the journal files it covers are deleted: the snapshot is forced to disk before it
+ * replaces the previous one, and the rename is forced before any journal file is deleted.
+ *
+ * The journal also holds the trades, so when a trade log is set it is forced to disk before the
+ * journal files holding its trades are deleted.
+ */
+public class OrderBookSnapshotter {
+
+    private static final int MAGIC = 0x4F42534E;    // "OBSN"
+    private static final int VERSION = 2;
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final OrderBookEngine engine;
+    private final Path snapshotFile;
+    private final long intervalMillis;
+    private final String recoveryLogFile;
+
+    private TradeDaoMappedImpl tradeLog;
+    private ScheduledExecutorService snapshotThread;
+    private RecoveryReport recoveryReport;
+    private long failedSnapshots;                   // Guarded by this.
+    private PersistenceException snapshotFailure;   // The first failed background snapshot, guarded by this.
+
+    /**
+     * @param engine the book to snapshot and recover.
+     * @param snapshotFile the file the latest snapshot is kept in.
+     * @param intervalMillis the milliseconds between background snapshots, or 0 to only snapshot on request.
+     * @param recoveryLogFile the file each start-up's recovery report is appended to.
+     */
+    public OrderBookSnapshotter(OrderBookEngine engine, String snapshotFile, long intervalMillis,
+            String recoveryLogFile) {
+        this.engine = engine;
+        this.snapshotFile = Paths.get(snapshotFile);
+        this.intervalMillis = intervalMillis;
+        this.recoveryLogFile = recoveryLogFile;
+    }
+
+    /**
+     * @param tradeLog the trade history fed from the journal's trades, to sync before the journal
+     * files covered by a snapshot are deleted.
+     */
+    public void setTradeLog(TradeDaoMappedImpl tradeLog) {
+        this.tradeLog = tradeLog;
+    }
+
+    /**
+     * Recovers the book and then starts taking snapshots in the background.
+     */
+    public void start() throws PersistenceException {
+        recover();
+        if (intervalMillis > 0) {
+            snapshotThread = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "order-book-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotThread.scheduleWithFixedDelay(this::snapshotInBackground, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rebuilds the book from the latest snapshot and the journal tail after it, and appends a
+     * report of the recovery time to the recovery log.
+     * @return the report describing the recovery.
+     */
+    public RecoveryReport recover() throws PersistenceException {
+        long start = System.nanoTime();
+        engine.clear();
+        long snapshotSequence = 0;
+        int snapshotOrders = 0;
+        if (Files.exists(snapshotFile)) {
+            synchronized (engine) {
+                snapshotSequence = loadSnapshot();
+            }
+            snapshotOrders = engine.getBids().size() + engine.getAsks().size();
+        }
+        long snapshotLoaded = System.nanoTime();
+        long journalEvents = engine.replayJournal(snapshotSequence);
+        long end = System.nanoTime();
+
+        recoveryReport = new RecoveryReport(snapshotOrders, snapshotSequence,
+                TimeUnit.NANOSECONDS.toMillis(snapshotLoaded - start), journalEvents,
+                TimeUnit.NANOSECONDS.toMillis(end - snapshotLoaded),
+                engine.getBids().size() + engine.getAsks().size());
+        logRecovery(recoveryReport);
+        return recoveryReport;
+    }
+
+    /**
+     * @return the report of the last recovery, or null if the book has not been recovered.
+     */
+    public RecoveryReport getRecoveryReport() {
+        return recoveryReport;
+    }
+
+    /**
+     * Copies the book and rolls the journal at a single sequence, then writes the copy to the
+     * snapshot file and deletes the journal files it covers.
+     * @return the journal sequence the snapshot was taken at.
+     */
+    public synchronized long snapshot() throws PersistenceException {
+        long sequence;
+        OrderRecords bids;
+        OrderRecords asks;
+        int orderIdSequence;
+        int tradeIdSequence;
+        synchronized (engine) {
+            OrderBookJournal journal = engine.getJournal();
+            sequence = journal == null ? 0 : journal.roll();
+            bids = new OrderRecords(engine.getBids());
+            asks = new OrderRecords(engine.getAsks());
+            orderIdSequence = Order.getGlobalId();
+            tradeIdSequence = Trade.getGlobalId();
+        }
+
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(PriceTicks.getTickSize().toPlainString());
+            out.writeLong(sequence);
+            out.writeInt(orderIdSequence);
+            out.writeInt(tradeIdSequence);
+            bids.write(out);
+            asks.write(out);
+            out.flush();
+            channel.force(true);
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not write the order book snapshot", e);
+        }
+        try {
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The rename is only durable once the directory holding it is forced.
+            try (FileChannel directory = FileChannel.open(snapshotFile.toAbsolutePath().getParent(),
+                    StandardOpenOption.READ)) {
+                directory.force(true);
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not replace the order book snapshot", e);
+        }
+        if (engine.getJournal() != null) {
+            if (tradeLog != null) {
+                tradeLog.sync();
+            }
+            engine.getJournal().deleteArchives(sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * @return the number of background snapshots that have failed.
+     */
+    public synchronized long getFailedSnapshots() {
+        return failedSnapshots;
+    }
+
+    /**
+     * Stops the background snapshots, waiting for one in progress, and takes a final snapshot.
+     * @throws PersistenceException if that snapshot, or an earlier background one, failed.
+     */
+    public void close() throws PersistenceException {
+        if (snapshotThread != null) {
+            snapshotThread.shutdown();
+            try {
+                snapshotThread.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            snapshotThread = null;
+        }
+        PersistenceException failure;
+        synchronized (this) {
+            failure = snapshotFailure;
+            snapshotFailure = null;
+        }
+        try {
+            snapshot();
+        }
+        catch (PersistenceException e) {
+            if (failure != null) {
+                e.addSuppressed(failure);
+            }
+            throw e;
+        }
+        if (failure != null) {
+            throw new PersistenceException("An earlier snapshot of the order book to " + snapshotFile + " failed",
+                    failure);
+        }
+    }
+
+    /**
+     * The journal still holds every event, so after a failure the next snapshot simply covers more of
+     * it; the failure is counted and the first one is reported by close().
+     */
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        }
+        catch (PersistenceException e) {
+            synchronized (this) {
+                failedSnapshots++;
+                if (snapshotFailure == null) {
+                    snapshotFailure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the journal sequence the snapshot was taken at.
+     */
+    private long loadSnapshot() throws PersistenceException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new PersistenceException("The order book snapshot " + snapshotFile + " is not a supported snapshot");
+            }
+            BigDecimal tickSize = new BigDecimal(in.readUTF());
+            if (tickSize.compareTo(PriceTicks.getTickSize()) != 0) {
+                throw new PersistenceException("The order book snapshot was written with a tick size of " + tickSize
+                        + " but the tick size is " + PriceTicks.getTickSize());
+            }
+            long sequence = in.readLong();
+            Order.advanceGlobalId(in.readInt());
+            Trade.advanceGlobalId(in.readInt());
+            OrderRecords.read(in, engine.getBids(), engine.getSymbol(), true);
+            OrderRecords.read(in, engine.getAsks(), engine.getSymbol(), false);
+            return sequence;
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not load the order book snapshot", e);
+        }
+    }
+
+    private void logRecovery(RecoveryReport report) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(recoveryLogFile, true))) {
+            out.println(LocalDateTime.now() + " " + report);
+        }
+        catch (IOException e) {
+            // The report is informational, so failing to log it must not stop start-up.
+        }
+    }
+
+    /**
+     * The fields of every order on one side, copied in priority order so the copy can be encoded
+     * after the engine's monitor is released.
+     */
+    private static class OrderRecords {
+
+        private final int lastOrderId;
+        private final int[] ids;
+        private final long[] prices;
+        private final int[] quantities;
+
+        OrderRecords(OrderBookSide side) {
+            List<Order> orders = side.getOrders();
+            lastOrderId = side.getLastOrderId();
+            ids = new int[orders.size()];
+            prices = new long[orders.size()];
+            quantities = new int[orders.size()];
+            for (int i = 0; i < orders.size(); i++) {
+                ids[i] = orders.get(i).getId();
+                prices[i] = orders.get(i).getPriceTicks();
+                quantities[i] = orders.get(i).getQuantity();
+            }
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(lastOrderId);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeInt(ids[i]);
+                out.writeLong(prices[i]);
+                out.writeInt(quantities[i]);
+            }
+        }
+
+        static void read(DataInputStream in, OrderBookSide side, String symbol, boolean bid) throws IOException {
+            int lastOrderId = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                long price = in.readLong();
+                int quantity = in.readInt();
+                side.add(bid ? new BuyOrder(symbol, id, price, quantity) : new SellOrder(symbol, id, price, quantity));
+            }
+            side.setLastOrderId(Math.max(side.getLastOrderId(), lastOrderId));
+        }
+    }
+}
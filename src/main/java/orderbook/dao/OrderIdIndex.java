@@ -0,0 +1,104 @@
+package orderbook.dao;
+
+import java.util.Arrays;
+
+/**
+ * The index of a side's resting orders by id: an open-addressing hash table from int order ids to
+ * the orders' queue nodes. Unlike a HashMap it neither boxes the ids nor allocates an entry per
+ * order, so looking up, adding and removing orders allocates nothing except when the table grows.
+ *
+ * Collisions are resolved by linear probing, and removal shifts the following entries of the probe
+ * run back rather than leaving tombstones, so lookups never slow down as orders come and go.
+ */
+class OrderIdIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private PriceLevel.Node[] nodes = new PriceLevel.Node[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+    private int size;
+
+    PriceLevel.Node get(int id) {
+        for (int slot = slot(id); nodes[slot] != null; slot = (slot + 1) & mask) {
+            if (ids[slot] == id) {
+                return nodes[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indexes a node by its order's id, replacing any node already indexed under the id.
+     */
+    void put(int id, PriceLevel.Node node) {
+        int slot = slot(id);
+        while (nodes[slot] != null) {
+            if (ids[slot] == id) {
+                nodes[slot] = node;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        nodes[slot] = node;
+        if (++size > nodes.length / 2) {
+            resize(nodes.length * 2);
+        }
+    }
+
+    /**
+     * @return the node that was indexed under the id, or null if there was none.
+     */
+    PriceLevel.Node remove(int id) {
+        int slot = slot(id);
+        while (nodes[slot] != null && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        PriceLevel.Node removed = nodes[slot];
+        if (removed == null) {
+            return null;
+        }
+        // Moves back every later entry of the run that may not sit after the emptied slot.
+        int empty = slot;
+        for (slot = (slot + 1) & mask; nodes[slot] != null; slot = (slot + 1) & mask) {
+            int home = slot(ids[slot]);
+            if (((slot - home) & mask) >= ((slot - empty) & mask)) {
+                ids[empty] = ids[slot];
+                nodes[empty] = nodes[slot];
+                empty = slot;
+            }
+        }
+        nodes[empty] = null;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(nodes, null);
+        size = 0;
+    }
+
+    private int slot(int id) {
+        int hash = id * 0x9E3779B9;     // Sequential ids are spread over the table.
+        return (hash ^ hash >>> 16) & mask;
+    }
+
+    private void resize(int capacity) {
+        int[] oldIds = ids;
+        PriceLevel.Node[] oldNodes = nodes;
+        ids = new int[capacity];
+        nodes = new PriceLevel.Node[capacity];
+        mask = capacity - 1;
+        size = 0;
+        for (int i = 0; i < oldNodes.length; i++) {
+            if (oldNodes[i] != null) {
+                put(oldIds[i], oldNodes[i]);
+            }
+        }
+    }
+}
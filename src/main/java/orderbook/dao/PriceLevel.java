@@ -0,0 +1,182 @@
+package orderbook.dao;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import orderbook.dto.Order;
+
+/**
+ * A single price level of the order book. Orders resting at the same price are held in a
+ * FIFO queue so that the earliest order at a price is always the first to be filled.
+ *
+ * The queue is a doubly linked list whose nodes are handed back to the caller when an order is
+ * queued, so an order whose node is known, such as one found through the side's index of order
+ * ids, is unlinked in O(1) wherever it sits in the queue. Nodes of orders that have left the book
+ * can be handed back in to queue new orders, so a busy book does not allocate a node per order.
+ */
+public class PriceLevel {
+
+    private final long price;
+    private Node head;
+    private Node tail;
+    private int orderCount;
+    private long totalQuantity;
+
+    public PriceLevel(long price) {
+        this.price = price;
+    }
+
+    /**
+     * @return the price of the level in ticks.
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the total resting quantity of every order at this price.
+     */
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public boolean isEmpty() {
+        return orderCount == 0;
+    }
+
+    /**
+     * @return the order with time priority at this price, or null if the level is empty.
+     */
+    public Order peek() {
+        return head == null ? null : head.order;
+    }
+
+    /**
+     * Adds an order to the back of the queue.
+     * @param order the order to be queued at this price.
+     * @param node a free node to hold the order, or null to allocate one.
+     * @return the node holding the order, by which it can later be removed in O(1).
+     */
+    Node add(Order order, Node node) {
+        if (node == null) {
+            node = new Node();
+        }
+        node.level = this;
+        node.order = order;
+        if (tail == null) {
+            head = node;
+        }
+        else {
+            tail.next = node;
+            node.previous = tail;
+        }
+        tail = node;
+        orderCount++;
+        totalQuantity += order.getQuantity();
+        return node;
+    }
+
+    /**
+     * Removes an order from the queue, matching on Order.equals. This walks the queue; orders
+     * indexed by their node are removed with remove(Node) instead.
+     * @param order the order to be removed.
+     * @return the removed order as held by the level, or null if it was not queued here.
+     */
+    public Order remove(Order order) {
+        for (Node node = head; node != null; node = node.next) {
+            if (node.order.equals(order)) {
+                remove(node);
+                return node.order;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Unlinks a node of this level from the queue.
+     */
+    void remove(Node node) {
+        if (node.previous == null) {
+            head = node.next;
+        }
+        else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.previous;
+        }
+        else {
+            node.next.previous = node.previous;
+        }
+        node.previous = null;
+        node.next = null;
+        orderCount--;
+        totalQuantity -= node.order.getQuantity();
+    }
+
+    /**
+     * Changes the quantity of a queued order in place, so the order keeps its position in the queue.
+     * @param order the queued order.
+     * @param quantity the new quantity of the order.
+     */
+    public void updateQuantity(Order order, int quantity) {
+        totalQuantity += quantity - order.getQuantity();
+        order.setQuantity(quantity);
+    }
+
+    public Iterable<Order> getOrders() {
+        return () -> new Iterator<Order>() {
+            private Node next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Order order = next.order;
+                next = next.next;
+                return order;
+            }
+        };
+    }
+
+    /**
+     * An order's place in the queue of its price level.
+     */
+    static final class Node {
+
+        PriceLevel level;
+        Order order;
+        private Node previous;
+        private Node next;
+
+        /**
+         * Empties a node that has been removed from its level and pushes it onto a free list.
+         * @return the new head of the free list.
+         */
+        Node free(Node freeList) {
+            level = null;
+            order = null;
+            next = freeList;
+            return this;
+        }
+
+        /**
+         * Pops this node off the head of a free list.
+         * @return the new head of the free list.
+         */
+        Node take() {
+            Node freeList = next;
+            next = null;
+            return freeList;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package orderbook.dao;
+
+/**
+ * Describes how the order book was rebuilt on start-up: how much came from the snapshot, how much
+ * from the journal tail, and how long each step took.
+ */
+public class RecoveryReport {
+
+    private final int snapshotOrders;
+    private final long snapshotSequence;
+    private final long snapshotMillis;
+    private final long journalEvents;
+    private final long journalMillis;
+    private final int bookSize;
+
+    public RecoveryReport(int snapshotOrders, long snapshotSequence, long snapshotMillis, long journalEvents,
+            long journalMillis, int bookSize) {
+        this.snapshotOrders = snapshotOrders;
+        this.snapshotSequence = snapshotSequence;
+        this.snapshotMillis = snapshotMillis;
+        this.journalEvents = journalEvents;
+        this.journalMillis = journalMillis;
+        this.bookSize = bookSize;
+    }
+
+    public int getSnapshotOrders() {
+        return snapshotOrders;
+    }
+
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    public long getSnapshotMillis() {
+        return snapshotMillis;
+    }
+
+    public long getJournalEvents() {
+        return journalEvents;
+    }
+
+    public long getJournalMillis() {
+        return journalMillis;
+    }
+
+    public int getBookSize() {
+        return bookSize;
+    }
+
+    public long getTotalMillis() {
+        return snapshotMillis + journalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Recovered " + bookSize + " resting orders in " + getTotalMillis() + "ms: "
+                + snapshotOrders + " orders from the snapshot at sequence " + snapshotSequence
+                + " in " + snapshotMillis + "ms, " + journalEvents + " journal events in " + journalMillis + "ms";
+    }
+}
@@ -1,7 +1,9 @@
 package orderbook.dao;
 
 import java.util.List;
+import orderbook.dto.DepthLevel;
 import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
 import orderbook.dto.SellOrder;
 import orderbook.exceptions.PersistenceException;
 
@@ -9,12 +11,59 @@ public interface SellOrderDao {
     
     boolean addSellOrder(SellOrder sellOrder) throws PersistenceException;
     
+    /**
+     * Adds many sell orders at once, as addSellOrder does one.
+     */
+    void addSellOrders(List<Order> sellOrders) throws PersistenceException;
+    
     List<Order> getAllSellOrders() throws PersistenceException;
     
+    Order getBestSellOrder() throws PersistenceException;
+    
+    /**
+     * @return the sell quantity an incoming order with the given limit price can trade against,
+     * counted only until the wanted quantity is reached.
+     */
+    long getAvailableSellQuantity(long limitPriceTicks, long quantity) throws PersistenceException;
+    
+    /**
+     * @return the sell orders an incoming order with the given limit price trades against, in
+     * price-time priority, up to the order that fills the wanted quantity.
+     */
+    List<Order> getCrossingSellOrders(long limitPriceTicks, long quantity) throws PersistenceException;
+    
+    /**
+     * @return the aggregated sell levels, best price first, up to the given number of levels.
+     */
+    List<DepthLevel> getSellDepth(int levels) throws PersistenceException;
+    
+    OrderStats getSellOrderStats() throws PersistenceException;
+    
     void editQuantitySellOrder(Order sellOrder, int quantity) throws PersistenceException;
     
     void removeSellOrder(Order sellOrder) throws PersistenceException;
     
+    /**
+     * @return the resting sell order with the given id, or null if there is none.
+     */
+    Order getSellOrder(int id) throws PersistenceException;
+    
+    /**
+     * Removes the resting sell order with the given id.
+     * @return the cancelled order, or null if there is none with the id.
+     */
+    Order cancelSellOrder(int id) throws PersistenceException;
+    
+    /**
+     * Changes the price and quantity of the resting sell order with the given id. A reduction in
+     * quantity at the same price keeps the order's time priority; any other change requeues it at the
+     * back of its new price level.
+     * @return the amended order, or null if there is none with the id.
+     */
+    Order amendSellOrder(int id, long priceTicks, int quantity) throws PersistenceException;
+    
+    void fillSellOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity) throws PersistenceException;
+    
     int getLastSellOrderId() throws PersistenceException;
     
 }
@@ -9,21 +9,34 @@ import java.io.PrintWriter;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import orderbook.dto.DepthLevel;
 import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
 import orderbook.dto.SellOrder;
 import orderbook.exceptions.PersistenceException;
+import orderbook.jfr.DaoIoEvent;
 
 public class SellOrderDaoFileImpl implements SellOrderDao {
     
-    private final String SELL_ORDER_FILE = "sellOrderFile.txt";
+    private final String SELL_ORDER_FILE;
     private final String DELIMITER = "::";
     
     private List<Order> sellOrders = new ArrayList<>();
+
+    public SellOrderDaoFileImpl() {
+        this("sellOrderFile.txt");
+    }
+
+    public SellOrderDaoFileImpl(String sellOrderFile) {
+        SELL_ORDER_FILE = sellOrderFile;
+    }
     
     Comparator<Order> compareByPrice = (Order o1, Order o2) ->
-            o1.getPrice().compareTo(o2.getPrice());
+            Long.compare(o1.getPriceTicks(), o2.getPriceTicks());
 
     @Override
     public boolean addSellOrder(SellOrder sellOrder) throws PersistenceException{
@@ -35,12 +48,93 @@ public class SellOrderDaoFileImpl implements SellOrderDao {
         return outcome;
     }
 
+    /**
+     * Adds the orders with a single load, sort and rewrite of the order file.
+     */
+    @Override
+    public void addSellOrders(List<Order> newSellOrders) throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        sellOrders.addAll(newSellOrders);
+        sellOrders.sort(compareByPrice.reversed());
+        writeSellOrders();
+    }
+
     @Override
     public List<Order> getAllSellOrders() throws PersistenceException {
         sellOrders.clear();
         loadSellOrders();
         return sellOrders;
     }
+    
+    @Override
+    public Order getBestSellOrder() throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        // The file is kept sorted highest price first, so the first order at the lowest price is the best ask.
+        return sellOrders.stream()
+                         .min(compareByPrice)
+                         .orElse(null);
+    }
+    
+    @Override
+    public long getAvailableSellQuantity(long limitPriceTicks, long quantity) throws PersistenceException {
+        long available = 0;
+        for (Order sellOrder : getCrossingSellOrders(limitPriceTicks, quantity)) {
+            available += sellOrder.getQuantity();
+        }
+        return available;
+    }
+    
+    @Override
+    public List<Order> getCrossingSellOrders(long limitPriceTicks, long quantity) throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        // The file is kept sorted highest price first; the stable sort keeps time priority within a price.
+        List<Order> lowestFirst = new ArrayList<>(sellOrders);
+        lowestFirst.sort(compareByPrice);
+        List<Order> crossingOrders = new ArrayList<>();
+        long collected = 0;
+        for (Order sellOrder : lowestFirst) {
+            if (collected >= quantity || sellOrder.getPriceTicks() > limitPriceTicks) {
+                break;
+            }
+            crossingOrders.add(sellOrder);
+            collected += sellOrder.getQuantity();
+        }
+        return crossingOrders;
+    }
+    
+    /**
+     * Aggregates the orders of the file into price levels in one pass over the sorted orders.
+     */
+    @Override
+    public List<DepthLevel> getSellDepth(int levels) throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        List<Order> bestFirst = new ArrayList<>(sellOrders);
+        bestFirst.sort(compareByPrice);
+        List<DepthLevel> depth = new ArrayList<>();
+        int index = 0;
+        while (index < bestFirst.size() && depth.size() < levels) {
+            long price = bestFirst.get(index).getPriceTicks();
+            long quantity = 0;
+            int orderCount = 0;
+            for (; index < bestFirst.size() && bestFirst.get(index).getPriceTicks() == price; index++) {
+                quantity += bestFirst.get(index).getQuantity();
+                orderCount++;
+            }
+            depth.add(new DepthLevel(price, quantity, orderCount));
+        }
+        return depth;
+    }
+    
+    @Override
+    public OrderStats getSellOrderStats() throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        return OrderStats.of(sellOrders);
+    }
 
     @Override
     public void editQuantitySellOrder(Order sellOrder, int quantity) throws PersistenceException {
@@ -59,6 +153,70 @@ public class SellOrderDaoFileImpl implements SellOrderDao {
         writeSellOrders();
     }
     
+    @Override
+    public Order getSellOrder(int id) throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        return findSellOrder(id);
+    }
+    
+    @Override
+    public Order cancelSellOrder(int id) throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        Order sellOrder = findSellOrder(id);
+        if (sellOrder != null) {
+            sellOrders.remove(sellOrder);
+            writeSellOrders();
+        }
+        return sellOrder;
+    }
+    
+    /**
+     * Requeues the order behind the orders at its new price unless only its quantity goes down;
+     * the sort is stable, so an order appended to the list sorts after the orders of equal price.
+     */
+    @Override
+    public Order amendSellOrder(int id, long priceTicks, int quantity) throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        Order sellOrder = findSellOrder(id);
+        if (sellOrder == null) {
+            return null;
+        }
+        if (priceTicks != sellOrder.getPriceTicks() || quantity > sellOrder.getQuantity()) {
+            sellOrders.remove(sellOrder);
+            sellOrders.add(sellOrder);
+        }
+        sellOrder.setPriceTicks(priceTicks);
+        sellOrder.setQuantity(quantity);
+        sellOrders.sort(compareByPrice.reversed());
+        writeSellOrders();
+        return sellOrder;
+    }
+    
+    /**
+     * Removes every filled order and reduces the partially filled order, if any, with a single
+     * load and a single rewrite of the file.
+     */
+    @Override
+    public void fillSellOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity)
+            throws PersistenceException {
+        sellOrders.clear();
+        loadSellOrders();
+        Set<Order> filled = new HashSet<>(filledOrders);
+        sellOrders.removeIf(filled::contains);
+        if (partialOrder != null) {
+            for (Order sellOrder : sellOrders) {
+                if (sellOrder.equals(partialOrder)) {
+                    sellOrder.setQuantity(remainingQuantity);
+                    break;
+                }
+            }
+        }
+        writeSellOrders();
+    }
+    
     public int getLastSellOrderId() throws PersistenceException {
         loadSellOrders();
         return sellOrders.stream()
@@ -66,17 +224,30 @@ public class SellOrderDaoFileImpl implements SellOrderDao {
                         .reduce(0, Integer::max);
     }
     
+    private Order findSellOrder(int id) {
+        for (Order sellOrder : sellOrders) {
+            if (sellOrder.getId() == id) {
+                return sellOrder;
+            }
+        }
+        return null;
+    }
+    
     private String marshallSellOrder(Order sellOrder) {
         
         String sellOrderString = sellOrder.getId() + DELIMITER;
-        sellOrderString += sellOrder.getPrice() + DELIMITER;
+        sellOrderString += sellOrder.getPrice().toPlainString() + DELIMITER;
         sellOrderString += sellOrder.getQuantity();
+        // The symbol is only written for other instruments, so files of the default book keep their format.
+        if (!sellOrder.getSymbol().equals(Order.DEFAULT_SYMBOL)) {
+            sellOrderString += DELIMITER + sellOrder.getSymbol();
+        }
         
         return sellOrderString;
     }
     
     private void writeSellOrders() throws PersistenceException {
-        
+        DaoIoEvent event = DaoIoEvent.start(getClass(), DaoIoEvent.WRITE, SELL_ORDER_FILE);
         PrintWriter out;
 
         // Handles the event that the SELL_ORDER_FILE does not exist.
@@ -95,6 +266,9 @@ public class SellOrderDaoFileImpl implements SellOrderDao {
             out.flush();                            // Ensures the line has been written to the file.
         }
         out.close(); 
+        if (event != null) {
+            event.record(sellOrders.size());
+        }
     }
     
     private SellOrder unmarshallSellOrder(String sellOrderString) {
@@ -105,10 +279,14 @@ public class SellOrderDaoFileImpl implements SellOrderDao {
         int quantity = Integer.parseInt(sellOrderArray[2]);
         
         SellOrder newSellOrder = new SellOrder(id, price, quantity);
+        if (sellOrderArray.length > 3) {
+            newSellOrder.setSymbol(sellOrderArray[3]);
+        }
         return newSellOrder;
     }
 
     private void loadSellOrders() throws PersistenceException {
+        DaoIoEvent event = DaoIoEvent.start(getClass(), DaoIoEvent.LOAD, SELL_ORDER_FILE);
         Scanner scanner;
         
         try {
@@ -133,6 +311,9 @@ public class SellOrderDaoFileImpl implements SellOrderDao {
         }
         
         scanner.close();
+        if (event != null) {
+            event.record(sellOrders.size());
+        }
     }
     
 }
@@ -0,0 +1,212 @@
+package orderbook.dao;
+
+import java.util.List;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.SellOrder;
+import orderbook.exceptions.PersistenceException;
+
+public class SellOrderDaoMemoryImpl implements SellOrderDao {
+
+    private final OrderBookEngine engine;
+    private final OrderBookSide asks;
+    private final OrderBookJournal journal;
+
+    public SellOrderDaoMemoryImpl(OrderBookEngine engine) {
+        this.engine = engine;
+        this.asks = engine.getAsks();
+        this.journal = engine.getJournal();
+    }
+
+    @Override
+    public boolean addSellOrder(SellOrder sellOrder) throws PersistenceException {
+        synchronized (engine) {
+            if (!asks.add(sellOrder)) {
+                return false;
+            }
+            if (journal != null) {
+                journal.appendAdd(OrderBookJournal.SELL, sellOrder);
+            }
+            engine.publishDepth();
+            return true;
+        }
+    }
+
+    /**
+     * Adds the orders whose ids are not already resting in one hold of the engine's lock, publishing
+     * the depth once.
+     */
+    @Override
+    public void addSellOrders(List<Order> sellOrders) throws PersistenceException {
+        synchronized (engine) {
+            for (Order sellOrder : sellOrders) {
+                if (asks.add(sellOrder) && journal != null) {
+                    journal.appendAdd(OrderBookJournal.SELL, sellOrder);
+                }
+            }
+            engine.publishDepth();
+        }
+    }
+
+    /**
+     * @return a copy of the sell side, lowest price first and in time priority within a price.
+     */
+    @Override
+    public List<Order> getAllSellOrders() throws PersistenceException {
+        synchronized (engine) {
+            return asks.getOrders();
+        }
+    }
+
+    @Override
+    public Order getBestSellOrder() throws PersistenceException {
+        synchronized (engine) {
+            return asks.getBest();
+        }
+    }
+
+    @Override
+    public long getAvailableSellQuantity(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (engine) {
+            return asks.getAvailableQuantity(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<Order> getCrossingSellOrders(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (engine) {
+            return asks.getCrossingOrders(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<DepthLevel> getSellDepth(int levels) throws PersistenceException {
+        synchronized (engine) {
+            return asks.getDepth(levels);
+        }
+    }
+
+    @Override
+    public OrderStats getSellOrderStats() throws PersistenceException {
+        synchronized (engine) {
+            return asks.getStats();
+        }
+    }
+
+    @Override
+    public void editQuantitySellOrder(Order sellOrder, int quantity) throws PersistenceException {
+        synchronized (engine) {
+            int previousQuantity = asks.updateQuantity(sellOrder, quantity);
+            if (previousQuantity >= 0 && journal != null) {
+                journal.appendReduce(OrderBookJournal.SELL, sellOrder, previousQuantity, quantity);
+            }
+            engine.publishDepth();
+        }
+    }
+
+    @Override
+    public void removeSellOrder(Order sellOrder) throws PersistenceException {
+        synchronized (engine) {
+            Order removed = asks.remove(sellOrder);
+            if (removed != null && journal != null) {
+                journal.appendRemove(OrderBookJournal.SELL, removed);
+            }
+            engine.publishDepth();
+        }
+    }
+
+    @Override
+    public Order getSellOrder(int id) throws PersistenceException {
+        synchronized (engine) {
+            return asks.get(id);
+        }
+    }
+
+    @Override
+    public Order cancelSellOrder(int id) throws PersistenceException {
+        synchronized (engine) {
+            Order removed = asks.remove(id);
+            if (removed != null && journal != null) {
+                journal.appendRemove(OrderBookJournal.SELL, removed);
+            }
+            engine.publishDepth();
+            return removed;
+        }
+    }
+
+    /**
+     * Reduces the order in place if only its quantity goes down, and otherwise removes it and adds
+     * it again at its new price, journalled as a remove and an add.
+     */
+    @Override
+    public Order amendSellOrder(int id, long priceTicks, int quantity) throws PersistenceException {
+        synchronized (engine) {
+            Order order = asks.get(id);
+            if (order == null) {
+                return null;
+            }
+            if (priceTicks == order.getPriceTicks() && quantity <= order.getQuantity()) {
+                int previousQuantity = asks.updateQuantity(order, quantity);
+                if (journal != null) {
+                    journal.appendReduce(OrderBookJournal.SELL, order, previousQuantity, quantity);
+                }
+                engine.publishDepth();
+                return order;
+            }
+            asks.remove(id);
+            if (journal != null) {
+                journal.appendRemove(OrderBookJournal.SELL, order);
+            }
+            order.setPriceTicks(priceTicks);
+            order.setQuantity(quantity);
+            asks.add(order);
+            if (journal != null) {
+                journal.appendAdd(OrderBookJournal.SELL, order);
+            }
+            engine.publishDepth();
+            return order;
+        }
+    }
+
+    /**
+     * Applies the result of a sweep: every filled order is removed and the partially filled order,
+     * if any, is reduced in place. The journal events are written as one batch.
+     */
+    @Override
+    public void fillSellOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity)
+            throws PersistenceException {
+        synchronized (engine) {
+            if (journal != null) {
+                journal.beginBatch();
+            }
+            try {
+                for (Order filledOrder : filledOrders) {
+                    Order removed = asks.remove(filledOrder);
+                    if (removed != null && journal != null) {
+                        journal.appendRemove(OrderBookJournal.SELL, removed);
+                    }
+                }
+                if (partialOrder != null) {
+                    int previousQuantity = asks.updateQuantity(partialOrder, remainingQuantity);
+                    if (previousQuantity >= 0 && journal != null) {
+                        journal.appendReduce(OrderBookJournal.SELL, partialOrder, previousQuantity, remainingQuantity);
+                    }
+                }
+            }
+            finally {
+                if (journal != null) {
+                    journal.endBatch();
+                }
+            }
+            engine.publishDepth();
+        }
+    }
+
+    @Override
+    public int getLastSellOrderId() throws PersistenceException {
+        synchronized (engine) {
+            return asks.getLastOrderId();
+        }
+    }
+}
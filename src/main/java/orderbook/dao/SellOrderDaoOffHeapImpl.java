@@ -0,0 +1,178 @@
+package orderbook.dao;
+
+import java.util.List;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.SellOrder;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * The sell side of a book held off the heap in an OffHeapOrderStore, for books too large to keep
+ * as Order objects. The book is neither journalled nor snapshotted. The orders returned are copies
+ * of the store's records.
+ */
+public class SellOrderDaoOffHeapImpl implements SellOrderDao {
+
+    private final OffHeapOrderStore asks;
+
+    public SellOrderDaoOffHeapImpl(OffHeapOrderStore asks) {
+        if (asks.isBid()) {
+            throw new IllegalArgumentException("The sell order DAO needs an ask store");
+        }
+        this.asks = asks;
+    }
+
+    /**
+     * @return false if an order with the same id is already resting, in which case the order is
+     * not added.
+     */
+    @Override
+    public boolean addSellOrder(SellOrder sellOrder) throws PersistenceException {
+        synchronized (asks) {
+            return add(sellOrder);
+        }
+    }
+
+    /**
+     * Adds the orders whose ids are not already resting.
+     */
+    @Override
+    public void addSellOrders(List<Order> sellOrders) throws PersistenceException {
+        synchronized (asks) {
+            for (Order sellOrder : sellOrders) {
+                add(sellOrder);
+            }
+        }
+    }
+
+    @Override
+    public List<Order> getAllSellOrders() throws PersistenceException {
+        synchronized (asks) {
+            return asks.getOrders();
+        }
+    }
+
+    @Override
+    public Order getBestSellOrder() throws PersistenceException {
+        synchronized (asks) {
+            return asks.getBest();
+        }
+    }
+
+    @Override
+    public long getAvailableSellQuantity(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (asks) {
+            return asks.getAvailableQuantity(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<Order> getCrossingSellOrders(long limitPriceTicks, long quantity) throws PersistenceException {
+        synchronized (asks) {
+            return asks.getCrossingOrders(limitPriceTicks, quantity);
+        }
+    }
+
+    @Override
+    public List<DepthLevel> getSellDepth(int levels) throws PersistenceException {
+        synchronized (asks) {
+            return asks.getDepth(levels);
+        }
+    }
+
+    @Override
+    public OrderStats getSellOrderStats() throws PersistenceException {
+        synchronized (asks) {
+            return asks.getStats();
+        }
+    }
+
+    @Override
+    public void editQuantitySellOrder(Order sellOrder, int quantity) throws PersistenceException {
+        synchronized (asks) {
+            Order resting = asks.get(sellOrder.getId());
+            if (resting != null && resting.getPriceTicks() == sellOrder.getPriceTicks()) {
+                asks.updateQuantity(sellOrder.getId(), quantity);
+            }
+        }
+    }
+
+    @Override
+    public void removeSellOrder(Order sellOrder) throws PersistenceException {
+        synchronized (asks) {
+            asks.remove(sellOrder);
+        }
+    }
+
+    @Override
+    public Order getSellOrder(int id) throws PersistenceException {
+        synchronized (asks) {
+            return asks.get(id);
+        }
+    }
+
+    @Override
+    public Order cancelSellOrder(int id) throws PersistenceException {
+        synchronized (asks) {
+            return asks.remove(id);
+        }
+    }
+
+    /**
+     * Reduces the order in place if only its quantity goes down, and otherwise removes it and adds
+     * it again at its new price.
+     */
+    @Override
+    public Order amendSellOrder(int id, long priceTicks, int quantity) throws PersistenceException {
+        synchronized (asks) {
+            Order order = asks.get(id);
+            if (order == null) {
+                return null;
+            }
+            if (priceTicks != order.getPriceTicks() || quantity > order.getQuantity()) {
+                asks.remove(id);
+                order.setPriceTicks(priceTicks);
+                order.setQuantity(quantity);
+                add(order);
+                return order;
+            }
+            asks.updateQuantity(id, quantity);
+            order.setQuantity(quantity);
+            return order;
+        }
+    }
+
+    /**
+     * Applies the result of a sweep: every filled order is removed and the partially filled order,
+     * if any, is reduced in place, the given order reduced along with it.
+     */
+    @Override
+    public void fillSellOrders(List<Order> filledOrders, Order partialOrder, int remainingQuantity)
+            throws PersistenceException {
+        synchronized (asks) {
+            for (Order filledOrder : filledOrders) {
+                asks.remove(filledOrder);
+            }
+            if (partialOrder != null && asks.updateQuantity(partialOrder.getId(), remainingQuantity) >= 0) {
+                partialOrder.setQuantity(remainingQuantity);
+            }
+        }
+    }
+
+    @Override
+    public int getLastSellOrderId() throws PersistenceException {
+        synchronized (asks) {
+            return asks.getLastOrderId();
+        }
+    }
+
+    private boolean add(Order sellOrder) throws PersistenceException {
+        try {
+            return asks.add(sellOrder);
+        }
+        catch (IllegalStateException e) {
+            throw new PersistenceException("Could not add the sell order " + sellOrder.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package orderbook.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * A compact, append-only archive of closed trade history, stored column by column so that an
+ * analytical scan decodes only the column it needs.
+ *
+ * The archive is a sequence of blocks, one for each hour of trades rolled into it. A block starts
+ * with a header of [int magic][int trade count][long earliest and long latest execution time]
+ * [long lowest and long highest price in ticks] followed by the byte length of each column, then
+ * holds the columns in Column order:
+ * - ids, times and prices as zigzag varints of the difference from the previous trade's
+ * - quantities as varints
+ * - symbols as varint indexes into a dictionary of the block's symbols at the start of the column
+ * Trades are sorted by execution time within a block, so the differences are small and most values
+ * take one to four bytes where the text trade file spends around sixty per trade.
+ *
+ * Blocks are only appended, and a block torn by a crash, being the last one, is dropped when the
+ * archive is next opened for appending. A trade recorded late, in an hour already archived, goes
+ * into another block of that hour on the next roll. The archive is addressed by long offsets and
+ * only one block, or one column of it, is mapped at a time, so it may grow past 2 GB.
+ *
+ * The number of trades archived in each hour is read from the block headers once and then kept up
+ * to date as blocks are appended, so a roll only compares the trade history's count of the
+ * archived hours with it, and reads back the archived ids of just the hours that gained trades.
+ *
+ * When constructed with a trade history and an interval, start() rolls the closed hours of the
+ * history into the archive in the background every intervalMillis.
+ */
+public class TradeArchive {
+
+    /**
+     * The columns of a block, in their order in it.
+     */
+    public enum Column {
+        ID, TIME, PRICE, QUANTITY, SYMBOL
+    }
+
+    private static final int MAGIC = 0x54415243;     // "TARC"
+    private static final int COLUMNS = Column.values().length;
+    private static final int COUNT = Integer.BYTES;
+    private static final int EARLIEST = 2 * Integer.BYTES;
+    private static final int LATEST = EARLIEST + Long.BYTES;
+    private static final int COLUMN_LENGTHS = 2 * Integer.BYTES + 4 * Long.BYTES;
+    private static final int HEADER_SIZE = COLUMN_LENGTHS + COLUMNS * Integer.BYTES;
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final Path archiveFile;
+    private final TradeDao tradeHistory;
+    private final long intervalMillis;
+
+    // The trades archived by block hour, with their total over the hours from 1970 on, as of an
+    // archive of archivedLength bytes; null until first read. Guarded by this.
+    private TreeMap<Long, Integer> archivedCounts;
+    private long archivedTotal;
+    private long archivedLength;
+
+    private ScheduledExecutorService rollThread;
+    private long failedRolls;                       // Guarded by this.
+    private PersistenceException rollFailure;       // The first failed background roll, guarded by this.
+
+    /**
+     * @param archiveFile the file the archive is kept in.
+     * @param tradeHistory the trade history rolled into the archive by start(), or null for none.
+     * @param intervalMillis the milliseconds between background rolls, or 0 to only roll on request.
+     */
+    public TradeArchive(String archiveFile, TradeDao tradeHistory, long intervalMillis) {
+        this.archiveFile = Paths.get(archiveFile);
+        this.tradeHistory = tradeHistory;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public TradeArchive(String archiveFile) {
+        this(archiveFile, null, 0);
+    }
+
+    /**
+     * Starts rolling the trade history into the archive in the background, the first roll being
+     * made straight away.
+     */
+    public void start() {
+        if (tradeHistory != null && intervalMillis > 0) {
+            rollThread = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "trade-archive-roll");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rollThread.scheduleWithFixedDelay(this::archiveInBackground, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the number of background rolls that have failed.
+     */
+    public synchronized long getFailedRolls() {
+        return failedRolls;
+    }
+
+    /**
+     * Stops the background rolls, waiting for one in progress.
+     * @throws PersistenceException if a background roll failed.
+     */
+    public void close() throws PersistenceException {
+        if (rollThread != null) {
+            rollThread.shutdown();
+            try {
+                rollThread.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            rollThread = null;
+        }
+        PersistenceException failure;
+        synchronized (this) {
+            failure = rollFailure;
+            rollFailure = null;
+        }
+        if (failure != null) {
+            throw new PersistenceException("An earlier roll of the trade history into " + archiveFile + " failed",
+                    failure);
+        }
+    }
+
+    /**
+     * The trades left in the history are rolled by the next roll, so a failure is counted and the
+     * first one is reported by close().
+     */
+    private void archiveInBackground() {
+        try {
+            archive(tradeHistory, LocalDateTime.now());
+        }
+        catch (PersistenceException | RuntimeException e) {
+            synchronized (this) {
+                failedRolls++;
+                if (rollFailure == null) {
+                    rollFailure = e instanceof PersistenceException ? (PersistenceException) e
+                            : new PersistenceException("Could not roll the trade history into " + archiveFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rolls the trades of every hour that closed since the last roll into the archive, one block
+     * per hour, along with any trades recorded since then in the hours already archived.
+     * @param until trades executed from this time on are left for a later roll; it is rounded down
+     * to the hour.
+     * @return the number of trades archived.
+     */
+    public synchronized int archive(TradeDao tradeHistory, LocalDateTime until) throws PersistenceException {
+        long end = Math.floorDiv(Trade.toExecutionNanos(until), TradeSegments.PARTITION_NANOS)
+                * TradeSegments.PARTITION_NANOS;
+        TreeMap<Long, Integer> counts = archivedCounts();
+        long archivedEnd = counts.isEmpty() || counts.lastKey() < 0 ? 0
+                : (counts.lastKey() + 1) * TradeSegments.PARTITION_NANOS;
+
+        List<Trade> trades = new ArrayList<>();
+        // The summaries of the history answer whether the archived hours have gained trades, and
+        // only then which of them.
+        if (archivedEnd > 0 && count(tradeHistory, 0, archivedEnd) != archivedTotal) {
+            long gapStart = 0;
+            for (Map.Entry<Long, Integer> hour : counts.tailMap(0L).entrySet()) {
+                long hourStart = hour.getKey() * TradeSegments.PARTITION_NANOS;
+                long hourEnd = hourStart + TradeSegments.PARTITION_NANOS;
+                if (gapStart < hourStart && count(tradeHistory, gapStart, hourStart) > 0) {
+                    trades.addAll(tradeHistory.getTrades(time(gapStart), time(hourStart)));
+                }
+                if (count(tradeHistory, hourStart, hourEnd) != hour.getValue()) {
+                    Set<Integer> archivedIds = archivedIds(hour.getKey());
+                    for (Trade trade : tradeHistory.getTrades(time(hourStart), time(hourEnd))) {
+                        if (!archivedIds.contains(trade.getTradeId())) {
+                            trades.add(trade);
+                        }
+                    }
+                }
+                gapStart = hourEnd;
+            }
+        }
+        if (archivedEnd < end) {
+            trades.addAll(tradeHistory.getTrades(time(archivedEnd), time(end)));
+        }
+        trades.sort(Comparator.comparingLong(Trade::getExecutionNanos).thenComparingInt(Trade::getTradeId));
+        int from = 0;
+        for (int i = 1; i <= trades.size(); i++) {
+            if (i == trades.size() || partition(trades.get(i)) != partition(trades.get(from))) {
+                append(trades.subList(from, i));
+                from = i;
+            }
+        }
+        return trades.size();
+    }
+
+    private static long count(TradeDao tradeHistory, long from, long to) throws PersistenceException {
+        return tradeHistory.getTradeStats(time(from), time(to)).getCount();
+    }
+
+    private static LocalDateTime time(long nanos) {
+        return LocalDateTime.of(1970, 1, 1, 0, 0).plusNanos(nanos);
+    }
+
+    /**
+     * @return the number of trades archived in each hour, by the hour of each block's earliest trade,
+     * read from the block headers unless the archive has not changed since they were last read.
+     */
+    private TreeMap<Long, Integer> archivedCounts() throws PersistenceException {
+        long length;
+        try {
+            length = Files.exists(archiveFile) ? Files.size(archiveFile) : 0;
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not read the trade archive " + archiveFile, e);
+        }
+        if (archivedCounts == null || length != archivedLength) {
+            TreeMap<Long, Integer> counts = new TreeMap<>();
+            long[] total = new long[1];
+            forEachBlock((channel, position, header) -> {
+                long hour = Math.floorDiv(header.getLong(EARLIEST), TradeSegments.PARTITION_NANOS);
+                counts.merge(hour, header.getInt(COUNT), Integer::sum);
+                if (hour >= 0) {
+                    total[0] += header.getInt(COUNT);
+                }
+            });
+            archivedCounts = counts;
+            archivedTotal = total[0];
+            archivedLength = length;
+        }
+        return archivedCounts;
+    }
+
+    /**
+     * @return the ids of the trades archived in the blocks of the given hour.
+     */
+    private Set<Integer> archivedIds(long hour) throws PersistenceException {
+        Set<Integer> ids = new HashSet<>();
+        forEachBlock((channel, position, header) -> {
+            if (Math.floorDiv(header.getLong(EARLIEST), TradeSegments.PARTITION_NANOS) != hour) {
+                return;
+            }
+            ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, position + HEADER_SIZE,
+                    columnLength(header, Column.ID.ordinal()));
+            long id = 0;
+            for (int i = header.getInt(COUNT); i > 0; i--) {
+                id += unzigzag(readVarLong(values));
+                ids.add((int) id);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Appends the trades to the archive as one block, in execution time order.
+     */
+    public synchronized void append(List<Trade> trades) throws PersistenceException {
+        if (trades.isEmpty()) {
+            return;
+        }
+        List<Trade> sorted = new ArrayList<>(trades);
+        sorted.sort(Comparator.comparingLong(Trade::getExecutionNanos).thenComparingInt(Trade::getTradeId));
+        ByteArrayOutputStream[] columns = new ByteArrayOutputStream[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = new ByteArrayOutputStream();
+        }
+        Map<String, Integer> symbols = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (Trade trade : sorted) {
+            symbols.computeIfAbsent(trade.getSymbol(), symbol -> {
+                dictionary.add(symbol);
+                return dictionary.size() - 1;
+            });
+        }
+        writeVarLong(columns[Column.SYMBOL.ordinal()], dictionary.size());
+        for (String symbol : dictionary) {
+            byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(columns[Column.SYMBOL.ordinal()], bytes.length);
+            columns[Column.SYMBOL.ordinal()].write(bytes, 0, bytes.length);
+        }
+        long id = 0;
+        long time = 0;
+        long price = 0;
+        long lowPrice = Long.MAX_VALUE;
+        long highPrice = Long.MIN_VALUE;
+        for (Trade trade : sorted) {
+            writeVarLong(columns[Column.ID.ordinal()], zigzag(trade.getTradeId() - id));
+            writeVarLong(columns[Column.TIME.ordinal()], zigzag(trade.getExecutionNanos() - time));
+            writeVarLong(columns[Column.PRICE.ordinal()], zigzag(trade.getPriceTicks() - price));
+            writeVarLong(columns[Column.QUANTITY.ordinal()], trade.getQuantity());
+            writeVarLong(columns[Column.SYMBOL.ordinal()], symbols.get(trade.getSymbol()));
+            id = trade.getTradeId();
+            time = trade.getExecutionNanos();
+            price = trade.getPriceTicks();
+            lowPrice = Math.min(lowPrice, price);
+            highPrice = Math.max(highPrice, price);
+        }
+
+        int length = HEADER_SIZE;
+        for (ByteArrayOutputStream column : columns) {
+            length += column.size();
+        }
+        ByteBuffer block = ByteBuffer.allocate(length);
+        block.putInt(MAGIC).putInt(sorted.size())
+                .putLong(sorted.get(0).getExecutionNanos()).putLong(time)
+                .putLong(lowPrice).putLong(highPrice);
+        for (ByteArrayOutputStream column : columns) {
+            block.putInt(column.size());
+        }
+        for (ByteArrayOutputStream column : columns) {
+            block.put(column.toByteArray());
+        }
+        block.flip();
+        long hour = partition(sorted.get(0));
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long validLength = validLength(channel);
+            if (archivedCounts != null && validLength != archivedLength) {
+                archivedCounts = null;      // Changed by another archive, so read back on the next roll.
+            }
+            channel.truncate(validLength);     // Drops a block torn by a crash.
+            channel.position(channel.size());
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+            channel.force(false);
+            if (archivedCounts != null) {
+                archivedCounts.merge(hour, sorted.size(), Integer::sum);
+                if (hour >= 0) {
+                    archivedTotal += sorted.size();
+                }
+                archivedLength = channel.size();
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not append to the trade archive " + archiveFile, e);
+        }
+    }
+
+    /**
+     * Decodes a single column of every archived trade, in archive order, without reading the
+     * other columns.
+     * @param column ID, TIME (nanoseconds since 1970-01-01T00:00, see Trade), PRICE (in ticks),
+     * QUANTITY, or SYMBOL (the index of the symbol in its block's dictionary).
+     */
+    public void scan(Column column, LongConsumer consumer) throws PersistenceException {
+        forEachBlock((channel, position, header) -> {
+            long columnStart = position + HEADER_SIZE;
+            for (int i = 0; i < column.ordinal(); i++) {
+                columnStart += columnLength(header, i);
+            }
+            ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, columnStart,
+                    columnLength(header, column.ordinal()));
+            if (column == Column.SYMBOL) {
+                skipDictionary(values);
+            }
+            boolean delta = column == Column.ID || column == Column.TIME || column == Column.PRICE;
+            int count = header.getInt(COUNT);
+            long value = 0;
+            for (int i = 0; i < count; i++) {
+                value = delta ? value + unzigzag(readVarLong(values)) : readVarLong(values);
+                consumer.accept(value);
+            }
+        });
+    }
+
+    /**
+     * @return the archived trades executed from from, inclusive, until to, exclusive, skipping the
+     * blocks outside the window by their headers.
+     */
+    public List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        long fromNanos = Trade.toExecutionNanos(from);
+        long toNanos = Trade.toExecutionNanos(to);
+        List<Trade> trades = new ArrayList<>();
+        forEachBlock((channel, position, header) -> {
+            if (header.getLong(LATEST) < fromNanos || header.getLong(EARLIEST) >= toNanos) {
+                return;
+            }
+            ByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, blockLength(header));
+            for (Trade trade : readBlock(block)) {
+                if (trade.getExecutionNanos() >= fromNanos && trade.getExecutionNanos() < toNanos) {
+                    trades.add(trade);
+                }
+            }
+        });
+        return trades;
+    }
+
+    /**
+     * @return the execution time of the latest archived trade in nanoseconds, or Long.MIN_VALUE
+     * if the archive is empty.
+     */
+    public long getLatestTime() throws PersistenceException {
+        long[] latest = {Long.MIN_VALUE};
+        forEachBlock((channel, position, header) -> latest[0] = Math.max(latest[0], header.getLong(LATEST)));
+        return latest[0];
+    }
+
+    private interface BlockVisitor {
+        /**
+         * @param position the offset of the block in the archive.
+         * @param header the block's header, only valid during the visit.
+         */
+        void visit(FileChannel channel, long position, ByteBuffer header) throws IOException;
+    }
+
+    /**
+     * Visits the archive's complete blocks in order, reading only their headers.
+     */
+    private void forEachBlock(BlockVisitor visitor) throws PersistenceException {
+        if (!Files.exists(archiveFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            long position = 0;
+            long next;
+            while ((next = nextBlock(channel, position, header)) >= 0) {
+                visitor.visit(channel, position, header);
+                position = next;
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not read the trade archive " + archiveFile, e);
+        }
+    }
+
+    /**
+     * @param block the block, from its header on.
+     */
+    private static List<Trade> readBlock(ByteBuffer block) {
+        int count = block.getInt(COUNT);
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+        int columnStart = HEADER_SIZE;
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = block.duplicate();
+            columns[i].position(columnStart);
+            columnStart += columnLength(block, i);
+        }
+        ByteBuffer symbolColumn = columns[Column.SYMBOL.ordinal()];
+        String[] dictionary = new String[(int) readVarLong(symbolColumn)];
+        for (int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[(int) readVarLong(symbolColumn)];
+            symbolColumn.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        List<Trade> trades = new ArrayList<>(count);
+        long id = 0;
+        long time = 0;
+        long price = 0;
+        for (int i = 0; i < count; i++) {
+            id += unzigzag(readVarLong(columns[Column.ID.ordinal()]));
+            time += unzigzag(readVarLong(columns[Column.TIME.ordinal()]));
+            price += unzigzag(readVarLong(columns[Column.PRICE.ordinal()]));
+            Trade trade = new Trade();
+            trade.setTradeId((int) id);
+            trade.setExecutionTime(LocalDateTime.of(1970, 1, 1, 0, 0).plusNanos(time));
+            trade.setPriceTicks(price);
+            trade.setQuantity((int) readVarLong(columns[Column.QUANTITY.ordinal()]));
+            trade.setSymbol(dictionary[(int) readVarLong(symbolColumn)]);
+            trades.add(trade);
+        }
+        return trades;
+    }
+
+    /**
+     * @return the length of the archive's complete blocks.
+     */
+    private static long validLength(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        long next;
+        while ((next = nextBlock(channel, position, header)) >= 0) {
+            position = next;
+        }
+        return position;
+    }
+
+    /**
+     * Reads the header of the block at position into header.
+     * @return the offset after the block, or -1 if no complete block starts at position.
+     */
+    private static long nextBlock(FileChannel channel, long position, ByteBuffer header) throws IOException {
+        header.clear();
+        while (header.hasRemaining()) {
+            if (channel.read(header, position + header.position()) < 0) {
+                return -1;
+            }
+        }
+        if (header.getInt(0) != MAGIC) {
+            return -1;
+        }
+        long next = position + blockLength(header);
+        return next <= channel.size() ? next : -1;
+    }
+
+    private static int columnLength(ByteBuffer header, int column) {
+        return header.getInt(COLUMN_LENGTHS + column * Integer.BYTES);
+    }
+
+    private static long blockLength(ByteBuffer header) {
+        long length = HEADER_SIZE;
+        for (int i = 0; i < COLUMNS; i++) {
+            length += columnLength(header, i);
+        }
+        return length;
+    }
+
+    private static void skipDictionary(ByteBuffer symbolColumn) {
+        long symbols = readVarLong(symbolColumn);
+        for (long i = 0; i < symbols; i++) {
+            int length = (int) readVarLong(symbolColumn);
+            symbolColumn.position(symbolColumn.position() + length);
+        }
+    }
+
+    private static long partition(Trade trade) {
+        return Math.floorDiv(trade.getExecutionNanos(), TradeSegments.PARTITION_NANOS);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+}
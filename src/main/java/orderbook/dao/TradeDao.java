@@ -2,7 +2,10 @@ package orderbook.dao;
 
 import orderbook.dto.Trade;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import orderbook.dto.TradeStats;
 import orderbook.exceptions.PersistenceException;
 
 public interface TradeDao {
@@ -13,7 +16,40 @@ public interface TradeDao {
    
    List<Trade> getTrades() throws PersistenceException;
    
+   /**
+    * @return the trades executed from from, inclusive, until to, exclusive.
+    */
+   List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException;
+   
+   /**
+    * Passes the trades executed from from, inclusive, until to, exclusive, to the consumer. A DAO
+    * that can read its history piecemeal does so instead of loading the window into one list.
+    */
+   default void forEachTrade(LocalDateTime from, LocalDateTime to, Consumer<Trade> consumer)
+           throws PersistenceException {
+      getTrades(from, to).forEach(consumer);
+   }
+   
+   /**
+    * @return the trades executed at prices from lowPriceTicks to highPriceTicks, inclusive.
+    */
+   List<Trade> getTradesByPrice(long lowPriceTicks, long highPriceTicks) throws PersistenceException;
+   
+   /**
+    * @return the count, volume, low, high and VWAP of the trades executed from from, inclusive,
+    * until to, exclusive.
+    */
+   TradeStats getTradeStats(LocalDateTime from, LocalDateTime to) throws PersistenceException;
+   
    void addTrade(Trade trade)throws PersistenceException;
    
+   void addTrades(List<Trade> trades) throws PersistenceException;
+   
    int getLastTradeId() throws PersistenceException;
+
+   /**
+    * @return true if the DAO keeps the Trade objects added to it, which must then never be reused
+    * for other trades; false if it only copies them.
+    */
+   boolean retainsTrades();
 }
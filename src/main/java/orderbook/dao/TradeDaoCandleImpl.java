@@ -0,0 +1,93 @@
+package orderbook.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Adds every new trade to the candles of a CandleAggregator once the TradeDao that keeps the trade
+ * history has recorded it.
+ */
+public class TradeDaoCandleImpl implements TradeDao {
+
+    private final CandleAggregator candles;
+    private final TradeDao tradeDao;
+
+    public TradeDaoCandleImpl(CandleAggregator candles, TradeDao tradeDao) {
+        this.candles = candles;
+        this.tradeDao = tradeDao;
+    }
+
+    /**
+     * Rebuilds the candles from the trade history, for when the application starts.
+     */
+    public void rebuild() throws PersistenceException {
+        candles.rebuild(tradeDao);
+    }
+
+    @Override
+    public void addTrade(Trade trade) throws PersistenceException {
+        tradeDao.addTrade(trade);
+        candles.add(trade);
+    }
+
+    @Override
+    public void addTrades(List<Trade> trades) throws PersistenceException {
+        tradeDao.addTrades(trades);
+        for (int i = 0; i < trades.size(); i++) {
+            candles.add(trades.get(i));
+        }
+    }
+
+    @Override
+    public void logTrade(Trade trade) throws PersistenceException {
+        tradeDao.logTrade(trade);
+    }
+
+    @Override
+    public Trade getTrade(int id) throws PersistenceException {
+        return tradeDao.getTrade(id);
+    }
+
+    @Override
+    public List<Trade> getTrades() throws PersistenceException {
+        return tradeDao.getTrades();
+    }
+
+    @Override
+    public List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        return tradeDao.getTrades(from, to);
+    }
+
+    @Override
+    public void forEachTrade(LocalDateTime from, LocalDateTime to, Consumer<Trade> consumer)
+            throws PersistenceException {
+        tradeDao.forEachTrade(from, to, consumer);
+    }
+
+    @Override
+    public List<Trade> getTradesByPrice(long lowPriceTicks, long highPriceTicks) throws PersistenceException {
+        return tradeDao.getTradesByPrice(lowPriceTicks, highPriceTicks);
+    }
+
+    @Override
+    public TradeStats getTradeStats(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        return tradeDao.getTradeStats(from, to);
+    }
+
+    @Override
+    public int getLastTradeId() throws PersistenceException {
+        return tradeDao.getLastTradeId();
+    }
+
+    /**
+     * The candles only copy the trades' prices, quantities and times.
+     */
+    @Override
+    public boolean retainsTrades() {
+        return tradeDao.retainsTrades();
+    }
+}
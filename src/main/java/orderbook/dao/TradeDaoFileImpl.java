@@ -1,12 +1,20 @@
 package orderbook.dao;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -14,15 +22,30 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 
+import orderbook.dto.Order;
 import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
 import orderbook.exceptions.PersistenceException;
+import orderbook.jfr.DaoIoEvent;
 
 public class TradeDaoFileImpl implements TradeDao {
 
-    public static final String TRADE_FILE = "trades.txt";  //why public static?
+    private final String TRADE_FILE;
     private final String DELIMITER = "::";
 
    private Map<Integer,Trade> trades = new HashMap<>();
+   private final TradeFileIndex index;
+   private final TradeSegments segments;
+
+    public TradeDaoFileImpl() {
+        this("trades.txt");
+    }
+
+    public TradeDaoFileImpl(String tradeFile) {
+        TRADE_FILE = tradeFile;
+        index = new TradeFileIndex(tradeFile);
+        segments = new TradeSegments(tradeFile);
+    }
 
     @Override
     public void addTrade(Trade trade) throws PersistenceException {
@@ -30,15 +53,46 @@ public class TradeDaoFileImpl implements TradeDao {
         logTrade(trade);
     }
     
+    /**
+     * Records a batch of trades with a single open, write and flush of the trade file.
+     */
+    @Override
+    public void addTrades(List<Trade> newTrades) throws PersistenceException {
+        DaoIoEvent event = DaoIoEvent.start(getClass(), DaoIoEvent.WRITE, TRADE_FILE);
+        try (PrintWriter out = new PrintWriter(new FileWriter(TRADE_FILE, true))) {
+            for (Trade trade : newTrades) {
+                trades.put(trade.getTradeId(), trade);
+                out.println(marshallTrade(trade));
+            }
+            out.flush();
+        }
+        catch (IOException e) {
+            throw new PersistenceException(
+            "Could not save trade data",e);
+        }
+        if (event != null) {
+            event.record(newTrades.size());
+        }
+    }
+    
+    /**
+     * Looks the trade up in the trade index and reads only its line from the trade file. If the
+     * line is no longer complete, the trade file has been cut short under the index, which is then
+     * rebuilt and asked again.
+     */
     @Override
     public Trade getTrade(int id) throws PersistenceException {
-        loadTrades();
-        Trade returnTrade=null;
-        for (Trade trade:trades.values()) {
-                if (trade.getTradeId()==id)
-                    returnTrade=trade;
+        long offset = index.find(id);
+        if (offset < 0) {
+            return null;
+        }
+        String line = index.readLine(offset);
+        if (line == null) {
+            index.rebuild();
+            offset = index.find(id);
+            line = offset < 0 ? null : index.readLine(offset);
         }
-        return returnTrade;
+        return line == null ? null : unmarshallTrade(line);
     }
 
     @Override
@@ -47,33 +101,72 @@ public class TradeDaoFileImpl implements TradeDao {
         return new ArrayList<>(trades.values());
     }
     
+    /**
+     * Reads only the lines of the hourly segments of the trade file that overlap the window.
+     */
+    @Override
+    public List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        updateSegments();
+        return segments.getTrades(Trade.toExecutionNanos(from), Trade.toExecutionNanos(to), Long.MIN_VALUE,
+                Long.MAX_VALUE, this::readTrades);
+    }
+
+    /**
+     * Reads only the lines of the hourly segments of the trade file that traded in the price range.
+     */
+    @Override
+    public List<Trade> getTradesByPrice(long lowPriceTicks, long highPriceTicks) throws PersistenceException {
+        updateSegments();
+        return segments.getTrades(Long.MIN_VALUE, Long.MAX_VALUE, lowPriceTicks, highPriceTicks, this::readTrades);
+    }
+
+    /**
+     * Answers the hourly segments of the trade file inside the window from their summaries, and
+     * reads only the lines of the segments at its edges.
+     */
+    @Override
+    public TradeStats getTradeStats(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        updateSegments();
+        return segments.getStats(Trade.toExecutionNanos(from), Trade.toExecutionNanos(to), this::readTrades);
+    }
+    
+    @Override
     public int getLastTradeId() throws PersistenceException {
-        loadTrades();
-        return trades.values().stream()
-                              .map(t -> t.getTradeId())
-                              .reduce(0, Integer::max);
+        return index.getLastTradeId();
+    }
+
+    /**
+     * Added trades are cached for getTrades().
+     */
+    @Override
+    public boolean retainsTrades() {
+        return true;
     }
    
     @Override
     public void logTrade(Trade trade) throws PersistenceException {
-        PrintWriter out = null;
-
-        try {
-            out = new PrintWriter(new FileWriter(TRADE_FILE, true));
+        DaoIoEvent event = DaoIoEvent.start(getClass(), DaoIoEvent.WRITE, TRADE_FILE);
+        try (PrintWriter out = new PrintWriter(new FileWriter(TRADE_FILE, true))) {
+            out.println(marshallTrade(trade));
+            out.flush();
         } catch (IOException e) {
             throw new PersistenceException(
-            "Could not save sell order data",e);
+            "Could not save trade data",e);
+        }
+        if (event != null) {
+            event.record(1);
         }
-
-        out.println(marshallTrade(trade));
-        out.flush();
     }
     
     private String marshallTrade(Trade trade) {
         String tradeAsText = trade.getTradeId() + DELIMITER;
         tradeAsText += trade.getExecutionTime().toString() + DELIMITER;
         tradeAsText += trade.getQuantity() + DELIMITER;
-        tradeAsText += trade.getPrice().toString();
+        tradeAsText += trade.getPrice().toPlainString();
+        // The symbol is only written for other instruments, so the default book's history keeps its format.
+        if (!trade.getSymbol().equals(Order.DEFAULT_SYMBOL)) {
+            tradeAsText += DELIMITER + trade.getSymbol();
+        }
         return tradeAsText;
     }
     
@@ -84,10 +177,63 @@ public class TradeDaoFileImpl implements TradeDao {
         tradeFromFile.setExecutionTime(LocalDateTime.parse(tradeTokens[1]));  
         tradeFromFile.setQuantity(Integer.parseInt(tradeTokens[2]));
         tradeFromFile.setPrice(new BigDecimal(tradeTokens[3]));
+        if (tradeTokens.length > 4) {
+            tradeFromFile.setSymbol(tradeTokens[4]);
+        }
         return tradeFromFile;
      }
     
+    /**
+     * Summarizes the lines appended to the trade file since the segment summaries were last updated.
+     */
+    private void updateSegments() throws PersistenceException {
+        Path tradeFile = Paths.get(TRADE_FILE);
+        try {
+            if (!Files.exists(tradeFile)) {
+                throw new PersistenceException("Could not load trade data, " + TRADE_FILE + " does not exist");
+            }
+            segments.update(Files.size(tradeFile), this::readTrades);
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not load trade data", e);
+        }
+    }
+
+    /**
+     * Reads the complete lines of the trade file between two byte offsets.
+     */
+    private void readTrades(long start, long end, TradeSegments.TradeVisitor visitor) throws PersistenceException {
+        try (FileChannel trades = FileChannel.open(Paths.get(TRADE_FILE), StandardOpenOption.READ)) {
+            trades.position(start);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(trades));
+            StringBuilder line = new StringBuilder();
+            long position = start;
+            long lineStart = start;
+            int b;
+            while (position < end && (b = in.read()) != -1) {
+                position++;
+                if (b == '\n') {
+                    if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                        line.setLength(line.length() - 1);
+                    }
+                    if (line.length() > 0) {
+                        visitor.visit(unmarshallTrade(line.toString()), lineStart, position);
+                    }
+                    line.setLength(0);
+                    lineStart = position;
+                }
+                else {
+                    line.append((char) b);      // Trade lines are ASCII.
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not read trade data", e);
+        }
+    }
+    
     private void loadTrades() throws PersistenceException {
+        DaoIoEvent event = DaoIoEvent.start(getClass(), DaoIoEvent.LOAD, TRADE_FILE);
         Scanner scanner = null;
         try {
             scanner = new Scanner(
@@ -101,6 +247,7 @@ public class TradeDaoFileImpl implements TradeDao {
         //Read from file
         String currentLine; //holds the most recent line read from the file
         Trade currentTrade;  //holds the most recent unmarshalled order
+        int loaded = 0;
 
         while (scanner.hasNextLine()) {
             //get the next line in the file
@@ -110,9 +257,13 @@ public class TradeDaoFileImpl implements TradeDao {
             currentTrade = unmarshallTrade(currentLine);
             
             trades.put(currentTrade.getTradeId(),currentTrade);
+            loaded++;
         }
         //Clean up/close file
         scanner.close();
+        if (event != null) {
+            event.record(loaded);
+        }
     }
     
 }
@@ -0,0 +1,133 @@
+package orderbook.dao;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Records every new trade in the order book journal before handing it to the TradeDao that keeps
+ * the trade history, so the journal holds the full sequence of book events including executions.
+ *
+ * A trade is journaled and handed on while holding the journal's monitor, so a journal roll never
+ * falls between the two: every trade in a rolled journal file is already in the trade history.
+ * recover() adds back the journaled trades the trade history lost in a crash, such as those a
+ * TradeDaoMappedImpl had not yet forced to disk.
+ */
+public class TradeDaoJournalImpl implements TradeDao {
+
+    private final OrderBookJournal journal;
+    private final TradeDao tradeDao;
+
+    public TradeDaoJournalImpl(OrderBookJournal journal, TradeDao tradeDao) {
+        this.journal = journal;
+        this.tradeDao = tradeDao;
+    }
+
+    @Override
+    public void addTrade(Trade trade) throws PersistenceException {
+        synchronized (journal) {
+            journal.appendTrade(trade);
+            tradeDao.addTrade(trade);
+        }
+    }
+
+    @Override
+    public void addTrades(List<Trade> trades) throws PersistenceException {
+        synchronized (journal) {
+            journal.beginBatch();
+            try {
+                for (Trade trade : trades) {
+                    journal.appendTrade(trade);
+                }
+            }
+            finally {
+                journal.endBatch();
+            }
+            tradeDao.addTrades(trades);
+        }
+    }
+
+    /**
+     * Replays the trades still in the journal and adds those missing from the trade history to it,
+     * then advances the trade id sequence past every trade recovered.
+     * @return the number of trades added back.
+     */
+    public int recover() throws PersistenceException {
+        synchronized (journal) {
+            List<Trade> journaled = new ArrayList<>();
+            journal.replay(new OrderBookJournal.Listener() {
+                @Override
+                public void onTrade(long sequence, Trade trade) {
+                    journaled.add(trade);
+                }
+            });
+            int lastTradeId = tradeDao.getLastTradeId();
+            List<Trade> missing = new ArrayList<>();
+            for (Trade trade : journaled) {
+                // Books matching on different threads log trades out of id order, so an id at or
+                // below the last one may still be missing.
+                if (trade.getTradeId() > lastTradeId || tradeDao.getTrade(trade.getTradeId()) == null) {
+                    missing.add(trade);
+                }
+            }
+            if (!missing.isEmpty()) {
+                tradeDao.addTrades(missing);
+            }
+            Trade.advanceGlobalId(tradeDao.getLastTradeId() + 1);
+            return missing.size();
+        }
+    }
+
+    @Override
+    public void logTrade(Trade trade) throws PersistenceException {
+        tradeDao.logTrade(trade);
+    }
+
+    @Override
+    public Trade getTrade(int id) throws PersistenceException {
+        return tradeDao.getTrade(id);
+    }
+
+    @Override
+    public List<Trade> getTrades() throws PersistenceException {
+        return tradeDao.getTrades();
+    }
+
+    @Override
+    public List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        return tradeDao.getTrades(from, to);
+    }
+
+    @Override
+    public void forEachTrade(LocalDateTime from, LocalDateTime to, Consumer<Trade> consumer)
+            throws PersistenceException {
+        tradeDao.forEachTrade(from, to, consumer);
+    }
+
+    @Override
+    public List<Trade> getTradesByPrice(long lowPriceTicks, long highPriceTicks) throws PersistenceException {
+        return tradeDao.getTradesByPrice(lowPriceTicks, highPriceTicks);
+    }
+
+    @Override
+    public TradeStats getTradeStats(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        return tradeDao.getTradeStats(from, to);
+    }
+
+    @Override
+    public int getLastTradeId() throws PersistenceException {
+        return tradeDao.getLastTradeId();
+    }
+
+    /**
+     * The journal encodes each trade as it is appended, so only the decorated DAO may keep it.
+     */
+    @Override
+    public boolean retainsTrades() {
+        return tradeDao.retainsTrades();
+    }
+}
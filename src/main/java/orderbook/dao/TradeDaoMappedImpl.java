@@ -0,0 +1,398 @@
+package orderbook.dao;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Trade history kept in memory-mapped, pre-allocated segment files of fixed-width binary records.
+ * Appending a trade is a bounded write into the mapped region and reading one back is a few
+ * absolute reads from it, with no text to format or parse.
+ *
+ * The log is stored as logFile.0, logFile.1, ... and every segment holds segmentRecords records.
+ * A segment is created at its full size when the previous one fills up. Each record is laid out as
+ * [int trade id][int quantity][long price in ticks][long execution epoch second][int nanos][8 byte
+ * ASCII symbol, zero padded][20 bytes of padding][int commit marker]; the marker is written last,
+ * so a record torn by a crash is not committed and its slot is reused by the next append. Records
+ * are padded to a size that divides the page size, so no record straddles two pages and the page
+ * holding a committed marker also holds the rest of its record.
+ *
+ * Trades are found by id through a table of record indexes addressed by trade id, built when the
+ * log is opened and kept up to date as trades are appended.
+ *
+ * The tick size the prices were written with and the record size are kept in logFile.header, and
+ * a log written with another tick size or record size than the current ones is refused rather than
+ * misread. A log without a header is refused too, as its records are of the earlier 40 byte layout.
+ *
+ * Appends are only forced to disk by sync() and close(); the operating system writes the mapped
+ * pages back in the meantime, and the trades not yet written back are lost in a crash. Where this
+ * DAO is decorated with TradeDaoJournalImpl they are journaled first, and TradeDaoJournalImpl's
+ * recover() adds them back on start-up, as long as the journal files holding them are only deleted
+ * after sync(), as OrderBookSnapshotter does when given this log.
+ *
+ * Time and price range queries and trade statistics are answered from hourly segment summaries
+ * kept up to date as trades are appended and saved to logFile.seg by sync() and close(); see
+ * TradeSegments.
+ */
+public class TradeDaoMappedImpl implements TradeDao {
+
+    static final int RECORD_SIZE = 64;
+    static final int MAX_SYMBOL_LENGTH = 8;
+    private static final int SYMBOL_OFFSET = 28;
+    private static final int COMMITTED = 0x54524144;     // "TRAD"
+    private static final int MARKER_OFFSET = RECORD_SIZE - Integer.BYTES;
+    private static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    private static final int HEADER_MAGIC = 0x54524448;     // "TRDH"
+
+    private final Path logFile;
+    private final int segmentRecords;
+    private final TradeDao legacyTradeDao;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final TradeSegments tradeSegments;
+
+    private long count = -1;
+    private int lastTradeId;
+    private int[] recordsById = new int[0];     // Record index plus one, by trade id; 0 for none.
+
+    /**
+     * @param logFile the name the segment files are numbered after.
+     * @param segmentRecords the number of trades each segment holds.
+     * @param legacyTradeDao the trade history to import the first time the log is opened while
+     * empty, or null if there is none.
+     */
+    public TradeDaoMappedImpl(String logFile, int segmentRecords, TradeDao legacyTradeDao) {
+        if (segmentRecords <= 0 || segmentRecords > Integer.MAX_VALUE / RECORD_SIZE) {
+            throw new IllegalArgumentException("segmentRecords must be between 1 and " + Integer.MAX_VALUE / RECORD_SIZE);
+        }
+        this.logFile = Paths.get(logFile);
+        this.segmentRecords = segmentRecords;
+        this.legacyTradeDao = legacyTradeDao;
+        this.tradeSegments = new TradeSegments(logFile);
+    }
+
+    public TradeDaoMappedImpl(String logFile, TradeDao legacyTradeDao) {
+        this(logFile, DEFAULT_SEGMENT_RECORDS, legacyTradeDao);
+    }
+
+    public TradeDaoMappedImpl(String logFile) {
+        this(logFile, DEFAULT_SEGMENT_RECORDS, null);
+    }
+
+    @Override
+    public synchronized void logTrade(Trade trade) throws PersistenceException {
+        open();
+        append(trade);
+    }
+
+    @Override
+    public void addTrade(Trade trade) throws PersistenceException {
+        logTrade(trade);
+    }
+
+    @Override
+    public synchronized void addTrades(List<Trade> trades) throws PersistenceException {
+        open();
+        for (Trade trade : trades) {
+            append(trade);
+        }
+    }
+
+    /**
+     * Looks the trade's record up in the index of records by trade id, so trades appended out of
+     * id order, as books matching on different threads do, are found as directly as any other.
+     */
+    @Override
+    public synchronized Trade getTrade(int id) throws PersistenceException {
+        open();
+        if (id < 0 || id >= recordsById.length || recordsById[id] == 0) {
+            return null;
+        }
+        return readTrade(recordsById[id] - 1L);
+    }
+
+    @Override
+    public synchronized List<Trade> getTrades() throws PersistenceException {
+        open();
+        List<Trade> trades = new ArrayList<>((int) count);
+        for (long index = 0; index < count; index++) {
+            trades.add(readTrade(index));
+        }
+        return trades;
+    }
+
+    @Override
+    public synchronized List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        open();
+        return tradeSegments.getTrades(Trade.toExecutionNanos(from), Trade.toExecutionNanos(to), Long.MIN_VALUE,
+                Long.MAX_VALUE, this::readTrades);
+    }
+
+    /**
+     * Reads the window a time segment at a time, each trade being passed on as it is read.
+     */
+    @Override
+    public synchronized void forEachTrade(LocalDateTime from, LocalDateTime to, Consumer<Trade> consumer)
+            throws PersistenceException {
+        open();
+        tradeSegments.visitTrades(Trade.toExecutionNanos(from), Trade.toExecutionNanos(to), Long.MIN_VALUE,
+                Long.MAX_VALUE, this::readTrades, (trade, position, nextPosition) -> consumer.accept(trade));
+    }
+
+    @Override
+    public synchronized List<Trade> getTradesByPrice(long lowPriceTicks, long highPriceTicks) throws PersistenceException {
+        open();
+        return tradeSegments.getTrades(Long.MIN_VALUE, Long.MAX_VALUE, lowPriceTicks, highPriceTicks, this::readTrades);
+    }
+
+    @Override
+    public synchronized TradeStats getTradeStats(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        open();
+        return tradeSegments.getStats(Trade.toExecutionNanos(from), Trade.toExecutionNanos(to), this::readTrades);
+    }
+
+    @Override
+    public synchronized int getLastTradeId() throws PersistenceException {
+        open();
+        return lastTradeId;
+    }
+
+    /**
+     * Trades are copied into their records as they are appended.
+     */
+    @Override
+    public boolean retainsTrades() {
+        return false;
+    }
+
+    /**
+     * @return the number of trades in the log.
+     */
+    public synchronized long size() throws PersistenceException {
+        open();
+        return count;
+    }
+
+    /**
+     * Forces every mapped segment to disk and saves the summaries of the completed time segments.
+     */
+    public synchronized void sync() throws PersistenceException {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        tradeSegments.flush();
+    }
+
+    public synchronized void close() {
+        try {
+            sync();
+        }
+        catch (PersistenceException e) {
+            // The summaries not saved are rebuilt from the log when it is next opened.
+        }
+        segments.clear();
+        recordsById = new int[0];
+        count = -1;
+    }
+
+    private void append(Trade trade) throws PersistenceException {
+        String symbol = trade.getSymbol();
+        if (symbol.length() > MAX_SYMBOL_LENGTH) {
+            throw new PersistenceException("The trade log holds symbols of up to " + MAX_SYMBOL_LENGTH
+                    + " characters, not " + symbol);
+        }
+        if (count == (long) segments.size() * segmentRecords) {
+            segments.add(mapSegment(segments.size()));
+        }
+        MappedByteBuffer segment = segment(count);
+        int offset = offset(count);
+        tradeSegments.add(trade, count, count + 1);
+        segment.putInt(offset, trade.getTradeId());
+        segment.putInt(offset + 4, trade.getQuantity());
+        segment.putLong(offset + 8, trade.getPriceTicks());
+        segment.putLong(offset + 16, trade.getExecutionEpochSecond());
+        segment.putInt(offset + 24, trade.getExecutionNano());
+        for (int i = 0; i < MAX_SYMBOL_LENGTH; i++) {
+            segment.put(offset + SYMBOL_OFFSET + i, i < symbol.length() ? (byte) symbol.charAt(i) : 0);
+        }
+        segment.putInt(offset + MARKER_OFFSET, COMMITTED);
+        index(trade.getTradeId(), count);
+        count++;
+        lastTradeId = Math.max(lastTradeId, trade.getTradeId());
+    }
+
+    private void readTrades(long start, long end, TradeSegments.TradeVisitor visitor) throws PersistenceException {
+        for (long index = start; index < end; index++) {
+            visitor.visit(readTrade(index), index, index + 1);
+        }
+    }
+
+    /**
+     * Addresses a record by its trade id. Trade ids are handed out from a counter, so the table is
+     * dense and costs four bytes per id; ids below zero are not indexed.
+     */
+    private void index(int id, long index) {
+        if (id < 0 || index >= Integer.MAX_VALUE) {
+            return;
+        }
+        if (id >= recordsById.length) {
+            recordsById = Arrays.copyOf(recordsById, Math.max(id + 1, (int) Math.min(recordsById.length * 2L,
+                    Integer.MAX_VALUE - 8)));
+        }
+        recordsById[id] = (int) index + 1;
+    }
+
+    private int readId(long index) {
+        return segment(index).getInt(offset(index));
+    }
+
+    private Trade readTrade(long index) {
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index);
+        Trade trade = new Trade();
+        trade.setTradeId(segment.getInt(offset));
+        trade.setQuantity(segment.getInt(offset + 4));
+        trade.setPriceTicks(segment.getLong(offset + 8));
+        trade.setExecutionTime(LocalDateTime.ofEpochSecond(segment.getLong(offset + 16),
+                segment.getInt(offset + 24), ZoneOffset.UTC));
+        byte[] symbol = new byte[MAX_SYMBOL_LENGTH];
+        int length = 0;
+        while (length < MAX_SYMBOL_LENGTH && (symbol[length] = segment.get(offset + SYMBOL_OFFSET + length)) != 0) {
+            length++;
+        }
+        trade.setSymbol(new String(symbol, 0, length, StandardCharsets.US_ASCII));
+        return trade;
+    }
+
+    private MappedByteBuffer segment(long index) {
+        return segments.get((int) (index / segmentRecords));
+    }
+
+    private int offset(long index) {
+        return (int) (index % segmentRecords) * RECORD_SIZE;
+    }
+
+    /**
+     * Maps the existing segments and finds the end of the log, importing the legacy trade
+     * history if the log is empty.
+     */
+    private void open() throws PersistenceException {
+        if (count >= 0) {
+            return;
+        }
+        checkHeader();
+        while (Files.exists(segmentFile(segments.size()))) {
+            segments.add(mapSegment(segments.size()));
+        }
+        count = 0;
+        if (!segments.isEmpty()) {
+            // Records are committed in order, so the committed ones are a prefix of the last segment.
+            MappedByteBuffer last = segments.get(segments.size() - 1);
+            int low = 0;
+            int high = segmentRecords;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (last.getInt(middle * RECORD_SIZE + MARKER_OFFSET) == COMMITTED) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            count = (long) (segments.size() - 1) * segmentRecords + low;
+            for (long index = 0; index < count; index++) {
+                int id = readId(index);
+                index(id, index);
+                lastTradeId = Math.max(lastTradeId, id);
+            }
+        }
+        tradeSegments.open(count, this::readTrades);
+        if (count == 0 && legacyTradeDao != null) {
+            List<Trade> trades = legacyTradeDao.getTrades();
+            trades.sort((t1, t2) -> Integer.compare(t1.getTradeId(), t2.getTradeId()));
+            for (Trade trade : trades) {
+                append(trade);
+            }
+        }
+    }
+
+    /**
+     * Checks the tick size and record size in the header file against the current ones, writing the
+     * header if the log has none yet.
+     */
+    private void checkHeader() throws PersistenceException {
+        Path headerFile = logFile.resolveSibling(logFile.getFileName() + ".header");
+        try {
+            if (!Files.exists(headerFile)) {
+                if (Files.exists(segmentFile(0))) {
+                    throw new PersistenceException("The trade log " + logFile + " has no header, so its records are of "
+                            + "the earlier 40 byte layout rather than " + RECORD_SIZE + " bytes");
+                }
+                try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(headerFile))) {
+                    out.writeInt(HEADER_MAGIC);
+                    out.writeUTF(PriceTicks.getTickSize().toPlainString());
+                    out.writeInt(RECORD_SIZE);
+                }
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(headerFile))) {
+                if (in.readInt() != HEADER_MAGIC) {
+                    throw new PersistenceException(headerFile + " is not a trade log header");
+                }
+                BigDecimal tickSize = new BigDecimal(in.readUTF());
+                if (tickSize.compareTo(PriceTicks.getTickSize()) != 0) {
+                    throw new PersistenceException("The trade log " + logFile + " was written with a tick size of "
+                            + tickSize + " but the tick size is " + PriceTicks.getTickSize());
+                }
+                int recordSize;
+                try {
+                    recordSize = in.readInt();
+                }
+                catch (EOFException e) {
+                    recordSize = 40;    // Headers written before records were padded end at the tick size.
+                }
+                if (recordSize != RECORD_SIZE) {
+                    throw new PersistenceException("The trade log " + logFile + " was written with records of "
+                            + recordSize + " bytes but records are " + RECORD_SIZE + " bytes");
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not read the trade log header " + headerFile, e);
+        }
+    }
+
+    private MappedByteBuffer mapSegment(int number) throws PersistenceException {
+        long size = (long) segmentRecords * RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(segmentFile(number), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end of the file extends it, so a new segment is pre-allocated here.
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not map trade log segment " + segmentFile(number), e);
+        }
+    }
+
+    private Path segmentFile(int number) {
+        return logFile.resolveSibling(logFile.getFileName() + "." + number);
+    }
+}
@@ -0,0 +1,291 @@
+package orderbook.dao;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Persistent index from trade id to the offset of the trade's line in the text trade file, kept
+ * in tradeFile.idx as fixed-width [int trade id][long offset] entries in file order.
+ *
+ * Trade ids are handed out in increasing order, so the entry for an id is normally at slot
+ * id - firstId and a lookup is a single positioned read of the index; if the ids have gaps the
+ * entries are binary searched instead. Lines appended to the trade file since the index was last
+ * brought up to date, by this process or another, are indexed on the next lookup by reading only
+ * the new tail of the file.
+ */
+class TradeFileIndex {
+
+    private static final int ENTRY_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Path tradeFile;
+    private final Path indexFile;
+    private final ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+
+    private long indexedLength = -1;    // The length of the trade file the index covers.
+    private long entries;
+    private int firstId;
+    private int lastTradeId;
+
+    TradeFileIndex(String tradeFile) {
+        this.tradeFile = Paths.get(tradeFile);
+        this.indexFile = Paths.get(tradeFile + ".idx");
+    }
+
+    /**
+     * @return the offset of the line holding the trade, or -1 if there is no such trade.
+     */
+    synchronized long find(int id) throws PersistenceException {
+        update();
+        if (entries == 0) {
+            return -1;
+        }
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            long slot = (long) id - firstId;
+            if (slot >= 0 && slot < entries && readEntry(index, slot) == id) {
+                return entry.getLong(Integer.BYTES);
+            }
+            long low = 0;
+            long high = entries - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                int middleId = readEntry(index, middle);
+                if (middleId < id) {
+                    low = middle + 1;
+                }
+                else if (middleId > id) {
+                    high = middle - 1;
+                }
+                else {
+                    return entry.getLong(Integer.BYTES);
+                }
+            }
+            return -1;
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not read the trade index", e);
+        }
+    }
+
+    /**
+     * @return the highest trade id in the trade file, or 0 if it is empty.
+     */
+    synchronized int getLastTradeId() throws PersistenceException {
+        update();
+        return lastTradeId;
+    }
+
+    /**
+     * @return the line of the trade file starting at offset, without its line separator, or null
+     * if the line has no separator, as when the trade file has been truncated since it was indexed.
+     */
+    String readLine(long offset) throws PersistenceException {
+        try (FileChannel trades = FileChannel.open(tradeFile, StandardOpenOption.READ)) {
+            return readLine(trades, offset);
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not read trade data", e);
+        }
+    }
+
+    /**
+     * Indexes any lines appended to the trade file since the last update, and rebuilds the index
+     * if the trade file has been replaced by a shorter one.
+     */
+    synchronized void update() throws PersistenceException {
+        try {
+            if (indexedLength < 0) {
+                open();
+            }
+            if (!Files.exists(tradeFile)) {
+                throw new PersistenceException("Could not load trade data, " + tradeFile + " does not exist");
+            }
+            long length = Files.size(tradeFile);
+            if (length < indexedLength) {
+                reset();
+            }
+            if (length > indexedLength) {
+                indexTail();
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not update the trade index", e);
+        }
+    }
+
+    /**
+     * Drops the index and indexes the trade file again from its start.
+     */
+    synchronized void rebuild() throws PersistenceException {
+        try {
+            reset();
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not reset the trade index", e);
+        }
+        update();
+    }
+
+    /**
+     * Picks up the index left by an earlier run, checking its last entry still points at the
+     * trade it names.
+     */
+    private void open() throws IOException {
+        indexedLength = 0;
+        entries = 0;
+        if (!Files.exists(indexFile) || !Files.exists(tradeFile)) {
+            reset();
+            return;
+        }
+        try (FileChannel index = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileChannel trades = FileChannel.open(tradeFile, StandardOpenOption.READ)) {
+            long count = index.size() / ENTRY_SIZE;
+            index.truncate(count * ENTRY_SIZE);     // Drops an entry torn by a crash.
+            if (count == 0) {
+                return;
+            }
+            int first = readEntry(index, 0);
+            int last = readEntry(index, count - 1);
+            long offset = entry.getLong(Integer.BYTES);
+            String line = offset < trades.size() ? readLine(trades, offset) : null;
+            if (line == null || parseId(line) != last) {
+                reset();
+                return;
+            }
+            entries = count;
+            firstId = first;
+            lastTradeId = last;
+            indexedLength = offset + line.getBytes(StandardCharsets.UTF_8).length;
+            // Step over the line separator.
+            ByteBuffer separator = ByteBuffer.allocate(2);
+            trades.read(separator, indexedLength);
+            indexedLength += separator.get(0) == '\r' ? 2 : 1;
+        }
+    }
+
+    private void reset() throws IOException {
+        Files.deleteIfExists(indexFile);
+        indexedLength = 0;
+        entries = 0;
+        firstId = 0;
+        lastTradeId = 0;
+    }
+
+    /**
+     * Reads the complete lines after indexedLength and appends an entry for each of them.
+     */
+    private void indexTail() throws IOException {
+        try (FileChannel trades = FileChannel.open(tradeFile, StandardOpenOption.READ);
+                FileChannel index = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND)) {
+            trades.position(indexedLength);
+            InputStream in = new BufferedInputStream(Channels.newInputStream(trades));
+            ByteBuffer pending = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            long position = indexedLength;
+            long lineStart = position;
+            int id = 0;
+            boolean readingId = true;
+            boolean validId = false;
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b == '\n') {
+                    if (validId) {
+                        if (pending.remaining() < ENTRY_SIZE) {
+                            flush(index, pending);
+                        }
+                        pending.putInt(id).putLong(lineStart);
+                        if (entries++ == 0) {
+                            firstId = id;
+                        }
+                        lastTradeId = Math.max(lastTradeId, id);
+                    }
+                    indexedLength = position;
+                    lineStart = position;
+                    id = 0;
+                    readingId = true;
+                    validId = false;
+                }
+                else if (readingId) {
+                    if (b >= '0' && b <= '9') {
+                        id = id * 10 + (b - '0');
+                        validId = true;
+                    }
+                    else {
+                        // A line whose first field is not a trade id is left out of the index.
+                        validId &= b == ':';
+                        readingId = false;
+                    }
+                }
+            }
+            flush(index, pending);
+        }
+    }
+
+    private void flush(FileChannel index, ByteBuffer pending) throws IOException {
+        pending.flip();
+        while (pending.hasRemaining()) {
+            index.write(pending);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Reads the entry in the given slot into entry.
+     * @return the trade id of the entry.
+     */
+    private int readEntry(FileChannel index, long slot) throws IOException {
+        entry.clear();
+        while (entry.hasRemaining()) {
+            if (index.read(entry, slot * ENTRY_SIZE + entry.position()) < 0) {
+                throw new IOException("The trade index ends inside entry " + slot);
+            }
+        }
+        return entry.getInt(0);
+    }
+
+    /**
+     * @return the complete line starting at offset, or null if it has no line separator yet.
+     */
+    private static String readLine(FileChannel trades, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        while (true) {
+            int read = trades.read(buffer, offset + buffer.position());
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    int end = i > 0 && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                    return new String(buffer.array(), 0, end, StandardCharsets.UTF_8);
+                }
+            }
+            if (read <= 0) {
+                return null;
+            }
+            if (!buffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+    }
+
+    private static int parseId(String line) {
+        int delimiter = line.indexOf(':');
+        try {
+            return Integer.parseInt(delimiter < 0 ? line : line.substring(0, delimiter));
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package orderbook.dao;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Summaries of a trade store's history partitioned by execution time, so that range and aggregate
+ * queries over long histories read only the trades at the edges of their window.
+ *
+ * The store is cut into segments of consecutive trades, a new segment starting with the first
+ * trade executed in another hour than the one before it. The summary of a segment holds its start
+ * and end positions in the store, its earliest and latest execution times, its lowest and highest
+ * prices, and its trade count, volume and notional. A query skips the segments outside its window
+ * and answers those wholly inside it from their summaries; only the segments straddling its bounds
+ * are read. Books matching on different threads can record their trades slightly out of time
+ * order, so neighbouring segments may overlap in time; the summaries' own time bounds keep the
+ * queries exact regardless.
+ *
+ * The summaries of completed segments are kept in storeFile.seg as fixed-width entries of eleven
+ * longs. The segment still being filled is rebuilt on open by reading the trades after the last
+ * completed one. A position is whatever the store addresses its trades by, a record index or a
+ * byte offset, and the store's end is the position after its last trade. Callers synchronize.
+ */
+class TradeSegments {
+
+    static final long PARTITION_NANOS = 3600 * 1_000_000_000L;
+    private static final int ENTRY_SIZE = 11 * Long.BYTES;
+
+    /**
+     * Reads the trades of a store between two positions, in order.
+     */
+    interface TradeSource {
+        void read(long start, long end, TradeVisitor visitor) throws PersistenceException;
+    }
+
+    interface TradeVisitor {
+        /**
+         * @param position the position of the trade in the store.
+         * @param nextPosition the position after the trade.
+         */
+        void visit(Trade trade, long position, long nextPosition) throws PersistenceException;
+    }
+
+    private final Path summaryFile;
+    private final List<Segment> completed = new ArrayList<>();
+    private Segment current;
+    private int persisted;      // The completed segments already in the summary file.
+    private boolean open;
+
+    TradeSegments(String storeFile) {
+        this.summaryFile = Paths.get(storeFile + ".seg");
+    }
+
+    /**
+     * Loads the summaries of the completed segments that lie within the store and summarizes the
+     * trades after them.
+     */
+    void open(long storeEnd, TradeSource source) throws PersistenceException {
+        completed.clear();
+        current = null;
+        try {
+            if (Files.exists(summaryFile)) {
+                ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(summaryFile));
+                while (entries.remaining() >= ENTRY_SIZE) {
+                    Segment segment = Segment.read(entries);
+                    // Summaries past the end of the store are of trades lost in a crash.
+                    if (segment.start != end() || segment.end > storeEnd) {
+                        break;
+                    }
+                    completed.add(segment);
+                }
+                try (FileChannel channel = FileChannel.open(summaryFile, StandardOpenOption.WRITE)) {
+                    channel.truncate((long) completed.size() * ENTRY_SIZE);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not load the trade segment summaries", e);
+        }
+        persisted = completed.size();
+        open = true;
+        source.read(end(), storeEnd, this::add);
+    }
+
+    /**
+     * Summarizes the trades recorded in the store since the last update, starting over if the
+     * store has been replaced by a shorter one, and saves the summaries of completed segments.
+     */
+    void update(long storeEnd, TradeSource source) throws PersistenceException {
+        if (open && storeEnd < end()) {
+            try {
+                Files.deleteIfExists(summaryFile);
+            }
+            catch (IOException e) {
+                throw new PersistenceException("Could not reset the trade segment summaries", e);
+            }
+            open = false;
+        }
+        if (!open) {
+            open(storeEnd, source);
+        }
+        else {
+            source.read(end(), storeEnd, this::add);
+        }
+        flush();
+    }
+
+    /**
+     * Adds a trade recorded at the end of the store. This does not allocate unless the trade
+     * starts a new segment.
+     */
+    void add(Trade trade, long position, long nextPosition) {
+        long time = trade.getExecutionNanos();
+        long partition = Math.floorDiv(time, PARTITION_NANOS);
+        if (current == null) {
+            current = new Segment(end(), partition);
+        }
+        else if (partition != current.partition) {
+            completed.add(current);
+            current = new Segment(current.end, partition);
+        }
+        current.add(time, trade.getPriceTicks(), trade.getQuantity());
+        current.end = nextPosition;
+    }
+
+    /**
+     * Appends the summaries of the segments completed since the last flush to the summary file.
+     */
+    void flush() throws PersistenceException {
+        if (persisted == completed.size()) {
+            return;
+        }
+        ByteBuffer entries = ByteBuffer.allocate((completed.size() - persisted) * ENTRY_SIZE);
+        for (int i = persisted; i < completed.size(); i++) {
+            completed.get(i).write(entries);
+        }
+        entries.flip();
+        try (FileChannel channel = FileChannel.open(summaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (entries.hasRemaining()) {
+                channel.write(entries);
+            }
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not save the trade segment summaries", e);
+        }
+        persisted = completed.size();
+    }
+
+    /**
+     * @param from the start of the window in execution nanoseconds, inclusive.
+     * @param to the end of the window in execution nanoseconds, exclusive.
+     */
+    TradeStats getStats(long from, long to, TradeSource source) throws PersistenceException {
+        Segment total = new Segment(0, 0);
+        for (Segment segment : segments()) {
+            if (segment.lastTime < from || segment.firstTime >= to) {
+                continue;
+            }
+            if (segment.firstTime >= from && segment.lastTime < to) {
+                total.add(segment);
+            }
+            else {
+                source.read(segment.start, segment.end, (trade, position, nextPosition) -> {
+                    long time = trade.getExecutionNanos();
+                    if (time >= from && time < to) {
+                        total.add(time, trade.getPriceTicks(), trade.getQuantity());
+                    }
+                });
+            }
+        }
+        return total.toStats();
+    }
+
+    /**
+     * @return the trades executed from from, inclusive, until to, exclusive, at prices from
+     * lowPrice to highPrice inclusive, in store order.
+     */
+    List<Trade> getTrades(long from, long to, long lowPrice, long highPrice, TradeSource source)
+            throws PersistenceException {
+        List<Trade> trades = new ArrayList<>();
+        visitTrades(from, to, lowPrice, highPrice, source, (trade, position, nextPosition) -> trades.add(trade));
+        return trades;
+    }
+
+    /**
+     * Visits the trades executed from from, inclusive, until to, exclusive, at prices from lowPrice
+     * to highPrice inclusive, in store order, without collecting them.
+     */
+    void visitTrades(long from, long to, long lowPrice, long highPrice, TradeSource source, TradeVisitor visitor)
+            throws PersistenceException {
+        for (Segment segment : segments()) {
+            if (segment.lastTime < from || segment.firstTime >= to
+                    || segment.highPrice < lowPrice || segment.lowPrice > highPrice) {
+                continue;
+            }
+            source.read(segment.start, segment.end, (trade, position, nextPosition) -> {
+                long time = trade.getExecutionNanos();
+                if (time >= from && time < to && trade.getPriceTicks() >= lowPrice && trade.getPriceTicks() <= highPrice) {
+                    visitor.visit(trade, position, nextPosition);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the number of segments, the one being filled included.
+     */
+    int size() {
+        return completed.size() + (current == null ? 0 : 1);
+    }
+
+    private List<Segment> segments() {
+        List<Segment> segments = new ArrayList<>(completed);
+        if (current != null) {
+            segments.add(current);
+        }
+        return segments;
+    }
+
+    /**
+     * @return the position after the last trade summarized.
+     */
+    private long end() {
+        if (current != null) {
+            return current.end;
+        }
+        return completed.isEmpty() ? 0 : completed.get(completed.size() - 1).end;
+    }
+
+    /**
+     * The summary of a segment, which also accumulates the totals of a query.
+     */
+    private static final class Segment {
+
+        private long start;
+        private long end;
+        private long partition;
+        private long count;
+        private long volume;
+        private long notionalHigh;      // The notional, the sum of price in ticks times quantity,
+        private long notionalLow;       // as an unsigned 128-bit number.
+        private long lowPrice = Long.MAX_VALUE;
+        private long highPrice = Long.MIN_VALUE;
+        private long firstTime = Long.MAX_VALUE;
+        private long lastTime = Long.MIN_VALUE;
+
+        Segment(long start, long partition) {
+            this.start = start;
+            this.end = start;
+            this.partition = partition;
+        }
+
+        void add(long time, long price, int quantity) {
+            count++;
+            volume += quantity;
+            addNotional(Math.multiplyHigh(price, quantity), price * quantity);
+            lowPrice = Math.min(lowPrice, price);
+            highPrice = Math.max(highPrice, price);
+            firstTime = Math.min(firstTime, time);
+            lastTime = Math.max(lastTime, time);
+        }
+
+        void add(Segment segment) {
+            count += segment.count;
+            volume += segment.volume;
+            addNotional(segment.notionalHigh, segment.notionalLow);
+            lowPrice = Math.min(lowPrice, segment.lowPrice);
+            highPrice = Math.max(highPrice, segment.highPrice);
+            firstTime = Math.min(firstTime, segment.firstTime);
+            lastTime = Math.max(lastTime, segment.lastTime);
+        }
+
+        private void addNotional(long high, long low) {
+            long sum = notionalLow + low;
+            notionalHigh += high + (Long.compareUnsigned(sum, notionalLow) < 0 ? 1 : 0);
+            notionalLow = sum;
+        }
+
+        TradeStats toStats() {
+            BigInteger notional = BigInteger.valueOf(notionalHigh).shiftLeft(Long.SIZE)
+                    .add(new BigInteger(Long.toUnsignedString(notionalLow)));
+            return new TradeStats(count, volume, lowPrice, highPrice, notional);
+        }
+
+        void write(ByteBuffer buffer) {
+            buffer.putLong(start).putLong(end).putLong(partition).putLong(count).putLong(volume)
+                    .putLong(notionalHigh).putLong(notionalLow).putLong(lowPrice).putLong(highPrice)
+                    .putLong(firstTime).putLong(lastTime);
+        }
+
+        static Segment read(ByteBuffer buffer) {
+            Segment segment = new Segment(buffer.getLong(), 0);
+            segment.end = buffer.getLong();
+            segment.partition = buffer.getLong();
+            segment.count = buffer.getLong();
+            segment.volume = buffer.getLong();
+            segment.notionalHigh = buffer.getLong();
+            segment.notionalLow = buffer.getLong();
+            segment.lowPrice = buffer.getLong();
+            segment.highPrice = buffer.getLong();
+            segment.firstTime = buffer.getLong();
+            segment.lastTime = buffer.getLong();
+            return segment;
+        }
+    }
+}
@@ -11,6 +11,21 @@ public class BuyOrder extends Order{
     public BuyOrder(int id, BigDecimal price, int quantity) {
         super(id, price, quantity);
     }
+    
+    public BuyOrder(int id, long price, int quantity) {
+        super(id, price, quantity);
+    }
+    
+    public BuyOrder(String symbol, int id, long price, int quantity) {
+        super(symbol, id, price, quantity);
+    }
+    
+    /**
+     * @param price the limit price in ticks, ignored for a market order.
+     */
+    public BuyOrder(String symbol, int id, long price, int quantity, OrderType type) {
+        super(symbol, id, price, quantity, type);
+    }
 
     @Override
     public String toString() {
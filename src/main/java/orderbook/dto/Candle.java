@@ -0,0 +1,84 @@
+package orderbook.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * The open, high, low and close prices, volume and trade count of the trades of one symbol executed
+ * in one interval.
+ */
+public class Candle {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final String symbol;
+    private final CandleInterval interval;
+    private final long openTime;    // in nanoseconds since 1970-01-01T00:00, see Trade
+    private final long open;        // in ticks
+    private final long high;        // in ticks
+    private final long low;         // in ticks
+    private final long close;       // in ticks
+    private final long volume;
+    private final int tradeCount;
+
+    public Candle(String symbol, CandleInterval interval, long openTime, long open, long high, long low, long close,
+            long volume, int tradeCount) {
+        this.symbol = symbol;
+        this.interval = interval;
+        this.openTime = openTime;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.tradeCount = tradeCount;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public CandleInterval getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the start of the interval.
+     */
+    public LocalDateTime getOpenTime() {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(openTime, NANOS_PER_SECOND),
+                (int) Math.floorMod(openTime, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    public BigDecimal getOpen() {
+        return PriceTicks.toPrice(open);
+    }
+
+    public BigDecimal getHigh() {
+        return PriceTicks.toPrice(high);
+    }
+
+    public BigDecimal getLow() {
+        return PriceTicks.toPrice(low);
+    }
+
+    public BigDecimal getClose() {
+        return PriceTicks.toPrice(close);
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public int getTradeCount() {
+        return tradeCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Candle{" + "symbol=" + symbol + ", interval=" + interval.getLabel() + ", openTime=" + getOpenTime()
+                + ", open=" + getOpen() + ", high=" + getHigh() + ", low=" + getLow() + ", close=" + getClose()
+                + ", volume=" + volume + ", tradeCount=" + tradeCount + '}';
+    }
+}
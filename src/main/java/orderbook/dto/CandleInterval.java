@@ -0,0 +1,43 @@
+package orderbook.dto;
+
+/**
+ * The intervals candles are aggregated over, each with the number of its most recent candles kept.
+ */
+public enum CandleInterval {
+    /** An hour of one-second candles. */
+    ONE_SECOND("1s", 1, 3600),
+    /** A day of one-minute candles. */
+    ONE_MINUTE("1m", 60, 1440),
+    /** Thirty days of one-hour candles. */
+    ONE_HOUR("1h", 3600, 720);
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final String label;
+    private final long nanos;
+    private final int capacity;
+
+    CandleInterval(String label, long seconds, int capacity) {
+        this.label = label;
+        this.nanos = seconds * NANOS_PER_SECOND;
+        this.capacity = capacity;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the length of the interval in nanoseconds.
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /**
+     * @return the number of the most recent candles kept.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,41 @@
+package orderbook.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One aggregated price level of the book: the total quantity and the number of orders resting at
+ * a price.
+ */
+public class DepthLevel {
+
+    private final long price;       // in ticks
+    private final long quantity;
+    private final int orderCount;
+
+    public DepthLevel(long price, long quantity, int orderCount) {
+        this.price = price;
+        this.quantity = quantity;
+        this.orderCount = orderCount;
+    }
+
+    public BigDecimal getPrice() {
+        return PriceTicks.toPrice(price);
+    }
+
+    public long getPriceTicks() {
+        return price;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    @Override
+    public String toString() {
+        return "DepthLevel{" + "price=" + getPrice() + ", quantity=" + quantity + ", orderCount=" + orderCount + '}';
+    }
+}
@@ -0,0 +1,36 @@
+package orderbook.dto;
+
+/**
+ * The new state of a price level that changed, on one side of the book. A level that no longer
+ * holds any orders is sent with a quantity and order count of zero, telling the receiver to
+ * remove it.
+ */
+public class DepthUpdate extends DepthLevel {
+
+    private final boolean buy;
+
+    public DepthUpdate(boolean buy, long price, long quantity, int orderCount) {
+        super(price, quantity, orderCount);
+        this.buy = buy;
+    }
+
+    /**
+     * @return true for a level of the buy side, false for one of the sell side.
+     */
+    public boolean isBuy() {
+        return buy;
+    }
+
+    /**
+     * @return true if the level has been emptied and should be removed.
+     */
+    public boolean isRemoved() {
+        return getOrderCount() == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "DepthUpdate{" + "side=" + (buy ? "buy" : "sell") + ", price=" + getPrice() + ", quantity="
+                + getQuantity() + ", orderCount=" + getOrderCount() + '}';
+    }
+}
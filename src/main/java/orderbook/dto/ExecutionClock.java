@@ -0,0 +1,70 @@
+package orderbook.dto;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * The wall clock in the system time zone, read as nanoseconds since 1970-01-01T00:00 local time
+ * without allocating, so trades can be timestamped on the matching path. LocalDateTime.now()
+ * builds several objects on every call.
+ *
+ * The clock is System.nanoTime() plus an offset calibrated against the wall clock. It is
+ * recalibrated when it drifts more than a millisecond from System.currentTimeMillis(), for
+ * instance after the system time is set, and when the zone's offset next changes.
+ */
+final class ExecutionClock {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static volatile Calibration calibration = calibrate();
+
+    private ExecutionClock() {
+    }
+
+    /**
+     * @return the current local date-time as nanoseconds since 1970-01-01T00:00.
+     */
+    static long now() {
+        Calibration current = calibration;
+        // The wall clock is read between two readings of this clock, so a thread descheduled
+        // between the reads is not mistaken for drift.
+        long before = System.nanoTime() + current.offset;
+        long millis = System.currentTimeMillis();
+        long nanos = System.nanoTime() + current.offset;
+        long localMillis = millis + current.zoneOffsetMillis;
+        if (millis >= current.validUntilMillis || localMillis < Math.floorDiv(before, NANOS_PER_MILLI) - 1
+                || localMillis > Math.floorDiv(nanos, NANOS_PER_MILLI) + 1) {
+            current = calibrate();
+            calibration = current;
+            nanos = System.nanoTime() + current.offset;
+        }
+        return nanos;
+    }
+
+    private static Calibration calibrate() {
+        Instant now = Instant.now();
+        long nanoTime = System.nanoTime();
+        ZoneRules rules = ZoneId.systemDefault().getRules();
+        long zoneOffsetSeconds = rules.getOffset(now).getTotalSeconds();
+        ZoneOffsetTransition transition = rules.nextTransition(now);
+        long validUntilMillis = transition == null ? Long.MAX_VALUE : transition.toEpochSecond() * 1000;
+        long localNanos = (now.getEpochSecond() + zoneOffsetSeconds) * NANOS_PER_SECOND + now.getNano();
+        return new Calibration(localNanos - nanoTime, zoneOffsetSeconds * 1000, validUntilMillis);
+    }
+
+    private static final class Calibration {
+
+        private final long offset;
+        private final long zoneOffsetMillis;
+        private final long validUntilMillis;
+
+        Calibration(long offset, long zoneOffsetMillis, long validUntilMillis) {
+            this.offset = offset;
+            this.zoneOffsetMillis = zoneOffsetMillis;
+            this.validUntilMillis = validUntilMillis;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package orderbook.dto;
+
+/**
+ * A snapshot of the latency and throughput of one kind of operation since the application started.
+ * Latencies are in nanoseconds.
+ */
+public class LatencyStats {
+
+    private final String operation;
+    private final long count;
+    private final double throughput;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public LatencyStats(String operation, long count, double throughput, long p50, long p99, long p999, long max) {
+        this.operation = operation;
+        this.count = count;
+        this.throughput = throughput;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the operations per second.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s count=%d rate=%.1f/s p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus", operation,
+                count, throughput, p50 / 1e3, p99 / 1e3, p999 / 1e3, max / 1e3);
+    }
+}
@@ -1,35 +1,82 @@
 package orderbook.dto;
 
 import java.math.BigDecimal;
-import java.util.Objects;
-import java.util.Random;
+import java.math.RoundingMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Order {
 
-   private static int globalId = 0;
+   /** The instrument of orders that do not name one, the single book the application started with. */
+   public static final String DEFAULT_SYMBOL = "TSLA";
+
+   private static final AtomicInteger globalId = new AtomicInteger();
+   private String symbol = DEFAULT_SYMBOL;
    private int id;
-   private BigDecimal price;
+   private long price;      // in ticks, see PriceTicks
    private int quantity;
-   private Random random = new Random();
+   private OrderType type = OrderType.LIMIT;
    
    
    public Order(int id, BigDecimal price, int quantity) {
+       this(id, PriceTicks.toTicks(price), quantity);
+   }
+
+   public Order(int id, long price, int quantity) {
        this.id = id;
        this.price = price;
        this.quantity = quantity;
    }
 
+   public Order(String symbol, int id, long price, int quantity) {
+       this(id, price, quantity);
+       this.symbol = symbol;
+   }
+
+   public Order(String symbol, int id, long price, int quantity, OrderType type) {
+       this(symbol, id, price, quantity);
+       this.type = type;
+   }
+
+   /**
+    * Creates a random order with the next order id, priced between 190 and 191 for 20 to 49. The
+    * orders are not reproducible; OrderGenerator makes seeded streams of orders for load tests.
+    */
    public Order() {
-        this.id = globalId++;
-        this.price = BigDecimal.valueOf(Double.parseDouble(String.valueOf(190+random.nextDouble())));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        this.id = globalId.getAndIncrement();
+        this.price = PriceTicks.toTicks(BigDecimal.valueOf(190+random.nextDouble()), RoundingMode.HALF_UP);
         this.quantity = random.nextInt(50-20) + 20;
     }
     
     public static void setGlobalId(int id) {
-        globalId = id;
+        globalId.set(id);
     }
     public static int getGlobalId() {
-        return globalId;
+        return globalId.get();
+    }
+
+    /**
+     * Raises the next order id to at least the given id, never lowering it, so that books
+     * recovering or matching concurrently cannot hand out an id twice.
+     */
+    public static void advanceGlobalId(int id) {
+        globalId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * @return a new, unique order id.
+     */
+    public static int nextGlobalId() {
+        return globalId.getAndIncrement();
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
     }
     
     public void setId(int id) {
@@ -42,10 +89,18 @@ public class Order {
     }
 
     public void setPrice(BigDecimal price) {
-        this.price = price;
+        this.price = PriceTicks.toTicks(price);
     }
 
     public BigDecimal getPrice() {
+        return PriceTicks.toPrice(price);
+    }
+
+    public void setPriceTicks(long price) {
+        this.price = price;
+    }
+
+    public long getPriceTicks() {
         return price;
     }
 
@@ -57,17 +112,26 @@ public class Order {
         this.quantity = quantity;
     }
 
+    public OrderType getType() {
+        return type;
+    }
+
+    public void setType(OrderType type) {
+        this.type = type;
+    }
+
     @Override
     public String toString() {
-        return "Order{" + "id=" + id + ", price=" + price + ", quantity=" + quantity + '}';
+        return "Order{" + "id=" + id + ", price=" + getPrice() + ", quantity=" + quantity + '}';
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
         hash = 97 * hash + this.id;
-        hash = 97 * hash + Objects.hashCode(this.price);
+        hash = 97 * hash + Long.hashCode(this.price);
         hash = 97 * hash + this.quantity;
+        hash = 97 * hash + this.symbol.hashCode();
         return hash;
     }
 
@@ -89,10 +153,10 @@ public class Order {
         if (this.quantity != other.quantity) {
             return false;
         }
-        if (!Objects.equals(this.price, other.price)) {
+        if (this.price != other.price) {
             return false;
         }
-        return true;
+        return this.symbol.equals(other.symbol);
     }
     
     
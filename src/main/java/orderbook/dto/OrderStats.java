@@ -0,0 +1,100 @@
+package orderbook.dto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Aggregate statistics of the orders resting on one side of the book: how many there are, their
+ * total quantity, and their average, lowest, highest and volume-weighted average prices.
+ */
+public class OrderStats {
+
+    private static final int PRICE_SCALE = 5;
+
+    private final long count;
+    private final long totalQuantity;
+    private final long priceSum;        // in ticks
+    private final long minPrice;        // in ticks
+    private final long maxPrice;        // in ticks
+    private final BigInteger notional;  // the sum of price in ticks times quantity
+
+    public OrderStats(long count, long totalQuantity, long priceSum, long minPrice, long maxPrice,
+            BigInteger notional) {
+        this.count = count;
+        this.totalQuantity = totalQuantity;
+        this.priceSum = priceSum;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.notional = notional;
+    }
+
+    /**
+     * Computes the statistics of a list of orders in one pass, for stores that do not keep them
+     * up to date as the orders change.
+     */
+    public static OrderStats of(List<Order> orders) {
+        long totalQuantity = 0;
+        long priceSum = 0;
+        long minPrice = Long.MAX_VALUE;
+        long maxPrice = Long.MIN_VALUE;
+        BigInteger notional = BigInteger.ZERO;
+        for (Order order : orders) {
+            totalQuantity += order.getQuantity();
+            priceSum += order.getPriceTicks();
+            minPrice = Math.min(minPrice, order.getPriceTicks());
+            maxPrice = Math.max(maxPrice, order.getPriceTicks());
+            notional = notional.add(BigInteger.valueOf(order.getPriceTicks()).multiply(BigInteger.valueOf(order.getQuantity())));
+        }
+        return orders.isEmpty()
+                ? new OrderStats(0, 0, 0, 0, 0, BigInteger.ZERO)
+                : new OrderStats(orders.size(), totalQuantity, priceSum, minPrice, maxPrice, notional);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * @return the mean order price, or zero if there are no orders.
+     */
+    public BigDecimal getAveragePrice() {
+        return count == 0 ? BigDecimal.ZERO : PriceTicks.average(priceSum, count, PRICE_SCALE);
+    }
+
+    /**
+     * @return the lowest order price, or zero if there are no orders.
+     */
+    public BigDecimal getMinPrice() {
+        return count == 0 ? BigDecimal.ZERO : PriceTicks.toPrice(minPrice);
+    }
+
+    /**
+     * @return the highest order price, or zero if there are no orders.
+     */
+    public BigDecimal getMaxPrice() {
+        return count == 0 ? BigDecimal.ZERO : PriceTicks.toPrice(maxPrice);
+    }
+
+    /**
+     * @return the average price weighted by resting quantity, or zero if there are no orders.
+     */
+    public BigDecimal getVwap() {
+        if (totalQuantity == 0) {
+            return BigDecimal.ZERO;
+        }
+        return new BigDecimal(notional).multiply(PriceTicks.getTickSize())
+                .divide(BigDecimal.valueOf(totalQuantity), PRICE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public String toString() {
+        return "OrderStats{" + "count=" + count + ", totalQuantity=" + totalQuantity + ", averagePrice=" + getAveragePrice()
+                + ", minPrice=" + getMinPrice() + ", maxPrice=" + getMaxPrice() + ", vwap=" + getVwap() + '}';
+    }
+}
@@ -0,0 +1,22 @@
+package orderbook.dto;
+
+/**
+ * How an incoming order is executed against the opposite side of the book.
+ */
+public enum OrderType {
+    /** Trades at its limit price or better, and any unfilled remainder rests in the book. */
+    LIMIT,
+    /** Trades at any price against whatever liquidity there is; an unfilled remainder is cancelled. */
+    MARKET,
+    /** Immediate or cancel: trades at its limit price or better, and an unfilled remainder is cancelled. */
+    IOC,
+    /** Fill or kill: trades its whole quantity at its limit price or better, or does not trade at all. */
+    FOK;
+
+    /**
+     * @return true if an unfilled remainder of an order of this type rests in the book.
+     */
+    public boolean rests() {
+        return this == LIMIT;
+    }
+}
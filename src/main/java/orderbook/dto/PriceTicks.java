@@ -0,0 +1,118 @@
+package orderbook.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Converts between decimal prices and the fixed-point tick counts used inside the order book.
+ * Orders, trades, comparators, matching and persistence all work on a long number of ticks;
+ * BigDecimal prices only appear where the user or a text file supplies or reads a price.
+ *
+ * The tick size defaults to 0.00000001 and can be set with the orderbook.tickSize system property.
+ * It must not change while any book or journal written with another tick size is in use; the
+ * snapshot, the journal and the mapped trade log record the tick size they were written with and
+ * refuse to be read with another.
+ *
+ * Prices typed in or replayed must be a whole number of ticks and are refused otherwise, through
+ * toTicksExact(). Prices read back from the text files written before prices were kept in ticks
+ * may have more decimal places than the tick size; toTicks() rounds them to the nearest tick, so
+ * the files are rewritten at the tick size, and counts and logs the prices it rounds.
+ */
+public final class PriceTicks {
+
+    private static final BigDecimal DEFAULT_TICK_SIZE = new BigDecimal("0.00000001");
+    private static final Logger LOGGER = Logger.getLogger(PriceTicks.class.getName());
+    private static final AtomicLong ROUNDED_PRICES = new AtomicLong();
+
+    private static BigDecimal tickSize = readTickSize();
+
+    private PriceTicks() {
+    }
+
+    public static BigDecimal getTickSize() {
+        return tickSize;
+    }
+
+    public static void setTickSize(BigDecimal size) {
+        if (size.signum() <= 0) {
+            throw new IllegalArgumentException("The tick size must be positive: " + size);
+        }
+        tickSize = size;
+    }
+
+    /**
+     * @param price a decimal price.
+     * @return the price as a whole number of ticks, rounded half up to the nearest tick.
+     */
+    public static long toTicks(BigDecimal price) {
+        BigDecimal ticks = price.divide(tickSize, 0, RoundingMode.HALF_UP);
+        if (ticks.multiply(tickSize).compareTo(price) != 0 && ROUNDED_PRICES.getAndIncrement() == 0) {
+            LOGGER.warning("The price " + price + " is not a multiple of the tick size " + tickSize
+                    + " and is rounded to " + toPrice(ticks.longValueExact()) + "; so are any further such prices");
+        }
+        return ticks.longValueExact();
+    }
+
+    /**
+     * Converts a price that need not be on the tick size, such as a bound of a price range, without
+     * counting it as rounded.
+     * @param price a decimal price.
+     * @param rounding how a price between two ticks is rounded.
+     * @return the price as a whole number of ticks.
+     */
+    public static long toTicks(BigDecimal price, RoundingMode rounding) {
+        return price.divide(tickSize, 0, rounding).longValueExact();
+    }
+
+    /**
+     * @param price a decimal price.
+     * @return the price as a whole number of ticks.
+     * @throws IllegalArgumentException if the price is not a multiple of the tick size.
+     */
+    public static long toTicksExact(BigDecimal price) {
+        if (!isOnTick(price)) {
+            throw new IllegalArgumentException("The price " + price + " is not a multiple of the tick size " + tickSize);
+        }
+        return price.divide(tickSize, 0, RoundingMode.UNNECESSARY).longValueExact();
+    }
+
+    /**
+     * @return true if the price is a whole number of ticks.
+     */
+    public static boolean isOnTick(BigDecimal price) {
+        return price.remainder(tickSize).signum() == 0;
+    }
+
+    /**
+     * @return the number of prices toTicks() has rounded to the tick size.
+     */
+    public static long getRoundedPrices() {
+        return ROUNDED_PRICES.get();
+    }
+
+    /**
+     * @param ticks a price in ticks.
+     * @return the decimal price, without trailing zeros.
+     */
+    public static BigDecimal toPrice(long ticks) {
+        BigDecimal price = tickSize.multiply(BigDecimal.valueOf(ticks)).stripTrailingZeros();
+        return price.scale() < 0 ? price.setScale(0) : price;
+    }
+
+    /**
+     * @param ticks the sum of several prices in ticks.
+     * @param count the number of prices summed.
+     * @param scale the number of decimal places of the result.
+     * @return the average decimal price.
+     */
+    public static BigDecimal average(long ticks, long count, int scale) {
+        return tickSize.multiply(BigDecimal.valueOf(ticks)).divide(BigDecimal.valueOf(count), scale, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal readTickSize() {
+        String property = System.getProperty("orderbook.tickSize");
+        return property == null ? DEFAULT_TICK_SIZE : new BigDecimal(property);
+    }
+}
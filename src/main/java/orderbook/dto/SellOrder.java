@@ -10,7 +10,22 @@ public class SellOrder extends Order{
     
     public SellOrder(int id, BigDecimal price, int quantity) {
         super(id, price, quantity);
-}
+    }
+    
+    public SellOrder(int id, long price, int quantity) {
+        super(id, price, quantity);
+    }
+    
+    public SellOrder(String symbol, int id, long price, int quantity) {
+        super(symbol, id, price, quantity);
+    }
+    
+    /**
+     * @param price the limit price in ticks, ignored for a market order.
+     */
+    public SellOrder(String symbol, int id, long price, int quantity, OrderType type) {
+        super(symbol, id, price, quantity, type);
+    }
     
     @Override
     public String toString() {
@@ -2,26 +2,68 @@ package orderbook.dto;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Trade {
-    private static int globalId = 0;
+    private static final AtomicInteger globalId = new AtomicInteger();
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NO_EXECUTION_TIME = Long.MIN_VALUE;
     
+    private String symbol = Order.DEFAULT_SYMBOL;
     private int tradeId;
-    private LocalDateTime executionTime;
+    private long executionTime = NO_EXECUTION_TIME;    // local date-time in nanoseconds since 1970-01-01T00:00
     private int quantity;
-    private BigDecimal price;
+    private long price;     // in ticks, see PriceTicks
 
     public Trade(){}
 
     public Trade(int quantity, BigDecimal price) {
-        this.tradeId = globalId++;
-        this.executionTime = LocalDateTime.now();
+        this(quantity, PriceTicks.toTicks(price));
+    }
+
+    public Trade(int quantity, long price) {
+        this(Order.DEFAULT_SYMBOL, quantity, price);
+    }
+
+    public Trade(String symbol, int quantity, long price) {
+        reset(symbol, quantity, price);
+    }
+
+    /**
+     * Makes this object a newly executed trade, with the next trade id and the current time, as the
+     * constructor does, so that a trade object can be recycled without allocating.
+     */
+    public void reset(String symbol, int quantity, long price) {
+        this.tradeId = globalId.getAndIncrement();
+        this.executionTime = ExecutionClock.now();
+        this.symbol = symbol;
         this.quantity = quantity;
         this.price = price;
     }
     
     public static void setGlobalId(int id) {
-        globalId = id;
+        globalId.set(id);
+    }
+    
+    public static int getGlobalId() {
+        return globalId.get();
+    }
+
+    /**
+     * Raises the next trade id to at least the given id, never lowering it, so that books
+     * matching concurrently cannot hand out an id twice.
+     */
+    public static void advanceGlobalId(int id) {
+        globalId.accumulateAndGet(id, Math::max);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
     }
 
     public int getTradeId() {
@@ -29,14 +71,49 @@ public class Trade {
     }
 
     public LocalDateTime getExecutionTime() {
+        if (executionTime == NO_EXECUTION_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(getExecutionEpochSecond(), getExecutionNano(), ZoneOffset.UTC);
+    }
+
+    /**
+     * @return the execution time's seconds since 1970-01-01T00:00, read as a local date-time.
+     */
+    public long getExecutionEpochSecond() {
+        return Math.floorDiv(executionTime, NANOS_PER_SECOND);
+    }
+
+    /**
+     * @return the nanosecond of the second of the execution time.
+     */
+    public int getExecutionNano() {
+        return (int) Math.floorMod(executionTime, NANOS_PER_SECOND);
+    }
+
+    /**
+     * @return the execution time in nanoseconds since 1970-01-01T00:00, read as a local date-time.
+     */
+    public long getExecutionNanos() {
         return executionTime;
     }
 
+    /**
+     * @return the local date-time in nanoseconds since 1970-01-01T00:00, as getExecutionNanos() reads it.
+     */
+    public static long toExecutionNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+    }
+
     public int getQuantity() {
         return quantity;
     }
 
     public BigDecimal getPrice() {
+        return PriceTicks.toPrice(price);
+    }
+
+    public long getPriceTicks() {
         return price;
     }
     
@@ -45,7 +122,12 @@ public class Trade {
     }
     
     public void setExecutionTime(LocalDateTime executionTime) {
-        this.executionTime = executionTime;
+        if (executionTime == null) {
+            this.executionTime = NO_EXECUTION_TIME;
+        }
+        else {
+            this.executionTime = toExecutionNanos(executionTime);
+        }
     }
     
     public void setQuantity(int quanity) {
@@ -53,6 +135,10 @@ public class Trade {
     }
     
     public void setPrice(BigDecimal price) {
+        this.price = PriceTicks.toTicks(price);
+    }
+
+    public void setPriceTicks(long price) {
         this.price = price;
     }
     
@@ -62,18 +148,20 @@ public class Trade {
     public String toString() {
         return "Trade{" +
                 "Id=" + tradeId +
-                ", executionTime=" + executionTime +
+                ", symbol=" + symbol +
+                ", executionTime=" + getExecutionTime() +
                 ", quantity=" + quantity +
-                ", price=" + price +
+                ", price=" + getPrice() +
                 '}';
     }
     
     public String tradeSummary() {
         return "Trade Summary \n" +
                 "Id:             " + tradeId + "\n" +
-                "Execution time: " + executionTime +"\n" +
+                "Symbol:         " + symbol + "\n" +
+                "Execution time: " + getExecutionTime() +"\n" +
                 "Quantity:       " + quantity +"\n" +
-                "Price:          " + price;
+                "Price:          " + getPrice();
     }
     
     
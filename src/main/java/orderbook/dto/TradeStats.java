@@ -0,0 +1,70 @@
+package orderbook.dto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Aggregate statistics of the trades executed in a time window: how many there were, the quantity
+ * traded, and the lowest, highest and volume-weighted average prices.
+ */
+public class TradeStats {
+
+    private static final int PRICE_SCALE = 5;
+
+    private final long count;
+    private final long volume;
+    private final long lowPrice;        // in ticks
+    private final long highPrice;       // in ticks
+    private final BigInteger notional;  // the sum of price in ticks times quantity
+
+    public TradeStats(long count, long volume, long lowPrice, long highPrice, BigInteger notional) {
+        this.count = count;
+        this.volume = volume;
+        this.lowPrice = lowPrice;
+        this.highPrice = highPrice;
+        this.notional = notional;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the total quantity traded.
+     */
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return the lowest trade price, or zero if there were no trades.
+     */
+    public BigDecimal getLowPrice() {
+        return count == 0 ? BigDecimal.ZERO : PriceTicks.toPrice(lowPrice);
+    }
+
+    /**
+     * @return the highest trade price, or zero if there were no trades.
+     */
+    public BigDecimal getHighPrice() {
+        return count == 0 ? BigDecimal.ZERO : PriceTicks.toPrice(highPrice);
+    }
+
+    /**
+     * @return the average trade price weighted by quantity, or zero if there were no trades.
+     */
+    public BigDecimal getVwap() {
+        if (volume == 0) {
+            return BigDecimal.ZERO;
+        }
+        return new BigDecimal(notional).multiply(PriceTicks.getTickSize())
+                .divide(BigDecimal.valueOf(volume), PRICE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public String toString() {
+        return "TradeStats{" + "count=" + count + ", volume=" + volume + ", lowPrice=" + getLowPrice()
+                + ", highPrice=" + getHighPrice() + ", vwap=" + getVwap() + '}';
+    }
+}
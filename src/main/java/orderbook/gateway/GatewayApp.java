@@ -0,0 +1,31 @@
+package orderbook.gateway;
+
+import java.io.IOException;
+import orderbook.service.OrderBookServiceLayer;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+/**
+ * Runs the order-entry gateway over the book configured in applicationContext.xml, without the
+ * console, until enter is pressed.
+ *
+ * Usage: GatewayApp [port]
+ */
+public class GatewayApp {
+
+    public static final int DEFAULT_PORT = 9001;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+
+        ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext("applicationContext.xml");
+        OrderBookServiceLayer service = ctx.getBean("service", OrderBookServiceLayer.class);
+        OrderGateway gateway = new OrderGateway(service, port);
+        gateway.start();
+        System.out.println("Order gateway listening on port " + gateway.getPort() + ". Press enter to stop.");
+
+        System.in.read();
+        gateway.close();
+        System.out.println(gateway.getMessageCount() + " messages received.");
+        ctx.close();    // Snapshots the book and closes the journal.
+    }
+}
@@ -0,0 +1,113 @@
+package orderbook.gateway;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.OrderType;
+import orderbook.dto.PriceTicks;
+import static orderbook.gateway.GatewayProtocol.*;
+
+/**
+ * Drives an order gateway on loopback with a stream of limit orders alternating buy and sell at
+ * one price, so every sell fills the buy before it. Orders are written in batches without waiting
+ * for their reports, while a second thread reads the reports back until every order has been
+ * acknowledged.
+ *
+ * Usage: GatewayLoadClient [port] [orders]
+ */
+public class GatewayLoadClient {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final int port;
+    private long acks;
+    private long rejects;
+    private long fills;
+
+    public GatewayLoadClient(int port) {
+        this.port = port;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : GatewayApp.DEFAULT_PORT;
+        int orders = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        GatewayLoadClient client = new GatewayLoadClient(port);
+        long nanos = client.run(orders);
+        System.out.println(orders + " orders in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms: "
+                + (long) (orders / (nanos / 1e9)) + " orders/s, " + client.getFills() + " fills, "
+                + client.getRejects() + " rejects");
+    }
+
+    /**
+     * Sends the orders and waits for all of their ACKs.
+     * @return the elapsed time in nanoseconds.
+     */
+    public long run(int orders) throws IOException, InterruptedException {
+        long price = PriceTicks.toTicks(new BigDecimal("190.5"));
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            channel.socket().setTcpNoDelay(true);
+            Thread reader = new Thread(() -> readReports(channel, orders), "gateway-load-reader");
+            long start = System.nanoTime();
+            reader.start();
+            ByteBuffer out = ByteBuffer.allocateDirect(BATCH_SIZE * MESSAGE_SIZE);
+            for (int i = 0; i < orders; i++) {
+                encodeNewOrder(out, i % 2 == 0 ? BUY : SELL, OrderType.LIMIT.ordinal(), 10, price, i);
+                if (!out.hasRemaining() || i == orders - 1) {
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        channel.write(out);
+                    }
+                    out.clear();
+                }
+            }
+            reader.join();
+            return System.nanoTime() - start;
+        }
+    }
+
+    public long getAcks() {
+        return acks;
+    }
+
+    public long getRejects() {
+        return rejects;
+    }
+
+    public long getFills() {
+        return fills;
+    }
+
+    private void readReports(SocketChannel channel, int orders) {
+        ByteBuffer in = ByteBuffer.allocateDirect(BATCH_SIZE * MESSAGE_SIZE);
+        try {
+            while (acks < orders) {
+                if (channel.read(in) < 0) {
+                    return;
+                }
+                in.flip();
+                while (in.remaining() >= MESSAGE_SIZE) {
+                    int start = in.position();
+                    byte type = in.get(start + TYPE);
+                    if (type == ACK) {
+                        acks++;
+                        if (in.get(start + STATUS) == REJECTED) {
+                            rejects++;
+                        }
+                    }
+                    else if (type == FILL) {
+                        fills++;
+                    }
+                    in.position(start + MESSAGE_SIZE);
+                }
+                in.compact();
+            }
+        }
+        catch (IOException e) {
+            // The gateway closed the connection; run() reports what was received.
+        }
+    }
+}
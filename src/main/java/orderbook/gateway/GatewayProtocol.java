@@ -0,0 +1,112 @@
+package orderbook.gateway;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary message format of the order-entry gateway. Every message, in either direction, is
+ * MESSAGE_SIZE bytes long with its fields at fixed offsets, big-endian, so a message is framed by
+ * its length alone and each field is read or written with one absolute get or put on the buffer.
+ *
+ * <pre>
+ * NEW_ORDER  (client)  0 type, 1 side, 2 order type, 4 int quantity, 8 long price ticks, 16 long client order id
+ * CANCEL     (client)  0 type, 4 int order id, 16 long client order id
+ * ACK        (gateway) 0 type, 1 side, 2 status, 4 int order id, 8 int leaves quantity, 16 long client order id
+ * FILL       (gateway) 0 type, 1 side, 4 int quantity, 8 long price ticks, 16 long client order id,
+ *                      24 int order id, 28 int trade id
+ * </pre>
+ *
+ * Unused bytes are zero. The client order id is chosen by the client and echoed on every report
+ * about the order; the order id is assigned by the gateway and returned in the order's ACK.
+ */
+public final class GatewayProtocol {
+
+    public static final int MESSAGE_SIZE = 32;
+
+    // Message types.
+    public static final byte NEW_ORDER = 'N';
+    public static final byte CANCEL = 'C';
+    public static final byte ACK = 'A';
+    public static final byte FILL = 'F';
+
+    // Sides.
+    public static final byte BUY = 'B';
+    public static final byte SELL = 'S';
+
+    // ACK statuses.
+    /** The order was accepted; any unfilled quantity is resting in the book. */
+    public static final byte ACCEPTED = 0;
+    /** The order, or its unfilled remainder, was cancelled. */
+    public static final byte CANCELLED = 1;
+    /** The message was invalid or named an order that is not resting in the book. */
+    public static final byte REJECTED = 2;
+
+    // Field offsets.
+    public static final int TYPE = 0;
+    public static final int SIDE = 1;
+    public static final int ORDER_TYPE = 2;
+    public static final int STATUS = 2;
+    public static final int QUANTITY = 4;
+    public static final int CANCEL_ORDER_ID = 4;
+    public static final int ACK_ORDER_ID = 4;
+    public static final int PRICE = 8;
+    public static final int LEAVES_QUANTITY = 8;
+    public static final int CLIENT_ORDER_ID = 16;
+    public static final int FILL_ORDER_ID = 24;
+    public static final int TRADE_ID = 28;
+
+    private GatewayProtocol() {
+    }
+
+    /**
+     * @param orderType the ordinal of the order's OrderType.
+     */
+    public static void encodeNewOrder(ByteBuffer buffer, byte side, int orderType, int quantity, long price,
+            long clientOrderId) {
+        int start = begin(buffer, NEW_ORDER);
+        buffer.put(start + SIDE, side);
+        buffer.put(start + ORDER_TYPE, (byte) orderType);
+        buffer.putInt(start + QUANTITY, quantity);
+        buffer.putLong(start + PRICE, price);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+    }
+
+    public static void encodeCancel(ByteBuffer buffer, int orderId, long clientOrderId) {
+        int start = begin(buffer, CANCEL);
+        buffer.putInt(start + CANCEL_ORDER_ID, orderId);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+    }
+
+    public static void encodeAck(ByteBuffer buffer, byte side, byte status, int orderId, int leavesQuantity,
+            long clientOrderId) {
+        int start = begin(buffer, ACK);
+        buffer.put(start + SIDE, side);
+        buffer.put(start + STATUS, status);
+        buffer.putInt(start + ACK_ORDER_ID, orderId);
+        buffer.putInt(start + LEAVES_QUANTITY, leavesQuantity);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+    }
+
+    public static void encodeFill(ByteBuffer buffer, byte side, int quantity, long price, long clientOrderId,
+            int orderId, int tradeId) {
+        int start = begin(buffer, FILL);
+        buffer.put(start + SIDE, side);
+        buffer.putInt(start + QUANTITY, quantity);
+        buffer.putLong(start + PRICE, price);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+        buffer.putInt(start + FILL_ORDER_ID, orderId);
+        buffer.putInt(start + TRADE_ID, tradeId);
+    }
+
+    /**
+     * Zeroes the next MESSAGE_SIZE bytes of the buffer, writes the message type and advances the
+     * position past the message.
+     * @return the offset of the message in the buffer.
+     */
+    private static int begin(ByteBuffer buffer, byte type) {
+        int start = buffer.position();
+        buffer.putLong(start, 0).putLong(start + 8, 0).putLong(start + 16, 0).putLong(start + 24, 0);
+        buffer.put(start + TYPE, type);
+        buffer.position(start + MESSAGE_SIZE);
+        return start;
+    }
+}
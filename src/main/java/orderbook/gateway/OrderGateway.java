@@ -0,0 +1,439 @@
+package orderbook.gateway;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.OrderType;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import orderbook.service.ExecutionListener;
+import orderbook.service.ObjectPool;
+import orderbook.service.OrderBookServiceLayer;
+import static orderbook.gateway.GatewayProtocol.*;
+
+/**
+ * A non-blocking order-entry gateway on a loopback TCP port, speaking the fixed-layout binary
+ * format of GatewayProtocol.
+ *
+ * One thread runs the selector loop and is also the only thread that touches the book: each
+ * complete message is decoded with absolute reads straight from the connection's direct read
+ * buffer, applied to the service, and its ACK and FILL reports are encoded straight into the
+ * direct write buffers of the connections concerned, which are flushed once the messages read in
+ * that round have been handled. A resting order entered through the gateway is remembered with its
+ * connection, so its owner is sent a FILL whenever a later order trades against it.
+ *
+ * Orders are taken from pools and returned to them once they have left the book, and trades are
+ * recycled once their fills have been encoded, so a steady flow of orders reuses the same objects.
+ *
+ * A connection whose reports are not being read stops being read from itself once a megabyte of
+ * reports is waiting to be sent, until it catches up. Orders of other connections can still fill
+ * its resting orders, so a connection with OUTPUT_LIMIT bytes of reports waiting is dropped.
+ *
+ * When a connection is closed, by the client or by the gateway, its resting orders are cancelled,
+ * as nobody would be left to cancel them or be told of their fills.
+ */
+public class OrderGateway {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int OUTPUT_HIGH_WATER = 1024 * 1024;
+    private static final int OUTPUT_LIMIT = 16 * 1024 * 1024;
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final int ORDER_POOL_CAPACITY = 64 * 1024;
+
+    private final OrderBookServiceLayer service;
+    private final int requestedPort;
+    private final Map<Integer, Owner> owners = new HashMap<>();     // Resting gateway orders by order id.
+    private final List<Session> pendingOutput = new ArrayList<>();
+    private final ByteBuffer discardedOutput = ByteBuffer.allocateDirect(MESSAGE_SIZE);
+    private final ExecutionListener restingFills = this::onRestingFill;
+    private final ObjectPool<BuyOrder> buyOrders = new ObjectPool<>(
+            () -> new BuyOrder(Order.DEFAULT_SYMBOL, 0, 0, 0, OrderType.LIMIT), ORDER_POOL_CAPACITY);
+    private final ObjectPool<SellOrder> sellOrders = new ObjectPool<>(
+            () -> new SellOrder(Order.DEFAULT_SYMBOL, 0, 0, 0, OrderType.LIMIT), ORDER_POOL_CAPACITY);
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long messageCount;
+
+    /**
+     * @param service the order book, which must not be changed other than through the gateway while it runs.
+     * @param port the loopback port to listen on, or 0 for any free port.
+     */
+    public OrderGateway(OrderBookServiceLayer service, int port) {
+        this.service = service;
+        this.requestedPort = port;
+    }
+
+    /**
+     * Binds the port and starts the gateway thread.
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        thread = new Thread(this::run, "order-gateway");
+        thread.start();
+    }
+
+    /**
+     * @return the port the gateway is listening on.
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * @return the number of messages received so far.
+     */
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Stops the gateway thread and closes every connection.
+     */
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        selector.wakeup();
+        thread.join();
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    else {
+                        Session session = (Session) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                session.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                session.flush();
+                            }
+                        }
+                        catch (IOException e) {
+                            session.close();
+                        }
+                    }
+                }
+                for (Session session : pendingOutput) {
+                    try {
+                        session.flush();
+                    }
+                    catch (IOException e) {
+                        session.close();
+                    }
+                }
+                pendingOutput.clear();
+            }
+            catch (IOException e) {
+                // The selector itself has failed; nothing more can be served.
+                running = false;
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Session(channel, key));
+    }
+
+    /**
+     * Sends the owner of a resting gateway order its fill, and recycles the order once it is filled.
+     */
+    private void onRestingFill(Order restingOrder, int leavesQuantity, Trade trade) {
+        Owner owner = leavesQuantity == 0 ? owners.remove(restingOrder.getId()) : owners.get(restingOrder.getId());
+        if (owner == null) {
+            return;
+        }
+        if (!owner.session.closed) {
+            encodeFill(owner.session.reserve(), owner.side, trade.getQuantity(), trade.getPriceTicks(),
+                    owner.clientOrderId, restingOrder.getId(), trade.getTradeId());
+            owner.session.pending();
+        }
+        if (leavesQuantity == 0) {
+            recycle(restingOrder);
+        }
+    }
+
+    /**
+     * Returns an order entered through the gateway to its pool once it has left the book.
+     */
+    private void recycle(Order order) {
+        if (order instanceof BuyOrder) {
+            buyOrders.release((BuyOrder) order);
+        }
+        else {
+            sellOrders.release((SellOrder) order);
+        }
+    }
+
+    /**
+     * A resting order entered through the gateway, and the connection that entered it.
+     */
+    private static class Owner {
+
+        private final Session session;
+        private final byte side;
+        private final long clientOrderId;
+
+        Owner(Session session, byte side, long clientOrderId) {
+            this.session = session;
+            this.side = side;
+            this.clientOrderId = clientOrderId;
+        }
+    }
+
+    /**
+     * A client connection and its buffers.
+     */
+    private class Session {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private boolean closed;
+        private boolean pending;
+        private boolean overflowed;     // Dropped at the end of the round, outside any service call.
+
+        Session(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            while (in.remaining() >= MESSAGE_SIZE) {
+                handle(in.position());
+                in.position(in.position() + MESSAGE_SIZE);
+                messageCount++;
+            }
+            in.compact();
+        }
+
+        private void handle(int start) {
+            switch (in.get(start + TYPE)) {
+                case NEW_ORDER -> handleNewOrder(start);
+                case CANCEL -> handleCancel(start);
+                default -> encodeAck(reserve(), (byte) 0, REJECTED, 0, 0, in.getLong(start + CLIENT_ORDER_ID));
+            }
+            pending();
+        }
+
+        private void handleNewOrder(int start) {
+            byte side = in.get(start + SIDE);
+            int orderType = in.get(start + ORDER_TYPE);
+            int quantity = in.getInt(start + QUANTITY);
+            long price = in.getLong(start + PRICE);
+            long clientOrderId = in.getLong(start + CLIENT_ORDER_ID);
+            if ((side != BUY && side != SELL) || orderType < 0 || orderType >= ORDER_TYPES.length || quantity <= 0) {
+                encodeAck(reserve(), side, REJECTED, 0, 0, clientOrderId);
+                return;
+            }
+            OrderType type = ORDER_TYPES[orderType];
+            if (type != OrderType.MARKET && price <= 0) {
+                encodeAck(reserve(), side, REJECTED, 0, 0, clientOrderId);
+                return;
+            }
+            int orderId = Order.nextGlobalId();
+            Order order;
+            List<Trade> trades;
+            if (side == BUY) {
+                order = buyOrders.acquire();
+            }
+            else {
+                order = sellOrders.acquire();
+            }
+            order.setId(orderId);
+            order.setPriceTicks(price);
+            order.setQuantity(quantity);
+            order.setType(type);
+            try {
+                if (side == BUY) {
+                    trades = service.executeBuyOrder((BuyOrder) order, restingFills);
+                }
+                else {
+                    trades = service.executeSellOrder((SellOrder) order, restingFills);
+                }
+            }
+            catch (PersistenceException e) {
+                encodeAck(reserve(), side, REJECTED, orderId, 0, clientOrderId);
+                return;     // Not recycled, as the book may still hold the order.
+            }
+            boolean resting = type.rests() && order.getQuantity() > 0;
+            byte status = resting || order.getQuantity() == 0 ? ACCEPTED : CANCELLED;
+            encodeAck(reserve(), side, status, orderId, resting ? order.getQuantity() : 0, clientOrderId);
+            for (int i = 0; i < trades.size(); i++) {
+                Trade trade = trades.get(i);
+                encodeFill(reserve(), side, trade.getQuantity(), trade.getPriceTicks(), clientOrderId, orderId,
+                        trade.getTradeId());
+            }
+            service.recycleTrades(trades);
+            if (resting) {
+                owners.put(orderId, new Owner(this, side, clientOrderId));
+            }
+            else {
+                recycle(order);
+            }
+        }
+
+        private void handleCancel(int start) {
+            int orderId = in.getInt(start + CANCEL_ORDER_ID);
+            long clientOrderId = in.getLong(start + CLIENT_ORDER_ID);
+            Owner owner = owners.get(orderId);
+            if (owner == null || owner.session != this) {
+                encodeAck(reserve(), (byte) 0, REJECTED, orderId, 0, clientOrderId);
+                return;
+            }
+            Order cancelled;
+            try {
+                cancelled = service.cancelOrder(orderId);
+            }
+            catch (PersistenceException e) {
+                encodeAck(reserve(), owner.side, REJECTED, orderId, 0, clientOrderId);
+                return;
+            }
+            if (cancelled == null) {
+                encodeAck(reserve(), owner.side, REJECTED, orderId, 0, clientOrderId);
+                return;
+            }
+            owners.remove(orderId);
+            recycle(cancelled);
+            encodeAck(reserve(), owner.side, CANCELLED, orderId, 0, clientOrderId);
+        }
+
+        /**
+         * @return the write buffer, with room for at least one more message, or a scratch buffer
+         * whose contents are discarded once the session has OUTPUT_LIMIT bytes waiting.
+         */
+        ByteBuffer reserve() {
+            if (!overflowed && out.remaining() < MESSAGE_SIZE) {
+                if (out.capacity() * 2 > OUTPUT_LIMIT) {
+                    overflowed = true;
+                    pending();
+                }
+                else {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(out.capacity() * 2);
+                    out.flip();
+                    larger.put(out);
+                    out = larger;
+                }
+            }
+            if (overflowed) {
+                discardedOutput.clear();
+                return discardedOutput;
+            }
+            return out;
+        }
+
+        /**
+         * Marks the session as having reports to send at the end of this round.
+         */
+        void pending() {
+            if (!pending) {
+                pending = true;
+                pendingOutput.add(this);
+            }
+        }
+
+        void flush() throws IOException {
+            pending = false;
+            if (closed) {
+                return;
+            }
+            if (overflowed) {
+                close();
+                return;
+            }
+            out.flip();
+            channel.write(out);
+            out.compact();
+            int ops = out.position() > 0 ? SelectionKey.OP_WRITE : 0;
+            if (out.position() < OUTPUT_HIGH_WATER) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            try {
+                channel.close();
+            }
+            catch (IOException e) {
+                // Already unusable; the connection is dropped either way.
+            }
+            cancelRestingOrders();
+        }
+
+        /**
+         * Cancels the session's resting orders and forgets them.
+         */
+        private void cancelRestingOrders() {
+            Iterator<Map.Entry<Integer, Owner>> entries = owners.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Integer, Owner> entry = entries.next();
+                if (entry.getValue().session != this) {
+                    continue;
+                }
+                entries.remove();
+                try {
+                    Order cancelled = service.cancelOrder(entry.getKey());
+                    if (cancelled != null) {
+                        recycle(cancelled);
+                    }
+                }
+                catch (PersistenceException e) {
+                    // Left in the book, and not recycled, as a cancel the client sent would be.
+                }
+            }
+        }
+    }
+}
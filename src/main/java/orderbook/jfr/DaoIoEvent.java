@@ -0,0 +1,64 @@
+package orderbook.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A full load or write of one of the text files behind the file DAOs, so latency spikes can be
+ * matched to the file reloads and rewrites that caused them.
+ */
+@Name("orderbook.DaoIo")
+@Label("DAO File Load or Write")
+@Category("Order Book")
+@Description("A load or write of a DAO's text file")
+@StackTrace(true)
+public class DaoIoEvent extends Event {
+
+    public static final String LOAD = "load";
+    public static final String WRITE = "write";
+
+    private static final EventType TYPE = EventType.getEventType(DaoIoEvent.class);
+
+    @Label("DAO")
+    private String dao;
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("File")
+    private String file;
+
+    @Label("Records")
+    private int records;
+
+    /**
+     * @param dao the class of the DAO.
+     * @param operation LOAD or WRITE.
+     * @return a new event with its timing begun, or null when no recording takes the event.
+     */
+    public static DaoIoEvent start(Class<?> dao, String operation, String file) {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        DaoIoEvent event = new DaoIoEvent();
+        event.dao = dao.getSimpleName();
+        event.operation = operation;
+        event.file = file;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the timing and commits the event.
+     * @param records the number of records loaded or written.
+     */
+    public void record(int records) {
+        this.records = records;
+        commit();
+    }
+}
@@ -0,0 +1,55 @@
+package orderbook.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One uncrossing of the whole book by matchAllOrders.
+ */
+@Name("orderbook.MatchAll")
+@Label("Match All Orders")
+@Category("Order Book")
+@Description("One uncrossing of the whole book")
+@StackTrace(false)
+public class MatchAllEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(MatchAllEvent.class);
+
+    @Label("Buy Orders")
+    @Description("The number of buy orders in the book beforehand")
+    private int buyOrders;
+
+    @Label("Sell Orders")
+    @Description("The number of sell orders in the book beforehand")
+    private int sellOrders;
+
+    @Label("Trades")
+    private int trades;
+
+    /**
+     * @return a new event with its timing begun, or null when no recording takes the event.
+     */
+    public static MatchAllEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        MatchAllEvent event = new MatchAllEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the timing and commits the event.
+     */
+    public void record(int buyOrders, int sellOrders, int trades) {
+        this.buyOrders = buyOrders;
+        this.sellOrders = sellOrders;
+        this.trades = trades;
+        commit();
+    }
+}
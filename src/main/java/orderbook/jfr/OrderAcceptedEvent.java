@@ -0,0 +1,83 @@
+package orderbook.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+
+/**
+ * An order added to the book or executed against it, timed over the whole operation. Only orders
+ * slower than the threshold are recorded by default, so a continuous recording keeps the outliers.
+ */
+@Name("orderbook.OrderAccepted")
+@Label("Order Accepted")
+@Category("Order Book")
+@Description("An order added to the book or executed against it")
+@StackTrace(false)
+@Threshold("50 us")
+public class OrderAcceptedEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(OrderAcceptedEvent.class);
+
+    @Label("Symbol")
+    private String symbol;
+
+    @Label("Side")
+    private String side;
+
+    @Label("Order Id")
+    private int orderId;
+
+    @Label("Order Type")
+    private String orderType;
+
+    @Label("Price")
+    private double price;
+
+    @Label("Quantity")
+    private int quantity;
+
+    @Label("Leaves Quantity")
+    @Description("The quantity left resting in the book")
+    private int leavesQuantity;
+
+    @Label("Book Depth")
+    @Description("The number of orders resting on the order's side once it was accepted")
+    private long bookDepth;
+
+    /**
+     * @return a new event with its timing begun, or null when no recording takes the event, so
+     * nothing is allocated on the matching path unless it is being recorded.
+     */
+    public static OrderAcceptedEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        OrderAcceptedEvent event = new OrderAcceptedEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the timing and commits the event.
+     * @param quantity the quantity the order arrived with; the order holds its unfilled remainder.
+     * @param leavesQuantity the quantity left resting in the book.
+     */
+    public void record(Order order, String side, int quantity, int leavesQuantity, long bookDepth) {
+        symbol = order.getSymbol();
+        this.side = side;
+        orderId = order.getId();
+        orderType = order.getType().name();
+        price = PriceTicks.toPrice(order.getPriceTicks()).doubleValue();
+        this.quantity = quantity;
+        this.leavesQuantity = leavesQuantity;
+        this.bookDepth = bookDepth;
+        commit();
+    }
+}
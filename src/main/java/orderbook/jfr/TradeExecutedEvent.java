@@ -0,0 +1,52 @@
+package orderbook.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import orderbook.dto.Trade;
+
+/**
+ * A trade executed and persisted. There is one per fill, so it is off unless a recording enables it.
+ */
+@Name("orderbook.TradeExecuted")
+@Label("Trade Executed")
+@Category("Order Book")
+@Description("A trade executed and persisted")
+@StackTrace(false)
+@Enabled(false)
+public class TradeExecutedEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(TradeExecutedEvent.class);
+
+    @Label("Symbol")
+    private String symbol;
+
+    @Label("Trade Id")
+    private int tradeId;
+
+    @Label("Price")
+    private double price;
+
+    @Label("Quantity")
+    private int quantity;
+
+    /**
+     * Commits an instant event for the trade, if it is being recorded.
+     */
+    public static void record(Trade trade) {
+        if (!TYPE.isEnabled()) {
+            return;
+        }
+        TradeExecutedEvent event = new TradeExecutedEvent();
+        event.symbol = trade.getSymbol();
+        event.tradeId = trade.getTradeId();
+        event.price = trade.getPrice().doubleValue();
+        event.quantity = trade.getQuantity();
+        event.commit();
+    }
+}
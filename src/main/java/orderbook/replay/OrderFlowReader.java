@@ -0,0 +1,151 @@
+package orderbook.replay;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.OrderType;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Reads captured order flow for replay, one order per line, in either of two formats.
+ *
+ * An order flow file holds both sides with their arrival times, one order per line as
+ * time::side::id::price::quantity[::type], for instance 2021-04-09T14:01:39.517521500::BUY::7::190.5::30::IOC.
+ * The time is a local date-time as trades are timestamped, the side is BUY or SELL and the type
+ * defaults to LIMIT. A price that is not a multiple of the tick size is refused.
+ *
+ * A pair of order files in the id::price::quantity format of buyOrderFile.txt and sellOrderFile.txt
+ * carries no times, so the two files are read alternately, a buy then a sell, until both run out.
+ * Their prices are rounded to the tick size, as they are when the order files themselves are loaded.
+ */
+public class OrderFlowReader implements Closeable {
+
+    /** The time of an order read from files without times. */
+    public static final long UNTIMED = -1;
+
+    private static final String DELIMITER = "::";
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final BufferedReader orderFlow;
+    private final BufferedReader buyOrders;
+    private final BufferedReader sellOrders;
+    private boolean sellNext;
+    private long timestamp = UNTIMED;
+    private String line;
+
+    /**
+     * @param orderFlowFile a file of timed orders for both sides.
+     */
+    public OrderFlowReader(String orderFlowFile) throws PersistenceException {
+        this.orderFlow = open(orderFlowFile);
+        this.buyOrders = null;
+        this.sellOrders = null;
+    }
+
+    /**
+     * @param buyOrderFile a file of buy orders without times.
+     * @param sellOrderFile a file of sell orders without times.
+     */
+    public OrderFlowReader(String buyOrderFile, String sellOrderFile) throws PersistenceException {
+        this.orderFlow = null;
+        this.buyOrders = open(buyOrderFile);
+        this.sellOrders = open(sellOrderFile);
+    }
+
+    /**
+     * @return the next order, a BuyOrder or a SellOrder, or null once every order has been read.
+     */
+    public Order next() throws PersistenceException {
+        try {
+            if (orderFlow != null) {
+                return nextLine(orderFlow) ? unmarshallTimedOrder(line) : null;
+            }
+            // Once one file runs out the rest of the other is read.
+            for (int attempt = 0; attempt < 2; attempt++) {
+                boolean sell = sellNext;
+                sellNext = !sellNext;
+                if (nextLine(sell ? sellOrders : buyOrders)) {
+                    String[] fields = line.split(DELIMITER);
+                    return unmarshallOrder(fields, 0, sell, OrderType.LIMIT, PriceTicks.toTicks(new BigDecimal(fields[1])));
+                }
+            }
+            return null;
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not read the order flow", e);
+        }
+        catch (RuntimeException e) {
+            throw new PersistenceException("Could not parse the order " + line, e);
+        }
+    }
+
+    /**
+     * @return the time of the order last read, as nanoseconds since 1970-01-01T00:00 local time, or
+     * UNTIMED if the orders have no times.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (orderFlow != null) {
+            orderFlow.close();
+        }
+        else {
+            buyOrders.close();
+            sellOrders.close();
+        }
+    }
+
+    private Order unmarshallTimedOrder(String timedOrder) {
+        String[] fields = timedOrder.split(DELIMITER);
+        LocalDateTime time = LocalDateTime.parse(fields[0]);
+        timestamp = time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND + time.getNano();
+        boolean sell;
+        switch (fields[1]) {
+            case "BUY":
+                sell = false;
+                break;
+            case "SELL":
+                sell = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown side " + fields[1]);
+        }
+        OrderType type = fields.length > 5 ? OrderType.valueOf(fields[5]) : OrderType.LIMIT;
+        return unmarshallOrder(fields, 2, sell, type, PriceTicks.toTicksExact(new BigDecimal(fields[3])));
+    }
+
+    private Order unmarshallOrder(String[] fields, int first, boolean sell, OrderType type, long price) {
+        int id = Integer.parseInt(fields[first]);
+        int quantity = Integer.parseInt(fields[first + 2]);
+        return sell
+                ? new SellOrder(Order.DEFAULT_SYMBOL, id, price, quantity, type)
+                : new BuyOrder(Order.DEFAULT_SYMBOL, id, price, quantity, type);
+    }
+
+    private boolean nextLine(BufferedReader reader) throws IOException {
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isBlank());
+        return line != null;
+    }
+
+    private static BufferedReader open(String file) throws PersistenceException {
+        try {
+            return new BufferedReader(new FileReader(file));
+        }
+        catch (IOException e) {
+            throw new PersistenceException("Could not open the order flow " + file, e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package orderbook.replay;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.exceptions.PersistenceException;
+import orderbook.service.OrderBookServiceLayerImpl;
+
+/**
+ * Replays captured order flow through a fresh in-memory book, without the console, and reports the
+ * throughput and the latency percentiles. The resulting trades are appended to a memory-mapped
+ * trade log of their own, so the application's trade history is left alone.
+ *
+ * Usage: ReplayApp tradeLog orderFlow [speed]
+ *        ReplayApp tradeLog buyOrders sellOrders [speed]
+ *
+ * The formats of the order files are described in OrderFlowReader. The speed is how many times
+ * faster than captured timed orders are replayed; it defaults to 0, as fast as possible.
+ */
+public class ReplayApp {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+
+    public static void main(String[] args) throws PersistenceException, IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.out.println("Usage: ReplayApp tradeLog orderFlow [speed]");
+            System.out.println("       ReplayApp tradeLog buyOrders sellOrders [speed]");
+            return;
+        }
+        boolean orderPair = args.length == 4 || (args.length == 3 && !isNumber(args[2]));
+        int speedArg = orderPair ? 3 : 2;
+        double speed = args.length > speedArg ? Double.parseDouble(args[speedArg]) : 0;
+
+        OrderBookEngine engine = new OrderBookEngine();
+        TradeDaoMappedImpl tradeDao = new TradeDaoMappedImpl(args[0]);
+        ReplayRunner runner = new ReplayRunner(new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), tradeDao), speed);
+        try (OrderFlowReader orderFlow = orderPair ? new OrderFlowReader(args[1], args[2]) : new OrderFlowReader(args[1])) {
+            runner.run(orderFlow);
+        }
+        finally {
+            tradeDao.close();
+        }
+
+        double seconds = runner.getElapsedNanos() / 1e9;
+        System.out.println(runner.getOrders() + " orders in " + TimeUnit.NANOSECONDS.toMillis(runner.getElapsedNanos())
+                + " ms: " + (long) (runner.getOrders() / seconds) + " orders/s, " + runner.getTrades() + " trades, "
+                + (long) (runner.getTrades() / seconds) + " trades/s");
+        StringBuilder latencies = new StringBuilder("Latency (us):");
+        for (double percentile : PERCENTILES) {
+            latencies.append(percentile == 100 ? " max " : " p" + formatPercentile(percentile) + " ")
+                    .append(String.format("%.1f", runner.getLatencyPercentile(percentile) / 1e3));
+        }
+        System.out.println(latencies);
+        System.out.println(engine.getBids().size() + " bids and " + engine.getAsks().size() + " asks left resting.");
+    }
+
+    private static boolean isNumber(String arg) {
+        try {
+            Double.parseDouble(arg);
+            return true;
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
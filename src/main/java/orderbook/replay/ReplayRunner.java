@@ -0,0 +1,151 @@
+package orderbook.replay;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import orderbook.service.OrderBookServiceLayer;
+
+/**
+ * Replays order flow through a book's service layer on the calling thread, executing each order as
+ * it arrives, and measures the throughput and the latency of every order.
+ *
+ * At a speed of zero orders are executed back to back as fast as the book takes them, and an
+ * order's latency is the time its execution took. At any other speed timed orders are executed at
+ * their original spacing divided by the speed, so 2 replays twice as fast as the flow was captured,
+ * and an order's latency runs from when it was due rather than from when it started: if the book
+ * falls behind, the wait of the orders queued up behind is counted too.
+ *
+ * The flow is read and parsed a batch of orders at a time, and the clock is stopped while a batch
+ * is read, so neither the throughput nor the latencies include the cost of parsing the files.
+ */
+public class ReplayRunner {
+
+    // Waits longer than this are parked, and the rest of the wait is spun.
+    private static final long SPIN_NANOS = 50_000;
+    private static final int BATCH_SIZE = 65_536;
+
+    private final OrderBookServiceLayer service;
+    private final double speed;
+    private final Order[] batch = new Order[BATCH_SIZE];
+    private final long[] batchTimestamps = new long[BATCH_SIZE];
+
+    private long[] latencies = new long[1024];
+    private int orders;
+    private long trades;
+    private long elapsedNanos;
+    private long[] sortedLatencies;
+
+    /**
+     * @param service the book to replay the orders into.
+     * @param speed how many times faster than captured to replay timed orders, or 0 to replay as
+     * fast as possible.
+     */
+    public ReplayRunner(OrderBookServiceLayer service, double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative");
+        }
+        this.service = service;
+        this.speed = speed;
+    }
+
+    /**
+     * Executes every order of the flow in turn.
+     * @return the elapsed time in nanoseconds.
+     */
+    public long run(OrderFlowReader orderFlow) throws PersistenceException {
+        long start;
+        long firstTimestamp = OrderFlowReader.UNTIMED;
+        elapsedNanos = 0;
+        int size;
+        while ((size = readBatch(orderFlow)) > 0) {
+            // The replay clock resumes where it stopped before the batch was read.
+            start = System.nanoTime() - elapsedNanos;
+            for (int i = 0; i < size; i++) {
+                long begin;
+                if (speed > 0 && batchTimestamps[i] != OrderFlowReader.UNTIMED) {
+                    if (firstTimestamp == OrderFlowReader.UNTIMED) {
+                        firstTimestamp = batchTimestamps[i];
+                    }
+                    begin = start + (long) ((batchTimestamps[i] - firstTimestamp) / speed);
+                    waitUntil(begin);
+                }
+                else {
+                    begin = System.nanoTime();
+                }
+
+                Order order = batch[i];
+                batch[i] = null;
+                List<Trade> executed = order instanceof BuyOrder
+                        ? service.executeBuyOrder((BuyOrder) order)
+                        : service.executeSellOrder((SellOrder) order);
+                long latency = System.nanoTime() - begin;
+
+                trades += executed.size();
+                service.recycleTrades(executed);
+                if (orders == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, orders * 2);
+                }
+                latencies[orders++] = latency;
+            }
+            elapsedNanos = System.nanoTime() - start;
+        }
+        sortedLatencies = null;
+        return elapsedNanos;
+    }
+
+    public int getOrders() {
+        return orders;
+    }
+
+    public long getTrades() {
+        return trades;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @param percentile between 0 and 100, for instance 99.9.
+     * @return the latency in nanoseconds that the given percentage of the orders replayed took no
+     * longer than, or 0 if none has been replayed.
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (orders == 0) {
+            return 0;
+        }
+        if (sortedLatencies == null) {
+            sortedLatencies = Arrays.copyOf(latencies, orders);
+            Arrays.sort(sortedLatencies);
+        }
+        int rank = (int) Math.ceil(percentile / 100 * orders);
+        return sortedLatencies[Math.max(0, Math.min(orders, rank) - 1)];
+    }
+
+    private int readBatch(OrderFlowReader orderFlow) throws PersistenceException {
+        int size = 0;
+        Order order;
+        while (size < BATCH_SIZE && (order = orderFlow.next()) != null) {
+            batch[size] = order;
+            batchTimestamps[size++] = orderFlow.getTimestamp();
+        }
+        return size;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            }
+            else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package orderbook.service;
+
+import orderbook.dto.Order;
+import orderbook.dto.Trade;
+
+/**
+ * Told about each resting order that trades against an incoming order, so the owner of the
+ * resting order can be sent its fill.
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+
+    /**
+     * Called once the fills and trades of the incoming order have been persisted.
+     * @param restingOrder the resting order that traded.
+     * @param leavesQuantity the quantity of the resting order still in the book, zero if it was filled in full.
+     * @param trade the trade between the resting order and the incoming order.
+     */
+    void onFill(Order restingOrder, int leavesQuantity, Trade trade);
+}
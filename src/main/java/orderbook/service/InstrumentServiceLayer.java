@@ -0,0 +1,62 @@
+package orderbook.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.NoMatchException;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * The order books of many instruments, each independent of the others. Every operation is routed
+ * by symbol to the book of that instrument.
+ */
+public interface InstrumentServiceLayer {
+
+    /**
+     * An operation on the book of one instrument.
+     */
+    @FunctionalInterface
+    interface BookTask<T> {
+
+        T run(OrderBookServiceLayer book) throws NoMatchException, PersistenceException;
+    }
+
+    /**
+     * Queues an operation on the book of the given instrument, creating the book if required.
+     * @return a future completed with the operation's result, or exceptionally with its exception.
+     */
+    <T> CompletableFuture<T> submit(String symbol, BookTask<T> task);
+
+    BuyOrder addBuyOrder(BuyOrder buyOrder) throws PersistenceException;
+
+    SellOrder addSellOrder(SellOrder sellOrder) throws PersistenceException;
+
+    List<Trade> executeBuyOrder(BuyOrder buyOrder) throws PersistenceException;
+
+    List<Trade> executeSellOrder(SellOrder sellOrder) throws PersistenceException;
+
+    Order cancelOrder(String symbol, int id) throws PersistenceException;
+
+    Order amendOrder(String symbol, int id, long priceTicks, int quantity) throws PersistenceException;
+
+    Trade match(String symbol) throws NoMatchException, PersistenceException;
+
+    int matchAllOrders(String symbol) throws NoMatchException, PersistenceException;
+
+    List<List<Order>> getOrderBook(String symbol) throws PersistenceException;
+
+    List<OrderStats> getOrderStats(String symbol) throws PersistenceException;
+
+    List<List<DepthLevel>> getDepth(String symbol, int levels) throws PersistenceException;
+
+    /**
+     * @return the symbols of every book created so far.
+     */
+    Set<String> getSymbols();
+}
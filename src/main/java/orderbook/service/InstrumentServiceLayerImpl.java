@@ -0,0 +1,206 @@
+package orderbook.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.NoMatchException;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Partitions the instruments across a fixed number of matching workers, each a single thread that
+ * owns the books of its symbols outright. A symbol always maps to the same worker, so operations on
+ * one book run one at a time in submission order without locks, while the books of symbols on
+ * different workers are matched in parallel.
+ */
+public class InstrumentServiceLayerImpl implements InstrumentServiceLayer {
+
+    private final OrderBookFactory factory;
+    private final Worker[] workers;
+    private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param factory creates the book of each symbol the first time it is used.
+     * @param workerCount the number of matching threads, typically no more than the number of cores.
+     */
+    public InstrumentServiceLayerImpl(OrderBookFactory factory, int workerCount) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive");
+        }
+        this.factory = factory;
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    public InstrumentServiceLayerImpl(OrderBookFactory factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(String symbol, BookTask<T> task) {
+        Worker worker = workers[getWorker(symbol)];
+        CompletableFuture<T> result = new CompletableFuture<>();
+        worker.thread.execute(() -> {
+            try {
+                result.complete(task.run(worker.getBook(symbol)));
+            }
+            catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public BuyOrder addBuyOrder(BuyOrder buyOrder) throws PersistenceException {
+        return await(submit(buyOrder.getSymbol(), book -> book.addBuyOrder(buyOrder)));
+    }
+
+    @Override
+    public SellOrder addSellOrder(SellOrder sellOrder) throws PersistenceException {
+        return await(submit(sellOrder.getSymbol(), book -> book.addSellOrder(sellOrder)));
+    }
+
+    @Override
+    public List<Trade> executeBuyOrder(BuyOrder buyOrder) throws PersistenceException {
+        return await(submit(buyOrder.getSymbol(), book -> book.executeBuyOrder(buyOrder)));
+    }
+
+    @Override
+    public List<Trade> executeSellOrder(SellOrder sellOrder) throws PersistenceException {
+        return await(submit(sellOrder.getSymbol(), book -> book.executeSellOrder(sellOrder)));
+    }
+
+    @Override
+    public Order cancelOrder(String symbol, int id) throws PersistenceException {
+        return await(submit(symbol, book -> book.cancelOrder(id)));
+    }
+
+    @Override
+    public Order amendOrder(String symbol, int id, long priceTicks, int quantity) throws PersistenceException {
+        return await(submit(symbol, book -> book.amendOrder(id, priceTicks, quantity)));
+    }
+
+    @Override
+    public Trade match(String symbol) throws NoMatchException, PersistenceException {
+        return awaitMatch(submit(symbol, OrderBookServiceLayer::match));
+    }
+
+    @Override
+    public int matchAllOrders(String symbol) throws NoMatchException, PersistenceException {
+        return awaitMatch(submit(symbol, OrderBookServiceLayer::matchAllOrders));
+    }
+
+    @Override
+    public List<List<Order>> getOrderBook(String symbol) throws PersistenceException {
+        return await(submit(symbol, OrderBookServiceLayer::getOrderBook));
+    }
+
+    @Override
+    public List<OrderStats> getOrderStats(String symbol) throws PersistenceException {
+        return await(submit(symbol, OrderBookServiceLayer::getOrderStats));
+    }
+
+    @Override
+    public List<List<DepthLevel>> getDepth(String symbol, int levels) throws PersistenceException {
+        return await(submit(symbol, book -> book.getDepth(levels)));
+    }
+
+    @Override
+    public Set<String> getSymbols() {
+        return new TreeSet<>(symbols);
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
+    }
+
+    /**
+     * @return the index of the worker that owns the book of the given symbol.
+     */
+    public int getWorker(String symbol) {
+        return Math.floorMod(symbol.hashCode(), workers.length);
+    }
+
+    /**
+     * Stops accepting operations and waits for the queued ones to finish.
+     */
+    public void close() throws InterruptedException {
+        for (Worker worker : workers) {
+            worker.thread.shutdown();
+        }
+        for (Worker worker : workers) {
+            worker.thread.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private <T> T await(CompletableFuture<T> result) throws PersistenceException {
+        try {
+            return awaitMatch(result);
+        }
+        catch (NoMatchException e) {
+            throw new PersistenceException(e.getMessage(), e);
+        }
+    }
+
+    private <T> T awaitMatch(CompletableFuture<T> result) throws NoMatchException, PersistenceException {
+        try {
+            return result.join();
+        }
+        catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NoMatchException) {
+                throw (NoMatchException) cause;
+            }
+            if (cause instanceof PersistenceException) {
+                throw (PersistenceException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * A matching thread and the books it owns. The map of books is only touched by the thread itself.
+     */
+    private class Worker {
+
+        private final ExecutorService thread;
+        private final Map<String, OrderBookServiceLayer> books = new HashMap<>();
+
+        Worker(int index) {
+            thread = Executors.newSingleThreadExecutor(r -> {
+                Thread worker = new Thread(r, "matching-worker-" + index);
+                worker.setDaemon(true);
+                return worker;
+            });
+        }
+
+        OrderBookServiceLayer getBook(String symbol) throws PersistenceException {
+            OrderBookServiceLayer book = books.get(symbol);
+            if (book == null) {
+                book = factory.createOrderBook(symbol);
+                books.put(symbol, book);
+                symbols.add(symbol);
+            }
+            return book;
+        }
+    }
+}
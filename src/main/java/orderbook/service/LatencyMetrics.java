@@ -0,0 +1,176 @@
+package orderbook.service;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import orderbook.dto.LatencyStats;
+
+/**
+ * The latency histograms and throughput counters of the service's operations and of the DAO calls
+ * that persist their results. Recording is lock-free and allocation-free.
+ *
+ * When a log file is configured, the statistics are appended to it every interval by a background
+ * thread, and once more on close. A background append that fails is reported by close.
+ */
+public class LatencyMetrics {
+
+    /**
+     * The operations timed.
+     */
+    public enum Operation {
+        ADD_BUY_ORDER("addBuyOrder"),
+        ADD_SELL_ORDER("addSellOrder"),
+        MATCH("match"),
+        MATCH_ALL_ORDERS("matchAllOrders"),
+        EXECUTE_ORDER("executeOrder"),
+        /** The order DAO calls that persist fills and new resting orders. */
+        PERSIST_ORDERS("persistOrders"),
+        /** The trade DAO calls that persist trades. */
+        PERSIST_TRADES("persistTrades");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[OPERATIONS.length];
+    private final long startNanos = System.nanoTime();
+    private final String logFile;
+    private final long intervalMillis;
+    private ScheduledExecutorService dumpThread;
+    private IOException dumpFailure;    // The first failed background append, guarded by this.
+
+    /**
+     * @param logFile the file the statistics are appended to, or null for none.
+     * @param intervalMillis the milliseconds between appends.
+     */
+    public LatencyMetrics(String logFile, long intervalMillis) {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        this.logFile = logFile;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public LatencyMetrics() {
+        this(null, 0);
+    }
+
+    /**
+     * Records the time from the given System.nanoTime() reading until now.
+     */
+    public void record(Operation operation, long startNanos) {
+        histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    /**
+     * @return the statistics of every operation, the throughput averaged since these metrics were created.
+     */
+    public List<LatencyStats> getStats() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        List<LatencyStats> stats = new ArrayList<>();
+        for (Operation operation : OPERATIONS) {
+            LatencyHistogram histogram = histograms[operation.ordinal()];
+            long count = histogram.getCount();
+            stats.add(new LatencyStats(operation.getLabel(), count, count / seconds, histogram.getPercentile(50),
+                    histogram.getPercentile(99), histogram.getPercentile(99.9), histogram.getMax()));
+        }
+        return stats;
+    }
+
+    /**
+     * Starts appending the statistics to the log file, if there is one.
+     */
+    public void start() {
+        if (logFile != null && intervalMillis > 0) {
+            dumpThread = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "latency-metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumpThread.scheduleWithFixedDelay(this::dumpInBackground, intervalMillis, intervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the background appends, waiting for one in progress, and appends the statistics once more.
+     * @throws IOException if that append, or an earlier background one, failed.
+     */
+    public void close() throws IOException {
+        if (dumpThread != null) {
+            dumpThread.shutdown();
+            try {
+                dumpThread.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dumpThread = null;
+        }
+        IOException failure;
+        synchronized (this) {
+            failure = dumpFailure;
+            dumpFailure = null;
+        }
+        if (logFile != null) {
+            try {
+                dump();
+            }
+            catch (IOException e) {
+                if (failure != null) {
+                    e.addSuppressed(failure);
+                }
+                throw e;
+            }
+        }
+        if (failure != null) {
+            throw new IOException("An earlier append of the latency statistics to " + logFile + " failed", failure);
+        }
+    }
+
+    private void dumpInBackground() {
+        try {
+            dump();
+        }
+        catch (IOException e) {
+            synchronized (this) {
+                if (dumpFailure == null) {
+                    dumpFailure = e;
+                }
+            }
+        }
+    }
+
+    private void dump() throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(logFile, true))) {
+            String time = LocalDateTime.now().toString();
+            for (LatencyStats stats : getStats()) {
+                out.println(time + " " + stats);
+            }
+            // PrintWriter keeps its write errors to itself.
+            if (out.checkError()) {
+                throw new IOException("Could not append the latency statistics to " + logFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package orderbook.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Puts reproducible synthetic load on order books, from one OrderGenerator per book. Orders are
+ * either streamed, each executed against the book as it arrives with cancels mixed in as the
+ * profile says, or bulk loaded as resting orders without matching.
+ *
+ * The books of many instruments are loaded in parallel through an InstrumentServiceLayer, the
+ * stream of each symbol running on the worker that owns its book. Every symbol's stream is seeded
+ * from the generator's seed and the symbol's position in the list, and gets its own block of order
+ * ids, so each book sees the same orders on every run however the workers interleave.
+ *
+ * Usage: LoadGenerator [orders per symbol] [symbols] [seed] [cancel ratio]
+ */
+public class LoadGenerator {
+
+    // The orders of a symbol are submitted to its worker in chunks, so workers can interleave books.
+    private static final int CHUNK_SIZE = 16_384;
+
+    private final LoadProfile profile;
+    private final long seed;
+
+    public LoadGenerator(LoadProfile profile, long seed) {
+        this.profile = profile;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, PersistenceException {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int symbolCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        LoadProfile profile = new LoadProfile();
+        profile.setCancelRatio(args.length > 3 ? Double.parseDouble(args[3]) : 0.1);
+        List<String> symbols = new ArrayList<>();
+        for (int i = 0; i < symbolCount; i++) {
+            symbols.add("SYM" + i);
+        }
+
+        File directory = Files.createTempDirectory("load").toFile();
+        TradeDaoMappedImpl tradeDao = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath());
+        InstrumentServiceLayerImpl instruments = new InstrumentServiceLayerImpl(new OrderBookFactoryMemoryImpl(tradeDao));
+        try {
+            long start = System.nanoTime();
+            long trades = new LoadGenerator(profile, seed).stream(instruments, symbols, orders);
+            long nanos = System.nanoTime() - start;
+            long total = (long) orders * symbolCount;
+            System.out.println(total + " orders over " + symbolCount + " symbols in " + TimeUnit.NANOSECONDS.toMillis(nanos)
+                    + " ms: " + (long) (total / (nanos / 1e9)) + " orders/s, " + trades + " trades");
+        }
+        finally {
+            instruments.close();
+            tradeDao.close();
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * Streams orders into one book on the calling thread.
+     * @param firstId the id of the first order.
+     * @return the number of trades executed.
+     */
+    public long stream(OrderBookServiceLayer book, int orders, int firstId) throws PersistenceException {
+        return stream(book, new OrderGenerator(profile, seed, firstId), orders);
+    }
+
+    /**
+     * Streams orders into the book of every symbol in parallel, and waits for them to be executed.
+     * @param orders the number of orders, and cancels, per symbol.
+     * @return the number of trades executed.
+     */
+    public long stream(InstrumentServiceLayer instruments, List<String> symbols, int orders) throws PersistenceException {
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        forEachSymbol(symbols, orders, (symbol, generator) -> {
+            for (int sent = 0; sent < orders; sent += CHUNK_SIZE) {
+                int chunk = Math.min(CHUNK_SIZE, orders - sent);
+                results.add(instruments.submit(symbol, book -> stream(book, generator, chunk)));
+            }
+        });
+        long trades = 0;
+        for (CompletableFuture<Long> result : results) {
+            trades += await(result);
+        }
+        return trades;
+    }
+
+    /**
+     * Adds resting orders to one book, half buys and half sells, without matching them.
+     * @param pairs the number of buy orders and of sell orders.
+     * @param firstId the id of the first order.
+     */
+    public void bulkLoad(OrderBookServiceLayer book, int pairs, int firstId) throws PersistenceException {
+        book.generateOrders(new OrderGenerator(profile, seed, firstId), pairs);
+    }
+
+    /**
+     * Adds resting orders to the book of every symbol in parallel, as bulkLoad does to one book, and
+     * waits for them to be added.
+     */
+    public void bulkLoad(InstrumentServiceLayer instruments, List<String> symbols, int pairs) throws PersistenceException {
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        forEachSymbol(symbols, 2 * pairs, (symbol, generator) -> {
+            for (int sent = 0; sent < pairs; sent += CHUNK_SIZE) {
+                int chunk = Math.min(CHUNK_SIZE, pairs - sent);
+                results.add(instruments.submit(symbol, book -> {
+                    book.generateOrders(generator, chunk);
+                    return null;
+                }));
+            }
+        });
+        for (CompletableFuture<Void> result : results) {
+            await(result);
+        }
+    }
+
+    private long stream(OrderBookServiceLayer book, OrderGenerator generator, int orders) throws PersistenceException {
+        long trades = 0;
+        for (int i = 0; i < orders; i++) {
+            int cancelId = generator.nextCancelId();
+            if (cancelId >= 0) {
+                book.cancelOrder(cancelId);
+                continue;
+            }
+            Order order = generator.nextOrder();
+            List<Trade> executed = order instanceof BuyOrder
+                    ? book.executeBuyOrder((BuyOrder) order)
+                    : book.executeSellOrder((SellOrder) order);
+            trades += executed.size();
+            book.recycleTrades(executed);
+        }
+        return trades;
+    }
+
+    private interface SymbolTask {
+
+        void run(String symbol, OrderGenerator generator);
+    }
+
+    /**
+     * Gives each symbol a generator of its own seed and block of ids, reserved from the global order ids.
+     * @param ids the most ids the orders of one symbol use.
+     */
+    private void forEachSymbol(List<String> symbols, int ids, SymbolTask task) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        int firstId = Order.getGlobalId();
+        Order.advanceGlobalId(Math.toIntExact(firstId + (long) ids * symbols.size()));
+        for (int i = 0; i < symbols.size(); i++) {
+            String symbol = symbols.get(i);
+            task.run(symbol, new OrderGenerator(profile, symbol, seeds.nextLong(), firstId + i * ids));
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> result) throws PersistenceException {
+        try {
+            return result.join();
+        }
+        catch (RuntimeException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PersistenceException) {
+                throw (PersistenceException) cause;
+            }
+            throw e;
+        }
+    }
+}
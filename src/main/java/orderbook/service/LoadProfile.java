@@ -0,0 +1,104 @@
+package orderbook.service;
+
+import java.math.BigDecimal;
+
+/**
+ * The shape of the synthetic order flow made by an OrderGenerator. Prices are normally distributed
+ * around a mean and rounded to a price increment, quantities are uniformly distributed between a
+ * minimum and a maximum, and each order is a buy with a given probability. A given share of the
+ * flow cancels orders generated earlier instead of sending new ones.
+ *
+ * The defaults resemble the orders the application always generated: priced around 190.5, almost
+ * all between 190 and 191, for 20 to 49, half of them buys and none cancelled.
+ */
+public class LoadProfile {
+
+    private BigDecimal meanPrice = new BigDecimal("190.5");
+    private BigDecimal volatility = new BigDecimal("0.25");
+    private BigDecimal priceIncrement = new BigDecimal("0.01");
+    private int minQuantity = 20;
+    private int maxQuantity = 49;
+    private double buyRatio = 0.5;
+    private double cancelRatio = 0;
+
+    public BigDecimal getMeanPrice() {
+        return meanPrice;
+    }
+
+    public void setMeanPrice(BigDecimal meanPrice) {
+        this.meanPrice = meanPrice;
+    }
+
+    /**
+     * @return the standard deviation of the prices.
+     */
+    public BigDecimal getVolatility() {
+        return volatility;
+    }
+
+    public void setVolatility(BigDecimal volatility) {
+        if (volatility.signum() < 0) {
+            throw new IllegalArgumentException("The volatility must not be negative: " + volatility);
+        }
+        this.volatility = volatility;
+    }
+
+    /**
+     * @return the step between the prices generated, a whole number of ticks.
+     */
+    public BigDecimal getPriceIncrement() {
+        return priceIncrement;
+    }
+
+    public void setPriceIncrement(BigDecimal priceIncrement) {
+        if (priceIncrement.signum() <= 0) {
+            throw new IllegalArgumentException("The price increment must be positive: " + priceIncrement);
+        }
+        this.priceIncrement = priceIncrement;
+    }
+
+    public int getMinQuantity() {
+        return minQuantity;
+    }
+
+    public int getMaxQuantity() {
+        return maxQuantity;
+    }
+
+    public void setQuantityRange(int minQuantity, int maxQuantity) {
+        if (minQuantity <= 0 || maxQuantity < minQuantity) {
+            throw new IllegalArgumentException("Invalid quantity range " + minQuantity + " to " + maxQuantity);
+        }
+        this.minQuantity = minQuantity;
+        this.maxQuantity = maxQuantity;
+    }
+
+    /**
+     * @return the probability that a new order is a buy.
+     */
+    public double getBuyRatio() {
+        return buyRatio;
+    }
+
+    public void setBuyRatio(double buyRatio) {
+        this.buyRatio = checkRatio(buyRatio);
+    }
+
+    /**
+     * @return the probability that the next event of the flow cancels an earlier order.
+     */
+    public double getCancelRatio() {
+        return cancelRatio;
+    }
+
+    public void setCancelRatio(double cancelRatio) {
+        this.cancelRatio = checkRatio(cancelRatio);
+    }
+
+    private static double checkRatio(double ratio) {
+        if (!(ratio >= 0 && ratio <= 1)) {
+            throw new IllegalArgumentException("A ratio must be between 0 and 1: " + ratio);
+        }
+        return ratio;
+    }
+}
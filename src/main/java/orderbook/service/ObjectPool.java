@@ -0,0 +1,54 @@
+package orderbook.service;
+
+import java.util.function.Supplier;
+
+/**
+ * A bounded stack of spare objects for reuse, so that a thread that keeps creating and discarding
+ * objects of one kind, such as trades on the matching path, stops allocating once the pool holds
+ * as many as are in use at a time.
+ *
+ * An object must only be released once nothing refers to it any more. A pool is not thread safe
+ * and belongs to the one thread that acquires and releases its objects.
+ */
+public class ObjectPool<T> {
+
+    private final Supplier<T> factory;
+    private final Object[] free;
+    private int size;
+
+    /**
+     * @param factory creates an object when the pool is empty.
+     * @param capacity the most spare objects kept; objects released beyond it are left to the
+     * garbage collector.
+     */
+    public ObjectPool(Supplier<T> factory, int capacity) {
+        this.factory = factory;
+        this.free = new Object[capacity];
+    }
+
+    /**
+     * @return a spare object, in whatever state it was released, or a new one if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if (size == 0) {
+            return factory.get();
+        }
+        T object = (T) free[--size];
+        free[size] = null;
+        return object;
+    }
+
+    public void release(T object) {
+        if (size < free.length) {
+            free[size++] = object;
+        }
+    }
+
+    /**
+     * @return the number of spare objects held.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,11 @@
+package orderbook.service;
+
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Creates the independent book of one instrument.
+ */
+public interface OrderBookFactory {
+
+    OrderBookServiceLayer createOrderBook(String symbol) throws PersistenceException;
+}
@@ -0,0 +1,117 @@
+package orderbook.service;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.CandleAggregator;
+import orderbook.dao.DepthListener;
+import orderbook.dao.JournalSyncPolicy;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.OrderBookJournal;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDao;
+import orderbook.dao.TradeDaoCandleImpl;
+import orderbook.dao.TradeDaoJournalImpl;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Gives every instrument its own resident book. When a journal directory is configured each book
+ * journals to, and is recovered from, its own file named after the symbol; otherwise the books only
+ * live in memory. The trades of every book go to the one shared TradeDao, which is called from
+ * every matching worker and so must be thread-safe, as TradeDaoMappedImpl is. A recovered book
+ * also adds back the trades of its journal that the shared TradeDao lost.
+ *
+ * A symbol is one to eight letters, digits, dots, dashes or underscores, starting with a letter or
+ * digit, so that it names a journal file inside the journal directory and fits the mapped trade log.
+ */
+public class OrderBookFactoryMemoryImpl implements OrderBookFactory {
+
+    private static final Pattern SYMBOL = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,7}");
+
+    private final TradeDao tradeDao;
+    private final String journalDirectory;
+    private final JournalSyncPolicy syncPolicy;
+    private final long syncEvery;
+    private final List<OrderBookJournal> journals = new CopyOnWriteArrayList<>();
+    private volatile DepthListener depthListener;
+    private volatile CandleAggregator candles;
+
+    /**
+     * @param tradeDao the trade history shared by every book.
+     * @param journalDirectory the directory of the per-symbol journals, or null for books that are not durable.
+     * @param syncPolicy when the events of each journal are forced to disk.
+     * @param syncEvery the syncEvery of each journal; see OrderBookJournal.
+     */
+    public OrderBookFactoryMemoryImpl(TradeDao tradeDao, String journalDirectory, JournalSyncPolicy syncPolicy,
+            long syncEvery) {
+        this.tradeDao = tradeDao;
+        this.journalDirectory = journalDirectory;
+        this.syncPolicy = syncPolicy;
+        this.syncEvery = syncEvery;
+    }
+
+    /**
+     * Journals, if any, are synced every 64 events.
+     */
+    public OrderBookFactoryMemoryImpl(TradeDao tradeDao, String journalDirectory) {
+        this(tradeDao, journalDirectory, JournalSyncPolicy.EVERY_N_EVENTS, 64);
+    }
+
+    public OrderBookFactoryMemoryImpl(TradeDao tradeDao) {
+        this(tradeDao, null);
+    }
+
+    /**
+     * @param depthListener sent the depth changes of every book created from now on, or null for none.
+     */
+    public void setDepthListener(DepthListener depthListener) {
+        this.depthListener = depthListener;
+    }
+
+    /**
+     * @param candles fed the trades of every book created from now on, and read by their
+     * getCandles, or null for books without candles. Rebuild them from the trade DAO beforehand.
+     */
+    public void setCandleAggregator(CandleAggregator candles) {
+        this.candles = candles;
+    }
+
+    @Override
+    public OrderBookServiceLayer createOrderBook(String symbol) throws PersistenceException {
+        if (symbol == null || !SYMBOL.matcher(symbol).matches()) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        OrderBookJournal journal = null;
+        if (journalDirectory != null) {
+            journal = new OrderBookJournal(Paths.get(journalDirectory, symbol + ".journal").toString(), syncPolicy,
+                    syncEvery);
+            journals.add(journal);
+        }
+        OrderBookEngine engine = new OrderBookEngine(symbol, journal);
+        TradeDao bookTradeDao = candles == null ? tradeDao : new TradeDaoCandleImpl(candles, tradeDao);
+        if (journal != null) {
+            engine.recover();
+            TradeDaoJournalImpl journalTradeDao = new TradeDaoJournalImpl(journal, bookTradeDao);
+            journalTradeDao.recover();
+            bookTradeDao = journalTradeDao;
+        }
+        if (depthListener != null) {
+            engine.addDepthListener(depthListener);
+        }
+        OrderBookServiceLayerImpl book = new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), bookTradeDao);
+        book.setCandleAggregator(candles);
+        book.setJournal(journal);
+        return book;
+    }
+
+    public void close() throws IOException {
+        for (OrderBookJournal journal : journals) {
+            journal.close();
+        }
+        journals.clear();
+    }
+}
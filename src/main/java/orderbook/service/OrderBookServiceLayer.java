@@ -2,11 +2,18 @@
 package orderbook.service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import orderbook.dto.BuyOrder;
+import orderbook.dto.Candle;
+import orderbook.dto.CandleInterval;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.LatencyStats;
 import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
 import orderbook.dto.SellOrder;
 import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
 import orderbook.exceptions.NoMatchException;
 import orderbook.exceptions.PersistenceException;
 
@@ -18,6 +25,12 @@ public interface OrderBookServiceLayer {
     
     List<BigDecimal> getStats(List<List<Order>> orderBook) throws PersistenceException;
     
+    List<OrderStats> getOrderStats() throws PersistenceException;
+    
+    List<List<DepthLevel>> getDepth(int levels) throws PersistenceException;
+    
+    List<LatencyStats> getLatencyStats();
+    
     Trade match() throws NoMatchException, PersistenceException ;
     
     int matchAllOrders() throws NoMatchException, PersistenceException;
@@ -25,14 +38,40 @@ public interface OrderBookServiceLayer {
     BuyOrder addBuyOrder(BuyOrder buyOrder) throws PersistenceException;
     
     SellOrder addSellOrder(SellOrder sellOrder) throws PersistenceException;
+    
+    List<Trade> executeBuyOrder(BuyOrder buyOrder) throws PersistenceException;
+    
+    List<Trade> executeSellOrder(SellOrder sellOrder) throws PersistenceException;
+    
+    List<Trade> executeBuyOrder(BuyOrder buyOrder, ExecutionListener listener) throws PersistenceException;
+    
+    List<Trade> executeSellOrder(SellOrder sellOrder, ExecutionListener listener) throws PersistenceException;
+    
+    void recycleTrade(Trade trade);
+    
+    void recycleTrades(List<Trade> trades);
+    
+    Order cancelOrder(int id) throws PersistenceException;
+    
+    Order amendOrder(int id, long priceTicks, int quantity) throws PersistenceException;
 
     Trade getTrade (int id)throws PersistenceException;
 
     List<Trade> getTrades()throws PersistenceException;
     
+    List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException;
+    
+    List<Trade> getTradesByPrice(BigDecimal lowPrice, BigDecimal highPrice) throws PersistenceException;
+    
+    TradeStats getTradeStats(LocalDateTime from, LocalDateTime to) throws PersistenceException;
+    
+    List<Candle> getCandles(String symbol, CandleInterval interval, int count);
+    
     void updateGlobalOrderId() throws PersistenceException;
     
     void updateGlobalTradeId() throws PersistenceException;
     
     void generateOrders(int amount) throws PersistenceException;
+    
+    void generateOrders(OrderGenerator generator, int amount) throws PersistenceException;
 }
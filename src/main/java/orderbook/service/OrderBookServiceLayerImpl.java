@@ -3,24 +3,48 @@ package orderbook.service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import orderbook.dao.BuyOrderDao;
+import orderbook.dao.CandleAggregator;
+import orderbook.dao.OrderBookJournal;
 import orderbook.dao.SellOrderDao;
 import orderbook.dao.TradeDao;
 import orderbook.dto.BuyOrder;
+import orderbook.dto.Candle;
+import orderbook.dto.CandleInterval;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.LatencyStats;
 import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.OrderType;
+import orderbook.dto.PriceTicks;
 import orderbook.dto.SellOrder;
 import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
 import orderbook.exceptions.NoMatchException;
 import orderbook.exceptions.PersistenceException;
+import orderbook.jfr.MatchAllEvent;
+import orderbook.jfr.OrderAcceptedEvent;
+import orderbook.jfr.TradeExecutedEvent;
+import orderbook.service.LatencyMetrics.Operation;
 
 public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
     
+    private static final int TRADE_POOL_CAPACITY = 1024;
+    private static final long GENERATOR_SEED = 190;
+    
     private BuyOrderDao buyOrderDao;
     private SellOrderDao sellOrderDao;
     private TradeDao tradeDao;
+    // Recycled trades, touched only by the thread matching this book.
+    private final ObjectPool<Trade> tradePool = new ObjectPool<>(Trade::new, TRADE_POOL_CAPACITY);
+    private LatencyMetrics latencyMetrics = new LatencyMetrics();
+    private CandleAggregator candles;
+    private OrderBookJournal journal;
 
 
     public OrderBookServiceLayerImpl(BuyOrderDao buyOrderDao, SellOrderDao sellOrderDao, TradeDao tradeDao) {
@@ -29,6 +53,29 @@ public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
         this.tradeDao = tradeDao;
     }
 
+    /**
+     * @param latencyMetrics where the latencies of the operations are recorded, in place of the
+     * service's own metrics.
+     */
+    public void setLatencyMetrics(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * @param candles the candles the trade DAO adds its trades to, see TradeDaoCandleImpl.
+     */
+    public void setCandleAggregator(CandleAggregator candles) {
+        this.candles = candles;
+    }
+
+    /**
+     * @param journal the journal the DAOs append the book's events and trades to, so that the fills
+     * and trades of a match-all sweep are written to it as one batch; null if the book is not journaled.
+     */
+    public void setJournal(OrderBookJournal journal) {
+        this.journal = journal;
+    }
+
     /**
      * Collects the lists of SellOrders and BuyOrders into an order book.
      * @return a List object containing first the buyOrders list and second the sellOrders list.
@@ -49,7 +96,7 @@ public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
      */
     @Override
     public boolean checkOrderEmpty() throws PersistenceException {
-        return buyOrderDao.getAllBuyOrders().isEmpty() || sellOrderDao.getAllSellOrders().isEmpty();
+        return buyOrderDao.getBestBuyOrder() == null || sellOrderDao.getBestSellOrder() == null;
     }
 
     /**
@@ -62,43 +109,40 @@ public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
     @Override
     public List<BigDecimal> getStats(List<List<Order>> orderBook) {
         
-        List<BigDecimal> stats = new ArrayList<>();        
-        
-        stats.add(BigDecimal.valueOf(orderBook.get(0).size()));     // number of buyOrders
-        stats.add(BigDecimal.valueOf(orderBook.get(1).size())); 
-        //stats.add(BigDecimal.ZERO);     // number of sellOrders
+        List<BigDecimal> stats = new ArrayList<>();
         
-        // total quantity of buyOrders
-        stats.add(new BigDecimal( orderBook.get(0).stream()     
-                                                  .map(o -> o.getQuantity())
-                                                  .reduce(0, Integer::sum)
-        ));
+        // Sums are taken over the tick prices; BigDecimal is only used for the returned statistics.
+        long buyCount = orderBook.get(0).size();
+        long sellCount = orderBook.get(1).size();
+        long buyQuantity = 0;
+        long sellQuantity = 0;
+        long buyPriceTicks = 0;
+        long sellPriceTicks = 0;
+        for (Order order : orderBook.get(0)) {
+            buyQuantity += order.getQuantity();
+            buyPriceTicks += order.getPriceTicks();
+        }
+        for (Order order : orderBook.get(1)) {
+            sellQuantity += order.getQuantity();
+            sellPriceTicks += order.getPriceTicks();
+        }
         
-        // total quantity of sellOrders
-        stats.add(new BigDecimal( orderBook.get(1).stream()     
-                                                  .map(o -> o.getQuantity())
-                                                  .reduce(0, Integer::sum)
-        ));
+        stats.add(BigDecimal.valueOf(buyCount));        // number of buyOrders
+        stats.add(BigDecimal.valueOf(sellCount));       // number of sellOrders
+        stats.add(BigDecimal.valueOf(buyQuantity));     // total quantity of buyOrders
+        stats.add(BigDecimal.valueOf(sellQuantity));    // total quantity of sellOrders
         
         // Ensures no division by zero.
-        if (stats.get(0).compareTo(BigDecimal.ZERO) != 0) {
-            // average BuyOrder price
-            stats.add( (orderBook.get(0).stream()     
-                                        .map(o -> o.getPrice())
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add) // Sums all prices 
-            ).divide(stats.get(0), 5, RoundingMode.HALF_UP));                     // Divides by stats[0], i.e. number of buyOrders
+        if (buyCount != 0) {
+            stats.add(PriceTicks.average(buyPriceTicks, buyCount, 5));       // average BuyOrder price
         }
         else {
             stats.add(BigDecimal.ZERO);
         }
         
         // Ensures no division by zero.
-        if (stats.get(1).compareTo(BigDecimal.ZERO) != 0) {
-            // average SellOrder price
-            stats.add( (orderBook.get(1).stream()     
-                                        .map(o -> o.getPrice())
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add) // Sums all prices 
-            ).divide(stats.get(1), 5, RoundingMode.HALF_UP));                     // Divides by stats[1], i.e. number of sellOrders
+        if (sellCount != 0) {
+            stats.add(PriceTicks.average(sellPriceTicks, sellCount, 5));     // average SellOrder price
         }
         else {
             stats.add(BigDecimal.ZERO);
@@ -107,27 +151,48 @@ public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
         return stats;
     }
 
+    /**
+     * Returns the statistics of the buy side and then the sell side of the book, as maintained by the
+     * DAOs, without reading the orders themselves.
+     * @return a list containing first the buy order statistics and second the sell order statistics.
+     */
+    @Override
+    public List<OrderStats> getOrderStats() throws PersistenceException {
+        return List.of(buyOrderDao.getBuyOrderStats(), sellOrderDao.getSellOrderStats());
+    }
+
+    /**
+     * Returns the aggregated depth of the book: the total quantity and order count at each of the best
+     * few prices of each side, rather than every order.
+     * @param levels the maximum number of price levels per side.
+     * @return a list containing first the buy levels and second the sell levels, best price first.
+     */
+    @Override
+    public List<List<DepthLevel>> getDepth(int levels) throws PersistenceException {
+        return List.of(buyOrderDao.getBuyDepth(levels), sellOrderDao.getSellDepth(levels));
+    }
+
     /**
      * Retrieves the bestBid, the highest buy order, and the bestAsk, the lowest sell order, from the sorted 
      * buyOrders/sellOrders list respectively. A Trade object is then created and stored, and the logic for
-     * the full or partial fulfilment of orders is then initiated.
+     * the full or partial fulfilment of orders is then initiated. With the in-memory DAOs and a trade DAO
+     * that does not retain its trades, a match whose trade is recycled allocates nothing.
      * @return the Trade object resulting from the match.
      */
     @Override
     public Trade match() throws NoMatchException, PersistenceException {
+        long start = System.nanoTime();
         updateGlobalTradeId();
         
-        Comparator<Order> compareByPrice = (Order o1, Order o2) -> o1.getPrice().compareTo(o2.getPrice());
-        
-        // Gets the sellOrders and sorts by lowest price first
-        List<Order> sellOrders = sellOrderDao.getAllSellOrders();
-        sellOrders.sort(compareByPrice);
-        
         // Gets the buy order with the highest price and sell order with the lowest price
-        Order bestBid = buyOrderDao.getAllBuyOrders().get(0);
-        Order bestAsk = sellOrders.get(0);
+        Order bestBid = buyOrderDao.getBestBuyOrder();
+        Order bestAsk = sellOrderDao.getBestSellOrder();
+        
+        if (bestBid == null || bestAsk == null) {
+            throw new NoMatchException("There are no orders on one side of the order book.");
+        }
         
-        if ((bestBid.getPrice()).compareTo(bestAsk.getPrice()) < 0) {
+        if (bestBid.getPriceTicks() < bestAsk.getPriceTicks()) {
             throw new NoMatchException("The best bid price is not sufficient to fulfill the best ask price.");
         }
         
@@ -136,86 +201,347 @@ public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
         
         // The quantity of the topBid and topAsk are equal.
         if (bestBid.getQuantity() == bestAsk.getQuantity()) {
-            newTrade = new Trade(bestBid.getQuantity(), bestAsk.getPrice());
+            newTrade = newTrade(bestAsk.getSymbol(), bestBid.getQuantity(), bestAsk.getPriceTicks());
             fillFullBuyOrder(bestBid);
             fillFullSellOrder(bestAsk);
-            tradeDao.addTrade(newTrade);
+            persistTrade(newTrade);
         }
         
         // The quantity of the topBid is greatest, so is only partially filled.
         else if (bestBid.getQuantity() > bestAsk.getQuantity()) {
-            newTrade = new Trade(bestAsk.getQuantity(), bestAsk.getPrice());
+            newTrade = newTrade(bestAsk.getSymbol(), bestAsk.getQuantity(), bestAsk.getPriceTicks());
             fillPartialBuyOrder(bestBid, bestAsk);
             fillFullSellOrder(bestAsk);
-            tradeDao.addTrade(newTrade);
+            persistTrade(newTrade);
         }
         
         // The quantity of the topAsk is greatest, so is only partially filled.
         else if (bestBid.getQuantity() < bestAsk.getQuantity()) {
-            newTrade = new Trade(bestBid.getQuantity(), bestAsk.getPrice());
+            newTrade = newTrade(bestAsk.getSymbol(), bestBid.getQuantity(), bestAsk.getPriceTicks());
             fillFullBuyOrder(bestBid);
             fillPartialSellOrder(bestBid, bestAsk);
-            tradeDao.addTrade(newTrade);
+            persistTrade(newTrade);
         }
         
+        latencyMetrics.record(Operation.MATCH, start);
         return newTrade;
     }
 
     /**
-     * Cycles through the order book until either the buyOrders list OR sellOrders list is empty.
-     * @return a boolean representing whether any match was null, i.e. unsuccessful.
+     * Uncrosses the order book in a single pass. The crossing bids and asks are walked best price
+     * first, generating every trade along the way, and the resulting fills and trades are then
+     * persisted in one batch per DAO rather than one reload and rewrite per match.
+     * @return the number of trades executed.
      */
     @Override
     public int matchAllOrders() throws NoMatchException, PersistenceException {
-        int matchCount = 0;
-        try {
-            while (!checkOrderEmpty()) {
-                if (match() != null) {
-                    matchCount++;
+        long start = System.nanoTime();
+        MatchAllEvent event = MatchAllEvent.start();
+        updateGlobalTradeId();
+        
+        // Both lists are best price first, in time priority within a price.
+        List<Order> buyOrders = buyOrderDao.getAllBuyOrders();
+        List<Order> sellOrders = sellOrderDao.getAllSellOrders();
+        sellOrders.sort(Comparator.comparingLong(Order::getPriceTicks));
+        
+        List<Trade> trades = new ArrayList<>();
+        List<Order> filledBuyOrders = new ArrayList<>();
+        List<Order> filledSellOrders = new ArrayList<>();
+        
+        int buyIndex = 0;
+        int sellIndex = 0;
+        int buyRemaining = buyOrders.isEmpty() ? 0 : buyOrders.get(0).getQuantity();
+        int sellRemaining = sellOrders.isEmpty() ? 0 : sellOrders.get(0).getQuantity();
+        
+        while (buyIndex < buyOrders.size() && sellIndex < sellOrders.size()) {
+            Order bestBid = buyOrders.get(buyIndex);
+            Order bestAsk = sellOrders.get(sellIndex);
+            if (bestBid.getPriceTicks() < bestAsk.getPriceTicks()) {
+                break;      // The book is no longer crossed.
+            }
+            
+            int quantity = Math.min(buyRemaining, sellRemaining);
+            trades.add(newTrade(bestAsk.getSymbol(), quantity, bestAsk.getPriceTicks()));
+            buyRemaining -= quantity;
+            sellRemaining -= quantity;
+            
+            if (buyRemaining == 0) {
+                filledBuyOrders.add(bestBid);
+                if (++buyIndex < buyOrders.size()) {
+                    buyRemaining = buyOrders.get(buyIndex).getQuantity();
+                }
+            }
+            if (sellRemaining == 0) {
+                filledSellOrders.add(bestAsk);
+                if (++sellIndex < sellOrders.size()) {
+                    sellRemaining = sellOrders.get(sellIndex).getQuantity();
                 }
             }
-            return matchCount;
         }
-        catch (NoMatchException e) {
-            return matchCount;
-            
+        
+        if (trades.isEmpty()) {
+            latencyMetrics.record(Operation.MATCH_ALL_ORDERS, start);
+            if (event != null) {
+                event.record(buyOrders.size(), sellOrders.size(), 0);
+            }
+            return 0;
         }
+        
+        // At most one order per side is left partially filled, at the front of the remaining book.
+        Order partialBuyOrder = partialOrder(buyOrders, buyIndex, buyRemaining);
+        Order partialSellOrder = partialOrder(sellOrders, sellIndex, sellRemaining);
+        
+        // Both sides' fills and the trades go to the journal in one append.
+        if (journal != null) {
+            journal.beginBatch();
+        }
+        try {
+            long persistStart = System.nanoTime();
+            buyOrderDao.fillBuyOrders(filledBuyOrders, partialBuyOrder, buyRemaining);
+            sellOrderDao.fillSellOrders(filledSellOrders, partialSellOrder, sellRemaining);
+            latencyMetrics.record(Operation.PERSIST_ORDERS, persistStart);
+            persistTrades(trades);
+        }
+        finally {
+            if (journal != null) {
+                journal.endBatch();
+            }
+        }
+        recycleTrades(trades);      // Only the count is returned.
+        
+        latencyMetrics.record(Operation.MATCH_ALL_ORDERS, start);
+        if (event != null) {
+            event.record(buyOrders.size(), sellOrders.size(), trades.size());
+        }
+        return trades.size();
+    }
+    
+    private Order partialOrder(List<Order> orders, int index, int remainingQuantity) {
+        if (index < orders.size() && orders.get(index).getQuantity() != remainingQuantity) {
+            return orders.get(index);
+        }
+        return null;
     }
 
     /**
      * 
      * @param buyOrder
-     * @return 
+     * @return the order added, or null if an order with its id is already resting.
      */
     @Override
     public BuyOrder addBuyOrder(BuyOrder buyOrder) throws PersistenceException {
         if (buyOrder==null) {
             throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
         }
-        buyOrderDao.addBuyOrder(buyOrder);
+        long start = System.nanoTime();
+        OrderAcceptedEvent event = OrderAcceptedEvent.start();
+        if (!buyOrderDao.addBuyOrder(buyOrder)) {
+            latencyMetrics.record(Operation.ADD_BUY_ORDER, start);
+            return null;
+        }
+        latencyMetrics.record(Operation.ADD_BUY_ORDER, start);
+        recordBuyOrderAccepted(event, buyOrder, buyOrder.getQuantity(), buyOrder.getQuantity());
         return buyOrder;
     }
 
     /**
      * 
      * @param sellOrder
-     * @return 
+     * @return the order added, or null if an order with its id is already resting.
      */
     @Override
     public SellOrder addSellOrder(SellOrder sellOrder) throws PersistenceException {
         if (sellOrder==null) {
             throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
         }
-        sellOrderDao.addSellOrder(sellOrder);
+        long start = System.nanoTime();
+        OrderAcceptedEvent event = OrderAcceptedEvent.start();
+        if (!sellOrderDao.addSellOrder(sellOrder)) {
+            latencyMetrics.record(Operation.ADD_SELL_ORDER, start);
+            return null;
+        }
+        latencyMetrics.record(Operation.ADD_SELL_ORDER, start);
+        recordSellOrderAccepted(event, sellOrder, sellOrder.getQuantity(), sellOrder.getQuantity());
         return sellOrder;
     }
 
+    /**
+     * Executes an incoming buy order against the sell side according to its type. The crossing sell
+     * levels are walked once, best price first, producing one trade per resting order filled at the
+     * resting order's price; the fills and trades are then persisted in one batch per DAO. A limit
+     * order's unfilled remainder is added to the book, while that of a market or IOC order is
+     * cancelled. A FOK order is first checked against the aggregate quantity of the crossing levels
+     * and, if it cannot be filled in full, is killed without trading.
+     * @param buyOrder the incoming order, whose quantity is left at its unfilled remainder.
+     * @return the trades executed, in the order they were made; empty if the order did not trade.
+     */
+    @Override
+    public List<Trade> executeBuyOrder(BuyOrder buyOrder) throws PersistenceException {
+        return executeBuyOrder(buyOrder, null);
+    }
+
+    /**
+     * Executes an incoming buy order as executeBuyOrder(BuyOrder) does, telling the listener
+     * about every resting order that traded.
+     * @param listener told about each fill of a resting order, or null.
+     */
+    @Override
+    public List<Trade> executeBuyOrder(BuyOrder buyOrder, ExecutionListener listener) throws PersistenceException {
+        long start = System.nanoTime();
+        OrderAcceptedEvent event = OrderAcceptedEvent.start();
+        int quantity = buyOrder.getQuantity();
+        long limitPrice = buyOrder.getType() == OrderType.MARKET ? Long.MAX_VALUE : buyOrder.getPriceTicks();
+        if (buyOrder.getType() == OrderType.FOK
+                && sellOrderDao.getAvailableSellQuantity(limitPrice, buyOrder.getQuantity()) < buyOrder.getQuantity()) {
+            latencyMetrics.record(Operation.EXECUTE_ORDER, start);
+            recordBuyOrderAccepted(event, buyOrder, quantity, 0);
+            return new ArrayList<>();
+        }
+        updateGlobalTradeId();
+        Sweep sweep = new Sweep(buyOrder, sellOrderDao.getCrossingSellOrders(limitPrice, buyOrder.getQuantity()));
+        if (!sweep.trades.isEmpty()) {
+            long persistStart = System.nanoTime();
+            sellOrderDao.fillSellOrders(sweep.filledOrders, sweep.partialOrder, sweep.partialRemaining);
+            latencyMetrics.record(Operation.PERSIST_ORDERS, persistStart);
+            persistTrades(sweep.trades);
+            if (listener != null) {
+                sweep.report(listener);
+            }
+        }
+        boolean rests = buyOrder.getType().rests() && buyOrder.getQuantity() > 0;
+        if (rests) {
+            long persistStart = System.nanoTime();
+            buyOrderDao.addBuyOrder(buyOrder);
+            latencyMetrics.record(Operation.PERSIST_ORDERS, persistStart);
+        }
+        latencyMetrics.record(Operation.EXECUTE_ORDER, start);
+        recordBuyOrderAccepted(event, buyOrder, quantity, rests ? buyOrder.getQuantity() : 0);
+        return sweep.trades;
+    }
+
+    /**
+     * Executes an incoming sell order against the buy side according to its type, as executeBuyOrder
+     * does for buy orders.
+     * @param sellOrder the incoming order, whose quantity is left at its unfilled remainder.
+     * @return the trades executed, in the order they were made; empty if the order did not trade.
+     */
+    @Override
+    public List<Trade> executeSellOrder(SellOrder sellOrder) throws PersistenceException {
+        return executeSellOrder(sellOrder, null);
+    }
+
+    /**
+     * Executes an incoming sell order as executeSellOrder(SellOrder) does, telling the listener
+     * about every resting order that traded.
+     * @param listener told about each fill of a resting order, or null.
+     */
+    @Override
+    public List<Trade> executeSellOrder(SellOrder sellOrder, ExecutionListener listener) throws PersistenceException {
+        long start = System.nanoTime();
+        OrderAcceptedEvent event = OrderAcceptedEvent.start();
+        int quantity = sellOrder.getQuantity();
+        long limitPrice = sellOrder.getType() == OrderType.MARKET ? Long.MIN_VALUE : sellOrder.getPriceTicks();
+        if (sellOrder.getType() == OrderType.FOK
+                && buyOrderDao.getAvailableBuyQuantity(limitPrice, sellOrder.getQuantity()) < sellOrder.getQuantity()) {
+            latencyMetrics.record(Operation.EXECUTE_ORDER, start);
+            recordSellOrderAccepted(event, sellOrder, quantity, 0);
+            return new ArrayList<>();
+        }
+        updateGlobalTradeId();
+        Sweep sweep = new Sweep(sellOrder, buyOrderDao.getCrossingBuyOrders(limitPrice, sellOrder.getQuantity()));
+        if (!sweep.trades.isEmpty()) {
+            long persistStart = System.nanoTime();
+            buyOrderDao.fillBuyOrders(sweep.filledOrders, sweep.partialOrder, sweep.partialRemaining);
+            latencyMetrics.record(Operation.PERSIST_ORDERS, persistStart);
+            persistTrades(sweep.trades);
+            if (listener != null) {
+                sweep.report(listener);
+            }
+        }
+        boolean rests = sellOrder.getType().rests() && sellOrder.getQuantity() > 0;
+        if (rests) {
+            long persistStart = System.nanoTime();
+            sellOrderDao.addSellOrder(sellOrder);
+            latencyMetrics.record(Operation.PERSIST_ORDERS, persistStart);
+        }
+        latencyMetrics.record(Operation.EXECUTE_ORDER, start);
+        recordSellOrderAccepted(event, sellOrder, quantity, rests ? sellOrder.getQuantity() : 0);
+        return sweep.trades;
+    }
+
+    /**
+     * Hands a trade returned by match back for reuse by later trades. The caller must not use the
+     * trade afterwards. Trades are only reused if the trade DAO does not retain them.
+     */
+    @Override
+    public void recycleTrade(Trade trade) {
+        if (!tradeDao.retainsTrades()) {
+            tradePool.release(trade);
+        }
+    }
+
+    /**
+     * Hands trades returned by executeBuyOrder or executeSellOrder back for reuse, as recycleTrade does.
+     */
+    @Override
+    public void recycleTrades(List<Trade> trades) {
+        if (!tradeDao.retainsTrades()) {
+            for (int i = 0; i < trades.size(); i++) {
+                tradePool.release(trades.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return the latency and throughput of the service's operations and of the DAO calls that
+     * persist their results.
+     */
+    @Override
+    public List<LatencyStats> getLatencyStats() {
+        return latencyMetrics.getStats();
+    }
+
+    /**
+     * Cancels a resting order by id, whichever side of the book it is on.
+     * @param id the id of the order.
+     * @return the cancelled order, or null if no order with the id is resting in the book.
+     */
+    @Override
+    public Order cancelOrder(int id) throws PersistenceException {
+        Order cancelled = buyOrderDao.cancelBuyOrder(id);
+        return cancelled != null ? cancelled : sellOrderDao.cancelSellOrder(id);
+    }
+
+    /**
+     * Amends the price and quantity of a resting order by id, following price-time priority: an
+     * order whose quantity is only reduced keeps its place in the queue, while a new price or a larger
+     * quantity sends it to the back of the queue at its price. An order is cancelled with cancelOrder.
+     * @param id the id of the order.
+     * @param priceTicks the new price of the order, in ticks.
+     * @param quantity the new quantity of the order.
+     * @return the amended order, or null if no order with the id is resting in the book.
+     * @throws IllegalArgumentException if the price or the quantity is not positive.
+     */
+    @Override
+    public Order amendOrder(int id, long priceTicks, int quantity) throws PersistenceException {
+        if (priceTicks <= 0) {
+            throw new IllegalArgumentException("The price must be positive, not " + PriceTicks.toPrice(priceTicks));
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("The quantity must be positive, not " + quantity);
+        }
+        Order amended = buyOrderDao.amendBuyOrder(id, priceTicks, quantity);
+        return amended != null ? amended : sellOrderDao.amendSellOrder(id, priceTicks, quantity);
+    }
+
     /**
      * In the case of a full buy order fulfilment, the BuyOrder is removed from the records.
      * @param buyOrder the BuyOrder object that has been matched.
      */
     private void fillFullBuyOrder(Order buyOrder) throws PersistenceException {
+        long start = System.nanoTime();
         buyOrderDao.removeBuyOrder(buyOrder);
+        latencyMetrics.record(Operation.PERSIST_ORDERS, start);
     }
 
     /**
@@ -223,45 +549,128 @@ public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
      * @param sellOrder the SellOrder object that has been matched.
      */
     private void fillFullSellOrder(Order sellOrder) throws PersistenceException {
+        long start = System.nanoTime();
         sellOrderDao.removeSellOrder(sellOrder);
+        latencyMetrics.record(Operation.PERSIST_ORDERS, start);
     }
 
     /**
-     * In the case of a partial buy order fulfilment, the BuyOrder entry in the order book is updated
-     * to contain only the remaining, unfulfilled quantity.
+     * In the case of a partial buy order fulfilment, the BuyOrder entry in the order book is reduced in
+     * place to its remaining, unfulfilled quantity, keeping its time priority.
      * @param buyOrder the BuyOrder object that has been matched but only partially filled.
      * @param sellOrder the SellOrder object that has been matched and fully filled.
      */
     private void fillPartialBuyOrder(Order buyOrder, Order sellOrder) throws PersistenceException {
         int quantity = buyOrder.getQuantity() - sellOrder.getQuantity();
-        
-        BuyOrder partialBuyOrder = new BuyOrder();
-        partialBuyOrder.setId(buyOrder.getId());
-        partialBuyOrder.setPrice(buyOrder.getPrice());
-        partialBuyOrder.setQuantity(quantity);          // The only value changed is the quantity
-        
-        // The old copy is removed and the updated copy added.
-        buyOrderDao.removeBuyOrder(buyOrder);
-        buyOrderDao.addBuyOrder(partialBuyOrder);
+        long start = System.nanoTime();
+        buyOrderDao.fillBuyOrders(Collections.emptyList(), buyOrder, quantity);
+        latencyMetrics.record(Operation.PERSIST_ORDERS, start);
     }
 
     /**
-     * In the case of a partial sell order fulfilment, the SellOrder entry in the order book is updated
-     * to contain only the remaining, unfulfilled quantity.
-     * @param buyOrder the SellOrder object that has been matched but only partially filled.
-     * @param sellOrder the BuyOrder object that has been matched and fully filled.
+     * In the case of a partial sell order fulfilment, the SellOrder entry in the order book is reduced in
+     * place to its remaining, unfulfilled quantity, keeping its time priority.
+     * @param buyOrder the BuyOrder object that has been matched and fully filled.
+     * @param sellOrder the SellOrder object that has been matched but only partially filled.
      */
     private void fillPartialSellOrder(Order buyOrder, Order sellOrder) throws PersistenceException {
         int quantity = sellOrder.getQuantity() - buyOrder.getQuantity();
-        
-        SellOrder partialSellOrder = new SellOrder();
-        partialSellOrder.setId(sellOrder.getId());
-        partialSellOrder.setPrice(sellOrder.getPrice());
-        partialSellOrder.setQuantity(quantity);          // The only value changed is the quantity
-        
-        // The old copy is removed and the updated copy added.
-        sellOrderDao.removeSellOrder(sellOrder);
-        sellOrderDao.addSellOrder(partialSellOrder);
+        long start = System.nanoTime();
+        sellOrderDao.fillSellOrders(Collections.emptyList(), sellOrder, quantity);
+        latencyMetrics.record(Operation.PERSIST_ORDERS, start);
+    }
+
+    private void persistTrade(Trade trade) throws PersistenceException {
+        long start = System.nanoTime();
+        tradeDao.addTrade(trade);
+        latencyMetrics.record(Operation.PERSIST_TRADES, start);
+        TradeExecutedEvent.record(trade);
+    }
+
+    private void persistTrades(List<Trade> trades) throws PersistenceException {
+        long start = System.nanoTime();
+        tradeDao.addTrades(trades);
+        latencyMetrics.record(Operation.PERSIST_TRADES, start);
+        for (int i = 0; i < trades.size(); i++) {
+            TradeExecutedEvent.record(trades.get(i));
+        }
+    }
+
+    /**
+     * Commits the event of an accepted buy order, unless it is not being recorded.
+     * @param quantity the quantity the order arrived with.
+     * @param leavesQuantity the quantity left resting in the book.
+     */
+    private void recordBuyOrderAccepted(OrderAcceptedEvent event, Order buyOrder, int quantity, int leavesQuantity)
+            throws PersistenceException {
+        // The depth is only read once the event's duration has been taken.
+        if (event != null && event.shouldCommit()) {
+            event.record(buyOrder, "BUY", quantity, leavesQuantity, buyOrderDao.getBuyOrderStats().getCount());
+        }
+    }
+
+    /**
+     * Commits the event of an accepted sell order, as recordBuyOrderAccepted does for buy orders.
+     */
+    private void recordSellOrderAccepted(OrderAcceptedEvent event, Order sellOrder, int quantity, int leavesQuantity)
+            throws PersistenceException {
+        if (event != null && event.shouldCommit()) {
+            event.record(sellOrder, "SELL", quantity, leavesQuantity, sellOrderDao.getSellOrderStats().getCount());
+        }
+    }
+
+    /**
+     * @return a new trade, on a recycled trade object if one is available.
+     */
+    private Trade newTrade(String symbol, int quantity, long price) {
+        Trade trade = tradePool.acquire();
+        trade.reset(symbol, quantity, price);
+        return trade;
+    }
+
+    /**
+     * The result of walking an incoming order through the crossing resting orders of the other side:
+     * the trades, the resting orders filled in full, and the last resting order if it was only
+     * partially filled, with its remaining quantity.
+     */
+    private class Sweep {
+
+        private final List<Order> restingOrders;
+        private final List<Trade> trades = new ArrayList<>();
+        private final List<Order> filledOrders = new ArrayList<>();
+        private Order partialOrder;
+        private int partialRemaining;
+
+        Sweep(Order incomingOrder, List<Order> restingOrders) {
+            this.restingOrders = restingOrders;
+            int remaining = incomingOrder.getQuantity();
+            for (Order restingOrder : restingOrders) {
+                if (remaining == 0) {
+                    break;
+                }
+                int quantity = Math.min(remaining, restingOrder.getQuantity());
+                trades.add(newTrade(restingOrder.getSymbol(), quantity, restingOrder.getPriceTicks()));
+                remaining -= quantity;
+                if (quantity == restingOrder.getQuantity()) {
+                    filledOrders.add(restingOrder);
+                }
+                else {
+                    partialOrder = restingOrder;
+                    partialRemaining = restingOrder.getQuantity() - quantity;
+                }
+            }
+            incomingOrder.setQuantity(remaining);
+        }
+
+        /**
+         * Tells the listener about each resting order that traded; the i-th trade is with the i-th order.
+         */
+        void report(ExecutionListener listener) {
+            for (int i = 0; i < trades.size(); i++) {
+                Order restingOrder = restingOrders.get(i);
+                listener.onFill(restingOrder, restingOrder == partialOrder ? partialRemaining : 0, trades.get(i));
+            }
+        }
     }
 
     @Override
@@ -274,23 +683,68 @@ public class OrderBookServiceLayerImpl implements OrderBookServiceLayer {
         return tradeDao.getTrades();
     }
 
+    @Override
+    public List<Trade> getTrades(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        return tradeDao.getTrades(from, to);
+    }
+
+    @Override
+    public List<Trade> getTradesByPrice(BigDecimal lowPrice, BigDecimal highPrice) throws PersistenceException {
+        return tradeDao.getTradesByPrice(PriceTicks.toTicks(lowPrice, RoundingMode.CEILING),
+                PriceTicks.toTicks(highPrice, RoundingMode.FLOOR));
+    }
+
+    @Override
+    public TradeStats getTradeStats(LocalDateTime from, LocalDateTime to) throws PersistenceException {
+        return tradeDao.getTradeStats(from, to);
+    }
+
+    /**
+     * @throws IllegalStateException if no candles are kept for the book; see setCandleAggregator.
+     */
+    @Override
+    public List<Candle> getCandles(String symbol, CandleInterval interval, int count) {
+        if (candles == null) {
+            throw new IllegalStateException("No candles are kept for this order book");
+        }
+        return candles.getCandles(symbol, interval, count);
+    }
+
     @Override
     public void updateGlobalOrderId() throws PersistenceException {
         int max = Math.max(buyOrderDao.getLastBuyOrderId(), sellOrderDao.getLastSellOrderId());
-        Order.setGlobalId(max + 1);
+        Order.advanceGlobalId(max + 1);
     }
     
     @Override
     public void updateGlobalTradeId() throws PersistenceException {
-        Trade.setGlobalId(tradeDao.getLastTradeId() + 1);
+        Trade.advanceGlobalId(tradeDao.getLastTradeId() + 1);
     }
     
+    /**
+     * Adds the given number of buy orders and of sell orders, drawn from the default LoadProfile with
+     * the next order ids. The same seed is used every time, so the prices and quantities repeat.
+     */
+    @Override
     public void generateOrders(int amount) throws PersistenceException {
         updateGlobalOrderId();
-        updateGlobalTradeId();
-        for (int i=0; i<amount; i++){
-            buyOrderDao.addBuyOrder(new BuyOrder());
-            sellOrderDao.addSellOrder(new SellOrder());
-        }  
+        generateOrders(new OrderGenerator(new LoadProfile(), GENERATOR_SEED, Order.getGlobalId()), amount);
+    }
+
+    /**
+     * Adds the given number of buy orders and of sell orders drawn from the generator, without
+     * matching them, in one batch per side.
+     */
+    @Override
+    public void generateOrders(OrderGenerator generator, int amount) throws PersistenceException {
+        List<Order> buyOrders = new ArrayList<>(amount);
+        List<Order> sellOrders = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++) {
+            buyOrders.add(generator.nextBuyOrder());
+            sellOrders.add(generator.nextSellOrder());
+        }
+        buyOrderDao.addBuyOrders(buyOrders);
+        sellOrderDao.addSellOrders(sellOrders);
+        Order.advanceGlobalId(generator.getNextId());
     }
 }
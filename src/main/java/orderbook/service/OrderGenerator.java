@@ -0,0 +1,108 @@
+package orderbook.service;
+
+import java.util.Random;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+
+/**
+ * A reproducible stream of synthetic orders for one instrument, shaped by a LoadProfile. Two
+ * generators with the same profile, seed and first id produce the same orders in the same order,
+ * whatever thread they run on, so a load test can be repeated exactly. Order ids are consecutive
+ * from the first id.
+ *
+ * A generator is not thread safe and belongs to the one thread drawing from it.
+ */
+public class OrderGenerator {
+
+    // Cancels pick among the ids of the most recent orders, which are the likeliest to still rest.
+    private static final int CANCEL_CANDIDATES = 4096;
+
+    private final Random random;
+    private final String symbol;
+    private final long meanTicks;
+    private final double volatilityTicks;
+    private final long incrementTicks;
+    private final int minQuantity;
+    private final int quantityRange;
+    private final double buyRatio;
+    private final double cancelRatio;
+    private final int[] recentIds = new int[CANCEL_CANDIDATES];
+    private int recentCount;
+    private int recentIndex;
+    private int nextId;
+
+    /**
+     * @param symbol the instrument of the orders.
+     * @param seed the seed of the stream.
+     * @param firstId the id of the first order.
+     */
+    public OrderGenerator(LoadProfile profile, String symbol, long seed, int firstId) {
+        this.random = new Random(seed);
+        this.symbol = symbol;
+        this.incrementTicks = Math.max(1, PriceTicks.toTicks(profile.getPriceIncrement()));
+        this.meanTicks = PriceTicks.toTicks(profile.getMeanPrice());
+        this.volatilityTicks = PriceTicks.toTicks(profile.getVolatility());
+        this.minQuantity = profile.getMinQuantity();
+        this.quantityRange = profile.getMaxQuantity() - profile.getMinQuantity() + 1;
+        this.buyRatio = profile.getBuyRatio();
+        this.cancelRatio = profile.getCancelRatio();
+        this.nextId = firstId;
+    }
+
+    public OrderGenerator(LoadProfile profile, long seed, int firstId) {
+        this(profile, Order.DEFAULT_SYMBOL, seed, firstId);
+    }
+
+    /**
+     * @return a new buy or sell order, according to the buy ratio.
+     */
+    public Order nextOrder() {
+        return random.nextDouble() < buyRatio ? nextBuyOrder() : nextSellOrder();
+    }
+
+    public BuyOrder nextBuyOrder() {
+        return new BuyOrder(symbol, nextId(), nextPrice(), nextQuantity());
+    }
+
+    public SellOrder nextSellOrder() {
+        return new SellOrder(symbol, nextId(), nextPrice(), nextQuantity());
+    }
+
+    /**
+     * Decides whether the next event of the flow is a cancel, according to the cancel ratio.
+     * @return the id of an earlier order to cancel, which may since have been filled, or -1 if the
+     * next event is a new order.
+     */
+    public int nextCancelId() {
+        if (recentCount == 0 || random.nextDouble() >= cancelRatio) {
+            return -1;
+        }
+        return recentIds[random.nextInt(recentCount)];
+    }
+
+    /**
+     * @return the id the next order will be given.
+     */
+    public int getNextId() {
+        return nextId;
+    }
+
+    private int nextId() {
+        int id = nextId++;
+        recentIds[recentIndex] = id;
+        recentIndex = (recentIndex + 1) % CANCEL_CANDIDATES;
+        recentCount = Math.min(recentCount + 1, CANCEL_CANDIDATES);
+        return id;
+    }
+
+    private long nextPrice() {
+        long offset = Math.round(random.nextGaussian() * volatilityTicks / incrementTicks) * incrementTicks;
+        return Math.max(incrementTicks, meanTicks + offset);
+    }
+
+    private int nextQuantity() {
+        return minQuantity + random.nextInt(quantityRange);
+    }
+}
@@ -0,0 +1,276 @@
+package orderbook.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.SellOrder;
+import orderbook.exceptions.NoMatchException;
+import orderbook.exceptions.PersistenceException;
+
+/**
+ * Lets any number of producer threads submit orders to one order book, which is only ever touched
+ * by a single matcher thread.
+ *
+ * Submissions go through a ring of pre-allocated slots. A producer claims the next sequence number
+ * with one atomic increment, fills in the slot it maps to and publishes it by writing the sequence
+ * into the slot's published marker; no lock is taken. The matcher reads the slots strictly in
+ * sequence order, waiting for each to be published, and applies them to the book, so the book and
+ * its DAOs see one thread in a single total order and need no synchronization of their own. A
+ * producer only waits when it has lapped the matcher by the whole size of the ring.
+ *
+ * Closing sets a flag in the same atomic word sequence numbers are claimed from, so a producer
+ * either claims its sequence before the sequencer is closed, and the matcher applies it before it
+ * stops, or is refused.
+ */
+public class OrderSequencer {
+
+    private static final int ADD_BUY_ORDER = 1;
+    private static final int ADD_SELL_ORDER = 2;
+    private static final int MATCH_ALL_ORDERS = 3;
+    private static final int CANCEL_ORDER = 4;
+    private static final int AMEND_ORDER = 5;
+    private static final long CLOSED = 1L << 62;    // Set in next once the sequencer is closed.
+
+    private final OrderBookServiceLayer service;
+    private final WaitStrategy waitStrategy;
+    private final int mask;
+
+    // The slots, one array per field so that a claimed slot is filled without allocating.
+    private final int[] types;
+    private final Order[] orders;
+    private final int[] ids;
+    private final long[] prices;
+    private final int[] quantities;
+    private final AtomicLongArray published;
+
+    private final AtomicLong next = new AtomicLong();         // The next sequence to hand to a producer.
+    private final AtomicLong processed = new AtomicLong(-1);   // The last sequence applied to the book.
+    private final Thread matcher;
+    private volatile boolean stopped;
+
+    private volatile long trades;
+    private volatile long errors;
+    private volatile Exception lastError;
+
+    /**
+     * @param service the order book, which from now on must only be changed through this sequencer.
+     * @param capacity the number of slots in the ring, a power of two.
+     * @param waitStrategy how the matcher and the producers wait on each other.
+     */
+    public OrderSequencer(OrderBookServiceLayer service, int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.service = service;
+        this.waitStrategy = waitStrategy;
+        this.mask = capacity - 1;
+        this.types = new int[capacity];
+        this.orders = new Order[capacity];
+        this.ids = new int[capacity];
+        this.prices = new long[capacity];
+        this.quantities = new int[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.matcher = new Thread(this::run, "order-matcher");
+        matcher.setDaemon(true);
+        matcher.start();
+    }
+
+    public OrderSequencer(OrderBookServiceLayer service) {
+        this(service, 1 << 16, WaitStrategy.YIELD);
+    }
+
+    /**
+     * @return the sequence number of the submission.
+     */
+    public long submitBuyOrder(BuyOrder buyOrder) {
+        return publish(ADD_BUY_ORDER, buyOrder);
+    }
+
+    /**
+     * @return the sequence number of the submission.
+     */
+    public long submitSellOrder(SellOrder sellOrder) {
+        return publish(ADD_SELL_ORDER, sellOrder);
+    }
+
+    /**
+     * @return the sequence number of the submission.
+     */
+    public long submitCancelOrder(int id) {
+        long sequence = claim();
+        int slot = (int) sequence & mask;
+        types[slot] = CANCEL_ORDER;
+        ids[slot] = id;
+        published.set(slot, sequence);
+        return sequence;
+    }
+
+    /**
+     * @return the sequence number of the submission.
+     */
+    public long submitAmendOrder(int id, long priceTicks, int quantity) {
+        long sequence = claim();
+        int slot = (int) sequence & mask;
+        types[slot] = AMEND_ORDER;
+        ids[slot] = id;
+        prices[slot] = priceTicks;
+        quantities[slot] = quantity;
+        published.set(slot, sequence);
+        return sequence;
+    }
+
+    /**
+     * Asks the matcher to uncross the book once every submission before this one has been applied.
+     * @return the sequence number of the submission.
+     */
+    public long submitMatchAllOrders() {
+        return publish(MATCH_ALL_ORDERS, null);
+    }
+
+    /**
+     * Waits until the matcher has applied the given submission and every one before it.
+     * @throws IllegalStateException if the matcher stopped before applying the submission.
+     */
+    public void awaitProcessed(long sequence) {
+        int attempt = 0;
+        while (processed.get() < sequence) {
+            checkMatcher(sequence);
+            waitStrategy.idle(attempt++);
+        }
+    }
+
+    /**
+     * @return the sequence number of the last submission applied to the book, or -1 if there is none.
+     */
+    public long getProcessedSequence() {
+        return processed.get();
+    }
+
+    /**
+     * @return the number of trades made by the sweeps applied so far.
+     */
+    public long getTradeCount() {
+        return trades;
+    }
+
+    /**
+     * @return the number of submissions the book rejected.
+     */
+    public long getErrorCount() {
+        return errors;
+    }
+
+    /**
+     * @return the exception of the last submission the book rejected, or null if there is none.
+     */
+    public Exception getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Stops the matcher once it has applied everything submitted so far. Nothing may be submitted
+     * after the sequencer is closed.
+     */
+    public void close() throws InterruptedException {
+        long current;
+        do {
+            current = next.get();
+        } while ((current & CLOSED) == 0 && !next.compareAndSet(current, current | CLOSED));
+        matcher.join();
+    }
+
+    private long publish(int type, Order order) {
+        long sequence = claim();
+        int slot = (int) sequence & mask;
+        types[slot] = type;
+        orders[slot] = order;
+        published.set(slot, sequence);      // A volatile write, so the fields above are visible first.
+        return sequence;
+    }
+
+    /**
+     * Claims the next sequence number and waits until its slot is free to be filled.
+     */
+    private long claim() {
+        long sequence;
+        do {
+            sequence = next.get();
+            if ((sequence & CLOSED) != 0) {
+                throw new IllegalStateException("The order sequencer is closed");
+            }
+        } while (!next.compareAndSet(sequence, sequence + 1));
+        // The slot is free once the matcher has applied the submission a whole ring earlier.
+        long wrapPoint = sequence - mask - 1;
+        int attempt = 0;
+        while (processed.get() < wrapPoint) {
+            checkMatcher(wrapPoint);
+            waitStrategy.idle(attempt++);
+        }
+        return sequence;
+    }
+
+    /**
+     * @throws IllegalStateException if the matcher has stopped without applying the given sequence.
+     */
+    private void checkMatcher(long sequence) {
+        // The matcher marks itself stopped after its last update of processed, so that is read again.
+        if (stopped && processed.get() < sequence) {
+            throw new IllegalStateException("The order matcher has stopped");
+        }
+    }
+
+    private void run() {
+        try {
+            long sequence = 0;
+            int attempt = 0;
+            while (true) {
+                long claimed = next.get();
+                // Once closed, every sequence below the flagged value has been claimed, and is applied.
+                if ((claimed & CLOSED) != 0 && sequence >= (claimed & ~CLOSED)) {
+                    break;
+                }
+                int slot = (int) sequence & mask;
+                if (published.get(slot) != sequence) {
+                    waitStrategy.idle(attempt++);
+                    continue;
+                }
+                attempt = 0;
+                apply(slot);
+                orders[slot] = null;
+                processed.set(sequence++);
+            }
+        }
+        finally {
+            stopped = true;
+        }
+    }
+
+    private void apply(int slot) {
+        try {
+            switch (types[slot]) {
+                case ADD_BUY_ORDER:
+                    service.addBuyOrder((BuyOrder) orders[slot]);
+                    break;
+                case ADD_SELL_ORDER:
+                    service.addSellOrder((SellOrder) orders[slot]);
+                    break;
+                case CANCEL_ORDER:
+                    service.cancelOrder(ids[slot]);
+                    break;
+                case AMEND_ORDER:
+                    service.amendOrder(ids[slot], prices[slot], quantities[slot]);
+                    break;
+                default:
+                    trades += service.matchAllOrders();
+            }
+        }
+        catch (PersistenceException | NoMatchException | RuntimeException e) {
+            errors++;
+            lastError = e;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package orderbook.service;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread of the order sequencer waits for the ring buffer: the matcher for the next order to
+ * be published, and a producer for a free slot when the matcher has fallen a whole ring behind.
+ * Each is a different trade-off between the latency of noticing the change and the CPU burnt
+ * while waiting.
+ */
+public enum WaitStrategy {
+    /** Spins on the CPU: the lowest latency, but keeps a core fully busy even when idle. */
+    BUSY_SPIN {
+        @Override
+        void idle(int attempt) {
+            Thread.onSpinWait();
+        }
+    },
+    /** Spins briefly, then yields the core to other threads between checks. */
+    YIELD {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            }
+            else {
+                Thread.yield();
+            }
+        }
+    },
+    /** Spins briefly, then sleeps between checks: the least CPU, at tens of microseconds of latency. */
+    PARK {
+        @Override
+        void idle(int attempt) {
+            if (attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            }
+            else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    };
+
+    private static final int SPIN_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    /**
+     * Waits once before the condition is checked again.
+     * @param attempt how many times the caller has already waited for the same condition.
+     */
+    abstract void idle(int attempt);
+}
@@ -3,7 +3,12 @@ package orderbook.ui;
 import java.math.BigDecimal;
 import java.util.List;
 
+import orderbook.dto.Candle;
+import orderbook.dto.CandleInterval;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.LatencyStats;
 import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
 import orderbook.dto.TableList;
 import orderbook.dto.Trade;
 
@@ -26,9 +31,14 @@ public class OrderBookView {
         io.print("* 4. Match all orders");
         io.print("* 5. View trade");
         io.print("* 6. View all trades");
-        io.print("* 7. Exit");
+        io.print("* 7. Cancel an order");
+        io.print("* 8. Amend an order");
+        io.print("* 9. View market depth");
+        io.print("* 10. View latency statistics");
+        io.print("* 11. View candles");
+        io.print("* 12. Exit");
         
-        return io.readInt("Please make a selection from the menu above.",1,7);
+        return io.readInt("Please make a selection from the menu above.",1,12);
     }
     
     //-----------------------------DisplayOrderBook-----------------------------------
@@ -135,14 +145,20 @@ public class OrderBookView {
         io.print("=== View Orderbook Stats ===");
     }
     
-    public String displayStats(List<BigDecimal> statsList){
+    public String displayStats(List<OrderStats> statsList){
+        OrderStats buyStats = statsList.get(0);
+        OrderStats sellStats = statsList.get(1);
         io.print("==== Orderbook Stats ====");
-        io.print("Number of buy orders:  "+ statsList.get(0));
-        io.print("Number of sell orders: " + statsList.get(1));
-        io.print("Overall buy quantity:  "+ statsList.get(2));
-        io.print("Overall sell quantity: " + statsList.get(3));
-        io.print("Average buy price:     "+ statsList.get(4));
-        io.print("Average sell price:    "+ statsList.get(5));
+        io.print("Number of buy orders:  "+ buyStats.getCount());
+        io.print("Number of sell orders: " + sellStats.getCount());
+        io.print("Overall buy quantity:  "+ buyStats.getTotalQuantity());
+        io.print("Overall sell quantity: " + sellStats.getTotalQuantity());
+        io.print("Average buy price:     "+ buyStats.getAveragePrice());
+        io.print("Average sell price:    "+ sellStats.getAveragePrice());
+        io.print("Buy price range:       "+ buyStats.getMinPrice() + " - " + buyStats.getMaxPrice());
+        io.print("Sell price range:      "+ sellStats.getMinPrice() + " - " + sellStats.getMaxPrice());
+        io.print("Buy VWAP:              "+ buyStats.getVwap());
+        io.print("Sell VWAP:             "+ sellStats.getVwap());
         
         return io.readString("Please press enter to continue");
     }
@@ -204,6 +220,7 @@ public class OrderBookView {
          } else {
             io.print("================= Trade Summary =================");
             io.print("Trade ID:        " + trade.getTradeId());
+            io.print("Symbol:          " + trade.getSymbol());
             io.print("Execution time:  " + trade.getExecutionTime());
             io.print("Quantity filled: " + trade.getQuantity());
             io.print("Executed price:  " + trade.getPrice());
@@ -293,6 +310,117 @@ public class OrderBookView {
     
     
     
+    //-----------------------------CancelOrder-----------------------------------
+    public void displayCancelOrderBanner() {
+        io.print("=== Cancel Order ===");
+    }
+    
+    public int orderIdPrompt() {
+        return io.readInt("Please enter the ID of the order.");
+    }
+    
+    public String displayCancelOrderResult(Order order) {
+        if (order == null) {
+            io.print("No such order is resting in the order book.");
+        } else {
+            io.print("=== Order Cancelled ===");
+            io.print(order.toString());
+        }
+        return io.readString("Please press enter to continue.");
+    }
+    
+    //-----------------------------AmendOrder-----------------------------------
+    public void displayAmendOrderBanner() {
+        io.print("=== Amend Order ===");
+    }
+    
+    public BigDecimal amendPricePrompt() {
+        return io.readBigDecimal("Please enter the new price of the order.");
+    }
+    
+    public int amendQuantityPrompt() {
+        return io.readInt("Please enter the new quantity of the order.", 1, Integer.MAX_VALUE);
+    }
+    
+    public String displayAmendOrderResult(Order order) {
+        if (order == null) {
+            io.print("No such order is resting in the order book.");
+        } else {
+            io.print("=== Order Amended ===");
+            io.print(order.toString());
+        }
+        return io.readString("Please press enter to continue.");
+    }
+    
+    //-----------------------------ViewDepth-----------------------------------
+    public void displayViewDepthBanner() {
+        io.print("=================== View Market Depth ===================");
+    }
+    
+    public String displayDepth(List<List<DepthLevel>> depth) {
+        List<DepthLevel> buyLevels = depth.get(0);
+        List<DepthLevel> sellLevels = depth.get(1);
+        
+        //create a table with the bids on the left and the asks on the right, best price first
+        TableList table = new TableList(2, "Bids (quantity @ price, orders)", "Asks (quantity @ price, orders)");
+        for (int index = 0; index < Math.max(buyLevels.size(), sellLevels.size()); index++) {
+            table.addRow(index < buyLevels.size() ? formatLevel(buyLevels.get(index)) : "",
+                    index < sellLevels.size() ? formatLevel(sellLevels.get(index)) : "");
+        }
+        table.print();
+        return io.readString("Please press enter to continue.");
+    }
+    
+    private String formatLevel(DepthLevel level) {
+        return level.getQuantity() + " @ " + level.getPrice() + " (" + level.getOrderCount() + ")";
+    }
+    
+    //-----------------------------ViewLatency-----------------------------------
+    public void displayViewLatencyBanner() {
+        io.print("=================== View Latency Statistics ===================");
+    }
+    
+    public String displayLatencyStats(List<LatencyStats> latencyStats) {
+        //create a table with one row per operation, latencies in microseconds
+        TableList table = new TableList(7, "Operation", "Count", "Per second", "p50 (us)", "p99 (us)", "p99.9 (us)", "Max (us)");
+        for (LatencyStats stats : latencyStats) {
+            table.addRow(stats.getOperation(), String.valueOf(stats.getCount()), String.format("%.1f", stats.getThroughput()),
+                    formatMicros(stats.getP50()), formatMicros(stats.getP99()), formatMicros(stats.getP999()),
+                    formatMicros(stats.getMax()));
+        }
+        table.print();
+        return io.readString("Please press enter to continue.");
+    }
+    
+    private String formatMicros(long nanos) {
+        return String.format("%.1f", nanos / 1e3);
+    }
+    
+    //-----------------------------ViewCandles-----------------------------------
+    public void displayViewCandlesBanner() {
+        io.print("=================== View Candles ===================");
+    }
+    
+    public CandleInterval candleIntervalPrompt() {
+        CandleInterval[] intervals = CandleInterval.values();
+        for (int i = 0; i < intervals.length; i++) {
+            io.print("* " + (i + 1) + ". " + intervals[i].getLabel());
+        }
+        return intervals[io.readInt("Please choose the candle interval.", 1, intervals.length) - 1];
+    }
+    
+    public String displayCandles(List<Candle> candles) {
+        //create a table with one row per candle, oldest first
+        TableList table = new TableList(7, "Time", "Open", "High", "Low", "Close", "Volume", "Trades");
+        for (Candle candle : candles) {
+            table.addRow(candle.getOpenTime().toString(), candle.getOpen().toPlainString(), candle.getHigh().toPlainString(),
+                    candle.getLow().toPlainString(), candle.getClose().toPlainString(), String.valueOf(candle.getVolume()),
+                    String.valueOf(candle.getTradeCount()));
+        }
+        table.print();
+        return io.readString("Please press enter to continue.");
+    }
+    
     //-----------------------------Exit,unknown,error-----------------------------------
     public void displayErrorMessage(String errorMsg) {
         io.print("=== ERROR ===");
@@ -0,0 +1,30 @@
+package orderbook;
+
+import orderbook.dto.Order;
+import orderbook.dto.Trade;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Puts the global order and trade ids back as they were before each test, for the tests that hand
+ * out ids of their own: other tests look up trade ids in trades.txt and order ids in the order files.
+ */
+public class RestoreGlobalIds implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(RestoreGlobalIds.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        store.put("orderGlobalId", Order.getGlobalId());
+        store.put("tradeGlobalId", Trade.getGlobalId());
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        Order.setGlobalId(store.get("orderGlobalId", Integer.class));
+        Trade.setGlobalId(store.get("tradeGlobalId", Integer.class));
+    }
+}
@@ -0,0 +1,87 @@
+package orderbook.dao;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import orderbook.RestoreGlobalIds;
+import orderbook.dto.Candle;
+import orderbook.dto.CandleInterval;
+import orderbook.dto.Order;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class CandleAggregatorTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void testCandlesAcrossIntervals() {
+        CandleAggregator candles = new CandleAggregator();
+        LocalDateTime start = LocalDateTime.of(2021, 4, 9, 14, 1);
+        candles.add(trade(1, "190.10", 10, start.plusSeconds(5)));
+        candles.add(trade(2, "190.30", 20, start.plusSeconds(20)));
+        candles.add(trade(3, "190.20", 30, start.plusSeconds(10)));     // Out of time order.
+        candles.add(trade(4, "190.00", 40, start.plusSeconds(75)));
+
+        List<Candle> minutes = candles.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_MINUTE, 10);
+        assertEquals(minutes.size(), 2);
+        Candle first = minutes.get(0);
+        assertEquals(first.getOpenTime(), start);
+        assertEquals(first.getOpen(), new BigDecimal("190.1"));
+        assertEquals(first.getHigh(), new BigDecimal("190.3"));
+        assertEquals(first.getLow(), new BigDecimal("190.1"));
+        assertEquals(first.getClose(), new BigDecimal("190.3"), "The close is the latest trade, not the last added.");
+        assertEquals(first.getVolume(), 60L);
+        assertEquals(first.getTradeCount(), 3);
+        assertEquals(minutes.get(1).getOpenTime(), start.plusMinutes(1));
+
+        assertEquals(candles.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_SECOND, 10).size(), 4);
+        assertEquals(candles.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_SECOND, 2).get(1).getVolume(), 40L);
+        assertEquals(candles.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_HOUR, 10).get(0).getTradeCount(), 4);
+        assertTrue(candles.getCandles("MSFT", CandleInterval.ONE_HOUR, 10).isEmpty());
+
+        // An hour and more later the one-second candles of the first minute have left their ring.
+        candles.add(trade(5, "191.00", 5, start.plusHours(2)));
+        assertEquals(candles.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_SECOND, 10).size(), 1);
+        candles.add(trade(6, "189.00", 5, start.plusSeconds(30)));
+        assertEquals(candles.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_SECOND, 10).size(), 1);
+        assertEquals(candles.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_MINUTE, 10).get(0).getLow(),
+                new BigDecimal("189"));
+    }
+
+    @Test
+    public void testCandlesAreRebuiltFromTheTradeLog() throws PersistenceException {
+        String logFile = new File(directory, "trades.dat").getPath();
+        LocalDateTime now = LocalDateTime.now();
+        TradeDaoMappedImpl tradeLog = new TradeDaoMappedImpl(logFile, 16, null);
+        TradeDaoCandleImpl tradeDao = new TradeDaoCandleImpl(new CandleAggregator(), tradeLog);
+        tradeDao.addTrade(trade(1, "190.10", 10, now.minusDays(60)));      // Too old for any candle.
+        tradeDao.addTrade(trade(2, "190.20", 20, now.minusMinutes(5)));
+        tradeDao.addTrade(trade(3, "190.30", 30, now.minusMinutes(3)));
+        tradeLog.close();
+
+        CandleAggregator rebuilt = new CandleAggregator();
+        TradeDaoMappedImpl reopened = new TradeDaoMappedImpl(logFile, 16, null);
+        new TradeDaoCandleImpl(rebuilt, reopened).rebuild();
+        reopened.close();
+        List<Candle> minutes = rebuilt.getCandles(Order.DEFAULT_SYMBOL, CandleInterval.ONE_MINUTE, 10);
+        assertEquals(minutes.size(), 2);
+        assertEquals(minutes.get(0).getVolume(), 20L);
+        assertEquals(minutes.get(1).getClose(), new BigDecimal("190.3"));
+    }
+
+    private Trade trade(int id, String price, int quantity, LocalDateTime time) {
+        Trade trade = new Trade(quantity, new BigDecimal(price));
+        trade.setTradeId(id);
+        trade.setExecutionTime(time);
+        return trade;
+    }
+}
@@ -0,0 +1,86 @@
+package orderbook.dao;
+
+import java.util.List;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.SellOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class OffHeapOrderStoreTest {
+
+    @Test
+    public void testPriceTimePriority() {
+        OffHeapOrderStore asks = new OffHeapOrderStore(false);
+        asks.add(new SellOrder(1, 19100, 10));
+        asks.add(new SellOrder(2, 19050, 20));
+        asks.add(new SellOrder(3, 19050, 30));
+        asks.add(new SellOrder(4, 19200, 40));
+
+        assertEquals(asks.getBest().getId(), 2);
+        assertTrue(asks.getBest() instanceof SellOrder);
+        List<Order> orders = asks.getOrders();
+        assertEquals(orders.get(1).getId(), 3);
+        assertEquals(orders.get(3).getId(), 4);
+        assertEquals(asks.getCrossingOrders(19100, 55).size(), 3);
+        assertEquals(asks.getAvailableQuantity(19050, 1000), 50);
+        assertEquals(asks.getDepth(1).get(0).getOrderCount(), 2);
+
+        // A reduction keeps the order's place; a removal promotes the next order at its price.
+        assertEquals(asks.updateQuantity(2, 5), 20);
+        assertEquals(asks.getBest().getQuantity(), 5);
+        assertEquals(asks.remove(2).getQuantity(), 5);
+        assertEquals(asks.getBest().getId(), 3);
+        assertNull(asks.remove(new SellOrder(3, 19100, 30)), "An order at another price is not removed.");
+        asks.remove(3);
+        assertEquals(asks.getBest().getId(), 1);
+        assertEquals(asks.getLevelCount(), 2);
+
+        OrderStats stats = asks.getStats();
+        assertEquals(stats.getCount(), 2);
+        assertEquals(stats.getTotalQuantity(), 50);
+    }
+
+    @Test
+    public void testDuplicateIdIsRefused() throws Exception {
+        BuyOrderDaoOffHeapImpl bids = new BuyOrderDaoOffHeapImpl(new OffHeapOrderStore(true));
+        assertTrue(bids.addBuyOrder(new BuyOrder(1, 19000, 10)));
+        assertFalse(bids.addBuyOrder(new BuyOrder(1, 19100, 20)));
+        assertEquals(bids.getBuyOrderStats().getCount(), 1);
+        assertEquals(bids.getBestBuyOrder().getPriceTicks(), 19000);
+
+        // Once the order is cancelled nothing is left to trade against.
+        assertEquals(bids.cancelBuyOrder(1).getQuantity(), 10);
+        assertNull(bids.getBestBuyOrder());
+        assertTrue(bids.getAllBuyOrders().isEmpty());
+        assertEquals(bids.getBuyOrderStats().getTotalQuantity(), 0);
+    }
+
+    @Test
+    public void testSlotsAreReusedAcrossSegments() {
+        OffHeapOrderStore bids = new OffHeapOrderStore(true);
+        int count = OffHeapOrderStore.SEGMENT_RECORDS + 1000;
+        for (int id = 1; id <= count; id++) {
+            bids.add(new BuyOrder(id, 19000 - id % 100, 1));
+        }
+        long bytes = bids.getOffHeapBytes();
+        assertEquals(bids.size(), count);
+        assertEquals(bids.get(count).getPriceTicks(), 19000 - count % 100);
+
+        // Every order is replaced by another; the freed slots hold the new ones.
+        for (int id = 1; id <= count; id++) {
+            bids.remove(id);
+            bids.add(new BuyOrder(count + id, 19000, 2));
+        }
+        assertEquals(bids.getOffHeapBytes(), bytes);
+        assertEquals(bids.size(), count);
+        assertEquals(bids.getLevelCount(), 1);
+        assertEquals(bids.getBest().getId(), count + 1);
+        assertEquals(bids.getStats().getTotalQuantity(), 2L * count);
+        assertNull(bids.get(1));
+    }
+}
@@ -0,0 +1,179 @@
+package orderbook.dao;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.DepthLevel;
+import orderbook.dto.DepthUpdate;
+import orderbook.dto.Order;
+import orderbook.dto.OrderStats;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class OrderBookEngineTest {
+
+    private OrderBookEngine engine;
+    private BuyOrderDao buyOrderDao;
+    private SellOrderDao sellOrderDao;
+
+    @BeforeEach
+    public void setUp() {
+        engine = new OrderBookEngine();
+        buyOrderDao = new BuyOrderDaoMemoryImpl(engine);
+        sellOrderDao = new SellOrderDaoMemoryImpl(engine);
+    }
+
+    @Test
+    public void testBuySidePriceTimePriority() throws PersistenceException {
+        BuyOrder first = new BuyOrder(1, new BigDecimal("190.5"), 10);
+        BuyOrder better = new BuyOrder(2, new BigDecimal("190.7"), 20);
+        BuyOrder second = new BuyOrder(3, new BigDecimal("190.5"), 30);
+
+        buyOrderDao.addBuyOrder(first);
+        buyOrderDao.addBuyOrder(better);
+        buyOrderDao.addBuyOrder(second);
+
+        assertEquals(buyOrderDao.getBestBuyOrder(), better, "The highest bid should be the best buy order.");
+
+        List<Order> buyOrders = buyOrderDao.getAllBuyOrders();
+        assertEquals(buyOrders, List.of(better, first, second), "Orders at the same price should keep their arrival order.");
+        assertEquals(engine.getBids().getLevelCount(), 2, "Two distinct prices should give two price levels.");
+    }
+
+    @Test
+    public void testDuplicateIdIsRefused() throws PersistenceException {
+        BuyOrder resting = new BuyOrder(1, new BigDecimal("190.5"), 10);
+        assertTrue(buyOrderDao.addBuyOrder(resting));
+        assertFalse(buyOrderDao.addBuyOrder(new BuyOrder(1, new BigDecimal("190.7"), 20)),
+                "A second order with a resting order's id should be refused.");
+        assertEquals(buyOrderDao.getAllBuyOrders(), List.of(resting));
+        assertEquals(buyOrderDao.getBuyOrderStats().getTotalQuantity(), 10);
+
+        // The resting order is still the one found by its id.
+        assertEquals(buyOrderDao.cancelBuyOrder(1), resting);
+        assertNull(buyOrderDao.getBestBuyOrder());
+        assertEquals(engine.getBids().getLevelCount(), 0);
+    }
+
+    @Test
+    public void testSellSideLowestPriceFirst() throws PersistenceException {
+        SellOrder high = new SellOrder(1, new BigDecimal("191.0"), 10);
+        SellOrder low = new SellOrder(2, new BigDecimal("190.2"), 20);
+
+        sellOrderDao.addSellOrder(high);
+        sellOrderDao.addSellOrder(low);
+
+        assertEquals(sellOrderDao.getBestSellOrder(), low, "The lowest ask should be the best sell order.");
+        assertEquals(sellOrderDao.getAllSellOrders(), List.of(low, high));
+    }
+
+    @Test
+    public void testRemoveEmptiesLevelAndMovesBest() throws PersistenceException {
+        BuyOrder best = new BuyOrder(1, new BigDecimal("190.9"), 10);
+        BuyOrder next = new BuyOrder(2, new BigDecimal("190.1"), 20);
+        buyOrderDao.addBuyOrder(best);
+        buyOrderDao.addBuyOrder(next);
+
+        buyOrderDao.removeBuyOrder(best);
+
+        assertEquals(buyOrderDao.getBestBuyOrder(), next, "The next level should become the best once the top level is empty.");
+        assertEquals(engine.getBids().getLevelCount(), 1);
+
+        buyOrderDao.removeBuyOrder(next);
+
+        assertNull(buyOrderDao.getBestBuyOrder());
+        assertTrue(engine.getBids().isEmpty());
+    }
+
+    @Test
+    public void testEditQuantityKeepsTimePriority() throws PersistenceException {
+        SellOrder first = new SellOrder(1, new BigDecimal("190.2"), 40);
+        SellOrder second = new SellOrder(2, new BigDecimal("190.2"), 20);
+        sellOrderDao.addSellOrder(first);
+        sellOrderDao.addSellOrder(second);
+
+        sellOrderDao.editQuantitySellOrder(first, 15);
+
+        assertEquals(sellOrderDao.getBestSellOrder(), first, "A reduced order should stay at the front of its level.");
+        assertEquals(first.getQuantity(), 15);
+        assertEquals(engine.getAsks().getBestLevel().getTotalQuantity(), 35L, "The level quantity should follow the edit.");
+    }
+
+    @Test
+    public void testRunningStatsFollowAddsFillsAndRemoves() throws PersistenceException {
+        SellOrder first = new SellOrder(1, new BigDecimal("190.2"), 10);
+        SellOrder second = new SellOrder(2, new BigDecimal("190.6"), 30);
+        SellOrder third = new SellOrder(3, new BigDecimal("191.0"), 20);
+        sellOrderDao.addSellOrder(first);
+        sellOrderDao.addSellOrder(second);
+        sellOrderDao.addSellOrder(third);
+        sellOrderDao.editQuantitySellOrder(second, 10);
+        sellOrderDao.removeSellOrder(first);
+
+        OrderStats stats = sellOrderDao.getSellOrderStats();
+        assertEquals(stats.getCount(), 2L);
+        assertEquals(stats.getTotalQuantity(), 30L);
+        assertEquals(stats.getMinPrice(), new BigDecimal("190.6"));
+        assertEquals(stats.getMaxPrice(), new BigDecimal("191"));
+        assertEquals(stats.getAveragePrice(), new BigDecimal("190.80000"));
+        assertEquals(stats.getVwap(), new BigDecimal("190.86667"), "(190.6 * 10 + 191.0 * 20) / 30");
+        assertEquals(stats.getVwap(), OrderStats.of(sellOrderDao.getAllSellOrders()).getVwap(),
+                "The running totals should agree with a full recount.");
+    }
+
+    @Test
+    public void testCancelAndAmendById() throws PersistenceException {
+        BuyOrder first = new BuyOrder(1, new BigDecimal("190.5"), 10);
+        BuyOrder middle = new BuyOrder(2, new BigDecimal("190.5"), 20);
+        BuyOrder last = new BuyOrder(3, new BigDecimal("190.5"), 30);
+        buyOrderDao.addBuyOrder(first);
+        buyOrderDao.addBuyOrder(middle);
+        buyOrderDao.addBuyOrder(last);
+
+        assertEquals(buyOrderDao.cancelBuyOrder(2), middle);
+        assertNull(buyOrderDao.cancelBuyOrder(2), "An order can only be cancelled once.");
+        assertEquals(buyOrderDao.getAllBuyOrders(), List.of(first, last));
+
+        buyOrderDao.amendBuyOrder(1, first.getPriceTicks(), 5);
+        assertEquals(buyOrderDao.getBestBuyOrder().getId(), 1, "A reduced order should keep its priority.");
+        buyOrderDao.amendBuyOrder(1, first.getPriceTicks(), 50);
+        assertEquals(buyOrderDao.getBestBuyOrder().getId(), 3, "An increased order should lose its priority.");
+
+        buyOrderDao.amendBuyOrder(3, PriceTicks.toTicks(new BigDecimal("189")), 30);
+        assertEquals(engine.getBids().getLevelCount(), 2, "A new price should move the order to its own level.");
+        OrderStats stats = buyOrderDao.getBuyOrderStats();
+        assertEquals(stats.getTotalQuantity(), 80L);
+        assertEquals(stats.getMinPrice().compareTo(new BigDecimal("189")), 0);
+    }
+
+    @Test
+    public void testDepthAndDepthUpdates() throws PersistenceException {
+        List<DepthUpdate> received = new ArrayList<>();
+        engine.addDepthListener((symbol, updates) -> received.addAll(updates));
+
+        buyOrderDao.addBuyOrder(new BuyOrder(1, new BigDecimal("190.5"), 10));
+        buyOrderDao.addBuyOrder(new BuyOrder(2, new BigDecimal("190.5"), 20));
+        buyOrderDao.addBuyOrder(new BuyOrder(3, new BigDecimal("190.4"), 30));
+        sellOrderDao.addSellOrder(new SellOrder(4, new BigDecimal("190.6"), 5));
+
+        List<DepthLevel> bids = buyOrderDao.getBuyDepth(1);
+        assertEquals(bids.size(), 1, "Only the requested number of levels should be returned.");
+        assertEquals(bids.get(0).getQuantity(), 30L);
+        assertEquals(bids.get(0).getOrderCount(), 2);
+        assertEquals(received.size(), 4, "Each add should send the one level it changed.");
+
+        received.clear();
+        sellOrderDao.cancelSellOrder(4);
+        assertEquals(received.size(), 1);
+        assertTrue(received.get(0).isRemoved(), "An emptied level should be sent as removed.");
+        assertFalse(received.get(0).isBuy());
+    }
+}
@@ -0,0 +1,238 @@
+package orderbook.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import orderbook.RestoreGlobalIds;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class OrderBookJournalTest {
+
+    @TempDir
+    File directory;
+    private File journalFile;
+
+    @BeforeEach
+    public void setUp() {
+        journalFile = new File(directory, "orderBookJournal.dat");
+    }
+
+    @Test
+    public void testRecoverRebuildsBook() throws PersistenceException, IOException {
+        OrderBookJournal journal = new OrderBookJournal(journalFile.getPath(), JournalSyncPolicy.EVERY_N_EVENTS, 2);
+        OrderBookEngine engine = new OrderBookEngine(journal);
+        BuyOrderDao buyOrderDao = new BuyOrderDaoMemoryImpl(engine);
+        SellOrderDao sellOrderDao = new SellOrderDaoMemoryImpl(engine);
+
+        BuyOrder filled = new BuyOrder(1, new BigDecimal("190.75"), 15);
+        BuyOrder resting = new BuyOrder(2, new BigDecimal("190.5"), 25);
+        SellOrder reduced = new SellOrder(3, new BigDecimal("190.4"), 40);
+
+        buyOrderDao.addBuyOrder(filled);
+        buyOrderDao.addBuyOrder(resting);
+        sellOrderDao.addSellOrder(reduced);
+        buyOrderDao.removeBuyOrder(filled);
+        sellOrderDao.editQuantitySellOrder(reduced, 25);
+        journal.close();
+
+        OrderBookEngine recovered = new OrderBookEngine(new OrderBookJournal(journalFile.getPath()));
+        long events = recovered.recover();
+
+        assertEquals(events, 5L, "Every mutation should have been journaled.");
+        assertEquals(recovered.getBids().getOrders(), List.of(resting), "Only the unfilled buy order should be recovered.");
+        List<Order> sellOrders = recovered.getAsks().getOrders();
+        assertEquals(sellOrders.size(), 1);
+        assertEquals(sellOrders.get(0).getQuantity(), 25, "The reduced sell order should be recovered with its new quantity.");
+        recovered.getJournal().close();
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws PersistenceException, IOException {
+        OrderBookJournal journal = new OrderBookJournal(journalFile.getPath());
+        OrderBookEngine engine = new OrderBookEngine(journal);
+        new BuyOrderDaoMemoryImpl(engine).addBuyOrder(new BuyOrder(1, new BigDecimal("190.1"), 10));
+        journal.close();
+
+        long completeLength = journalFile.length();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.seek(completeLength);
+            file.writeInt(40);      // The header of a record whose body was never written.
+            file.writeByte(1);
+        }
+
+        OrderBookEngine recovered = new OrderBookEngine(new OrderBookJournal(journalFile.getPath()));
+        assertEquals(recovered.recover(), 1L);
+        assertEquals(journalFile.length(), completeLength, "The partial record should be cut from the journal.");
+        assertEquals(recovered.getBids().size(), 1);
+        recovered.getJournal().close();
+    }
+
+    @Test
+    public void testJournalOfAnotherTickSizeIsRefused() throws PersistenceException, IOException {
+        OrderBookJournal journal = new OrderBookJournal(journalFile.getPath());
+        new BuyOrderDaoMemoryImpl(new OrderBookEngine(journal)).addBuyOrder(new BuyOrder(1, new BigDecimal("190.1"), 10));
+        journal.close();
+
+        BigDecimal tickSize = PriceTicks.getTickSize();
+        PriceTicks.setTickSize(new BigDecimal("0.01"));
+        try {
+            OrderBookEngine recovered = new OrderBookEngine(new OrderBookJournal(journalFile.getPath()));
+            assertThrows(PersistenceException.class, recovered::recover,
+                    "Replaying at another tick size would rescale every price.");
+        }
+        finally {
+            PriceTicks.setTickSize(tickSize);
+        }
+        OrderBookEngine recovered = new OrderBookEngine(new OrderBookJournal(journalFile.getPath()));
+        assertEquals(recovered.recover(), 1L);
+        assertEquals(recovered.getBids().getBest().getPrice(), new BigDecimal("190.1"));
+        recovered.getJournal().close();
+    }
+
+    @Test
+    public void testSnapshotThenJournalTail() throws PersistenceException, IOException {
+        String snapshotFile = new File(directory, "orderBookSnapshot.dat").getPath();
+        String recoveryLog = new File(directory, "recovery.log").getPath();
+        OrderBookJournal journal = new OrderBookJournal(journalFile.getPath());
+        OrderBookEngine engine = new OrderBookEngine(journal);
+        BuyOrderDao buyOrderDao = new BuyOrderDaoMemoryImpl(engine);
+        SellOrderDao sellOrderDao = new SellOrderDaoMemoryImpl(engine);
+
+        BuyOrder first = new BuyOrder(1, new BigDecimal("190.5"), 10);
+        BuyOrder second = new BuyOrder(2, new BigDecimal("190.5"), 20);
+        buyOrderDao.addBuyOrder(first);
+        buyOrderDao.addBuyOrder(second);
+
+        long snapshotSequence = new OrderBookSnapshotter(engine, snapshotFile, 0, recoveryLog).snapshot();
+
+        SellOrder tail = new SellOrder(3, new BigDecimal("190.9"), 30);
+        sellOrderDao.addSellOrder(tail);
+        buyOrderDao.removeBuyOrder(first);
+        journal.close();
+
+        assertEquals(snapshotSequence, 2L);
+        assertEquals(directory.list((dir, name) -> name.startsWith("orderBookJournal.dat.")).length, 0,
+                "The journal covered by the snapshot should have been deleted.");
+
+        OrderBookEngine recovered = new OrderBookEngine(new OrderBookJournal(journalFile.getPath()));
+        RecoveryReport report = new OrderBookSnapshotter(recovered, snapshotFile, 0, recoveryLog).recover();
+
+        assertEquals(report.getSnapshotOrders(), 2, "Both buy orders should be loaded from the snapshot.");
+        assertEquals(report.getJournalEvents(), 2L, "Only the events after the snapshot should be replayed.");
+        assertEquals(recovered.getBids().getOrders(), List.of(second));
+        assertEquals(recovered.getAsks().getOrders(), List.of(tail));
+        assertEquals(recovered.getBids().getLastOrderId(), 2);
+        recovered.getJournal().close();
+    }
+
+    @Test
+    public void testGroupCommitDurableSequence() throws PersistenceException, IOException, InterruptedException {
+        String snapshotFile = new File(directory, "orderBookSnapshot.dat").getPath();
+        String recoveryLog = new File(directory, "recovery.log").getPath();
+        OrderBookJournal journal = new OrderBookJournal(journalFile.getPath(), JournalSyncPolicy.GROUP_COMMIT, 5, 64);
+        OrderBookEngine engine = new OrderBookEngine(journal);
+        BuyOrderDao buyOrderDao = new BuyOrderDaoMemoryImpl(engine);
+
+        for (int id = 1; id <= 1000; id++) {
+            buyOrderDao.addBuyOrder(new BuyOrder(id, new BigDecimal("190.5"), 10));
+        }
+        long snapshotSequence = new OrderBookSnapshotter(engine, snapshotFile, 0, recoveryLog).snapshot();
+        assertEquals(journal.getDurableSequence(), snapshotSequence, "Rolling the journal should commit the queue.");
+
+        for (int id = 1001; id <= 2000; id++) {
+            buyOrderDao.addBuyOrder(new BuyOrder(id, new BigDecimal("190.5"), 10));
+        }
+        long sequence = journal.getSequence();
+        assertTrue(journal.awaitDurable(sequence, 10_000), "The writer should commit every queued event.");
+        assertTrue(journal.getDurableSequence() >= sequence);
+        journal.close();
+
+        OrderBookEngine recovered = new OrderBookEngine(new OrderBookJournal(journalFile.getPath()));
+        RecoveryReport report = new OrderBookSnapshotter(recovered, snapshotFile, 0, recoveryLog).recover();
+        assertEquals(report.getJournalEvents(), 1000L, "The events after the snapshot should be in the journal.");
+        assertEquals(recovered.getBids().size(), 2000);
+        recovered.getJournal().close();
+    }
+
+    @Test
+    public void testFailedBackgroundSnapshotIsReported() throws PersistenceException, IOException, InterruptedException {
+        String snapshotFile = new File(directory, "missing/orderBookSnapshot.dat").getPath();
+        String recoveryLog = new File(directory, "recovery.log").getPath();
+        OrderBookJournal journal = new OrderBookJournal(journalFile.getPath());
+        OrderBookSnapshotter snapshotter = new OrderBookSnapshotter(new OrderBookEngine(journal), snapshotFile, 1,
+                recoveryLog);
+        snapshotter.start();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (snapshotter.getFailedSnapshots() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(snapshotter.getFailedSnapshots() > 0, "Snapshots into a missing directory should fail.");
+        PersistenceException e = assertThrows(PersistenceException.class, snapshotter::close);
+        assertEquals(e.getSuppressed().length, 1, "The earlier background failure should be reported by close().");
+        journal.close();
+    }
+
+    @Test
+    public void testTradesLostByTradeLogAreRecovered() throws PersistenceException, IOException {
+        String snapshotFile = new File(directory, "orderBookSnapshot.dat").getPath();
+        String recoveryLog = new File(directory, "recovery.log").getPath();
+        String logFile = new File(directory, "trades.dat").getPath();
+        OrderBookJournal journal = new OrderBookJournal(journalFile.getPath());
+        TradeDaoMappedImpl tradeLog = new TradeDaoMappedImpl(logFile, 16, null);
+        TradeDao tradeDao = new TradeDaoJournalImpl(journal, tradeLog);
+        OrderBookSnapshotter snapshotter = new OrderBookSnapshotter(new OrderBookEngine(journal), snapshotFile, 0,
+                recoveryLog);
+        snapshotter.setTradeLog(tradeLog);
+
+        for (int id = 1; id <= 3; id++) {
+            tradeDao.addTrade(trade(id));
+        }
+        snapshotter.snapshot();
+        assertNull(new TradeDaoMappedImpl(logFile, 16, null).getTrade(4));
+        Path segment = new File(directory, "trades.dat.0").toPath();
+        byte[] forced = Files.readAllBytes(segment);
+
+        tradeDao.addTrades(List.of(trade(5), trade(4)));
+        journal.close();
+        // A crash before the trade log was forced leaves only what the snapshot synced on disk.
+        Files.write(segment, forced);
+
+        TradeDaoMappedImpl reopened = new TradeDaoMappedImpl(logFile, 16, null);
+        assertEquals(reopened.size(), 3L, "The trades after the snapshot should have been lost.");
+        Trade.setGlobalId(1);
+        TradeDaoJournalImpl recovered = new TradeDaoJournalImpl(new OrderBookJournal(journalFile.getPath()), reopened);
+
+        assertEquals(recovered.recover(), 2, "Both lost trades should be replayed from the journal.");
+        for (int id = 1; id <= 5; id++) {
+            assertEquals(recovered.getTrade(id).getQuantity(), id * 10, "Trade " + id + " should be in the history.");
+        }
+        assertEquals(Trade.getGlobalId(), 6, "Trade ids should continue after the recovered trades.");
+        assertEquals(recovered.recover(), 0, "Recovering again should add nothing.");
+        reopened.close();
+    }
+
+    private static Trade trade(int id) {
+        Trade trade = new Trade(id * 10, new BigDecimal("190.5"));
+        trade.setTradeId(id);
+        return trade;
+    }
+}
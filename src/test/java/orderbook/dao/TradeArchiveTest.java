@@ -0,0 +1,136 @@
+package orderbook.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TradeArchiveTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2021, 4, 9, 9, 0);
+
+    @TempDir
+    File directory;
+    private String archiveFile;
+    private TradeDaoMappedImpl tradeLog;
+
+    @BeforeEach
+    public void setUp() throws PersistenceException {
+        archiveFile = new File(directory, "trades.archive").getPath();
+        tradeLog = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath(), 64, null);
+        // Twelve trades a quarter of an hour apart, of two symbols, over three hours.
+        for (int i = 0; i < 12; i++) {
+            Trade trade = new Trade();
+            trade.setTradeId(100 + i);
+            trade.setSymbol(i % 3 == 0 ? "MSFT" : "AAPL");
+            trade.setQuantity(10 + i);
+            trade.setPrice(new BigDecimal(i % 2 == 0 ? "190.25" : "189.5"));
+            trade.setExecutionTime(START.plusMinutes(15 * i));
+            tradeLog.addTrade(trade);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tradeLog.close();
+    }
+
+    @Test
+    public void testClosedHoursRoundTrip() throws PersistenceException {
+        TradeArchive archive = new TradeArchive(archiveFile);
+        // The third hour is still open at 11:30, so it is left for a later roll.
+        assertEquals(archive.archive(tradeLog, START.plusMinutes(150)), 8);
+        assertEquals(archive.archive(tradeLog, START.plusMinutes(150)), 0, "Archived hours should not be archived again.");
+        assertEquals(archive.archive(tradeLog, START.plusHours(4)), 4);
+
+        List<Long> quantities = new ArrayList<>();
+        archive.scan(TradeArchive.Column.QUANTITY, quantities::add);
+        assertEquals(quantities.size(), 12);
+        assertEquals(quantities.get(11), 21L);
+        List<Long> ids = new ArrayList<>();
+        archive.scan(TradeArchive.Column.ID, ids::add);
+        assertEquals(ids.get(0), 100L);
+        assertEquals(ids.get(11), 111L);
+
+        List<Trade> trades = archive.getTrades(START.plusMinutes(45), START.plusMinutes(90));
+        assertEquals(trades.size(), 3);
+        Trade trade = trades.get(0);
+        assertEquals(trade.getTradeId(), 103);
+        assertEquals(trade.getSymbol(), "MSFT");
+        assertEquals(trade.getQuantity(), 13);
+        assertEquals(trade.getPrice(), new BigDecimal("189.5"));
+        assertEquals(trade.getExecutionTime(), START.plusMinutes(45));
+        assertEquals(trades.get(1).getSymbol(), "AAPL");
+    }
+
+    @Test
+    public void testTornBlockIsDropped() throws PersistenceException, IOException {
+        TradeArchive archive = new TradeArchive(archiveFile);
+        archive.archive(tradeLog, START.plusHours(1));
+        long length = new File(archiveFile).length();
+        archive.archive(tradeLog, START.plusHours(2));
+        try (RandomAccessFile file = new RandomAccessFile(archiveFile, "rw")) {
+            file.setLength(file.length() - 1);      // The second block was cut short by a crash.
+        }
+
+        assertEquals(archive.getTrades(START, START.plusHours(3)).size(), 4);
+        assertEquals(archive.archive(tradeLog, START.plusHours(2)), 4, "The lost hour should be archived again.");
+        assertTrue(new File(archiveFile).length() > length);
+        assertEquals(archive.getTrades(START, START.plusHours(3)).size(), 8);
+    }
+
+    @Test
+    public void testLateTradeInArchivedHourIsArchived() throws PersistenceException {
+        TradeArchive archive = new TradeArchive(archiveFile);
+        assertEquals(archive.archive(tradeLog, START.plusHours(2)), 8);
+        Trade late = new Trade();
+        late.setTradeId(200);
+        late.setSymbol("AAPL");
+        late.setQuantity(5);
+        late.setPrice(new BigDecimal("190"));
+        late.setExecutionTime(START.plusMinutes(20));     // Recorded after its hour was archived.
+        tradeLog.addTrade(late);
+
+        Trade earlier = new Trade();
+        earlier.setTradeId(201);
+        earlier.setSymbol("MSFT");
+        earlier.setQuantity(7);
+        earlier.setPrice(new BigDecimal("190"));
+        earlier.setExecutionTime(START.minusHours(5));      // In an hour before any archived one.
+        tradeLog.addTrade(earlier);
+
+        assertEquals(archive.archive(tradeLog, START.plusHours(3)), 6, "The late trades should join the next roll.");
+        List<Trade> trades = archive.getTrades(START, START.plusHours(1));
+        assertEquals(trades.size(), 5);
+        assertTrue(trades.stream().anyMatch(trade -> trade.getTradeId() == 200));
+        assertEquals(archive.getTrades(START.minusHours(5), START.minusHours(4)).size(), 1);
+        assertEquals(archive.archive(tradeLog, START.plusHours(3)), 0);
+        assertEquals(new TradeArchive(archiveFile).archive(tradeLog, START.plusHours(3)), 0,
+                "An archive reopened on the file should find every hour archived.");
+    }
+
+    @Test
+    public void testBackgroundRollArchivesClosedHours() throws PersistenceException, InterruptedException {
+        TradeArchive archive = new TradeArchive(archiveFile, tradeLog, 60_000);
+        archive.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (archive.getTrades(START, START.plusHours(3)).size() < 12 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        archive.close();
+
+        assertEquals(archive.getTrades(START, START.plusHours(3)).size(), 12, "The first roll should be made on start.");
+        assertEquals(archive.getFailedRolls(), 0L);
+    }
+}
@@ -0,0 +1,129 @@
+package orderbook.dao;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.Trade;
+import orderbook.dto.TradeStats;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TradeDaoMappedImplTest {
+
+    @TempDir
+    File directory;
+    private String logFile;
+
+    @BeforeEach
+    public void setUp() {
+        logFile = new File(directory, "trades.dat").getPath();
+    }
+
+    @Test
+    public void testTradesSurviveReopenAcrossSegments() throws PersistenceException {
+        TradeDaoMappedImpl tradeDao = new TradeDaoMappedImpl(logFile, 4, null);
+        for (int i = 1; i <= 10; i++) {
+            Trade trade = new Trade(i * 10, new BigDecimal("190." + i));
+            trade.setTradeId(i);
+            tradeDao.addTrade(trade);
+        }
+        tradeDao.close();
+
+        assertEquals(directory.list((dir, name) -> name.matches("trades\\.dat\\.\\d+")).length, 3,
+                "Ten trades of four per segment should need three segments.");
+
+        TradeDaoMappedImpl reopened = new TradeDaoMappedImpl(logFile, 4, null);
+        List<Trade> trades = reopened.getTrades();
+        assertEquals(trades.size(), 10);
+        assertEquals(reopened.getLastTradeId(), 10);
+        Trade seventh = reopened.getTrade(7);
+        assertEquals(seventh.getQuantity(), 70);
+        assertEquals(seventh.getPrice(), new BigDecimal("190.7"));
+        assertNull(reopened.getTrade(11));
+        reopened.close();
+    }
+
+    @Test
+    public void testTradesAppendedOutOfIdOrderAreFound() throws PersistenceException {
+        TradeDaoMappedImpl tradeDao = new TradeDaoMappedImpl(logFile, 4, null);
+        for (int id : new int[] {5, 3, 4, 8, 6}) {
+            Trade trade = new Trade(id, new BigDecimal("190.5"));
+            trade.setTradeId(id);
+            tradeDao.addTrade(trade);
+        }
+        tradeDao.close();
+
+        TradeDaoMappedImpl reopened = new TradeDaoMappedImpl(logFile, 4, null);
+        assertEquals(reopened.getTrade(3).getQuantity(), 3);
+        assertEquals(reopened.getTrade(6).getQuantity(), 6);
+        assertNull(reopened.getTrade(7));
+        assertEquals(reopened.getLastTradeId(), 8);
+        reopened.close();
+    }
+
+    @Test
+    public void testTornRecordIsNotCommitted() throws PersistenceException, IOException {
+        TradeDaoMappedImpl tradeDao = new TradeDaoMappedImpl(logFile, 8, null);
+        tradeDao.addTrade(new Trade(10, new BigDecimal("190.1")));
+        tradeDao.close();
+
+        try (RandomAccessFile segment = new RandomAccessFile(logFile + ".0", "rw")) {
+            segment.seek(TradeDaoMappedImpl.RECORD_SIZE);
+            segment.writeInt(99);       // The start of a record whose commit marker was never written.
+        }
+
+        TradeDaoMappedImpl reopened = new TradeDaoMappedImpl(logFile, 8, null);
+        assertEquals(reopened.size(), 1L, "Only the committed trade should be read back.");
+        reopened.addTrade(new Trade(20, new BigDecimal("190.2")));
+        assertEquals(reopened.getTrades().get(1).getQuantity(), 20, "The torn slot should be reused.");
+        reopened.close();
+    }
+
+    @Test
+    public void testRangeQueriesUseTimeSegments() throws PersistenceException {
+        LocalDateTime start = LocalDateTime.of(2021, 4, 9, 9, 0);
+        TradeDaoMappedImpl tradeDao = new TradeDaoMappedImpl(logFile, 16, null);
+        // Four trades a quarter of an hour apart, over three hours.
+        for (int i = 0; i < 12; i++) {
+            Trade trade = new Trade(10 + i, new BigDecimal("190." + (10 + i)));
+            trade.setTradeId(i + 1);
+            trade.setExecutionTime(start.plusMinutes(15 * i));
+            tradeDao.addTrade(trade);
+        }
+        tradeDao.close();
+        assertTrue(new File(logFile + ".seg").exists(), "The completed hours should be summarized.");
+
+        // Half of the first hour, all of the second answered from its summary, half of the third.
+        TradeDaoMappedImpl reopened = new TradeDaoMappedImpl(logFile, 16, null);
+        LocalDateTime from = start.plusMinutes(30);
+        LocalDateTime to = start.plusMinutes(150);
+        TradeStats stats = reopened.getTradeStats(from, to);
+        List<Trade> trades = reopened.getTrades(from, to);
+        assertEquals(trades.size(), 8);
+        assertEquals(trades.get(0).getTradeId(), 3);
+        assertEquals(stats.getCount(), 8L);
+        assertEquals(stats.getVolume(), 12L + 13 + 14 + 15 + 16 + 17 + 18 + 19);
+        assertEquals(stats.getLowPrice(), new BigDecimal("190.12"));
+        assertEquals(stats.getHighPrice(), new BigDecimal("190.19"));
+        BigDecimal notional = BigDecimal.ZERO;
+        for (Trade trade : trades) {
+            notional = notional.add(trade.getPrice().multiply(BigDecimal.valueOf(trade.getQuantity())));
+        }
+        assertEquals(stats.getVwap(), notional.divide(BigDecimal.valueOf(stats.getVolume()), 5, RoundingMode.HALF_UP));
+
+        assertEquals(reopened.getTradesByPrice(PriceTicks.toTicks(new BigDecimal("190.20")),
+                PriceTicks.toTicks(new BigDecimal("190.30"))).size(), 2);
+        assertEquals(reopened.getTradeStats(start.minusHours(1), start).getCount(), 0L);
+        reopened.close();
+    }
+}
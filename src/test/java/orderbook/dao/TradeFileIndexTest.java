@@ -0,0 +1,84 @@
+package orderbook.dao;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TradeFileIndexTest {
+
+    @TempDir
+    File directory;
+    private String tradeFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tradeFile = new File(directory, "trades.txt").getPath();
+        new File(tradeFile).createNewFile();
+    }
+
+    @Test
+    public void testGetTradeWithGapsInIds() throws PersistenceException {
+        TradeDao tradeDao = new TradeDaoFileImpl(tradeFile);
+        List<Trade> trades = new ArrayList<>();
+        for (int id : new int[] {3, 4, 5, 9, 12}) {
+            Trade trade = new Trade(id, new BigDecimal("190.5"));
+            trade.setTradeId(id);
+            trades.add(trade);
+        }
+        tradeDao.addTrades(trades);
+
+        assertEquals(tradeDao.getTrade(4).getQuantity(), 4, "A dense id should be found at its slot.");
+        assertEquals(tradeDao.getTrade(12).getQuantity(), 12, "An id after a gap should be found by search.");
+        assertNull(tradeDao.getTrade(7));
+        assertEquals(tradeDao.getLastTradeId(), 12);
+    }
+
+    @Test
+    public void testIndexCatchesUpWithAppendedTrades() throws PersistenceException, IOException {
+        TradeDao tradeDao = new TradeDaoFileImpl(tradeFile);
+        tradeDao.addTrade(tradeWithId(1));
+        assertEquals(tradeDao.getTrade(1).getTradeId(), 1);
+
+        // Another writer appends to the trade file behind the index's back.
+        try (PrintWriter out = new PrintWriter(new FileWriter(tradeFile, true))) {
+            out.println("2::2021-04-09T14:01:39.898014400::11::190.5");
+        }
+        TradeDao reopened = new TradeDaoFileImpl(tradeFile);
+        assertEquals(reopened.getTrade(2).getQuantity(), 11, "The reopened index should index the new tail.");
+        assertEquals(reopened.getLastTradeId(), 2);
+    }
+
+    @Test
+    public void testTruncatedLineIsNotFound() throws PersistenceException, IOException {
+        TradeDao tradeDao = new TradeDaoFileImpl(tradeFile);
+        tradeDao.addTrades(List.of(tradeWithId(1), tradeWithId(2)));
+        assertEquals(tradeDao.getTrade(2).getTradeId(), 2);
+
+        // The last line loses its end and the file is padded back past its indexed length.
+        try (RandomAccessFile file = new RandomAccessFile(tradeFile, "rw")) {
+            file.setLength(file.length() - 5);
+            file.seek(file.length());
+            file.writeBytes("0000000");
+        }
+        assertNull(tradeDao.getTrade(2), "A trade whose line is incomplete should not be found.");
+        assertEquals(tradeDao.getTrade(1).getTradeId(), 1);
+    }
+
+    private Trade tradeWithId(int id) {
+        Trade trade = new Trade(10, new BigDecimal("190.5"));
+        trade.setTradeId(id);
+        return trade;
+    }
+}
@@ -0,0 +1,135 @@
+package orderbook.gateway;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import orderbook.RestoreGlobalIds;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.OrderType;
+import orderbook.dto.PriceTicks;
+import orderbook.exceptions.PersistenceException;
+import orderbook.service.OrderBookServiceLayerImpl;
+import static orderbook.gateway.GatewayProtocol.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class OrderGatewayTest {
+
+    @TempDir
+    File directory;
+    private TradeDaoMappedImpl tradeDao;
+    private OrderBookEngine engine;
+    private OrderGateway gateway;
+    private final long price = PriceTicks.toTicks(new BigDecimal("190.5"));
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        tradeDao = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath(), 1024, null);
+        engine = new OrderBookEngine();
+        gateway = new OrderGateway(new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), tradeDao), 0);
+        gateway.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException, InterruptedException {
+        gateway.close();
+        tradeDao.close();
+    }
+
+    @Test
+    public void testOrderAckFillAndCancel() throws IOException {
+        try (SocketChannel maker = connect(); SocketChannel taker = connect()) {
+            send(maker, buffer -> encodeNewOrder(buffer, BUY, OrderType.LIMIT.ordinal(), 30, price, 1));
+            ByteBuffer ack = receive(maker);
+            assertEquals(ack.get(TYPE), ACK);
+            assertEquals(ack.get(STATUS), ACCEPTED);
+            assertEquals(ack.getInt(LEAVES_QUANTITY), 30, "The unfilled order should rest in full.");
+            int restingId = ack.getInt(ACK_ORDER_ID);
+
+            send(taker, buffer -> encodeNewOrder(buffer, SELL, OrderType.IOC.ordinal(), 10, price, 2));
+            assertEquals(receive(taker).get(STATUS), ACCEPTED);
+            ByteBuffer takerFill = receive(taker);
+            assertEquals(takerFill.get(TYPE), FILL);
+            assertEquals(takerFill.getInt(QUANTITY), 10);
+            assertEquals(takerFill.getLong(CLIENT_ORDER_ID), 2L);
+
+            ByteBuffer makerFill = receive(maker);
+            assertEquals(makerFill.get(TYPE), FILL, "The owner of the resting order should be sent its fill.");
+            assertEquals(makerFill.getInt(FILL_ORDER_ID), restingId);
+            assertEquals(makerFill.getLong(CLIENT_ORDER_ID), 1L);
+            assertEquals(makerFill.getInt(TRADE_ID), takerFill.getInt(TRADE_ID));
+
+            send(taker, buffer -> encodeCancel(buffer, restingId, 3));
+            assertEquals(receive(taker).get(STATUS), REJECTED, "Only the owner may cancel an order.");
+            send(maker, buffer -> encodeCancel(buffer, restingId, 4));
+            assertEquals(receive(maker).get(STATUS), CANCELLED);
+            assertEquals(engine.getBids().size(), 0);
+        }
+    }
+
+    @Test
+    public void testBadPriceIsRejectedAndDisconnectCancels() throws IOException, InterruptedException {
+        try (SocketChannel maker = connect()) {
+            send(maker, buffer -> encodeNewOrder(buffer, BUY, OrderType.LIMIT.ordinal(), 30, 0, 1));
+            assertEquals(receive(maker).get(STATUS), REJECTED, "A limit order needs a positive price.");
+            send(maker, buffer -> encodeNewOrder(buffer, BUY, OrderType.LIMIT.ordinal(), 30, price, 2));
+            assertEquals(receive(maker).get(STATUS), ACCEPTED);
+        }
+        // The gateway sees the connection close on its own thread.
+        for (int i = 0; i < 500 && engine.getBids().size() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(engine.getBids().size(), 0, "The orders of a closed connection should be cancelled.");
+    }
+
+    @Test
+    public void testLoadClientOverLoopback() throws IOException, InterruptedException, PersistenceException {
+        GatewayLoadClient client = new GatewayLoadClient(gateway.getPort());
+        client.run(10_000);
+        assertEquals(client.getAcks(), 10_000L);
+        assertEquals(client.getRejects(), 0L);
+        assertEquals(client.getFills(), 10_000L, "Each sell and the buy before it should both be sent a fill.");
+        assertEquals(tradeDao.size(), 5_000L);
+    }
+
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), gateway.getPort()));
+    }
+
+    private interface Encoder {
+
+        void encode(ByteBuffer buffer);
+    }
+
+    private void send(SocketChannel channel, Encoder encoder) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MESSAGE_SIZE);
+        encoder.encode(buffer);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private ByteBuffer receive(SocketChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MESSAGE_SIZE);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("The gateway closed the connection");
+            }
+        }
+        return buffer;
+    }
+}
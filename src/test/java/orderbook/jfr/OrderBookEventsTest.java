@@ -0,0 +1,64 @@
+package orderbook.jfr;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import orderbook.RestoreGlobalIds;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoFileImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.SellOrder;
+import orderbook.service.OrderBookServiceLayer;
+import orderbook.service.OrderBookServiceLayerImpl;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class OrderBookEventsTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    public void testEventsAreRecorded() throws Exception {
+        File tradeFile = new File(directory, "trades.txt");
+        tradeFile.createNewFile();
+        OrderBookEngine engine = new OrderBookEngine();
+        OrderBookServiceLayer service = new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), new TradeDaoFileImpl(tradeFile.getPath()));
+        File dump = new File(directory, "events.jfr");
+
+        try (Recording recording = new Recording()) {
+            for (String event : List.of("orderbook.OrderAccepted", "orderbook.TradeExecuted",
+                    "orderbook.MatchAll", "orderbook.DaoIo")) {
+                recording.enable(event).withoutThreshold();
+            }
+            recording.start();
+            service.addBuyOrder(new BuyOrder(1, new BigDecimal("190.00"), 30));
+            service.addSellOrder(new SellOrder(2, new BigDecimal("190.00"), 20));
+            service.matchAllOrders();
+            recording.stop();
+            recording.dump(dump.toPath());
+        }
+
+        Map<String, RecordedEvent> events = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump.toPath())) {
+            events.merge(event.getEventType().getName(), event, (first, second) -> first);
+        }
+        assertEquals(events.get("orderbook.OrderAccepted").getString("side"), "BUY");
+        assertEquals(events.get("orderbook.OrderAccepted").getLong("bookDepth"), 1L);
+        assertEquals(events.get("orderbook.TradeExecuted").getInt("quantity"), 20);
+        assertEquals(events.get("orderbook.MatchAll").getInt("trades"), 1);
+        assertEquals(events.get("orderbook.DaoIo").getString("operation"), DaoIoEvent.WRITE);
+        assertEquals(events.get("orderbook.DaoIo").getString("file"), tradeFile.getPath());
+    }
+}
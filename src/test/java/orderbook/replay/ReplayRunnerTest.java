@@ -0,0 +1,102 @@
+package orderbook.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import orderbook.RestoreGlobalIds;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.exceptions.PersistenceException;
+import orderbook.service.OrderBookServiceLayerImpl;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class ReplayRunnerTest {
+
+    @TempDir
+    File directory;
+    private TradeDaoMappedImpl tradeDao;
+    private OrderBookEngine engine;
+    private OrderBookServiceLayerImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        tradeDao = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath(), 1024, null);
+        engine = new OrderBookEngine();
+        service = new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), tradeDao);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tradeDao.close();
+    }
+
+    @Test
+    public void testTimedOrderFlowAtScaledRate() throws IOException, PersistenceException {
+        // A bid of 30, then every millisecond an IOC ask of 10 against it and a FOK ask of 40 that is killed.
+        File orderFlow = new File(directory, "flow.txt");
+        try (PrintWriter out = new PrintWriter(orderFlow)) {
+            out.println("2021-04-09T14:00:00::BUY::1::190.5::30");
+            for (int i = 0; i < 3; i++) {
+                out.println("2021-04-09T14:00:00.00" + (i + 1) + "::SELL::" + (2 * i + 2) + "::190.4::10::IOC");
+                out.println("2021-04-09T14:00:00.00" + (i + 1) + "5::SELL::" + (2 * i + 3) + "::190.4::40::FOK");
+            }
+        }
+
+        // At half speed the 3.5 ms of flow takes at least 7 ms to replay.
+        ReplayRunner runner = new ReplayRunner(service, 0.5);
+        try (OrderFlowReader reader = new OrderFlowReader(orderFlow.getPath())) {
+            long nanos = runner.run(reader);
+            assertTrue(nanos >= TimeUnit.MILLISECONDS.toNanos(7), "The orders should be spaced out as captured.");
+        }
+        assertEquals(runner.getOrders(), 7);
+        assertEquals(runner.getTrades(), 3L);
+        assertEquals(tradeDao.size(), 3L);
+        assertEquals(engine.getBids().size(), 0, "The bid should have been filled by the IOC asks.");
+        assertEquals(engine.getAsks().size(), 0, "Neither IOC nor FOK orders should rest.");
+        assertTrue(runner.getLatencyPercentile(50) <= runner.getLatencyPercentile(100));
+    }
+
+    @Test
+    public void testOffTickPriceIsRefused() throws IOException, PersistenceException {
+        File orderFlow = new File(directory, "flow.txt");
+        try (PrintWriter out = new PrintWriter(orderFlow)) {
+            out.println("2021-04-09T14:00:00::BUY::1::190.000000005::30");
+        }
+
+        try (OrderFlowReader reader = new OrderFlowReader(orderFlow.getPath())) {
+            PersistenceException e = assertThrows(PersistenceException.class, reader::next);
+            assertTrue(e.getCause() instanceof IllegalArgumentException, "A price between two ticks should be refused.");
+        }
+    }
+
+    @Test
+    public void testLegacyOrderFilesAlternate() throws IOException, PersistenceException {
+        File buyOrders = new File(directory, "buys.txt");
+        File sellOrders = new File(directory, "sells.txt");
+        try (PrintWriter buys = new PrintWriter(buyOrders); PrintWriter sells = new PrintWriter(sellOrders)) {
+            buys.println("1::190.5::20");
+            buys.println("3::190.1::20");
+            sells.println("2::190.4::10");
+        }
+
+        ReplayRunner runner = new ReplayRunner(service, 0);
+        try (OrderFlowReader reader = new OrderFlowReader(buyOrders.getPath(), sellOrders.getPath())) {
+            runner.run(reader);
+        }
+        assertEquals(runner.getOrders(), 3);
+        assertEquals(runner.getTrades(), 1L, "The sell should have traded against the buy before it.");
+        assertEquals(engine.getBids().size(), 2);
+    }
+}
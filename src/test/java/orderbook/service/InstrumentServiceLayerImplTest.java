@@ -0,0 +1,108 @@
+package orderbook.service;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import orderbook.RestoreGlobalIds;
+import orderbook.dao.CandleAggregator;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Candle;
+import orderbook.dto.CandleInterval;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.NoMatchException;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class InstrumentServiceLayerImplTest {
+
+    @TempDir
+    File directory;
+    private TradeDaoMappedImpl tradeDao;
+    private InstrumentServiceLayerImpl service;
+
+    @BeforeEach
+    public void setUp() {
+        tradeDao = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath(), 1024, null);
+        service = new InstrumentServiceLayerImpl(new OrderBookFactoryMemoryImpl(tradeDao), 4);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        service.close();
+        tradeDao.close();
+    }
+
+    @Test
+    public void testBooksAreIndependentPerSymbol() throws PersistenceException, NoMatchException {
+        service.addBuyOrder(new BuyOrder("AAPL", 1, PriceTicks.toTicks(new BigDecimal("150")), 10));
+        service.addSellOrder(new SellOrder("AAPL", 2, PriceTicks.toTicks(new BigDecimal("149")), 10));
+        service.addSellOrder(new SellOrder("MSFT", 3, PriceTicks.toTicks(new BigDecimal("149")), 10));
+
+        Trade trade = service.match("AAPL");
+        assertEquals(trade.getSymbol(), "AAPL", "A trade should carry the symbol of its book.");
+        assertEquals(service.getOrderStats("AAPL").get(1).getCount(), 0L);
+        assertEquals(service.getOrderStats("MSFT").get(1).getCount(), 1L, "The MSFT book should be untouched.");
+        assertThrows(NoMatchException.class, () -> service.match("MSFT"));
+        assertEquals(tradeDao.getTrade(trade.getTradeId()).getSymbol(), "AAPL");
+    }
+
+    @Test
+    public void testConcurrentSymbolsAcrossWorkers() throws PersistenceException {
+        List<CompletableFuture<Integer>> sweeps = new ArrayList<>();
+        for (int s = 0; s < 200; s++) {
+            String symbol = "SYM" + s;
+            for (int i = 0; i < 10; i++) {
+                BuyOrder buy = new BuyOrder(symbol, Order.nextGlobalId(), PriceTicks.toTicks(new BigDecimal("100")), 5);
+                SellOrder sell = new SellOrder(symbol, Order.nextGlobalId(), PriceTicks.toTicks(new BigDecimal("99")), 5);
+                service.submit(symbol, book -> book.addBuyOrder(buy));
+                service.submit(symbol, book -> book.addSellOrder(sell));
+            }
+            sweeps.add(service.submit(symbol, OrderBookServiceLayer::matchAllOrders));
+        }
+
+        int trades = sweeps.stream().mapToInt(CompletableFuture::join).sum();
+        assertEquals(trades, 2000, "Every book should match its own ten crossing pairs.");
+        assertEquals(service.getSymbols().size(), 200);
+        assertEquals(tradeDao.getTrades().stream().map(Trade::getTradeId).distinct().count(), 2000L,
+                "Trade ids should stay unique across workers.");
+    }
+
+    @Test
+    public void testSymbolThatIsNotAFileNameIsRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.addBuyOrder(new BuyOrder("../x", 1, PriceTicks.toTicks(new BigDecimal("150")), 10)));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.addBuyOrder(new BuyOrder("TOOLONGSYM", 2, PriceTicks.toTicks(new BigDecimal("150")), 10)));
+        assertEquals(service.getSymbols().size(), 0);
+    }
+
+    @Test
+    public void testFactoryFeedsItsCandles() throws PersistenceException, NoMatchException {
+        OrderBookFactoryMemoryImpl factory = new OrderBookFactoryMemoryImpl(tradeDao);
+        assertThrows(IllegalStateException.class,
+                () -> factory.createOrderBook("IBM").getCandles("IBM", CandleInterval.ONE_MINUTE, 10));
+
+        CandleAggregator candles = new CandleAggregator();
+        factory.setCandleAggregator(candles);
+        OrderBookServiceLayer book = factory.createOrderBook("IBM");
+        book.addBuyOrder(new BuyOrder("IBM", 1, PriceTicks.toTicks(new BigDecimal("120")), 10));
+        book.addSellOrder(new SellOrder("IBM", 2, PriceTicks.toTicks(new BigDecimal("119")), 10));
+        book.match();
+        List<Candle> minutes = book.getCandles("IBM", CandleInterval.ONE_MINUTE, 10);
+        assertEquals(minutes.size(), 1);
+        assertEquals(minutes.get(0).getVolume(), 10L);
+    }
+}
@@ -0,0 +1,65 @@
+package orderbook.service;
+
+import java.io.IOException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(histogram.getCount(), 100_000L);
+        assertEquals(histogram.getMax(), 100_000L);
+        assertEquals(histogram.getPercentile(100), 100_000L);
+        assertEquals(histogram.getPercentile(0), 1L);
+        for (double percentile : new double[] {50, 99, 99.9}) {
+            long exact = Math.round(percentile * 1000);
+            long reported = histogram.getPercentile(percentile);
+            assertTrue(reported >= exact && reported <= exact + exact / 16,
+                    "p" + percentile + " should be rounded up by at most 1/16: " + reported);
+        }
+    }
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        for (long value : new long[] {0, 15, 16, 17, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(LatencyHistogram.highestValue(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) < value,
+                    value + " should fall in the first bucket that can hold it.");
+        }
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            long nanos = (i + 1) * 1000;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100_000; j++) {
+                    histogram.record(nanos);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(histogram.getCount(), 400_000L, "No recording should be lost.");
+        assertEquals(histogram.getMax(), 4000L);
+    }
+
+    @Test
+    public void testFailedStatisticsLogIsReported() {
+        LatencyMetrics metrics = new LatencyMetrics("no-such-directory/latency.log", 1000);
+        metrics.start();
+        assertThrows(IOException.class, metrics::close);
+    }
+}
@@ -0,0 +1,85 @@
+package orderbook.service;
+
+import java.io.File;
+import java.util.List;
+import orderbook.RestoreGlobalIds;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.Order;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class LoadGeneratorTest {
+
+    private static final List<String> SYMBOLS = List.of("AAPL", "MSFT", "TSLA");
+
+    @TempDir
+    File directory;
+    private TradeDaoMappedImpl tradeDao;
+    private int orderGlobalId;
+
+    @BeforeEach
+    public void setUp() {
+        orderGlobalId = Order.getGlobalId();
+        tradeDao = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath(), 1 << 16, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tradeDao.close();
+    }
+
+    @Test
+    public void testParallelStreamIsReproducible() throws PersistenceException, InterruptedException {
+        LoadProfile profile = new LoadProfile();
+        profile.setCancelRatio(0.2);
+
+        // The same seed gives every book the same flow, whether the books share a worker or not.
+        String[] first = streamBooks(profile, 1);
+        String[] second = streamBooks(profile, 3);
+        for (int i = 0; i < SYMBOLS.size(); i++) {
+            assertEquals(second[i], first[i], "The " + SYMBOLS.get(i) + " book should end up the same.");
+        }
+        assertTrue(tradeDao.size() > 0);
+    }
+
+    @Test
+    public void testGenerateOrdersBulkLoadsWithoutMatching() throws PersistenceException {
+        OrderBookEngine engine = new OrderBookEngine();
+        OrderBookServiceLayer book = new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), tradeDao);
+        LoadProfile profile = new LoadProfile();
+        profile.setQuantityRange(5, 5);
+
+        new LoadGenerator(profile, 11).bulkLoad(book, 500, 1000);
+        assertEquals(engine.getBids().size(), 500);
+        assertEquals(engine.getAsks().size(), 500);
+        assertEquals(book.getOrderStats().get(0).getTotalQuantity(), 2500L);
+        assertTrue(Order.getGlobalId() >= 2000, "The generated ids should not be handed out again.");
+    }
+
+    private String[] streamBooks(LoadProfile profile, int workers) throws PersistenceException, InterruptedException {
+        InstrumentServiceLayerImpl instruments = new InstrumentServiceLayerImpl(new OrderBookFactoryMemoryImpl(tradeDao), workers);
+        try {
+            Order.setGlobalId(orderGlobalId);
+            new LoadGenerator(profile, 42).stream(instruments, SYMBOLS, 20_000);
+            String[] books = new String[SYMBOLS.size()];
+            for (int i = 0; i < books.length; i++) {
+                books[i] = instruments.getOrderStats(SYMBOLS.get(i)) + " " + instruments.getDepth(SYMBOLS.get(i), 10);
+            }
+            return books;
+        }
+        finally {
+            instruments.close();
+        }
+    }
+}
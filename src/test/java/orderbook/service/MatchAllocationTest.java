@@ -0,0 +1,82 @@
+package orderbook.service;
+
+import com.sun.management.ThreadMXBean;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import orderbook.RestoreGlobalIds;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.SellOrder;
+import orderbook.exceptions.NoMatchException;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class MatchAllocationTest {
+
+    private static final int BUY_ORDERS = 10_000;
+    private static final int LEVELS = 10;
+
+    @TempDir
+    File directory;
+    private TradeDaoMappedImpl tradeDao;
+    private OrderBookEngine engine;
+    private OrderBookServiceLayer service;
+
+    @BeforeEach
+    public void setUp() {
+        // One segment holds every trade, so none is mapped while allocation is measured.
+        tradeDao = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath(), 4 * BUY_ORDERS, null);
+        engine = new OrderBookEngine();
+        service = new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine),
+                new SellOrderDaoMemoryImpl(engine), tradeDao);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tradeDao.close();
+    }
+
+    @Test
+    public void testMatchDoesNotAllocate() throws PersistenceException, NoMatchException {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        // Each bid of 30 is filled by three asks of 10: two partial fills of the bid, then a full
+        // fill of both. Levels on both sides are emptied and dropped as the book is worked through.
+        for (int i = 0; i < BUY_ORDERS; i++) {
+            service.addBuyOrder(new BuyOrder(i, 2000 + i % LEVELS, 30));
+        }
+        for (int i = 0; i < 3 * BUY_ORDERS; i++) {
+            service.addSellOrder(new SellOrder(i, 1000 + i % LEVELS, 10));
+        }
+        int matches = 3 * BUY_ORDERS;
+        int warmUp = matches / 2;
+        for (int i = 0; i < warmUp; i++) {
+            service.recycleTrade(service.match());
+        }
+
+        long overhead = -threads.getCurrentThreadAllocatedBytes() + threads.getCurrentThreadAllocatedBytes();
+        long start = threads.getCurrentThreadAllocatedBytes();
+        for (int i = warmUp; i < matches; i++) {
+            service.recycleTrade(service.match());
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - start - overhead;
+
+        // Averaged over the matches, as the JVM can allocate on the thread's behalf now and then,
+        // for instance when compiled code is deoptimized; one object per match is 16 bytes or more.
+        assertEquals(allocated / (matches - warmUp), 0L, "Matching should not allocate once trades are recycled.");
+        assertTrue(engine.getBids().isEmpty() && engine.getAsks().isEmpty(), "Every order should have been filled.");
+        assertEquals(tradeDao.size(), (long) matches);
+    }
+}
@@ -11,12 +11,15 @@ import orderbook.dao.SellOrderDao;
 import orderbook.dao.SellOrderDaoFileImpl;
 import orderbook.dto.BuyOrder;
 import orderbook.dto.Order;
+import orderbook.dto.OrderType;
+import orderbook.dto.PriceTicks;
 import orderbook.dto.SellOrder;
 import orderbook.dto.Trade;
 import orderbook.exceptions.NoMatchException;
 import orderbook.exceptions.PersistenceException;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.BeforeEach;
@@ -330,6 +333,56 @@ public class OrderBookServiceLayerImplTest {
         
     }
     
+    @Test
+    public void testExecuteOrderTypes() throws PersistenceException {
+        
+        // Three ask levels: 10 at 190.1, 20 at 190.2 and 30 at 190.3.
+        sellOrderDao.addSellOrder(new SellOrder(1, new BigDecimal("190.1"), 10));
+        sellOrderDao.addSellOrder(new SellOrder(2, new BigDecimal("190.2"), 20));
+        sellOrderDao.addSellOrder(new SellOrder(3, new BigDecimal("190.3"), 30));
+        long limit = PriceTicks.toTicks(new BigDecimal("190.2"));
+        
+        // A FOK order that the levels up to its limit cannot fill is killed without trading.
+        BuyOrder fok = new BuyOrder(Order.DEFAULT_SYMBOL, 4, limit, 40, OrderType.FOK);
+        assertTrue(service.executeBuyOrder(fok).isEmpty(), "An unfillable FOK order should not trade.");
+        assertEquals(sellOrderDao.getAllSellOrders().size(), 3, "A killed FOK order should leave the book untouched.");
+        
+        // An IOC order sweeps both levels up to its limit and its remainder is cancelled.
+        BuyOrder ioc = new BuyOrder(Order.DEFAULT_SYMBOL, 5, limit, 25, OrderType.IOC);
+        List<Trade> trades = service.executeBuyOrder(ioc);
+        assertEquals(trades.size(), 2, "The IOC order should trade at two levels.");
+        assertEquals(trades.get(0).getQuantity(), 10);
+        assertEquals(trades.get(1).getQuantity(), 15);
+        assertEquals(trades.get(1).getPrice().compareTo(new BigDecimal("190.2")), 0, "Trades take the resting price.");
+        assertEquals(sellOrderDao.getBestSellOrder().getQuantity(), 5, "The partly filled ask should keep its remainder.");
+        
+        // A market order trades through every level regardless of price.
+        BuyOrder market = new BuyOrder(Order.DEFAULT_SYMBOL, 6, 0, 100, OrderType.MARKET);
+        assertEquals(service.executeBuyOrder(market).size(), 2);
+        assertEquals(market.getQuantity(), 65, "The market order should be left with its unfilled quantity.");
+        assertTrue(sellOrderDao.getAllSellOrders().isEmpty());
+        assertTrue(buyOrderDao.getAllBuyOrders().isEmpty(), "Neither remainder should rest in the book.");
+        
+        // A limit order that does not cross rests in the book.
+        SellOrder limitOrder = new SellOrder(Order.DEFAULT_SYMBOL, 7, limit, 10, OrderType.LIMIT);
+        assertTrue(service.executeSellOrder(limitOrder).isEmpty());
+        assertEquals(sellOrderDao.getBestSellOrder().getId(), 7, "A limit order's remainder should rest.");
+    }
+    
+    @Test
+    public void testAmendOrderValidatesPriceAndQuantity() throws PersistenceException {
+        sellOrderDao.addSellOrder(new SellOrder(1, new BigDecimal("190.1"), 10));
+        long price = PriceTicks.toTicks(new BigDecimal("190.2"));
+        
+        assertThrows(IllegalArgumentException.class, () -> service.amendOrder(1, 0, 10), "A price of zero should be refused.");
+        assertThrows(IllegalArgumentException.class, () -> service.amendOrder(1, -price, 10));
+        assertThrows(IllegalArgumentException.class, () -> service.amendOrder(1, price, 0), "A quantity of zero should be refused.");
+        assertThrows(IllegalArgumentException.class, () -> service.amendOrder(1, price, -5));
+        assertEquals(sellOrderDao.getBestSellOrder().getQuantity(), 10, "A refused amendment should leave the order as it was.");
+        
+        assertEquals(service.amendOrder(1, price, 5).getPriceTicks(), price);
+    }
+    
     
     
     
@@ -0,0 +1,104 @@
+package orderbook.service;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import orderbook.RestoreGlobalIds;
+import orderbook.dao.BuyOrderDaoMemoryImpl;
+import orderbook.dao.OrderBookEngine;
+import orderbook.dao.SellOrderDaoMemoryImpl;
+import orderbook.dao.TradeDaoMappedImpl;
+import orderbook.dto.BuyOrder;
+import orderbook.dto.Order;
+import orderbook.dto.PriceTicks;
+import orderbook.dto.SellOrder;
+import orderbook.dto.Trade;
+import orderbook.exceptions.PersistenceException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+@ExtendWith(RestoreGlobalIds.class)
+public class OrderSequencerTest {
+
+    @TempDir
+    File directory;
+    private TradeDaoMappedImpl tradeDao;
+    private OrderBookServiceLayer service;
+
+    @BeforeEach
+    public void setUp() {
+        tradeDao = new TradeDaoMappedImpl(new File(directory, "trades.dat").getPath(), 1024, null);
+        OrderBookEngine engine = new OrderBookEngine();
+        service = new OrderBookServiceLayerImpl(new BuyOrderDaoMemoryImpl(engine), new SellOrderDaoMemoryImpl(engine),
+                tradeDao);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tradeDao.close();
+    }
+
+    @Test
+    public void testConcurrentProducersThroughSmallRing() throws InterruptedException, PersistenceException {
+        // A ring much smaller than the number of submissions makes the producers wrap around it.
+        OrderSequencer sequencer = new OrderSequencer(service, 8, WaitStrategy.YIELD);
+        long price = PriceTicks.toTicks(new BigDecimal("190"));
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    sequencer.submitBuyOrder(new BuyOrder(Order.nextGlobalId(), price, 10));
+                    sequencer.submitSellOrder(new SellOrder(Order.nextGlobalId(), price, 10));
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        sequencer.awaitProcessed(sequencer.submitMatchAllOrders());
+
+        assertEquals(sequencer.getProcessedSequence(), 4000L, "Every submission should be applied once.");
+        assertEquals(sequencer.getErrorCount(), 0L);
+        assertEquals(sequencer.getTradeCount(), 2000L);
+        assertEquals(service.checkOrderEmpty(), true, "Every crossing pair should have been matched.");
+        assertEquals(tradeDao.getTrades().stream().map(Trade::getTradeId).distinct().count(), 2000L);
+        sequencer.close();
+    }
+
+    @Test
+    public void testSubmissionsAreAppliedInSequenceOrder() throws InterruptedException, PersistenceException {
+        OrderSequencer sequencer = new OrderSequencer(service, 16, WaitStrategy.PARK);
+        long price = PriceTicks.toTicks(new BigDecimal("190"));
+        for (int i = 1; i <= 100; i++) {
+            sequencer.submitBuyOrder(new BuyOrder(1000 + i, price, i));
+        }
+        sequencer.close();
+
+        List<Order> buyOrders = service.getOrderBook().get(0);
+        assertEquals(buyOrders.size(), 100, "Closing should drain the ring first.");
+        for (int i = 0; i < 100; i++) {
+            assertEquals(buyOrders.get(i).getId(), 1001 + i, "Orders at one price should keep submission order.");
+        }
+    }
+
+    @Test
+    public void testClosedSequencerRefusesSubmissions() throws InterruptedException {
+        OrderSequencer sequencer = new OrderSequencer(service, 16, WaitStrategy.YIELD);
+        long sequence = sequencer.submitBuyOrder(new BuyOrder(1001, PriceTicks.toTicks(new BigDecimal("190")), 10));
+        sequencer.close();
+
+        sequencer.awaitProcessed(sequence);
+        assertThrows(IllegalStateException.class, () -> sequencer.submitCancelOrder(1001),
+                "Nothing may be submitted once the sequencer is closed.");
+        assertThrows(IllegalStateException.class, () -> sequencer.awaitProcessed(sequence + 1),
+                "Waiting for a submission the stopped matcher never applies should fail.");
+    }
+}